@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Support for compressed (gzip or bzip2) input files.
+ * The compression is detected by extension or by the magic bytes at the start of the file.  The decompression is done
+ * on a separate thread which hands blocks of decompressed data to the reader through a bounded queue, so decompression
+ * overlaps with parsing and analysis and no uncompressed copy is written to disk.
+ */
+final class CompressedInput {
+	/** The supported compression formats. */
+	enum Compression {
+		NONE,
+		GZIP,
+		BZIP2
+	}
+
+	/** The size of each block of decompressed data. */
+	static final int BLOCK_SIZE = 256 * 1024;
+	/** The maximum number of decompressed blocks queued ahead of the reader. */
+	static final int QUEUE_DEPTH = 16;
+
+	private static final byte[] END = new byte[0];
+
+	private CompressedInput() {
+	}
+
+	/**
+	 * Determine the compression (if any) of a file.
+	 * @param path The file.
+	 * @return The compression format of the file (NONE if the file does not exist, this is reported when it is opened).
+	 * @throws IOException If the file cannot be read.
+	 */
+	static Compression detect(final Path path) throws IOException {
+		if (!Files.isRegularFile(path))
+			return Compression.NONE;
+
+		final String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".gz") || name.endsWith(".gzip"))
+			return Compression.GZIP;
+		if (name.endsWith(".bz2"))
+			return Compression.BZIP2;
+
+		final byte[] magic = new byte[3];
+		int read = 0;
+		try (InputStream in = Files.newInputStream(path)) {
+			int n;
+			while (read < magic.length && (n = in.read(magic, read, magic.length - read)) != -1)
+				read += n;
+		}
+		if (read >= 2 && (magic[0] & 0xFF) == 0x1f && (magic[1] & 0xFF) == 0x8b)
+			return Compression.GZIP;
+		if (read == 3 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h')
+			return Compression.BZIP2;
+
+		return Compression.NONE;
+	}
+
+	/**
+	 * The name of the file with any compression extension removed.
+	 * @param filename The name of the file.
+	 * @return The name of the file without the compression extension.
+	 */
+	static String stripExtension(final String filename) {
+		final String lower = filename.toLowerCase(Locale.ROOT);
+		for (final String extension : new String[] { ".gz", ".gzip", ".bz2" })
+			if (lower.endsWith(extension))
+				return filename.substring(0, filename.length() - extension.length());
+		return filename;
+	}
+
+	/**
+	 * Open a file, decompressing it on a background thread if it is compressed.
+	 * @param path The file.
+	 * @param compression The compression format of the file (see {@link #detect(Path)}).
+	 * @return An InputStream over the (uncompressed) content.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	static InputStream open(final Path path, final Compression compression) throws IOException {
+		final InputStream raw = Files.newInputStream(path);
+		try {
+			switch (compression) {
+			case GZIP:
+				return new Decompressor(new GZIPInputStream(raw, BLOCK_SIZE), path.toString());
+			case BZIP2:
+				return new Decompressor(new BZip2CompressorInputStream(raw, true), path.toString());
+			default:
+				return raw;
+			}
+		} catch (IOException | RuntimeException e) {
+			// The decompressing stream could not be constructed (e.g. a corrupt header)
+			raw.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * An InputStream fed by a thread reading from the decompressing stream.
+	 */
+	private static final class Decompressor extends InputStream implements Runnable {
+		private final InputStream source;
+		private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+		private final Thread thread;
+		private final String name;
+		private volatile Throwable failure;
+		private volatile boolean closed;
+		private byte[] current;
+		private int currentLength;
+		private int offset;
+		private boolean eof;
+
+		private Decompressor(final InputStream source, final String name) {
+			this.source = source;
+			this.name = name;
+			this.thread = new Thread(this, "fta-decompress-" + name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!closed) {
+					final byte[] block = new byte[BLOCK_SIZE];
+					int filled = 0;
+					int n;
+					while (filled < BLOCK_SIZE && (n = source.read(block, filled, BLOCK_SIZE - filled)) != -1)
+						filled += n;
+					if (filled == 0)
+						break;
+					// The final block is typically short, record its length by copying
+					queue.put(filled == BLOCK_SIZE ? block : Arrays.copyOf(block, filled));
+					if (filled < BLOCK_SIZE)
+						break;
+				}
+			} catch (InterruptedException e) {
+				if (!closed)
+					failure = e;
+				Thread.currentThread().interrupt();
+			} catch (Throwable t) {
+				// Record any failure so that the reader does not mistake truncated data for a clean end of file
+				failure = t;
+			}
+			finally {
+				try {
+					source.close();
+				} catch (IOException e) {
+					// Nothing useful to do
+				}
+				if (!closed)
+					try {
+						queue.put(END);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+			}
+		}
+
+		private boolean fill() throws IOException {
+			if (eof)
+				return false;
+			try {
+				current = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while decompressing", e);
+			}
+			if (current == END) {
+				eof = true;
+				if (failure instanceof IOException)
+					throw (IOException)failure;
+				if (failure != null)
+					throw new IOException("Failed decompressing '" + name + "'", failure);
+				return false;
+			}
+			currentLength = current.length;
+			offset = 0;
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if ((current == null || offset == currentLength) && !fill())
+				return -1;
+			return current[offset++] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if ((current == null || offset == currentLength) && !fill())
+				return -1;
+			final int n = Math.min(len, currentLength - offset);
+			System.arraycopy(current, offset, b, off, n);
+			offset += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			// Unblock the decompression thread if it is waiting for space in the queue
+			thread.interrupt();
+			queue.clear();
+		}
+	}
+}
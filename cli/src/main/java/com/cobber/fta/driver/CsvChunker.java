@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Split a delimited file into byte ranges of (roughly) equal size, each of which starts and ends on a record boundary.
+ * A boundary is a newline that is not within a quoted field.  Each candidate region of the file is scanned in parallel
+ * to determine the parity of the quotes it contains and the first newline under each of the two possible quote states
+ * at the start of the region, the quote state at the start of each region is then resolved in order.
+ * This assumes the quote character only appears as a field delimiter or doubled within a quoted field (i.e. RFC 4180).
+ * As a stray quote silently inverts the quote state, callers verify that each range starts on a record boundary.
+ * The quote character and newline are assumed to be single bytes (i.e. ASCII if the file is UTF-8).
+ */
+final class CsvChunker {
+	/** The minimum size of a range, files smaller than this are not split. */
+	static final long MIN_CHUNK_SIZE = 1024 * 1024;
+	/** The quote character to use where a newline is never quoted (e.g. JSON Lines), a NUL byte does not occur in text. */
+	static final byte NO_QUOTE = 0;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The result of scanning a single region. */
+	private static final class Region {
+		/** True if the region contains an odd number of quote characters. */
+		private boolean oddQuotes;
+		/** Offset of the first newline outside quotes assuming the region starts outside (resp. inside) a quoted field, -1 if none. */
+		private final long[] firstNewline = { -1, -1 };
+	}
+
+	private CsvChunker() {
+	}
+
+	/**
+	 * Can files in this Charset be split by scanning for single byte quotes and newlines?
+	 * @param charset The Charset of the file.
+	 * @return True if the Charset is UTF-8 or a single byte Charset.
+	 */
+	static boolean isSplittable(final Charset charset) {
+		return StandardCharsets.UTF_8.equals(charset) || charset.newEncoder().maxBytesPerChar() == 1.0;
+	}
+
+	/**
+	 * Locate the start of the data, i.e. the offset after the first 'skip' lines (which are not assumed to be valid CSV)
+	 * and the header record.
+	 * @param channel The FileChannel for the file.
+	 * @param skip The number of lines to skip before the header.
+	 * @param quote The quote character.
+	 * @return The offset of the first byte following the header record (the size of the file if there is no data).
+	 * @throws IOException If the file cannot be read.
+	 */
+	static long dataStart(final FileChannel channel, final int skip, final byte quote) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		int lines = 0;
+		boolean inQuotes = false;
+		long position = 0;
+
+		while (true) {
+			buffer.clear();
+			final int read = channel.read(buffer, position);
+			if (read <= 0)
+				return position;
+			final byte[] bytes = buffer.array();
+			for (int i = 0; i < read; i++) {
+				if (lines >= skip && bytes[i] == quote)
+					inQuotes = !inQuotes;
+				else if (bytes[i] == '\n' && !inQuotes && ++lines > skip)
+					return position + i + 1;
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Determine the boundaries of the ranges for the file.
+	 * @param channel The FileChannel for the file.
+	 * @param start The offset at which the data starts (see {@link #dataStart(FileChannel, int, byte)}), the first range
+	 * includes everything prior to this offset.
+	 * @param chunks The desired number of ranges.
+	 * @param quote The quote character.
+	 * @param executor The executor used to scan the regions in parallel.
+	 * @return The offsets of the boundaries, the first is 0 and the last is the size of the file, so range i is
+	 * [ret[i], ret[i + 1]).  An array of length 2 indicates the file was not split.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static long[] split(final FileChannel channel, final long start, final int chunks, final byte quote, final ExecutorService executor) throws IOException {
+		final long size = channel.size();
+		final long length = size - start;
+		final int regions = (int)Math.max(1, Math.min(chunks, length / MIN_CHUNK_SIZE));
+		if (regions == 1)
+			return new long[] { 0, size };
+
+		final List<Future<Region>> futures = new ArrayList<>();
+		for (int i = 0; i < regions; i++) {
+			final long regionStart = start + length * i / regions;
+			final long regionEnd = start + length * (i + 1) / regions;
+			futures.add(executor.submit(() -> scan(channel, regionStart, regionEnd, quote)));
+		}
+
+		final List<Long> boundaries = new ArrayList<>();
+		boundaries.add(0L);
+		boolean inQuotes = false;
+		for (int i = 0; i < regions; i++) {
+			final Region region = get(futures.get(i));
+			// The first region always starts a range, subsequent regions start one after the first newline outside quotes
+			if (i != 0) {
+				final long newline = region.firstNewline[inQuotes ? 1 : 0];
+				if (newline != -1 && newline + 1 < size)
+					boundaries.add(newline + 1);
+			}
+			inQuotes ^= region.oddQuotes;
+		}
+		boundaries.add(size);
+
+		return boundaries.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static Region scan(final FileChannel channel, final long start, final long end, final byte quote) {
+		final Region ret = new Region();
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = start;
+		boolean odd = false;
+
+		try {
+			while (position < end) {
+				buffer.clear();
+				buffer.limit((int)Math.min(BUFFER_SIZE, end - position));
+				final int read = channel.read(buffer, position);
+				if (read <= 0)
+					break;
+				final byte[] bytes = buffer.array();
+				for (int i = 0; i < read; i++) {
+					final byte b = bytes[i];
+					if (b == quote)
+						odd = !odd;
+					else if (b == '\n') {
+						// Outside quotes if the parity so far matches the assumed starting state
+						final int state = odd ? 1 : 0;
+						if (ret.firstNewline[state] == -1)
+							ret.firstNewline[state] = position + i;
+					}
+				}
+				position += read;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		ret.oddQuotes = odd;
+
+		return ret;
+	}
+
+	private static Region get(final Future<Region> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while splitting file", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException)e.getCause()).getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Open an InputStream over a range of the file.  The stream does not own the channel, closing it is a no-op.
+	 * @param channel The FileChannel for the file.
+	 * @param start The offset of the first byte of the range.
+	 * @param end The offset one past the last byte of the range.
+	 * @return A buffered InputStream over the range.
+	 */
+	static InputStream open(final FileChannel channel, final long start, final long end) {
+		return new BufferedInputStream(new RangeInputStream(channel, start, end), BUFFER_SIZE);
+	}
+
+	/*
+	 * Positional reads are used so that multiple ranges can be read concurrently from the same channel.
+	 */
+	private static final class RangeInputStream extends InputStream {
+		private final FileChannel channel;
+		private final long end;
+		private long position;
+
+		private RangeInputStream(final FileChannel channel, final long start, final long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (position >= end)
+				return -1;
+			if (len == 0)
+				return 0;
+			final int read = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, end - position)), position);
+			if (read <= 0)
+				return -1;
+			position += read;
+			return read;
+		}
+	}
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.cobber.fta.TextAnalyzer;
+import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FTAUnsupportedLocaleException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A resident profiling service, which avoids paying the JVM start-up, plugin/reference data loading, and JIT warm-up
+ * costs for every file analyzed.  The service listens (on the loopback interface only) using the JDK HTTP server.
+ * <ul>
+ * <li>POST /analyze?file=&lt;path&gt;&amp;arg=&lt;option&gt;... - analyze a file local to the daemon, each arg is a
+ * command line option (e.g. arg=--locale&amp;arg=en-US).</li>
+ * <li>POST /analyze?name=&lt;name&gt;&amp;arg=&lt;option&gt;... - analyze the rows streamed in the request body, the name
+ * is used as the filename (so it determines the composite name, as well as compression and JSON Lines detection).</li>
+ * <li>GET /status - the number of active, queued, completed, and rejected requests.</li>
+ * </ul>
+ * The response to an analysis is a JSON object with the 'output' and 'error' text that the command line would have
+ * written to stdout and stderr, and a 'status' which is non-zero if the analysis failed.
+ * At most --threads analyses run concurrently, and at most --queueDepth more wait, any further requests are rejected
+ * (HTTP 503) so the caller can back off.
+ * Every request must carry the secret token the daemon writes (readable only by its owner) to ~/.fta/daemon-&lt;port&gt;.token
+ * and a loopback Host header, so other users, and web pages loaded in a local browser, cannot use the daemon.  Only the
+ * options that control the analysis are accepted per request (in particular not --output, --trace, or --semanticType),
+ * and a streamed body is limited to {@value #MAX_BODY_BYTES} bytes.
+ */
+public class Daemon {
+	/** The HTTP header used to carry the daemon's secret token. */
+	static final String TOKEN_HEADER = "X-FTA-Token";
+	/** The maximum size of a request body (i.e. streamed rows). */
+	static final long MAX_BODY_BYTES = 1L << 30;
+
+	/** The options that may be supplied with a request, anything that writes files or loads code is excluded. */
+	private static final Set<String> REQUEST_OPTIONS = Set.of(
+			"--abbreviationPunctuation", "--bloomFilterThreshold", "--bulk", "--charset", "--chunks", "--col", "--debug",
+			"--delimiter", "--detectWindow", "--fixedWidth", "--format", "--formatDetection", "--knownTypes", "--locale",
+			"--maxInputLength", "--maxOutlierCardinality", "--maxShapes", "--mmap", "--ndjson", "--noDistributions",
+			"--noNullTextAsNull", "--noPretty", "--noQuantiles", "--noSemanticTypes", "--noStatistics", "--pluginDefinition",
+			"--pluginThreshold", "--profilePlugins", "--quoteChar", "--records", "--resolutionMode", "--samples", "--signature",
+			"--skip", "--testMerge", "--threshold", "--topBottomK", "--trailer", "--validate", "--verbose");
+
+	private final DriverOptions options;
+	private final PrintStream error;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Semaphore admitted;
+	private final Semaphore running;
+	private final AtomicLong active = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private byte[] token;
+	private int port;
+
+	Daemon(final DriverOptions options, final PrintStream error) {
+		this.options = options;
+		this.error = error;
+		this.running = new Semaphore(options.threads, true);
+		this.admitted = new Semaphore(options.threads + options.queueDepth);
+	}
+
+	/**
+	 * Start the service and block until the JVM is terminated.
+	 * @param port The port to listen on.
+	 * @throws IOException If the server cannot be started.
+	 */
+	public void serve(final int port) throws IOException {
+		warm();
+
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.port = server.getAddress().getPort();
+		final Path tokenFile = writeToken(this.port);
+		final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+			final Thread thread = new Thread(r, "fta-daemon");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/analyze", this::analyze);
+		server.createContext("/status", this::status);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(0);
+			tokenFile.toFile().delete();
+		}));
+		server.start();
+		error.printf("FTA daemon listening on %s:%d (threads: %d, queueDepth: %d, token: %s)%n",
+				InetAddress.getLoopbackAddress().getHostAddress(), this.port, options.threads, options.queueDepth, tokenFile);
+
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The file holding the secret token for the daemon listening on the port.
+	 * @param port The port the daemon is listening on.
+	 * @return The Path of the token file.
+	 */
+	static Path tokenFile(final int port) {
+		return Paths.get(System.getProperty("user.home"), ".fta", "daemon-" + port + ".token");
+	}
+
+	/*
+	 * Generate a new secret token and write it to the token file, which is only accessible by the current user.
+	 */
+	private Path writeToken(final int port) throws IOException {
+		final byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		final String hex = HexFormat.of().formatHex(secret);
+		token = hex.getBytes(StandardCharsets.US_ASCII);
+
+		final Path file = tokenFile(port);
+		final boolean posix = file.getFileSystem().supportedFileAttributeViews().contains("posix");
+		if (posix) {
+			Files.createDirectories(file.getParent(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			Files.deleteIfExists(file);
+			Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		else {
+			Files.createDirectories(file.getParent());
+			Files.deleteIfExists(file);
+			Files.createFile(file);
+			final File f = file.toFile();
+			f.setReadable(false, false);
+			f.setWritable(false, false);
+			f.setReadable(true, true);
+			f.setWritable(true, true);
+		}
+		Files.writeString(file, hex, StandardCharsets.US_ASCII);
+
+		return file;
+	}
+
+	/*
+	 * Only accept requests with the secret token and addressed to the loopback interface (a browser subjected to DNS
+	 * rebinding sends the attacker's host name).
+	 */
+	private boolean authorized(final HttpExchange exchange) throws IOException {
+		final String host = exchange.getRequestHeaders().getFirst("Host");
+		if (host == null || !Set.of("127.0.0.1:" + port, "localhost:" + port, "[::1]:" + port).contains(host.toLowerCase(Locale.ROOT))) {
+			respond(exchange, 403, failure("Requests must be addressed to the loopback interface"));
+			return false;
+		}
+		final String supplied = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+		if (supplied == null || !MessageDigest.isEqual(token, supplied.getBytes(StandardCharsets.US_ASCII))) {
+			respond(exchange, 401, failure("Missing or invalid daemon token"));
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Load the plugin definitions and reference data (which are shared by all analyzers) before accepting requests.
+	 */
+	private void warm() {
+		try {
+			final TextAnalyzer analyzer = new TextAnalyzer("warmup");
+			options.apply(analyzer);
+			for (final String sample : new String[] { "john.smith@example.com", "2024-01-31", "94103", "Springfield" })
+				analyzer.train(sample);
+			analyzer.getResult();
+		} catch (IOException | FTAPluginException | FTAUnsupportedLocaleException e) {
+			error.printf("WARNING: Daemon warm-up failed: %s%n", e.getMessage());
+		}
+	}
+
+	private void status(final HttpExchange exchange) throws IOException {
+		try {
+			if (!authorized(exchange))
+				return;
+			final ObjectNode node = mapper.createObjectNode();
+			final long queued = Math.max(0, options.threads + options.queueDepth - admitted.availablePermits() - active.get());
+			node.put("active", active.get());
+			node.put("queued", queued);
+			node.put("completed", completed.get());
+			node.put("rejected", rejected.get());
+			respond(exchange, 200, node);
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private void analyze(final HttpExchange exchange) throws IOException {
+		try {
+			if (!authorized(exchange))
+				return;
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, failure("Only POST is supported"));
+				return;
+			}
+			if (!admitted.tryAcquire()) {
+				rejected.incrementAndGet();
+				respond(exchange, 503, failure("Daemon busy, retry later"));
+				return;
+			}
+			try {
+				running.acquire();
+				active.incrementAndGet();
+				try {
+					process(exchange);
+				}
+				finally {
+					active.decrementAndGet();
+					running.release();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				respond(exchange, 503, failure("Interrupted"));
+			}
+			finally {
+				admitted.release();
+				completed.incrementAndGet();
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private void process(final HttpExchange exchange) throws IOException {
+		final List<String> args = new ArrayList<>();
+		String file = null;
+		String name = null;
+		final String query = exchange.getRequestURI().getRawQuery();
+		if (query != null)
+			for (final String param : query.split("&")) {
+				final int equals = param.indexOf('=');
+				if (equals == -1)
+					continue;
+				final String key = URLDecoder.decode(param.substring(0, equals), StandardCharsets.UTF_8);
+				final String value = URLDecoder.decode(param.substring(equals + 1), StandardCharsets.UTF_8);
+				if ("arg".equals(key))
+					args.add(value);
+				else if ("file".equals(key))
+					file = value;
+				else if ("name".equals(key))
+					name = value;
+			}
+
+		final DriverOptions requestOptions = new DriverOptions(options);
+		try {
+			for (final String arg : args)
+				if (arg.startsWith("--") && !REQUEST_OPTIONS.contains(arg))
+					throw new IllegalArgumentException(String.format("Option '%s' is not supported by the daemon", arg));
+			if (requestOptions.addFromStringArray(args.toArray(new String[0])) != null)
+				throw new IllegalArgumentException("Only analysis options are supported, not files or commands: " + args);
+			if (requestOptions.fixedWidth != null && !requestOptions.fixedWidth.equals(options.fixedWidth) && Files.exists(Paths.get(requestOptions.fixedWidth)))
+				throw new IllegalArgumentException("--fixedWidth layout must be supplied inline when using the daemon");
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, failure(e.getMessage()));
+			return;
+		}
+
+		// Streamed rows are spooled (so they can be re-read if required), the name is retained as it influences the analysis
+		Path spool = null;
+		try (InputStream body = exchange.getRequestBody()) {
+			if (file == null) {
+				final String length = exchange.getRequestHeaders().getFirst("Content-Length");
+				if (length != null && length.matches("\\d{1,18}") && Long.parseLong(length) > MAX_BODY_BYTES) {
+					respond(exchange, 413, failure("Request body exceeds " + MAX_BODY_BYTES + " bytes"));
+					return;
+				}
+				spool = Files.createTempDirectory("fta-daemon");
+				final Path spooled = spool.resolve(baseName(name));
+				if (!spool(body, spooled)) {
+					respond(exchange, 413, failure("Request body exceeds " + MAX_BODY_BYTES + " bytes"));
+					return;
+				}
+				file = spooled.toString();
+			}
+
+			final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+			final ByteArrayOutputStream errorBytes = new ByteArrayOutputStream();
+			final boolean success;
+			try (PrintStream out = new PrintStream(outBytes, true, StandardCharsets.UTF_8);
+					PrintStream err = new PrintStream(errorBytes, true, StandardCharsets.UTF_8)) {
+				success = Driver.processFile(new FileProcessor(err, out, file, requestOptions), file, requestOptions, err) == 0;
+			}
+
+			final ObjectNode node = mapper.createObjectNode();
+			node.put("status", success ? 0 : 1);
+			node.put("output", outBytes.toString(StandardCharsets.UTF_8));
+			node.put("error", errorBytes.toString(StandardCharsets.UTF_8));
+			respond(exchange, 200, node);
+		}
+		finally {
+			if (spool != null)
+				try (Stream<Path> paths = Files.walk(spool)) {
+					paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+				}
+		}
+	}
+
+	/*
+	 * The name of the spooled file, only the final component of the supplied name is used.
+	 */
+	private static String baseName(final String name) {
+		final Path fileName = name == null ? null : Paths.get(name).getFileName();
+		if (fileName == null || ".".equals(fileName.toString()) || "..".equals(fileName.toString()))
+			return "stdin.csv";
+		return fileName.toString();
+	}
+
+	/*
+	 * Copy the body to the file, returns false if the body exceeds MAX_BODY_BYTES.
+	 */
+	private static boolean spool(final InputStream body, final Path file) throws IOException {
+		final byte[] buffer = new byte[64 * 1024];
+		long total = 0;
+		try (OutputStream out = Files.newOutputStream(file)) {
+			int n;
+			while ((n = body.read(buffer)) != -1) {
+				total += n;
+				if (total > MAX_BODY_BYTES)
+					return false;
+				out.write(buffer, 0, n);
+			}
+		}
+		return true;
+	}
+
+	private ObjectNode failure(final String message) {
+		final ObjectNode node = mapper.createObjectNode();
+		node.put("status", 1);
+		node.put("output", "");
+		node.put("error", "ERROR: " + message + String.format("%n"));
+		return node;
+	}
+
+	private void respond(final HttpExchange exchange, final int code, final JsonNode node) throws IOException {
+		final byte[] bytes = mapper.writeValueAsBytes(node);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Submit files to a running daemon (the thin client), the output and error text are written as if the analysis had
+	 * been run locally.
+	 * @param port The port the daemon is listening on.
+	 * @param args The analysis options.
+	 * @param files The files to analyze.
+	 * @param output The stream for the analysis output.
+	 * @param error The stream for the error output.
+	 * @return True if all the files were analyzed successfully.
+	 */
+	public static boolean submit(final int port, final List<String> args, final List<String> files, final PrintStream output, final PrintStream error) {
+		final ObjectMapper mapper = new ObjectMapper();
+		final HttpClient client = HttpClient.newHttpClient();
+		final String token;
+		try {
+			token = Files.readString(tokenFile(port), StandardCharsets.US_ASCII).trim();
+		} catch (IOException e) {
+			error.printf("ERROR: Failed to read the token for the daemon on port %d (%s), is the daemon running as this user?%n", port, tokenFile(port));
+			return false;
+		}
+		final StringBuilder options = new StringBuilder();
+		for (final String arg : args)
+			options.append("&arg=").append(URLEncoder.encode(arg, StandardCharsets.UTF_8));
+		boolean ret = true;
+
+		for (final String file : files) {
+			final String target = URLEncoder.encode(Paths.get(file).toAbsolutePath().toString(), StandardCharsets.UTF_8);
+			final HttpRequest request = HttpRequest.newBuilder(URI.create(String.format(Locale.ROOT, "http://%s:%d/analyze?file=%s%s",
+					InetAddress.getLoopbackAddress().getHostAddress(), port, target, options)))
+					.header(TOKEN_HEADER, token)
+					.POST(HttpRequest.BodyPublishers.noBody())
+					.build();
+			try {
+				final HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+				final JsonNode node = mapper.readTree(response.body());
+				output.print(node.path("output").asText());
+				error.print(node.path("error").asText());
+				if (response.statusCode() != 200 || node.path("status").asInt() != 0)
+					ret = false;
+			} catch (IOException e) {
+				error.printf("ERROR: Failed to contact daemon on port %d: %s%n", port, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		output.flush();
+
+		return ret;
+	}
+}
@@ -24,9 +24,12 @@ import java.text.DateFormatSymbols;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.TreeSet;
@@ -51,6 +54,10 @@ public class Driver {
 		final PrintStream error = System.err;
 		boolean helpRequested = false;
 		String replayFile = null;
+		String replayDirectory = null;
+		String shardDirectory = null;
+		int clientPort = -1;
+		int daemonPort = -1;
 		String[] unprocessed = null;
 
 		cmdLineOptions = new DriverOptions();
@@ -81,25 +88,35 @@ public class Driver {
 					error.println("Usage: fta [OPTIONS] file ...");
 					error.println("Valid OPTIONS are:");
 					error.println(" --abbreviationPunctuation - Disable NO_ABBREVIATION_PUNCTUATION mode");
+					error.println(" --bloomFilterThreshold <n> - Back user-supplied list Semantic Types with more than <n> members by a Bloom Filter");
 					error.println(" --bulk - Enable bulk mode (input format = key,fieldName,fieldValue,fieldCount)");
 					error.println(" --charset <charset> - Use the supplied <charset> to read the input files");
+					error.println(" --chunks <n> - Split the input into <n> ranges analyzed in parallel (using --threads) and then merged");
+					error.println(" --client <port> - Send the files to the daemon listening on <port> (see --daemon) rather than analyzing locally");
 					error.println(" --col <n> - Only analyze column <n>");
 					error.println(" --createBloomfilter <input> <type> - Create Bloom Filter from CSV input, type: 'integer'|'string'");
 					error.println(" --createNormalized <input> - Create Normalized output from CSV input");
 					error.println(" --createSemanticTypesMarkdown - Create MarkDown documenting the Semantic Types supported");
+					error.println(" --daemon <port> - Run as a resident service on <port> (loopback only, requests authenticated by ~/.fta/daemon-<port>.token), using --threads concurrent analyses");
 					error.println(" --debug <n> - Set the debug level to <n>");
 					error.println(" --delimiter <ch> - Set the delimiter to the character <ch>");
 					error.println(" --detectWindow <n> - Set the size of the detect window to <n>");
 					error.println(" --faker <header> - Header is a comma separated list of Semantic Types");
+					error.println(" --fixedWidth <layout> - Input is fixed-width, <layout> (or the file it names) is a list of [name:][offset:]length, FILLER fields are not analyzed");
+					error.println(" --follow <n> - Follow a file that is being appended to (surviving rotation), outputting a snapshot of the results every <n> seconds");
 					error.println(" --format <OutputFormat> - Set the output format, possible values: json, faker");
 					error.println(" --formatDetection - Enable Format Detection");
 					error.println(" --help - Print this help");
+					error.println(" --iterations <n> - The number of measured iterations for --replayBenchmark (default 5)");
 					error.println(" --knownTypes <SemanticTypes> - Comma separated list of Semantic Types");
 					error.println(" --locale <LocaleIdentifier> - Locale to use as opposed to default");
 					error.println(" --maxCardinality <n> - Set the size of the Maximum Cardinality set supported");
 					error.println(" --maxInputLength <n> - Set the Maximum Input length supported");
 					error.println(" --maxOutlierCardinality <n> - Set the size of the Maximum Outlier Cardinality set supported");
 					error.println(" --maxShapes <n> - Set the size of the Maximum number of Shapes tracked");
+					error.println(" --mergeShards <directory> - Merge the serialized TextAnalyzers in <directory> (grouped by composite and field name) and output the results");
+					error.println(" --mmap - Read the input via memory-mapped buffers (UTF-8 or single byte charsets only)");
+					error.println(" --ndjson - Input is JSON Lines (one JSON object per record), nested fields are flattened (implied by .ndjson or .jsonl)");
 					error.println(" --noAnalysis - Do not do analysis");
 					error.println(" --noPretty - Do not pretty print analysis");
 					error.println(" --noQuantiles - Do not track quantiles");
@@ -109,9 +126,12 @@ public class Driver {
 					error.println(" --pluginMode true|false - Set the detect mode when running Plugin validate");
 					error.println(" --pluginName <PluginName> - Use supplied Plugin to generate samples or a signature (record count based on --records)");
 					error.println(" --pluginThreshold <n> - Set the plugin threshold percentage (0-100) for detection");
+					error.println(" --profilePlugins - Output the cost of each Semantic Type plugin (most expensive first)");
+					error.println(" --queueDepth <n> - The number of requests the daemon will queue before rejecting further requests (default 64)");
 					error.println(" --quoteChar <ch> - Set the quote character to  <ch>");
 					error.println(" --records <n> - The number of records to analyze/output");
-					error.println(" --replay <file>.fta - Replay the FTA trace file");
+					error.println(" --replay <file>.fta[.gz] - Replay the FTA trace file");
+					error.println(" --replayBenchmark <directory> - Replay all the FTA trace files in <directory> as a benchmark");
 					error.println(" --resolutionMode <DayFirst|MonthFirst|Auto|None> - Auto DayFirst or MonthFirst is determined from Locale");
 					error.println(" --samples - If set then generate samples (see --faker for comprehensive support)");
 					error.println(" --semanticType <JSON representation of Semantic Types> - Can be inline or as a File");
@@ -119,6 +139,7 @@ public class Driver {
 					error.println(" --signature - Output the Signature for the supplied pluginName");
 					error.println(" --skip <n> - Skip the initial <n> rows of the input");
 					error.println(" --testMerge <n> - exercise merging of analyses, <n> is the number of samples per merge");
+					error.println(" --threads <n> - The number of threads used by --bulk, --chunks, --mergeShards and --replayBenchmark (default is the number of processors)");
 					error.println(" --threshold <n> - Set the threshold percentage (0-100) for detection");
 					error.println(" --topBottomK <n> - Set the number of top/bottom values tracked");
 					error.println(" --trace <trace_options> - Set trace options");
@@ -127,12 +148,22 @@ public class Driver {
 					error.println(" --validatePlugin - Validate a plugin definition; use --pluginName to specify plugin to be validated");
 					error.println(" --verbose - Output each record as it is processed");
 					error.println(" --version - Output the version of the FTA framework");
+					error.println(" --warmup <n> - The number of warm-up iterations for --replayBenchmark (default 2)");
 					error.println(" --withBOM - Input file has a BOM");
+					error.println("Input files compressed with gzip (.gz) or bzip2 (.bz2) are decompressed as they are read.");
 					helpRequested = true;
 
 				}
+				else if ("--client".equals(unprocessed[idx]))
+					clientPort = portArg(unprocessed[++idx], error);
+				else if ("--daemon".equals(unprocessed[idx]))
+					daemonPort = portArg(unprocessed[++idx], error);
 				else if ("--replay".equals(unprocessed[idx]))
 					replayFile = unprocessed[++idx];
+				else if ("--mergeShards".equals(unprocessed[idx]))
+					shardDirectory = unprocessed[++idx];
+				else if ("--replayBenchmark".equals(unprocessed[idx]))
+					replayDirectory = unprocessed[++idx];
 				else if ("--version".equals(unprocessed[idx])) {
 					error.printf("%s%n", Utils.getVersion());
 					System.exit(0);
@@ -145,12 +176,30 @@ public class Driver {
 			}
 		}
 
+		// Are we running as a resident service?
+		if (daemonPort != -1) {
+			new Daemon(cmdLineOptions, error).serve(daemonPort);
+			System.exit(0);
+		}
+
 		// Are we are replaying a trace file?
 		if (replayFile != null) {
 			final boolean success = Replay.replay(replayFile, cmdLineOptions);
 			System.exit(success ? 0 : 1);
 		}
 
+		// Are we are benchmarking using a directory of trace files?
+		if (replayDirectory != null) {
+			final boolean success = new ReplayBenchmark(cmdLineOptions, output, error).run(replayDirectory);
+			System.exit(success ? 0 : 1);
+		}
+
+		// Are we merging a directory of serialized analyzers?
+		if (shardDirectory != null) {
+			final boolean success = new ShardMerger(cmdLineOptions, output, error).run(shardDirectory);
+			System.exit(success ? 0 : 1);
+		}
+
 		// Are we generating a signature?
 		if (cmdLineOptions.signature) {
 			final TextAnalyzer analyzer = TextAnalyzer.getDefaultAnalysis(cmdLineOptions.getLocale());
@@ -269,29 +318,63 @@ public class Driver {
 			System.exit(1);
 		}
 
+		// Are we sending the files to a daemon?
+		if (clientPort != -1) {
+			final List<String> options = new ArrayList<>(Arrays.asList(args).subList(0, args.length - (unprocessed.length - idx)));
+			final int client = options.indexOf("--client");
+			options.subList(client, client + 2).clear();
+			final boolean success = Daemon.submit(clientPort, options, Arrays.asList(unprocessed).subList(idx, unprocessed.length), output, error);
+			System.exit(success ? 0 : 1);
+		}
+
 		// Loop over all the file arguments
 		while (idx < unprocessed.length) {
 			final String filename = unprocessed[idx++];
 
-			final FileProcessor fileProcessor = new FileProcessor(System.err, filename, cmdLineOptions);
-
-			try {
-				fileProcessor.process();
-			} catch (FTAPluginException e) {
-				error.printf("ERROR: Plugin Exception: %s%n", e.getMessage());
+			if (processFile(new FileProcessor(System.err, filename, cmdLineOptions), filename, cmdLineOptions, error) == 2)
 				System.exit(1);
-			} catch (FTAUnsupportedLocaleException e) {
-				final Locale activeLocale = cmdLineOptions.getLocale() != null ? cmdLineOptions.getLocale() : Locale.getDefault();
-				error.printf("ERROR: Unsupported Locale: %s, error: %s%n", activeLocale.toLanguageTag(), e.getMessage());
-				System.exit(1);
-			} catch (FTAProcessingException e) {
-				final String message = cmdLineOptions.verbose != 0 && e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
-				error.printf("ERROR: Filename: %s, error: %s%n", e.getFilename(), message);
-			} catch (Throwable t) {
-				error.printf("ERROR: '%s' error: %s%n", filename, t.getMessage());
-				t.printStackTrace(error);
-			}
 		}
 	}
 
+	private static int portArg(final String arg, final PrintStream error) {
+		try {
+			final int port = Integer.parseInt(arg);
+			if (port >= 0 && port <= 65535)
+				return port;
+		}
+		catch (NumberFormatException e) {
+			// Reported below
+		}
+		error.printf("ERROR: Invalid port '%s'%n", arg);
+		System.exit(1);
+		return -1;
+	}
+
+	/*
+	 * Process a single file, reporting any errors.
+	 * Returns 0 on success, 1 if the file could not be processed, and 2 if no further files should be processed
+	 * (e.g. there is an issue with a plugin or the locale).
+	 */
+	static int processFile(final FileProcessor fileProcessor, final String filename, final DriverOptions options, final PrintStream error) {
+		try {
+			fileProcessor.process();
+			return 0;
+		} catch (FTAPluginException e) {
+			error.printf("ERROR: Plugin Exception: %s%n", e.getMessage());
+			return 2;
+		} catch (FTAUnsupportedLocaleException e) {
+			final Locale activeLocale = options.getLocale() != null ? options.getLocale() : Locale.getDefault();
+			error.printf("ERROR: Unsupported Locale: %s, error: %s%n", activeLocale.toLanguageTag(), e.getMessage());
+			return 2;
+		} catch (FTAProcessingException e) {
+			final String message = options.verbose != 0 && e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+			error.printf("ERROR: Filename: %s, error: %s%n", e.getFilename(), message);
+		} catch (Throwable t) {
+			error.printf("ERROR: '%s' error: %s%n", filename, t.getMessage());
+			t.printStackTrace(error);
+		}
+
+		return 1;
+	}
+
 }
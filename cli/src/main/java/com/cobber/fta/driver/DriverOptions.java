@@ -32,6 +32,7 @@ import com.cobber.fta.dates.DateTimeParser.DateResolutionMode;
 public class DriverOptions {
 	protected boolean abbreviationPunctuation;
 	protected String charset = "UTF-8";
+	protected int chunks = 1;
 	protected boolean bulk;
 	protected int col = -1;
 	protected int debug = -1;
@@ -52,27 +53,37 @@ public class DriverOptions {
 	protected int detectWindow = -1;
 	private String faker;
 	private Locale locale;
+	protected int iterations = 5;
 	protected int maxCardinality = -1;
+	protected int bloomFilterThreshold = -1;
 	protected int maxInputLength = -1;
 	protected int maxOutlierCardinality = -1;
 	protected int maxShapes = -1;
+	protected boolean mmap;
+	protected boolean ndjson;
+	protected int follow;
+	protected String fixedWidth;
 	protected int topBottomK = -1;
 	protected int pluginThreshold = -1;
 	protected boolean pretty = true;
+	protected int queueDepth = 64;
 	protected boolean pluginDefinition;
 	protected String pluginName;
 	protected Boolean pluginMode;
+	protected boolean profilePlugins;
 	protected DateResolutionMode resolutionMode = DateResolutionMode.Auto;
 	protected boolean samples;
 	protected boolean signature;
 	protected int skip;
 	protected int threshold = -1;
+	protected int threads = Runtime.getRuntime().availableProcessors();
 	protected int testmerge;
 	protected String trace;
 	protected int trailer;
 	protected int validate;
 	protected boolean validatePlugin;
 	protected int verbose;
+	protected int warmup = 2;
 	protected boolean withBOM;
 	protected String delimiter;
 	protected String quoteChar;
@@ -83,6 +94,7 @@ public class DriverOptions {
 	public DriverOptions(final DriverOptions other) {
 		this.abbreviationPunctuation = other.abbreviationPunctuation;
 		this.charset = other.charset;
+		this.chunks = other.chunks;
 		this.bulk = other.bulk;
 		this.col = other.col;
 		this.debug = other.debug;
@@ -100,34 +112,50 @@ public class DriverOptions {
 		this.detectWindow = other.detectWindow;
 		this.faker = other.faker;
 		this.locale = other.locale;
+		this.iterations = other.iterations;
 		this.maxCardinality = other.maxCardinality;
+		this.bloomFilterThreshold = other.bloomFilterThreshold;
 		this.maxInputLength = other.maxInputLength;
 		this.maxOutlierCardinality = other.maxOutlierCardinality;
 		this.maxShapes = other.maxShapes;
+		this.mmap = other.mmap;
+		this.ndjson = other.ndjson;
+		this.follow = other.follow;
+		this.fixedWidth = other.fixedWidth;
 		this.topBottomK = other.topBottomK;
 		this.pluginThreshold = other.pluginThreshold;
 		this.pretty = other.pretty;
+		this.queueDepth = other.queueDepth;
 		this.pluginDefinition = other.pluginDefinition;
 		this.pluginName = other.pluginName;
 		this.pluginMode = other.pluginMode;
+		this.profilePlugins = other.profilePlugins;
 		this.resolutionMode = other.resolutionMode;
 		this.samples = other.samples;
 		this.semanticTypesPre = other.semanticTypesPre;
 		this.signature = other.signature;
 		this.skip = other.skip;
 		this.threshold = other.threshold;
+		this.threads = other.threads;
 		this.testmerge = other.testmerge;
 		this.trace = other.trace;
 		this.trailer = other.trailer;
 		this.validate = other.validate;
 		this.validatePlugin = other.validatePlugin;
 		this.verbose = other.verbose;
+		this.warmup = other.warmup;
 		this.withBOM = other.withBOM;
 		this.delimiter = other.delimiter;
 		this.quoteChar = other.quoteChar;
 	}
 
-	public void apply(final TextAnalyzer analyzer) throws IOException {
+	/**
+	 * Apply the options to the analyzer.
+	 * @param analyzer The analyzer to configure.
+	 * @throws IOException If the trace file or the Semantic Types file cannot be accessed.
+	 * @throws FTAPluginException If the user-supplied Semantic Types cannot be registered.
+	 */
+	public void apply(final TextAnalyzer analyzer) throws IOException, FTAPluginException {
 		if (this.debug != -1)
 			analyzer.setDebug(this.debug);
 		if (this.detectWindow != -1)
@@ -160,31 +188,44 @@ public class DriverOptions {
 			analyzer.configure(TextAnalyzer.Feature.FORMAT_DETECTION, true);
 		if (this.abbreviationPunctuation)
 			analyzer.configure(TextAnalyzer.Feature.NO_ABBREVIATION_PUNCTUATION, false);
+		if (this.profilePlugins)
+			analyzer.configure(TextAnalyzer.Feature.PLUGIN_PROFILING, true);
 		if (this.trace != null)
 			analyzer.setTrace(trace);
+		if (this.bloomFilterThreshold != -1)
+			analyzer.getConfig().setBloomFilterThreshold(this.bloomFilterThreshold);
 
 		if (this.semanticTypes != null)
 			try {
-				// If the argument starts with a '[' assume it is an inline definition, if not assume it is a file
-				if (this.semanticTypes.charAt(0) == '[')
-					analyzer.getPlugins().registerPlugins(new StringReader(this.semanticTypes), analyzer.getConfig(), semanticTypesPre);
-				else {
-					if(!Files.isRegularFile(Paths.get(this.semanticTypes))) {
-						System.err.println("ERROR: Failed to read Semantic Types file: " + this.semanticTypes);
-						System.exit(1);
-					}
-					try (FileReader logicalTypes = new FileReader(this.semanticTypes, StandardCharsets.UTF_8)) {
-						analyzer.getPlugins().registerPlugins(logicalTypes, analyzer.getConfig(), semanticTypesPre);
-					}
-				}
+				registerSemanticTypes(analyzer);
+			} catch (IllegalArgumentException e) {
+				throw new FTAPluginException(e.getMessage(), e);
 			} catch (SecurityException | FTAPluginException e) {
-				System.err.println("ERROR: Failed to register plugin: " + e.getMessage());
-				System.exit(1);
+				throw new FTAPluginException("Failed to register plugin: " + e.getMessage(), e);
 			}
 		if (this.threshold != -1)
 			analyzer.setThreshold(this.threshold);
 	}
 
+	/**
+	 * Register the user-supplied Semantic Types (--semanticTypes) with the analyzer.
+	 * @param analyzer The analyzer to register the Semantic Types with.
+	 * @throws IOException If the Semantic Types file cannot be read.
+	 * @throws FTAPluginException If a plugin definition is invalid.
+	 */
+	public void registerSemanticTypes(final TextAnalyzer analyzer) throws IOException, FTAPluginException {
+		// If the argument starts with a '[' assume it is an inline definition, if not assume it is a file
+		if (this.semanticTypes.charAt(0) == '[')
+			analyzer.getPlugins().registerPlugins(new StringReader(this.semanticTypes), analyzer.getConfig(), semanticTypesPre);
+		else {
+			if (!Files.isRegularFile(Paths.get(this.semanticTypes)))
+				throw new IllegalArgumentException("Failed to read Semantic Types file: " + this.semanticTypes);
+			try (FileReader logicalTypes = new FileReader(this.semanticTypes, StandardCharsets.UTF_8)) {
+				analyzer.getPlugins().registerPlugins(logicalTypes, analyzer.getConfig(), semanticTypesPre);
+			}
+		}
+	}
+
 	public void addFromFile(final String filePath) throws IOException {
 		final String args = Files.readString(Paths.get(filePath)).trim();
 		if (args.isEmpty())
@@ -221,10 +262,18 @@ public class DriverOptions {
 		while (idx < args.length && args[idx].charAt(0) == '-') {
 			if ("--abbreviationPunctuation".equals(args[idx]))
 				abbreviationPunctuation = true;
+			else if ("--bloomFilterThreshold".equals(args[idx]))
+				bloomFilterThreshold = nextIntegerArg(args, idx++);
 			else if ("--bulk".equals(args[idx]))
 				bulk = true;
 			else if ("--charset".equals(args[idx]))
 				charset = nextStringArg(args, idx++);
+			else if ("--chunks".equals(args[idx]))
+				chunks = nextIntegerArg(args, idx++);
+			else if ("--client".equals(args[idx])) {
+				unprocessed.add(args[idx]);
+				unprocessed.add(nextStringArg(args, idx++));
+			}
 			else if ("--col".equals(args[idx]))
 				col = nextIntegerArg(args, idx++);
 			else if ("--createBloomfilter".equals(args[idx])) {
@@ -239,6 +288,10 @@ public class DriverOptions {
 			else if ("--createSemanticTypesMarkdown".equals(args[idx])) {
 				unprocessed.add(args[idx]);
 			}
+			else if ("--daemon".equals(args[idx])) {
+				unprocessed.add(args[idx]);
+				unprocessed.add(nextStringArg(args, idx++));
+			}
 			else if ("--debug".equals(args[idx]))
 				debug = nextIntegerArg(args, idx++);
 			else if ("--delimiter".equals(args[idx]))
@@ -247,6 +300,10 @@ public class DriverOptions {
 				detectWindow = nextIntegerArg(args, idx++);
 			else if ("--faker".equals(args[idx]))
 				faker = nextStringArg(args, idx++);
+			else if ("--fixedWidth".equals(args[idx]))
+				fixedWidth = nextStringArg(args, idx++);
+			else if ("--follow".equals(args[idx]))
+				follow = nextIntegerArg(args, idx++);
 			else if ("--formatDetection".equals(args[idx]))
 				formatDetection = true;
 			else if ("--help".equals(args[idx])) {
@@ -260,6 +317,8 @@ public class DriverOptions {
 			}
 			else if ("--format".equals(args[idx]))
 				outputFormat = args[++idx];
+			else if ("--iterations".equals(args[idx]))
+				iterations = nextIntegerArg(args, idx++);
 			else if ("--knownTypes".equals(args[idx]))
 				knownTypes = nextStringArg(args, idx++);
 			else if ("--maxInputLength".equals(args[idx]))
@@ -268,6 +327,14 @@ public class DriverOptions {
 				maxOutlierCardinality = nextIntegerArg(args, idx++);
 			else if ("--maxShapes".equals(args[idx]))
 				maxShapes = nextIntegerArg(args, idx++);
+			else if ("--mergeShards".equals(args[idx])) {
+				unprocessed.add(args[idx]);
+				unprocessed.add(nextStringArg(args, idx++));
+			}
+			else if ("--mmap".equals(args[idx]))
+				mmap = true;
+			else if ("--ndjson".equals(args[idx]))
+				ndjson = true;
 			else if ("--noAnalysis".equals(args[idx]))
 				noAnalysis = true;
 			else if ("--noPretty".equals(args[idx]))
@@ -292,6 +359,10 @@ public class DriverOptions {
 				pluginName = nextStringArg(args, idx++);
 			else if ("--pluginThreshold".equals(args[idx]))
 				pluginThreshold = nextIntegerArg(args, idx++);
+			else if ("--profilePlugins".equals(args[idx]))
+				profilePlugins = true;
+			else if ("--queueDepth".equals(args[idx]))
+				queueDepth = nextIntegerArg(args, idx++);
 			else if ("--quoteChar".equals(args[idx]))
 				quoteChar = nextStringArg(args, idx++);
 			else if ("--records".equals(args[idx]))
@@ -300,6 +371,10 @@ public class DriverOptions {
 				unprocessed.add(args[idx]);
 				unprocessed.add(nextStringArg(args, idx++));
 			}
+			else if ("--replayBenchmark".equals(args[idx])) {
+				unprocessed.add(args[idx]);
+				unprocessed.add(nextStringArg(args, idx++));
+			}
 			else if ("--resolutionMode".equals(args[idx])) {
 				final String mode = nextStringArg(args, idx++);
 				if ("DayFirst".equals(mode))
@@ -325,6 +400,8 @@ public class DriverOptions {
 				skip = nextIntegerArg(args, idx++);
 			else if ("--testMerge".equals(args[idx]))
 				testmerge = nextIntegerArg(args, idx++);
+			else if ("--threads".equals(args[idx]))
+				threads = nextIntegerArg(args, idx++);
 			else if ("--threshold".equals(args[idx]))
 				threshold = nextIntegerArg(args, idx++);
 			else if ("--topBottomK".equals(args[idx]))
@@ -341,6 +418,8 @@ public class DriverOptions {
 				verbose++;
 			else if ("--version".equals(args[idx]))
 				unprocessed.add(args[idx]);
+			else if ("--warmup".equals(args[idx]))
+				warmup = nextIntegerArg(args, idx++);
 			else if ("--withBOM".equals(args[idx]))
 				withBOM = true;
 			else {
@@ -353,6 +432,9 @@ public class DriverOptions {
 		if (validatePlugin && pluginName == null)
 			throw new IllegalArgumentException("--validatePlugin requires a plugin name");
 
+		if (threads < 1 || iterations < 1 || chunks < 1 || warmup < 0 || queueDepth < 0 || follow < 0)
+			throw new IllegalArgumentException("--threads, --iterations and --chunks must be at least 1, --warmup, --queueDepth and --follow must not be negative");
+
 		while (idx < args.length)
 			unprocessed.add(args[idx++]);
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+
+import de.siegmar.fastcsv.reader.CloseableIterator;
+import de.siegmar.fastcsv.reader.CsvReader;
+import de.siegmar.fastcsv.reader.CsvRecord;
+
+/**
+ * A RecordReader backed by a FastCSV reader.
+ */
+final class FastCsvRecordReader implements RecordReader {
+	private final CsvReader<CsvRecord> csv;
+	private CloseableIterator<CsvRecord> iter;
+	private CsvRecord current;
+
+	FastCsvRecordReader(final CsvReader<CsvRecord> csv) {
+		this.csv = csv;
+	}
+
+	@Override
+	public void skipLines(final int lines) {
+		csv.skipLines(lines);
+	}
+
+	@Override
+	public boolean next() {
+		if (iter == null)
+			iter = csv.iterator();
+		if (!iter.hasNext())
+			return false;
+		current = iter.next();
+		return true;
+	}
+
+	@Override
+	public int getFieldCount() {
+		return current.getFieldCount();
+	}
+
+	@Override
+	public String getField(final int index) {
+		return current.getField(index);
+	}
+
+	@Override
+	public void close() throws IOException {
+		csv.close();
+	}
+}
@@ -20,24 +20,44 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import com.cobber.fta.PluginProfile;
 import com.cobber.fta.TextAnalysisResult;
 import com.cobber.fta.TextAnalyzer;
-import com.cobber.fta.core.CircularBuffer;
 import com.cobber.fta.core.FTAMergeException;
 import com.cobber.fta.core.FTAPluginException;
 import com.cobber.fta.core.FTAUnsupportedLocaleException;
@@ -49,19 +69,37 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import de.siegmar.fastcsv.reader.CloseableIterator;
 import de.siegmar.fastcsv.reader.CsvReader;
+import de.siegmar.fastcsv.reader.CsvRecord;
+import de.siegmar.fastcsv.reader.CsvRecordHandler;
 import de.siegmar.fastcsv.reader.FieldMismatchStrategy;
 import de.siegmar.fastcsv.reader.NamedCsvRecord;
-import de.siegmar.fastcsv.reader.NamedCsvRecordHandler;
 
 class FileProcessor {
 	private final DriverOptions options;
 	private final PrintStream error;
+	private final PrintStream standardOutput;
 	private final String filename;
 	private PrintStream output;
+	private CompressedInput.Compression compression;
+	private volatile FollowingInputStream following;
+	private FixedWidthLayout fixedWidth;
+	private boolean fixedWidthLines;
 	private final ObjectMapper mapper = new ObjectMapper();
 
+	/** How often to check a followed file for new data. */
+	private static final long FOLLOW_POLL_MILLIS = 250;
+	/** How long to wait for the final results once following has been interrupted. */
+	private static final long FOLLOW_STOP_SECONDS = 30;
+	/** The number of records at the start of each range checked to verify that the range starts on a record boundary. */
+	private static final int BOUNDARY_RECORDS = 8;
+
 	FileProcessor(final PrintStream error, final String filename, final DriverOptions cmdLineOptions) {
+		this(error, System.out, filename, cmdLineOptions);
+	}
+
+	FileProcessor(final PrintStream error, final PrintStream output, final String filename, final DriverOptions cmdLineOptions) {
 		this.error = error;
+		this.standardOutput = output;
 		this.filename = filename;
 		this.options = new DriverOptions(cmdLineOptions);
 	}
@@ -76,7 +114,7 @@ class FileProcessor {
 		if (Files.exists(Paths.get(filename + ".options")))
 			options.addFromFile(filename + ".options");
 
-		output = options.output ? new PrintStream(filename + ".out", StandardCharsets.UTF_8) : System.out;
+		output = options.output ? new PrintStream(filename + ".out", StandardCharsets.UTF_8) : standardOutput;
 
 		final ParserSettings settings = new ParserSettings();
 		if (options.delimiter != null) {
@@ -90,7 +128,27 @@ class FileProcessor {
 			settings.quoteCharacter = '"';
 		settings.withBOM = options.withBOM;
 
+		// When following a file, an interrupt (e.g. Ctrl-C) stops following and the final results are output
+		final CountDownLatch finished = new CountDownLatch(1);
+		final Thread stopFollowing = new Thread(() -> {
+			final FollowingInputStream in = following;
+			if (in != null) {
+				in.stop();
+				try {
+					finished.await(FOLLOW_STOP_SECONDS, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		if (options.follow != 0)
+			Runtime.getRuntime().addShutdownHook(stopFollowing);
+
 		try {
+			compression = CompressedInput.detect(Path.of(filename));
+			final String uncompressedName = CompressedInput.stripExtension(filename).toLowerCase(Locale.ROOT);
+			if (options.fixedWidth == null && (uncompressedName.endsWith(".ndjson") || uncompressedName.endsWith(".jsonl")))
+				options.ndjson = true;
 			if (options.bulk)
 				processBulk(settings);
 			else
@@ -101,6 +159,17 @@ class FileProcessor {
 				output.close();
 			throw e;
 		}
+		finally {
+			output.flush();
+			finished.countDown();
+			if (options.follow != 0)
+				try {
+					Runtime.getRuntime().removeShutdownHook(stopFollowing);
+				}
+				catch (IllegalStateException e) {
+					// Shutdown in progress
+				}
+		}
 	}
 
 	static class RowCount {
@@ -120,17 +189,24 @@ class FileProcessor {
 		}
 	}
 
-	private void processBulk(final ParserSettings settings) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException {
+	/*
+	 * Bulk input is a sequence of groups (one per key) of key,fieldName,fieldValue,fieldCount rows.  The groups are
+	 * independent, so each is analyzed by a worker, the results are output in input order by the reading thread.  The
+	 * number of groups in flight is bounded so that memory use does not depend on the size of the input.
+	 */
+	private void processBulk(final ParserSettings settings) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
 		final int FIELD_COUNT = 4;
-		TextAnalyzer analyzer;
-		TextAnalysisResult result;
-        String previousKey = null;
-        String key;
-        String previousName = null;
-        String name = null;
-		final Map<String, Long> bulkMap = new HashMap<>();
-
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(new File(filename)), options.charset))) {
+		String previousKey = null;
+		String key;
+		String previousName = null;
+		String name = null;
+		Map<String, Long> bulkMap = new HashMap<>();
+		final List<TextAnalysisResult> results = new ArrayList<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(options.threads);
+		final ArrayDeque<Future<TextAnalysisResult>> pending = new ArrayDeque<>();
+		final int maxPending = 4 * options.threads;
+
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(openInput(), options.charset))) {
 			final CsvReader<NamedCsvRecord> csv = CsvReader.builder().ofNamedCsvRecord(in);
 
 			long thisRecord = 0;
@@ -161,19 +237,16 @@ class FileProcessor {
 				totalCount += fieldCount;
 				if (previousKey == null || !key.equals(previousKey)) {
 					if (!bulkMap.isEmpty()) {
-						analyzer = new TextAnalyzer(previousName);
-						options.apply(analyzer);
-						analyzer.trainBulk(bulkMap);
-						analyzer.setTotalCount(totalCount);
-						result = analyzer.getResult();
-						output.printf("Field '%s' - %s%n", sanitize(analyzer.getStreamName()), result.asJSON(options.pretty, options.verbose));
+						if (pending.size() == maxPending)
+							outputBulk(await(pending.removeFirst()), results);
+						pending.addLast(submitBulk(executor, previousName, bulkMap, totalCount));
 						totalCount = 0;
+						bulkMap = new HashMap<>();
 					}
-					bulkMap.clear();
 					previousKey = key;
 					previousName = name;
-                }
-                bulkMap.put(fieldValue, fieldCount);
+				}
+				bulkMap.put(fieldValue, fieldCount);
 			}
 
 			if (!errors.isEmpty()) {
@@ -182,15 +255,79 @@ class FileProcessor {
 							filename, recordError.count, recordError.numFields, recordError.firstRow, FIELD_COUNT);
 			}
 
-			if (!bulkMap.isEmpty()) {
-				analyzer = new TextAnalyzer(name);
-				options.apply(analyzer);
-				analyzer.trainBulk(bulkMap);
-				analyzer.setTotalCount(totalCount);
-				result = analyzer.getResult();
-				output.printf("Field '%s' - %s%n", sanitize(analyzer.getStreamName()), result.asJSON(options.pretty, options.verbose));
-			}
+			if (!bulkMap.isEmpty())
+				pending.addLast(submitBulk(executor, name, bulkMap, totalCount));
+
+			while (!pending.isEmpty())
+				outputBulk(await(pending.removeFirst()), results);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		if (options.profilePlugins)
+			reportPluginProfiles(results);
+	}
+
+	private Future<TextAnalysisResult> submitBulk(final ExecutorService executor, final String name, final Map<String, Long> bulkMap, final long totalCount) {
+		return executor.submit(() -> {
+			final TextAnalyzer analyzer = new TextAnalyzer(name);
+			options.apply(analyzer);
+			analyzer.trainBulk(bulkMap);
+			analyzer.setTotalCount(totalCount);
+			return analyzer.getResult();
+		});
+	}
+
+	private void outputBulk(final TextAnalysisResult result, final List<TextAnalysisResult> results) {
+		results.add(result);
+		output.printf("Field '%s' - %s%n", sanitize(result.getName()), result.asJSON(options.pretty, options.verbose));
+	}
+
+	static class ProfileRow {
+		String streamName;
+		String semanticType;
+		PluginProfile profile;
+
+		ProfileRow(final String streamName, final String semanticType, final PluginProfile profile) {
+			this.streamName = streamName;
+			this.semanticType = semanticType;
+			this.profile = profile;
+		}
+
+		long getTotalNanos() {
+			return profile.getTotalNanos(semanticType);
+		}
+	}
+
+	private String formatCost(final PluginProfile.Cost cost) {
+		if (cost.getCalls() == 0)
+			return "-";
+		return String.format("%d/%.2f/%.1f%%", cost.getCalls(), cost.getNanos() / 1_000_000.0, cost.getRejectRatio() * 100);
+	}
+
+	/*
+	 * Output one row per (stream, plugin) sorted by decreasing total cost across all the streams.
+	 */
+	private void reportPluginProfiles(final List<TextAnalysisResult> results) {
+		final List<ProfileRow> rows = new ArrayList<>();
+		for (final TextAnalysisResult result : results) {
+			final PluginProfile profile = result.getPluginProfile();
+			if (profile != null)
+				for (final String semanticType : profile.getSemanticTypes())
+					rows.add(new ProfileRow(result.getName(), semanticType, profile));
 		}
+		rows.sort(Comparator.comparingLong(ProfileRow::getTotalNanos).reversed());
+
+		final String format = "%-30s %-30s %25s %25s %25s %10s%n";
+		error.printf("Plugin Profile: File: %s (calls/ms/reject%%)%n", filename);
+		error.printf(format, "Field", "Semantic Type", "isCandidate", "isValid", "analyzeSet", "Total(ms)");
+		for (final ProfileRow row : rows)
+			error.printf(format, sanitize(row.streamName), row.semanticType,
+					formatCost(row.profile.getCost(row.semanticType, PluginProfile.Operation.IS_CANDIDATE)),
+					formatCost(row.profile.getCost(row.semanticType, PluginProfile.Operation.IS_VALID)),
+					formatCost(row.profile.getCost(row.semanticType, PluginProfile.Operation.ANALYZE_SET)),
+					String.format("%.2f", row.getTotalNanos() / 1_000_000.0));
 	}
 
 	private String sanitize(final String input) {
@@ -211,117 +348,805 @@ class FileProcessor {
 		return b.toString();
 	}
 
-	private void processAllFields(final ParserSettings settings) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
-		final long startTime = System.currentTimeMillis();
+	/** The state accumulated while consuming the records of the input (or of a range of the input). */
+	static class Consumption {
+		Processor processor;
+		Processor altProcessor;
+		String[] header;
+		int numFields;
+		long rawRecordIndex;
+		int processedRecords;
 		long initializedTime = -1;
-		long consumedTime = -1;
-		long resultsTime = -1;
-		Processor processor = null;
-		Processor altProcessor = null;
-		String[] header = null;
-		int numFields = 0;
-		long rawRecordIndex = 0;
+		boolean merged;
 		final Map<Integer, RowCount> errors = new HashMap<>();
+	}
 
-		int processedRecords = 0;
-		try {
-			CsvReader<NamedCsvRecord> csv;
-
-			if (settings.withBOM)
-				csv = CsvReader.builder()
-					.fieldSeparator(settings.delimiter)
-					.quoteCharacter(settings.quoteCharacter)
-					.detectBomHeader(true)
-					.skipEmptyLines(false)
-					.extraFieldStrategy(FieldMismatchStrategy.IGNORE)
-					.missingFieldStrategy(FieldMismatchStrategy.IGNORE)
-					.build(NamedCsvRecordHandler.builder().allowDuplicateHeaderFields(true).build(),
-							Files.newInputStream(Path.of(filename)), Charset.forName(options.charset));
+	private CsvReader.CsvReaderBuilder csvBuilder(final ParserSettings settings, final boolean detectBomHeader) {
+		return CsvReader.builder()
+				.fieldSeparator(settings.delimiter)
+				.quoteCharacter(settings.quoteCharacter)
+				.detectBomHeader(detectBomHeader)
+				.skipEmptyLines(false)
+				.extraFieldStrategy(FieldMismatchStrategy.IGNORE)
+				.missingFieldStrategy(FieldMismatchStrategy.IGNORE);
+	}
+
+	/*
+	 * Open the input, if it is compressed it is decompressed on a separate thread (see {@link CompressedInput}).
+	 */
+	private InputStream openInput() throws IOException {
+		if (compression == CompressedInput.Compression.NONE)
+			return new FileInputStream(new File(filename));
+
+		return CompressedInput.open(Path.of(filename), compression);
+	}
+
+	/*
+	 * Open a RecordReader over the entire input, via FastCSV for delimited input.
+	 */
+	private RecordReader openReader(final ParserSettings settings) throws IOException {
+		return openReader(settings, openInput());
+	}
+
+	private RecordReader openReader(final ParserSettings settings, final InputStream in) {
+		if (options.ndjson)
+			return new JsonRecordReader(in, Charset.forName(options.charset));
+
+		final CsvReader<CsvRecord> csv;
+		if (settings.withBOM)
+			csv = csvBuilder(settings, true).build(CsvRecordHandler.of(), in, Charset.forName(options.charset));
+		else
+			csv = csvBuilder(settings, false).build(CsvRecordHandler.of(),
+					new BufferedReader(new InputStreamReader(in, Charset.forName(options.charset))));
+
+		return new FastCsvRecordReader(csv);
+	}
+
+	/*
+	 * Open a RecordReader over a range of the file, either memory-mapped (--mmap) or via FastCSV.
+	 */
+	private RecordReader openReader(final ParserSettings settings, final FileChannel channel, final long start, final long end, final boolean detectBomHeader) throws IOException {
+		final Charset charset = Charset.forName(options.charset);
+		if (options.mmap)
+			return new MappedCsvReader(channel, start, end, settings.delimiter, settings.quoteCharacter, charset, detectBomHeader);
+
+		return new FastCsvRecordReader(csvBuilder(settings, detectBomHeader).build(CsvRecordHandler.of(), CsvChunker.open(channel, start, end), charset));
+	}
+
+	/*
+	 * Is the current record a blank line?  The readers return a blank line as a single null field.
+	 */
+	private static boolean isBlank(final RecordReader reader) {
+		return reader.getFieldCount() == 1 && reader.getField(0) == null;
+	}
+
+	private Processor newProcessor(final String compositeName, final String[] fieldNames) throws IOException, FTAPluginException {
+		return new Processor(compositeName, fieldNames, options, standardOutput, error);
+	}
+
+	/*
+	 * Consume the records from the reader, if the state does not yet have a Processor the header is taken from the first record.
+	 * Only the fields required for analysis are materialized, and the row arrays are reused (the analyzers do not retain them).
+	 * The final 'trailer' records are not consumed.
+	 */
+	private void consume(final RecordReader reader, final Consumption state, final String compositeName, final int trailer)
+			throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		// Rows are held back in a ring until we know they are not part of the trailer
+		String[][] ring = null;
+		long buffered = 0;
+		int rowLength;
+
+		while (reader.next()) {
+			rowLength = reader.getFieldCount();
+			// Are we looking at the header row?
+			if (state.processor == null) {
+				state.numFields = rowLength;
+				if (options.col > state.numFields)
+					throw new FTAProcessingException(filename, MessageFormat.format("Column {0} does not exist.  Only {1} field(s) in input.", options.col, state.numFields));
+
+				state.header = new String[state.numFields];
+				for (int i = 0; i < state.numFields; i++) {
+					state.header[i] = reader.getField(i);
+					if ((options.col == -1 || options.col == i) && options.verbose != 0 && options.noAnalysis)
+						standardOutput.println(state.header[i]);
+				}
+				state.processor = newProcessor(compositeName, state.header);
+				if (options.testmerge != 0)
+					state.altProcessor = newProcessor(compositeName, state.header);
+				state.initializedTime = System.currentTimeMillis();
+				continue;
+			}
+			if (ring == null)
+				ring = new String[trailer + 1][state.numFields];
+			state.rawRecordIndex++;
+			// Skip blank lines
+			if (isBlank(reader))
+				continue;
+			if (rowLength != state.numFields) {
+				final RowCount existing = state.errors.get(rowLength);
+				if (existing == null)
+					state.errors.put(rowLength, new RowCount(rowLength, state.rawRecordIndex));
+				else
+					state.errors.put(rowLength, existing.inc());
+				continue;
+			}
+
+			String[] row = ring[(int)(buffered % ring.length)];
+			for (int i = 0; i < rowLength; i++)
+				if (options.col == -1 || options.col == i)
+					row[i] = reader.getField(i);
+			if (++buffered <= trailer)
+				continue;
+			row = ring[(int)((buffered - 1 - trailer) % ring.length)];
+			state.processedRecords++;
+
+			if (options.testmerge != 0) {
+				if (state.processedRecords % 2 == 0)
+					state.processor.consume(row);
+				else
+					state.altProcessor.consume(row);
+
+				if (state.processedRecords % options.testmerge == 0) {
+					state.processor = Processor.merge(state.processor, state.altProcessor);
+					state.altProcessor = newProcessor(compositeName, state.header);
+				}
+			}
 			else
-				csv = CsvReader.builder()
-						.fieldSeparator(settings.delimiter)
-						.quoteCharacter(settings.quoteCharacter)
-						.skipEmptyLines(false)
-						.extraFieldStrategy(FieldMismatchStrategy.IGNORE)
-						.missingFieldStrategy(FieldMismatchStrategy.IGNORE)
-						.build(NamedCsvRecordHandler.builder().allowDuplicateHeaderFields(true).build(),
-								new BufferedReader(new InputStreamReader(new FileInputStream(new File(filename)), options.charset)));
+				state.processor.consume(row);
 
-			// Skip the first <n> lines if requested
-			if (options.skip != 0) {
-				csv.skipLines(options.skip);
-				rawRecordIndex += options.skip;
+			if (state.processedRecords == options.getRecordsToProcess()) {
+				break;
 			}
+		}
 
-			final String compositeName = com.cobber.fta.core.Utils.getBaseName(Paths.get(filename).getFileName().toString());
-			final CircularBuffer buffer = new CircularBuffer(options.trailer + 1);
+		if (options.testmerge != 0 && state.processor != null) {
+			state.processor = Processor.merge(state.processor, state.altProcessor);
+			state.merged = true;
+		}
+	}
 
-			int rowLength;
+	private Consumption consumeSequential(final ParserSettings settings, final String compositeName) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final Consumption state = new Consumption();
 
-			for (final CloseableIterator<NamedCsvRecord> iter = csv.iterator(); iter.hasNext();) {
-				final NamedCsvRecord rowRaw = iter.next();
-				String[] row = rowRaw.getFields().toArray(new String[0]);
-				rowLength = rowRaw.getFieldCount();
-				// Are we looking at the header row?
-				if (rawRecordIndex == options.skip) {
-					numFields = rowRaw.getHeader().size();
-					if (options.col > numFields)
-						throw new FTAProcessingException(filename, MessageFormat.format("Column {0} does not exist.  Only {1} field(s) in input.", options.col, numFields));
-
-					header = rowRaw.getHeader().toArray(new String[0]);
-					for (int i = 0; i < numFields; i++) {
-						if ((options.col == -1 || options.col == i) && options.verbose != 0 && options.noAnalysis)
-							System.out.println(header[i]);
+		try {
+			if (fixedWidth != null) {
+				try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+						RecordReader reader = openFixedWidth(channel, 0, channel.size())) {
+					startFixedWidth(state, compositeName);
+					consumeSequential(reader, state, compositeName);
+				}
+			}
+			else if (options.mmap) {
+				try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+						RecordReader reader = openReader(settings, channel, 0, channel.size(), settings.withBOM)) {
+					consumeSequential(reader, state, compositeName);
+				}
+			}
+			else {
+				try (RecordReader reader = openReader(settings)) {
+					consumeSequential(reader, state, compositeName);
+				}
+			}
+		}
+		catch (FileNotFoundException | NoSuchFileException e) {
+			throw new FTAProcessingException(filename, e.getMessage(), e);
+		}
+
+		return state;
+	}
+
+	private void consumeSequential(final RecordReader reader, final Consumption state, final String compositeName) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		// Skip the first <n> lines if requested
+		if (options.skip != 0) {
+			reader.skipLines(options.skip);
+			state.rawRecordIndex += options.skip;
+		}
+
+		if (options.ndjson)
+			consumeJson((JsonRecordReader)reader, state, compositeName);
+		else
+			consume(reader, state, compositeName, options.trailer);
+	}
+
+	/*
+	 * Consume JSON Lines records, the Processor starts with no fields and each field is added when it is first seen.
+	 */
+	private void consumeJson(final JsonRecordReader reader, final Consumption state, final String compositeName)
+			throws IOException, FTAPluginException, FTAUnsupportedLocaleException {
+		state.processor = newProcessor(compositeName, new String[0]);
+		state.initializedTime = System.currentTimeMillis();
+		String[] row = new String[0];
+
+		while (reader.next()) {
+			state.rawRecordIndex++;
+			if (reader.getFieldCount() != state.numFields) {
+				while (state.numFields < reader.getFieldCount())
+					state.processor.addStream(reader.getFieldName(state.numFields++));
+				row = new String[state.numFields];
+			}
+			for (int i = 0; i < state.numFields; i++)
+				row[i] = reader.getField(i);
+			state.processedRecords++;
+			state.processor.consume(row);
+
+			if (state.processedRecords == options.getRecordsToProcess())
+				break;
+		}
+	}
+
+	/*
+	 * Consume a file that is still being appended to, a snapshot of the results is output every --follow seconds.
+	 * Consumption continues (across file rotations) until --records have been processed or the stream is stopped (see
+	 * {@link #process()}), at which point the final results are output as usual.
+	 */
+	private Consumption consumeFollow(final ParserSettings settings, final String compositeName) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final Consumption state = new Consumption();
+		// The leading lines of a rotated file are skipped, including the header for delimited input
+		final int rotationSkip = options.ndjson ? options.skip : options.skip + 1;
+
+		try (FollowingInputStream in = new FollowingInputStream(Path.of(filename), FOLLOW_POLL_MILLIS, options.follow * 1000L, rotationSkip, () -> snapshot(state))) {
+			following = in;
+			try (RecordReader reader = openReader(settings, in)) {
+				consumeSequential(reader, state, compositeName);
+			}
+		}
+		catch (FileNotFoundException | NoSuchFileException e) {
+			throw new FTAProcessingException(filename, e.getMessage(), e);
+		}
+		finally {
+			following = null;
+		}
+
+		return state;
+	}
+
+	/*
+	 * Output the results to date as a JSON array, see {@link Processor#snapshot()}.  Fields whose type has not yet been
+	 * determined (e.g. sparse fields that have not yet filled the detect window) are omitted.
+	 */
+	private void snapshot(final Consumption state) throws IOException {
+		if (state.processor == null)
+			return;
+
+		final TextAnalysisResult[] results;
+		try {
+			results = state.processor.snapshot();
+		} catch (FTAPluginException | FTAUnsupportedLocaleException | FTAMergeException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		if (Arrays.stream(results).allMatch(Objects::isNull))
+			return;
+
+		output.printf("[%n");
+		boolean first = true;
+		for (int i = 0; i < results.length; i++)
+			if (results[i] != null && (options.col == -1 || options.col == i)) {
+				if (!first)
+					output.printf(",");
+				results[i].writeJSON(asWriter(output), options.pretty, options.verbose);
+				output.printf("%n");
+				first = false;
+			}
+		output.printf("]%n");
+		output.flush();
+	}
+
+	/*
+	 * Why can the input not be split into ranges processed in parallel (null if it can)?
+	 */
+	private String notChunkable(final ParserSettings settings) {
+		if (options.testmerge != 0)
+			return "--testMerge";
+		if (options.follow != 0)
+			return "--follow";
+		if (options.getRecordsToProcess() != -1)
+			return "--records";
+		if (options.noAnalysis)
+			return "--noAnalysis";
+		if (options.trace != null)
+			return "--trace";
+		if (options.validatePlugin)
+			return "--validatePlugin";
+		if (!CsvChunker.isSplittable(Charset.forName(options.charset)))
+			return "charset " + options.charset;
+		if (compression != CompressedInput.Compression.NONE)
+			return "compressed input";
+		if (!options.ndjson && fixedWidth == null && !isSingleByte(settings))
+			return "non-ASCII quote or delimiter";
+		return null;
+	}
+
+	/*
+	 * A Writer over the PrintStream, so that the streamed JSON is encoded using the charset of the PrintStream (as for printf).
+	 */
+	static Writer asWriter(final PrintStream stream) {
+		return new Writer() {
+			@Override
+			public void write(final char[] buffer, final int offset, final int length) {
+				stream.append(CharBuffer.wrap(buffer, offset, length));
+			}
+
+			@Override
+			public void flush() {
+				stream.flush();
+			}
+
+			@Override
+			public void close() {
+				// The PrintStream is owned by the caller
+			}
+		};
+	}
+
+	/*
+	 * The chunked and memory-mapped readers scan for the quote and delimiter as single bytes.
+	 */
+	private static boolean isSingleByte(final ParserSettings settings) {
+		return settings.quoteCharacter < 0x80 && settings.delimiter < 0x80;
+	}
+
+	/*
+	 * Does the range start with well-formed records?  A stray quote character (i.e. not per RFC 4180) in an unquoted field
+	 * flips the quote parity used by CsvChunker, and the resulting boundary is typically mid-record so the field counts
+	 * will not match the header.
+	 */
+	private boolean startsRecord(final ParserSettings settings, final FileChannel channel, final long start, final long end, final int fields) throws IOException {
+		try (RecordReader reader = openReader(settings, channel, start, end, false)) {
+			for (int i = 0; i < BOUNDARY_RECORDS && reader.next(); i++)
+				if (reader.getFieldCount() != fields)
+					return false;
+		}
+		catch (RuntimeException e) {
+			// Failure to parse is equally an indication that we are not on a record boundary
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Consume the input as a set of byte ranges (split on record boundaries) processed in parallel, each range has its own
+	 * Processor and the Processors are merged (in file order) once all the ranges have been consumed.
+	 * The header (and --skip) are processed as part of the first range and --trailer as part of the last range.
+	 * Returns null if the file is too small to be split.
+	 */
+	private Consumption consumeChunked(final ParserSettings settings, final String compositeName) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+			final ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.threads, options.chunks));
+			try {
+				if (options.ndjson)
+					return consumeJsonChunked(channel, compositeName, executor);
+				if (fixedWidth != null)
+					return consumeFixedWidthChunked(channel, compositeName, executor);
+
+				final byte quote = (byte)settings.quoteCharacter;
+				final long[] boundaries = CsvChunker.split(channel, CsvChunker.dataStart(channel, options.skip, quote), options.chunks, quote, executor);
+				final int ranges = boundaries.length - 1;
+				if (ranges == 1)
+					return null;
+
+				// Every range other than the first needs the header to construct its Processor
+				final String[] header;
+				try (RecordReader reader = openReader(settings, channel, 0, boundaries[1], settings.withBOM)) {
+					reader.skipLines(options.skip);
+					if (!reader.next())
+						return null;
+					header = new String[reader.getFieldCount()];
+					for (int i = 0; i < header.length; i++)
+						header[i] = reader.getField(i);
+				}
+
+				for (int i = 1; i < ranges; i++)
+					if (!startsRecord(settings, channel, boundaries[i], boundaries[i + 1], header.length)) {
+						error.printf("WARNING: File: '%s', --chunks ignored (unable to verify record boundaries)%n", filename);
+						return null;
 					}
-					processor = new Processor(compositeName, header, options);
-					if (options.testmerge != 0)
-						altProcessor = new Processor(compositeName, header, options);
-					initializedTime = System.currentTimeMillis();
+
+				final List<Future<Consumption>> futures = new ArrayList<>();
+				for (int i = 0; i < ranges; i++) {
+					final long start = boundaries[i];
+					final long end = boundaries[i + 1];
+					final boolean first = i == 0;
+					final int trailer = i == ranges - 1 ? options.trailer : 0;
+					futures.add(executor.submit(() -> {
+						final Consumption state = new Consumption();
+						try (RecordReader reader = openReader(settings, channel, start, end, first && settings.withBOM)) {
+							if (first) {
+								if (options.skip != 0) {
+									reader.skipLines(options.skip);
+									state.rawRecordIndex += options.skip;
+								}
+							}
+							else {
+								state.header = header;
+								state.numFields = header.length;
+								state.processor = newProcessor(compositeName, header);
+							}
+							consume(reader, state, compositeName, trailer);
+						}
+						return state;
+					}));
 				}
-				rawRecordIndex++;
-				// Skip blank lines
-				if (row.length == 1 && row[0] == null)
-					continue;
-				if (rowLength != numFields) {
-					final RowCount existing = errors.get(rowLength);
-					if (existing == null)
-						errors.put(rowLength, new RowCount(rowLength, rawRecordIndex));
-					else
-						errors.put(rowLength, existing.inc());
-					continue;
+
+				return mergeRanges(futures);
+			}
+			finally {
+				executor.shutdown();
+			}
+		}
+		catch (NoSuchFileException e) {
+			throw new FTAProcessingException(filename, e.getMessage(), e);
+		}
+	}
+
+	/*
+	 * Consume JSON Lines input as a set of byte ranges processed in parallel, the fields are aligned by name when the
+	 * Processors are merged.  A newline cannot occur within a JSON string, but a record may span lines, so if any of the
+	 * boundaries is not between records the input is processed sequentially.
+	 */
+	private Consumption consumeJsonChunked(final FileChannel channel, final String compositeName, final ExecutorService executor)
+			throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final long[] boundaries = CsvChunker.split(channel, 0, options.chunks, CsvChunker.NO_QUOTE, executor);
+		final int ranges = boundaries.length - 1;
+		if (ranges == 1)
+			return null;
+		for (int i = 1; i < ranges; i++)
+			if (!JsonRecordReader.isRecordBoundary(channel, boundaries[i])) {
+				error.printf("WARNING: File: '%s', --chunks ignored (JSON records span lines)%n", filename);
+				return null;
+			}
+
+		final Charset charset = Charset.forName(options.charset);
+		final List<Future<Consumption>> futures = new ArrayList<>();
+		for (int i = 0; i < ranges; i++) {
+			final long start = boundaries[i];
+			final long end = boundaries[i + 1];
+			final boolean first = i == 0;
+			futures.add(executor.submit(() -> {
+				final Consumption state = new Consumption();
+				try (JsonRecordReader reader = new JsonRecordReader(CsvChunker.open(channel, start, end), charset)) {
+					if (first && options.skip != 0) {
+						reader.skipLines(options.skip);
+						state.rawRecordIndex += options.skip;
+					}
+					consumeJson(reader, state, compositeName);
 				}
-				buffer.add(row);
-				if (!buffer.isFull())
-					continue;
-				row = buffer.get();
-				processedRecords++;
+				return state;
+			}));
+		}
 
-				if (options.testmerge != 0) {
-					if (processedRecords % 2 == 0)
-						processor.consume(row);
-					else
-						altProcessor.consume(row);
+		final Consumption ret = mergeRanges(futures);
+		ret.numFields = ret.processor.getAnalyzers().length;
+
+		return ret;
+	}
+
+	/*
+	 * Open a RecordReader over a range of a fixed-width file.
+	 */
+	private RecordReader openFixedWidth(final FileChannel channel, final long start, final long end) throws IOException {
+		return new FixedWidthReader(channel, start, end, fixedWidth, fixedWidthLines, Charset.forName(options.charset));
+	}
+
+	/*
+	 * Fixed-width input has no header, the field names are provided by the layout.
+	 */
+	private void startFixedWidth(final Consumption state, final String compositeName) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException {
+		if (options.col >= fixedWidth.names.length)
+			throw new FTAProcessingException(filename, MessageFormat.format("Column {0} does not exist.  Only {1} field(s) in layout.", options.col, fixedWidth.names.length));
+		state.header = fixedWidth.names;
+		state.numFields = fixedWidth.names.length;
+		state.processor = newProcessor(compositeName, state.header);
+		if (options.testmerge != 0)
+			state.altProcessor = newProcessor(compositeName, state.header);
+		state.initializedTime = System.currentTimeMillis();
+	}
 
-					if (processedRecords % options.testmerge == 0) {
-						processor = Processor.merge(processor, altProcessor);
-						altProcessor = new Processor(compositeName, header, options);
+	/*
+	 * Consume fixed-width input as a set of ranges processed in parallel, when all records are the same length the ranges
+	 * are determined by record count (see {@link FixedWidthReader#split}).
+	 */
+	private Consumption consumeFixedWidthChunked(final FileChannel channel, final String compositeName, final ExecutorService executor)
+			throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final long[] boundaries = FixedWidthReader.split(channel, fixedWidth, fixedWidthLines, Charset.forName(options.charset), options.skip, options.chunks, executor);
+		final int ranges = boundaries.length - 1;
+		if (ranges == 1)
+			return null;
+
+		final List<Future<Consumption>> futures = new ArrayList<>();
+		for (int i = 0; i < ranges; i++) {
+			final long start = boundaries[i];
+			final long end = boundaries[i + 1];
+			final boolean first = i == 0;
+			final int trailer = i == ranges - 1 ? options.trailer : 0;
+			futures.add(executor.submit(() -> {
+				final Consumption state = new Consumption();
+				try (RecordReader reader = openFixedWidth(channel, start, end)) {
+					if (first && options.skip != 0) {
+						reader.skipLines(options.skip);
+						state.rawRecordIndex += options.skip;
 					}
+					startFixedWidth(state, compositeName);
+					consume(reader, state, compositeName, trailer);
+				}
+				return state;
+			}));
+		}
+
+		return mergeRanges(futures);
+	}
+
+	/*
+	 * Merge the ranges in order, row numbers in errors are relative to the range so offset them by the preceding ranges.
+	 */
+	private Consumption mergeRanges(final List<Future<Consumption>> futures)
+			throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final Consumption ret = await(futures.get(0));
+		for (int i = 1; i < futures.size(); i++) {
+			final Consumption range = await(futures.get(i));
+			for (final RowCount recordError : range.errors.values()) {
+				final RowCount existing = ret.errors.get(recordError.numFields);
+				if (existing == null) {
+					recordError.firstRow += ret.rawRecordIndex;
+					ret.errors.put(recordError.numFields, recordError);
 				}
 				else
-					processor.consume(row);
+					existing.count += recordError.count;
+			}
+			ret.rawRecordIndex += range.rawRecordIndex;
+			ret.processedRecords += range.processedRecords;
+			ret.processor = Processor.merge(ret.processor, range.processor);
+		}
+		ret.merged = true;
+
+		return ret;
+	}
+
+	private <T> T await(final Future<T> future) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FTAProcessingException(filename, "Interrupted", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException)cause;
+			if (cause instanceof FTAPluginException)
+				throw (FTAPluginException)cause;
+			if (cause instanceof FTAUnsupportedLocaleException)
+				throw (FTAUnsupportedLocaleException)cause;
+			if (cause instanceof FTAProcessingException)
+				throw (FTAProcessingException)cause;
+			if (cause instanceof FTAMergeException)
+				throw (FTAMergeException)cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new FTAProcessingException(filename, cause.getMessage(), cause);
+		}
+	}
+
+	/** The RegExp validation state for a single column. */
+	static class RegExpValidation {
+		final TextAnalyzer analyzer;
+		final Pattern pattern;
+		long matched;
+		final Set<String> failures = new HashSet<>();
+
+		RegExpValidation(final TextAnalyzer analyzer, final TextAnalysisResult result) {
+			this.analyzer = analyzer;
+			this.pattern = Pattern.compile(result.getRegExp());
+		}
+
+		void check(final String value, final long count, final boolean recordFailures) {
+			if (analyzer.isNullEquivalent(value) || value.trim().isEmpty())
+				return;
+			if (pattern.matcher(value.trim()).matches())
+				matched += count;
+			else if (recordFailures)
+				failures.add(value);
+		}
+	}
 
-				if (processedRecords == options.getRecordsToProcess()) {
-					break;
+	/*
+	 * Did the analysis capture every value, i.e. do the cardinality, outlier and invalid maps account for every sample that
+	 * was not null or blank?
+	 */
+	private static boolean isComplete(final TextAnalysisResult result) {
+		long total = result.getNullCount() + result.getBlankCount();
+		for (final long count : result.getCardinalityDetails().values())
+			total += count;
+		for (final long count : result.getOutlierDetails().values())
+			total += count;
+		for (final long count : result.getInvalidDetails().values())
+			total += count;
+
+		return total == result.getSampleCount();
+	}
+
+	/*
+	 * Count the values in each analyzed column that match the RegExp from the column's result.
+	 * Where the analysis captured every distinct value the count is computed from the cardinality, outlier and invalid maps
+	 * (weighted by count).  The input is only re-read for the columns where this is not the case (e.g. the cardinality overflowed),
+	 * only those columns are materialized and they are checked in parallel.
+	 */
+	private void validateRegExps(final ParserSettings settings, final TextAnalyzer[] analyzers, final TextAnalysisResult[] results,
+			final long processedRecords, final long[] matched, final Set<String> failures) throws IOException, FTAProcessingException {
+		final boolean recordFailures = options.verbose != 0;
+		final List<Integer> reread = new ArrayList<>();
+		final RegExpValidation[] validations = new RegExpValidation[results.length];
+
+		for (int i = 0; i < results.length; i++) {
+			if (options.col != -1 && options.col != i)
+				continue;
+			validations[i] = new RegExpValidation(analyzers[i], results[i]);
+			if (!isComplete(results[i])) {
+				reread.add(i);
+				continue;
+			}
+			for (final Map<String, Long> details : List.of(results[i].getCardinalityDetails(), results[i].getOutlierDetails(), results[i].getInvalidDetails()))
+				for (final Map.Entry<String, Long> entry : details.entrySet())
+					validations[i].check(entry.getKey(), entry.getValue(), recordFailures);
+		}
+
+		if (!reread.isEmpty())
+			revalidate(settings, reread.stream().mapToInt(Integer::intValue).toArray(), results.length, processedRecords, validations);
+
+		for (int i = 0; i < results.length; i++)
+			if (validations[i] != null) {
+				matched[i] = validations[i].matched;
+				failures.addAll(validations[i].failures);
+			}
+	}
+
+	/*
+	 * Re-read the input checking the specified columns, the records checked are exactly those that were analyzed - so the
+	 * blank lines and records with the wrong number of fields are skipped as in consume().
+	 */
+	private void revalidate(final ParserSettings settings, final int[] columns, final int numFields, final long processedRecords,
+			final RegExpValidation[] validations) throws IOException, FTAProcessingException {
+		final int BATCH_SIZE = 8192;
+		final boolean recordFailures = options.verbose != 0;
+		final String[][] values = new String[columns.length][BATCH_SIZE];
+		final ExecutorService executor = columns.length == 1 ? null : Executors.newFixedThreadPool(Math.min(options.threads, columns.length));
+
+		try (FileChannel channel = options.mmap || fixedWidth != null ? FileChannel.open(Path.of(filename), StandardOpenOption.READ) : null;
+				RecordReader reader = fixedWidth != null ? openFixedWidth(channel, 0, channel.size()) :
+					channel != null ? openReader(settings, channel, 0, channel.size(), settings.withBOM) : openReader(settings)) {
+			reader.skipLines(options.skip);
+			// Skip the header
+			if (!options.ndjson && fixedWidth == null && !reader.next())
+				return;
+
+			long remaining = processedRecords;
+			int rows = 0;
+			while (remaining > 0 && reader.next()) {
+				// JSON records are never rejected, fields not yet seen are null
+				if (!options.ndjson && (isBlank(reader) || reader.getFieldCount() != numFields))
+					continue;
+				for (int c = 0; c < columns.length; c++)
+					values[c][rows] = reader.getField(columns[c]);
+				remaining--;
+				if (++rows == BATCH_SIZE || remaining == 0) {
+					final int batchRows = rows;
+					final List<Callable<Void>> tasks = new ArrayList<>();
+					for (int c = 0; c < columns.length; c++) {
+						final RegExpValidation validation = validations[columns[c]];
+						final String[] columnValues = values[c];
+						tasks.add(() -> {
+							for (int r = 0; r < batchRows; r++)
+								validation.check(columnValues[r], 1, recordFailures);
+							return null;
+						});
+					}
+					runAll(executor, tasks);
+					rows = 0;
 				}
 			}
-			consumedTime = System.currentTimeMillis();
 		}
-		catch (FileNotFoundException e) {
+		finally {
+			if (executor != null)
+				executor.shutdown();
+		}
+	}
+
+	private void runAll(final ExecutorService executor, final List<Callable<Void>> tasks) throws FTAProcessingException {
+		try {
+			if (executor == null) {
+				for (final Callable<Void> task : tasks)
+					task.call();
+				return;
+			}
+			for (final Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FTAProcessingException(filename, "Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new FTAProcessingException(filename, e.getCause().getMessage(), e.getCause());
+		} catch (Exception e) {
+			if (e instanceof RuntimeException)
+				throw (RuntimeException)e;
 			throw new FTAProcessingException(filename, e.getMessage(), e);
 		}
+	}
 
-		if (options.testmerge != 0)
-			processor = Processor.merge(processor, altProcessor);
+	private void processAllFields(final ParserSettings settings) throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAProcessingException, FTAMergeException {
+		final long startTime = System.currentTimeMillis();
+		long initializedTime = -1;
+		long consumedTime = -1;
+		long resultsTime = -1;
+		final String compositeName = com.cobber.fta.core.Utils.getBaseName(CompressedInput.stripExtension(Paths.get(filename).getFileName().toString()));
+
+		if (options.mmap && !CsvChunker.isSplittable(Charset.forName(options.charset))) {
+			error.printf("WARNING: File: '%s', --mmap ignored (unsupported charset %s)%n", filename, options.charset);
+			options.mmap = false;
+		}
+		if (options.mmap && !isSingleByte(settings)) {
+			error.printf("WARNING: File: '%s', --mmap ignored (non-ASCII quote or delimiter)%n", filename);
+			options.mmap = false;
+		}
+		if (options.mmap && compression != CompressedInput.Compression.NONE) {
+			error.printf("WARNING: File: '%s', --mmap ignored (compressed input)%n", filename);
+			options.mmap = false;
+		}
+		if (options.ndjson) {
+			if (options.col != -1 || options.trailer != 0 || options.testmerge != 0)
+				throw new FTAProcessingException(filename, "--col, --trailer, and --testMerge are not supported for JSON Lines input");
+			if (options.mmap) {
+				error.printf("WARNING: File: '%s', --mmap ignored (JSON Lines input)%n", filename);
+				options.mmap = false;
+			}
+		}
+
+		if (options.fixedWidth != null) {
+			if (options.ndjson || options.follow != 0)
+				throw new FTAProcessingException(filename, "--fixedWidth is not supported with --ndjson or --follow");
+			if (compression != CompressedInput.Compression.NONE || !CsvChunker.isSplittable(Charset.forName(options.charset)))
+				throw new FTAProcessingException(filename, "--fixedWidth requires uncompressed input in UTF-8 or a single byte charset");
+			try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+				fixedWidth = FixedWidthLayout.parse(options.fixedWidth);
+				fixedWidthLines = FixedWidthReader.isLineTerminated(channel, fixedWidth, Charset.forName(options.charset));
+			}
+			catch (IllegalArgumentException | NoSuchFileException e) {
+				throw new FTAProcessingException(filename, e.getMessage(), e);
+			}
+			// Fixed-width input is always memory-mapped
+			options.mmap = false;
+		}
+		if (options.follow != 0) {
+			if (options.trailer != 0 || options.testmerge != 0 || options.validate == 2)
+				throw new FTAProcessingException(filename, "--trailer, --testMerge, and --validate 2 are not supported with --follow");
+			if (compression != CompressedInput.Compression.NONE)
+				throw new FTAProcessingException(filename, "--follow is not supported for compressed input");
+			if (options.mmap) {
+				error.printf("WARNING: File: '%s', --mmap ignored (--follow)%n", filename);
+				options.mmap = false;
+			}
+		}
+
+		Consumption state = null;
+		if (options.chunks > 1) {
+			final String reason = notChunkable(settings);
+			if (reason != null)
+				error.printf("WARNING: File: '%s', --chunks ignored (incompatible with %s)%n", filename, reason);
+			else
+				state = consumeChunked(settings, compositeName);
+		}
+		if (state == null)
+			state = options.follow != 0 ? consumeFollow(settings, compositeName) : consumeSequential(settings, compositeName);
+		if (state.numFields == 0 && options.ndjson)
+			throw new FTAProcessingException(filename, "No fields found in JSON Lines input");
+
+		initializedTime = state.initializedTime;
+		consumedTime = System.currentTimeMillis();
+		final Processor processor = state.processor;
+		final Map<Integer, RowCount> errors = state.errors;
+		final int processedRecords = state.processedRecords;
+		final int numFields = state.numFields;
+		final long rawRecordIndex = state.rawRecordIndex;
 
 		if (!errors.isEmpty()) {
 			long toSkip = -1;
@@ -339,66 +1164,14 @@ class FileProcessor {
 			System.exit(0);
 
 		// Validate the result of the analysis if requested
-		final int[] matched = new int[numFields];
-		final int[] nulls = new int[numFields];
-		final int[] blanks = new int[numFields];
+		final long[] matched = new long[numFields];
 		final Set<String> failures = new HashSet<>();
 
 		final TextAnalysisResult[] results = processor.getResult();
 
 		// Check the RegExp at level 2 validation
-		if (options.validate == 2) {
-			try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(new File(filename)), options.charset))) {
-				final CsvReader<NamedCsvRecord> csv = CsvReader.builder()
-						.fieldSeparator(settings.delimiter)
-						.quoteCharacter(settings.quoteCharacter)
-						.detectBomHeader(settings.withBOM)
-						.skipEmptyLines(false)
-						.extraFieldStrategy(FieldMismatchStrategy.IGNORE)
-						.missingFieldStrategy(FieldMismatchStrategy.IGNORE)
-						.build(NamedCsvRecordHandler.builder().allowDuplicateHeaderFields(true).build(), in);
-				Pattern[] patterns = null;
-				rawRecordIndex = 0;
-
-				TextAnalyzer[] analyzers = null;
-				for (final CloseableIterator<NamedCsvRecord> iter = csv.iterator(); iter.hasNext();) {
-					final NamedCsvRecord rowRaw = iter.next();
-					final String[] row = rowRaw.getFields().toArray(new String[0]);
-
-					// Are we looking at the header row?
-					if (rawRecordIndex == 0) {
-						numFields = rowRaw.getFieldCount();
-						analyzers = processor.getAnalyzers();
-						patterns = new Pattern[numFields];
-
-						for (int i = 0; i < numFields; i++)
-							if (options.col == -1 || options.col == i)
-								patterns[i] = Pattern.compile(results[i].getRegExp());
-					}
-
-					rawRecordIndex++;
-					if (row.length != numFields)
-						continue;
-
-					for (int i = 0; i < numFields; i++) {
-						if (options.col == -1 || options.col == i) {
-							final String value = row[i];
-							if (analyzers[i].isNullEquivalent(value))
-								nulls[i]++;
-							else if (value.trim().isEmpty())
-								blanks[i]++;
-							else if (patterns[i].matcher(value.trim()).matches())
-								matched[i]++;
-							else if (options.verbose != 0)
-								failures.add(value);
-						}
-					}
-					if (rawRecordIndex == options.getRecordsToProcess()) {
-						break;
-					}
-				}
-			}
-		}
+		if (options.validate == 2)
+			validateRegExps(settings, processor.getAnalyzers(), results, processedRecords, matched, failures);
 
 		int typesDetected = 0;
 		long matchCount = 0;
@@ -422,7 +1195,8 @@ class FileProcessor {
 				if (outputJSON) {
 					if (i != 0 && options.col == -1)
 						output.printf(",");
-					output.printf("%s%n", result.asJSON(options.pretty, options.verbose));
+					result.writeJSON(asWriter(output), options.pretty, options.verbose);
+					output.printf("%n");
 				}
 				else if (outputFaker) {
 					final ObjectNode fieldNode = mapper.createObjectNode();
@@ -510,9 +1284,9 @@ class FileProcessor {
 
 				// Check the counts if we are validating
 				if (options.validate >= 1) {
-					String ret = result.checkCounts(options.testmerge != 0);
+					String ret = result.checkCounts(state.merged);
 
-					if (ret == null && options.testmerge == 0 && result.getSampleCount() != processedRecords)
+					if (ret == null && !state.merged && result.getSampleCount() != processedRecords)
 						ret = "Samples != # of records processed";
 
 					if (ret != null)
@@ -556,6 +1330,15 @@ class FileProcessor {
 
 			output.printf("%n");
 		}
+
+		if (options.profilePlugins) {
+			final List<TextAnalysisResult> profiled = new ArrayList<>();
+			for (int i = 0; i < numFields; i++)
+				if (options.col == -1 || options.col == i)
+					profiled.add(results[i]);
+			reportPluginProfiles(profiled);
+		}
+
 		resultsTime = System.currentTimeMillis();
 
 	    final Runtime instance = Runtime.getRuntime();
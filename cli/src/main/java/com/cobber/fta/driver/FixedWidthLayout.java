@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of a fixed-width record.
+ * The layout is a list of fields separated by commas or newlines (either inline or in a file), each field is one of:
+ * <ul>
+ * <li>&lt;length&gt; - an unnamed field immediately following the previous field</li>
+ * <li>&lt;name&gt;:&lt;length&gt; - a named field immediately following the previous field</li>
+ * <li>&lt;name&gt;:&lt;offset&gt;:&lt;length&gt; - a named field at the (zero-based) offset</li>
+ * </ul>
+ * Fields named FILLER (as in a COBOL copybook) occupy space in the record but are not analyzed, lines starting with
+ * '#' are comments.  For example "id:6,FILLER:2,name:20,zip:5" or "id:0:6,name:8:20,zip:28:5".
+ */
+final class FixedWidthLayout {
+	private static final String FILLER = "FILLER";
+
+	/** The names of the (analyzed) fields. */
+	final String[] names;
+	/** The offset of each field within the record. */
+	final int[] offsets;
+	/** The length in bytes of each field. */
+	final int[] lengths;
+	/** The length of the record (the end of the last field, including any FILLER). */
+	final int recordLength;
+
+	private FixedWidthLayout(final String[] names, final int[] offsets, final int[] lengths, final int recordLength) {
+		this.names = names;
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.recordLength = recordLength;
+	}
+
+	/**
+	 * Parse a layout.
+	 * @param spec The layout, or the name of a file containing the layout.
+	 * @return The FixedWidthLayout.
+	 * @throws IOException If the layout file cannot be read.
+	 * @throws IllegalArgumentException If the layout is invalid.
+	 */
+	static FixedWidthLayout parse(final String spec) throws IOException {
+		final String layout = Files.isRegularFile(Paths.get(spec)) ? Files.readString(Paths.get(spec), StandardCharsets.UTF_8) : spec;
+
+		final List<String> names = new ArrayList<>();
+		final List<Integer> offsets = new ArrayList<>();
+		final List<Integer> lengths = new ArrayList<>();
+		int next = 0;
+		int recordLength = 0;
+
+		for (final String line : layout.split("\\R")) {
+			if (line.trim().startsWith("#"))
+				continue;
+			for (final String entry : line.split(",")) {
+				final String field = entry.trim();
+				if (field.isEmpty())
+					continue;
+				final String[] parts = field.split(":");
+				if (parts.length > 3)
+					throw new IllegalArgumentException(MessageFormat.format("Invalid fixed-width field ''{0}''", field));
+				final String name = parts.length == 1 ? "Field" + (names.size() + 1) : parts[0].trim();
+				final int offset = parts.length == 3 ? number(parts[1], field) : next;
+				final int length = number(parts[parts.length - 1], field);
+				if (length == 0 || name.isEmpty())
+					throw new IllegalArgumentException(MessageFormat.format("Invalid fixed-width field ''{0}''", field));
+				next = offset + length;
+				recordLength = Math.max(recordLength, next);
+				if (FILLER.equalsIgnoreCase(name))
+					continue;
+				names.add(name);
+				offsets.add(offset);
+				lengths.add(length);
+			}
+		}
+
+		if (names.isEmpty())
+			throw new IllegalArgumentException("Fixed-width layout has no fields");
+
+		return new FixedWidthLayout(names.toArray(new String[0]), offsets.stream().mapToInt(Integer::intValue).toArray(),
+				lengths.stream().mapToInt(Integer::intValue).toArray(), recordLength);
+	}
+
+	private static int number(final String value, final String field) {
+		try {
+			final int ret = Integer.parseInt(value.trim());
+			if (ret >= 0)
+				return ret;
+		}
+		catch (NumberFormatException e) {
+			// Reported below
+		}
+		throw new IllegalArgumentException(MessageFormat.format("Invalid fixed-width field ''{0}''", field));
+	}
+}
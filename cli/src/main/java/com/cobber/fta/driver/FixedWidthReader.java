@@ -0,0 +1,328 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A RecordReader over a range of a fixed-width file accessed via memory-mapped buffers.
+ * Records are either terminated by a newline (in which case a record may be shorter than the layout, typically because
+ * trailing spaces have been removed) or are exactly the length of the layout with no terminator (as is common for
+ * mainframe extracts).  Fields are sliced in place from the mapped window using the offsets of the layout, and a
+ * String is only created when a field is requested.  Offsets and lengths are in bytes, leading and trailing spaces
+ * (the padding) are removed.
+ * Only UTF-8 and single byte charsets are supported (see {@link CsvChunker#isSplittable(Charset)}).
+ */
+final class FixedWidthReader implements RecordReader {
+	private final FileChannel channel;
+	private final long end;
+	private final FixedWidthLayout layout;
+	private final boolean lines;
+	private final Charset charset;
+	private final byte newline;
+	private final byte carriageReturn;
+	private final byte space;
+
+	private MappedByteBuffer buffer;
+	private long windowStart;
+	private int windowSize;
+	private int position;
+	private int recordStart;
+	private int recordEnd;
+	private int nextRecord;
+	private byte[] scratch = new byte[256];
+
+	/**
+	 * Construct a FixedWidthReader over a range of the file.
+	 * @param channel The FileChannel for the file (not closed by this reader).
+	 * @param start The offset of the start of the range.
+	 * @param end The offset one past the end of the range.
+	 * @param layout The layout of the records.
+	 * @param lines True if records are terminated by a newline, false if records are exactly the length of the layout.
+	 * @param charset The Charset of the file.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	FixedWidthReader(final FileChannel channel, final long start, final long end, final FixedWidthLayout layout, final boolean lines,
+			final Charset charset) throws IOException {
+		this(channel, start, end, layout, lines, charset, MappedCsvReader.WINDOW_SIZE);
+	}
+
+	/*
+	 * As above but with the initial size of the mapped window (which is always at least two records).
+	 */
+	FixedWidthReader(final FileChannel channel, final long start, final long end, final FixedWidthLayout layout, final boolean lines,
+			final Charset charset, final int windowSize) throws IOException {
+		this.channel = channel;
+		this.end = end;
+		this.layout = layout;
+		this.lines = lines;
+		this.charset = charset;
+		this.newline = "\n".getBytes(charset)[0];
+		this.carriageReturn = "\r".getBytes(charset)[0];
+		this.space = " ".getBytes(charset)[0];
+		this.windowSize = Math.max(windowSize, 2 * layout.recordLength);
+
+		map(start);
+	}
+
+	/**
+	 * Are the records in the file terminated by a newline?  True if the first newline falls at (or just after, to allow
+	 * for a carriage return) the end of the layout.  A newline within the first record is either the terminator of a short
+	 * line or simply part of a binary field, so it is only treated as a terminator if the file is not an exact multiple of
+	 * the record length or the file ends with a newline.
+	 * @param channel The FileChannel for the file.
+	 * @param layout The layout of the records.
+	 * @param charset The Charset of the file.
+	 * @return True if the records are terminated by a newline.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static boolean isLineTerminated(final FileChannel channel, final FixedWidthLayout layout, final Charset charset) throws IOException {
+		final byte newline = "\n".getBytes(charset)[0];
+		final ByteBuffer first = ByteBuffer.allocate(layout.recordLength + 2);
+		final int read = channel.read(first, 0);
+		int index = 0;
+		while (index < read && first.get(index) != newline)
+			index++;
+		if (index == read)
+			return false;
+		if (index >= layout.recordLength)
+			return true;
+
+		final long size = channel.size();
+		if (size % layout.recordLength != 0)
+			return true;
+		final ByteBuffer last = ByteBuffer.allocate(1);
+		return channel.read(last, size - 1) == 1 && last.get(0) == newline;
+	}
+
+	/**
+	 * Determine the boundaries of the ranges for the file.  If every record is the same length the boundaries are
+	 * computed from the record count (no scanning is required), otherwise newline terminated records are split as for
+	 * CSV input (see {@link CsvChunker#split(FileChannel, long, int, byte, ExecutorService)}).
+	 * @param channel The FileChannel for the file.
+	 * @param layout The layout of the records.
+	 * @param lines True if records are terminated by a newline.
+	 * @param charset The Charset of the file.
+	 * @param skip The number of lines (records) to skip, these are always in the first range.
+	 * @param chunks The desired number of ranges.
+	 * @param executor The executor used to scan the file in parallel (if required).
+	 * @return The offsets of the boundaries, the first is 0 and the last is the size of the file, so range i is
+	 * [ret[i], ret[i + 1]).  An array of length 2 indicates the file was not split.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static long[] split(final FileChannel channel, final FixedWidthLayout layout, final boolean lines, final Charset charset,
+			final int skip, final int chunks, final ExecutorService executor) throws IOException {
+		final long size = channel.size();
+		final long start;
+		final long stride;
+
+		if (lines) {
+			final byte newline = "\n".getBytes(charset)[0];
+			start = lineStart(channel, skip, newline);
+			stride = stride(channel, start, newline);
+			if (stride == -1)
+				return newline == '\n' ? CsvChunker.split(channel, start, chunks, CsvChunker.NO_QUOTE, executor) : new long[] { 0, size };
+		}
+		else {
+			stride = layout.recordLength;
+			start = Math.min(size, (long)skip * stride);
+		}
+
+		final long records = (size - start + stride - 1) / stride;
+		final int ranges = (int)Math.max(1, Math.min(chunks, (size - start) / CsvChunker.MIN_CHUNK_SIZE));
+		if (ranges == 1)
+			return new long[] { 0, size };
+
+		final long[] ret = new long[ranges + 1];
+		for (int i = 1; i < ranges; i++)
+			ret[i] = start + records * i / ranges * stride;
+		ret[ranges] = size;
+
+		return ret;
+	}
+
+	/*
+	 * The offset following the first 'skip' lines (the size of the file if there are fewer lines) - the newline is that
+	 * of the charset (e.g. 0x15 for EBCDIC).
+	 */
+	private static long lineStart(final FileChannel channel, final int skip, final byte newline) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		int lines = 0;
+		long position = 0;
+
+		while (lines < skip) {
+			buffer.clear();
+			final int read = channel.read(buffer, position);
+			if (read <= 0)
+				return position;
+			for (int i = 0; i < read; i++)
+				if (buffer.get(i) == newline && ++lines == skip)
+					return position + i + 1;
+			position += read;
+		}
+
+		return position;
+	}
+
+	/*
+	 * The length (including the terminator) of every line from start, or -1 if the lines are not all the same length.
+	 * The length of the first line is checked against the size of the data and a sample of the line ends.
+	 */
+	private static long stride(final FileChannel channel, final long start, final byte newline) throws IOException {
+		final int SAMPLES = 64;
+		final long length = channel.size() - start;
+		final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		final int read = channel.read(buffer, start);
+		long stride = -1;
+		for (int i = 0; i < read; i++)
+			if (buffer.get(i) == newline) {
+				stride = i + 1;
+				break;
+			}
+		if (stride == -1 || length % stride != 0)
+			return -1;
+
+		final long lines = length / stride;
+		final ByteBuffer one = ByteBuffer.allocate(1);
+		for (int i = 1; i <= SAMPLES; i++) {
+			one.clear();
+			channel.read(one, start + Math.max(1, lines * i / SAMPLES) * stride - 1);
+			if (one.get(0) != newline)
+				return -1;
+		}
+
+		return stride;
+	}
+
+	private void map(final long offset) throws IOException {
+		windowStart = offset;
+		position = 0;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, end - offset));
+	}
+
+	private boolean isLastWindow() {
+		return windowStart + buffer.limit() >= end;
+	}
+
+	/*
+	 * Remap so that the window starts at the current position, if the current position is already at the start of
+	 * the window then the record is larger than the window so grow it.
+	 */
+	private void remap() throws IOException {
+		if (position == 0)
+			windowSize = (int)Math.min(Integer.MAX_VALUE - 8, 2L * windowSize);
+		map(windowStart + position);
+	}
+
+	/**
+	 * Skip lines (or records if records are not terminated by a newline).
+	 * @param count The number of lines to skip.
+	 * @throws IOException If the input cannot be read.
+	 */
+	@Override
+	public void skipLines(final int count) throws IOException {
+		for (int skipped = 0; skipped < count && locate(); skipped++)
+			position = nextRecord;
+	}
+
+	/*
+	 * Locate the record at the current position (setting recordStart, recordEnd, and nextRecord), returns false if there are
+	 * no more records.
+	 */
+	private boolean locate() throws IOException {
+		while (true) {
+			final int limit = buffer.limit();
+			if (position >= limit && isLastWindow())
+				return false;
+
+			if (lines) {
+				int i = position;
+				while (i < limit && buffer.get(i) != newline)
+					i++;
+				if (i < limit || isLastWindow()) {
+					recordStart = position;
+					recordEnd = i > position && buffer.get(i - 1) == carriageReturn ? i - 1 : i;
+					nextRecord = i < limit ? i + 1 : i;
+					return true;
+				}
+			}
+			else if (position + layout.recordLength <= limit || isLastWindow()) {
+				// A final partial record that is just a terminator (e.g. a trailing newline) is not a record
+				if (position + layout.recordLength > limit && isTerminator(position, limit))
+					return false;
+				recordStart = position;
+				recordEnd = Math.min(position + layout.recordLength, limit);
+				nextRecord = recordEnd;
+				return true;
+			}
+
+			remap();
+		}
+	}
+
+	private boolean isTerminator(final int from, final int to) {
+		for (int i = from; i < to; i++)
+			if (buffer.get(i) != newline && buffer.get(i) != carriageReturn)
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (locate()) {
+			position = nextRecord;
+			// Skip empty lines
+			if (recordEnd != recordStart)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int getFieldCount() {
+		return layout.names.length;
+	}
+
+	@Override
+	public String getField(final int index) {
+		int start = recordStart + layout.offsets[index];
+		int finish = Math.min(start + layout.lengths[index], recordEnd);
+		while (start < finish && buffer.get(start) == space)
+			start++;
+		while (finish > start && buffer.get(finish - 1) == space)
+			finish--;
+		if (start >= finish)
+			return "";
+
+		final int length = finish - start;
+		if (length > scratch.length)
+			scratch = new byte[Math.max(length, 2 * scratch.length)];
+		buffer.get(start, scratch, 0, length);
+
+		return new String(scratch, 0, length, charset);
+	}
+
+	@Override
+	public void close() {
+		// The channel is owned by the caller, the mapping is released when the buffer is collected
+		buffer = null;
+	}
+}
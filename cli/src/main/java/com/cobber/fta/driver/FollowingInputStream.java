@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * An InputStream over a file that is still being appended to (think 'tail -F').
+ * At the end of the file the stream waits for more data rather than returning end-of-file, only the bytes appended
+ * since the last read are consumed.  If the file is rotated (replaced by a new file or truncated) the remainder of the
+ * old file is consumed and reading continues from the start of the new file, skipping its leading lines (typically the
+ * header).  The file is polled rather than watched so that network file systems are supported.
+ * A Listener is invoked periodically (on the reading thread) so that the caller can report progress even if no new
+ * data arrives.
+ */
+final class FollowingInputStream extends InputStream {
+	/** Invoked periodically on the thread reading the stream. */
+	interface Listener {
+		void tick() throws IOException;
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path path;
+	private final long pollMillis;
+	private final long tickMillis;
+	private final int rotationSkip;
+	private final Listener listener;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private FileChannel channel;
+	private Object fileKey;
+	private long nextTick;
+	private int toSkip;
+	private byte lastByte = '\n';
+	private boolean pendingNewline;
+	private volatile boolean stopped;
+	private boolean interrupted;
+
+	/**
+	 * Construct a FollowingInputStream.
+	 * @param path The file to follow.
+	 * @param pollMillis How often to check for new data when at the end of the file.
+	 * @param tickMillis How often the Listener is invoked.
+	 * @param rotationSkip The number of lines to skip at the start of each file the original is rotated to.
+	 * @param listener The Listener to invoke periodically.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	FollowingInputStream(final Path path, final long pollMillis, final long tickMillis, final int rotationSkip, final Listener listener) throws IOException {
+		this.path = path;
+		this.pollMillis = pollMillis;
+		this.tickMillis = tickMillis;
+		this.rotationSkip = rotationSkip;
+		this.listener = listener;
+		this.nextTick = System.currentTimeMillis() + tickMillis;
+		open();
+		buffer.limit(0);
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+	}
+
+	/**
+	 * Stop following the file, the stream returns end-of-file once the data currently available has been consumed.
+	 * Interrupting the reading thread while it is waiting for data has the same effect.
+	 */
+	void stop() {
+		stopped = true;
+	}
+
+	/*
+	 * Has the file been replaced or truncated?  If the file has been moved and not yet replaced keep reading the original.
+	 */
+	private boolean rotated() throws IOException {
+		if (!Files.exists(path))
+			return false;
+		final Object currentKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		if (currentKey != null && !currentKey.equals(fileKey))
+			return true;
+		return Files.size(path) < channel.position();
+	}
+
+	private void tick() throws IOException {
+		final long now = System.currentTimeMillis();
+		if (now >= nextTick) {
+			nextTick = now + tickMillis;
+			listener.tick();
+		}
+	}
+
+	/*
+	 * Refill the buffer, waiting for data if necessary, returns false at end-of-file (i.e. once stopped).
+	 */
+	private boolean fill() throws IOException {
+		while (true) {
+			tick();
+			buffer.clear();
+			final int n = channel.read(buffer);
+			buffer.flip();
+			if (n > 0) {
+				if (toSkip != 0)
+					skip();
+				if (buffer.hasRemaining())
+					return true;
+				continue;
+			}
+			if (stopped)
+				return false;
+			if (rotated()) {
+				channel.close();
+				open();
+				toSkip = rotationSkip;
+				// Do not let the last record of the old file run into the first record of the new one
+				pendingNewline = lastByte != '\n' && lastByte != '\r';
+				continue;
+			}
+			try {
+				Thread.sleep(pollMillis);
+			} catch (InterruptedException e) {
+				// Treat as a request to stop, the interrupt status is restored on close since a read on an interruptible
+				// channel by an interrupted thread would fail
+				interrupted = true;
+				stopped = true;
+			}
+		}
+	}
+
+	private void skip() {
+		while (toSkip != 0 && buffer.hasRemaining())
+			if (buffer.get() == '\n')
+				toSkip--;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!buffer.hasRemaining() && !fill())
+			return -1;
+		if (pendingNewline) {
+			pendingNewline = false;
+			lastByte = '\n';
+			b[off] = '\n';
+			return 1;
+		}
+		final int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		lastByte = b[off + n - 1];
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A RecordReader over JSON Lines (NDJSON) input, i.e. a sequence of JSON objects typically one per line.
+ * Nested objects are flattened so that each scalar is a field named by its path, members of objects are separated by
+ * '.' and elements of arrays are identified by their index, for example {"a": {"b": [1, 2]}} has fields a.b[0] and a.b[1].
+ * A '.', '[', or '\' within a member name is escaped with a '\' so that, for example, {"a.b": 1} (field a\.b) is
+ * distinct from {"a": {"b": 1}} (field a.b).  Only the first {@value #MAX_ARRAY_ELEMENTS} elements of an array are
+ * analyzed, the remainder are ignored.
+ * The set of fields is the union of those seen so far, fields are numbered in the order they are first seen and a
+ * field that is absent from a record is null.
+ */
+final class JsonRecordReader implements RecordReader {
+	/** The maximum number of elements of an array that are analyzed, each element is a separate field. */
+	static final int MAX_ARRAY_ELEMENTS = 32;
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final InputStream in;
+	private final Charset charset;
+	private JsonParser parser;
+
+	/** The root of the tree of paths, each scalar seen is assigned a field index. */
+	private final Node root = new Node(null);
+	private final List<String> fieldNames = new ArrayList<>();
+	private String[] values = new String[16];
+	private int recordFields;
+
+	/** A path in the flattened record. */
+	private static final class Node {
+		private final String path;
+		private int index = -1;
+		private Map<String, Node> members;
+		private List<Node> elements;
+
+		private Node(final String path) {
+			this.path = path;
+		}
+
+		private Node member(final String name) {
+			if (members == null)
+				members = new HashMap<>();
+			Node ret = members.get(name);
+			if (ret == null) {
+				final String escaped = escape(name);
+				ret = new Node(path == null ? escaped : path + "." + escaped);
+				members.put(name, ret);
+			}
+			return ret;
+		}
+
+		private static String escape(final String name) {
+			boolean special = false;
+			for (int i = 0; i < name.length() && !special; i++) {
+				final char ch = name.charAt(i);
+				special = ch == '.' || ch == '[' || ch == '\\';
+			}
+			if (!special)
+				return name;
+
+			final StringBuilder ret = new StringBuilder(name.length() + 4);
+			for (int i = 0; i < name.length(); i++) {
+				final char ch = name.charAt(i);
+				if (ch == '.' || ch == '[' || ch == '\\')
+					ret.append('\\');
+				ret.append(ch);
+			}
+			return ret.toString();
+		}
+
+		private Node element(final int i) {
+			if (elements == null)
+				elements = new ArrayList<>();
+			while (elements.size() <= i)
+				elements.add(new Node((path == null ? "" : path) + "[" + elements.size() + "]"));
+			return elements.get(i);
+		}
+	}
+
+	/**
+	 * Construct a JsonRecordReader.
+	 * @param in The input, which is closed when this reader is closed.
+	 * @param charset The Charset of the input.
+	 */
+	JsonRecordReader(final InputStream in, final Charset charset) {
+		this.in = new BufferedInputStream(in, 64 * 1024);
+		this.charset = charset;
+	}
+
+	/**
+	 * Does the offset (the start of a line) separate two top-level JSON values?  Within an object or an array consecutive
+	 * values are separated by a ',', so a '}' followed (ignoring whitespace) by a '{' only occurs between records.  Used to
+	 * check that input split on newlines (see {@link CsvChunker}) has not split a record that spans lines.
+	 * @param channel The FileChannel for the input.
+	 * @param offset The offset of the start of a line.
+	 * @return True if the offset is a record boundary.
+	 * @throws IOException If the input cannot be read.
+	 */
+	static boolean isRecordBoundary(final FileChannel channel, final long offset) throws IOException {
+		final int WINDOW = 4096;
+
+		final ByteBuffer before = read(channel, Math.max(0, offset - WINDOW), (int)Math.min(WINDOW, offset));
+		int i = before.limit() - 1;
+		while (i >= 0 && isWhitespace(before.get(i)))
+			i--;
+		if (i < 0 || before.get(i) != '}')
+			return false;
+
+		final ByteBuffer after = read(channel, offset, WINDOW);
+		i = 0;
+		while (i < after.limit() && isWhitespace(after.get(i)))
+			i++;
+
+		return i < after.limit() && after.get(i) == '{';
+	}
+
+	private static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+		final ByteBuffer ret = ByteBuffer.allocate(length);
+		while (ret.hasRemaining() && channel.read(ret, position + ret.position()) > 0)
+			;
+		ret.flip();
+		return ret;
+	}
+
+	private static boolean isWhitespace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	@Override
+	public void skipLines(final int lines) throws IOException {
+		if (parser != null)
+			throw new IllegalStateException("skipLines() must be invoked prior to next()");
+		int skipped = 0;
+		int b;
+		while (skipped < lines && (b = in.read()) != -1)
+			if (b == '\n')
+				skipped++;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		if (parser == null)
+			parser = StandardCharsets.UTF_8.equals(charset) ? FACTORY.createParser(in) : FACTORY.createParser(new InputStreamReader(in, charset));
+
+		final JsonToken token = parser.nextToken();
+		if (token == null)
+			return false;
+		if (token != JsonToken.START_OBJECT)
+			throw new IOException(MessageFormat.format("Expected a JSON object at line {0}, found {1}",
+					parser.currentLocation().getLineNr(), parser.getText()));
+
+		Arrays.fill(values, 0, recordFields, null);
+		readObject(root);
+		recordFields = fieldNames.size();
+
+		return true;
+	}
+
+	private void readObject(final Node node) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME)
+			readValue(node.member(parser.currentName()), parser.nextToken());
+	}
+
+	private void readValue(final Node node, final JsonToken token) throws IOException {
+		switch (token) {
+		case START_OBJECT:
+			readObject(node);
+			break;
+		case START_ARRAY:
+			int i = 0;
+			JsonToken element;
+			while ((element = parser.nextToken()) != JsonToken.END_ARRAY)
+				if (i < MAX_ARRAY_ELEMENTS)
+					readValue(node.element(i++), element);
+				else
+					parser.skipChildren();
+			break;
+		case VALUE_NULL:
+			set(node, null);
+			break;
+		default:
+			// Strings, numbers (in their original form), and booleans
+			set(node, parser.getText());
+			break;
+		}
+	}
+
+	private void set(final Node node, final String value) {
+		if (node.index == -1) {
+			node.index = fieldNames.size();
+			fieldNames.add(node.path);
+			if (node.index == values.length)
+				values = Arrays.copyOf(values, 2 * values.length);
+		}
+		values[node.index] = value;
+	}
+
+	/**
+	 * The number of fields seen so far (not just those present in the current record).
+	 * @return The number of fields.
+	 */
+	@Override
+	public int getFieldCount() {
+		return fieldNames.size();
+	}
+
+	/**
+	 * The flattened name of a field.
+	 * @param index The index of the field.
+	 * @return The name of the field.
+	 */
+	String getFieldName(final int index) {
+		return fieldNames.get(index);
+	}
+
+	@Override
+	public String getField(final int index) {
+		return index < values.length ? values[index] : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (parser != null)
+			parser.close();
+		in.close();
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A RecordReader over a range of a file accessed via memory-mapped buffers.
+ * Records are parsed in place - each field is recorded as a pair of offsets into the mapped window, so there are no
+ * per-record collections, and a String is only created when a field is requested.  Short values are looked up in a
+ * small per-column cache so that repeated values (common in narrow-but-tall files) share a single String.
+ * The file is mapped in windows so files larger than 2GB are supported, a record that straddles a window causes the
+ * window to be remapped starting at the record.
+ * Only UTF-8 and single byte charsets are supported (see {@link CsvChunker#isSplittable(Charset)}).
+ * Parsing follows RFC 4180, characters between a closing quote and the following delimiter are ignored.
+ */
+final class MappedCsvReader implements RecordReader {
+	/** The default size of the mapped window. */
+	static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final int CACHE_SLOTS = 256;
+	private static final int CACHE_MAX_LENGTH = 32;
+	private static final byte[] UTF8_BOM = { (byte)0xEF, (byte)0xBB, (byte)0xBF };
+
+	private final FileChannel channel;
+	private final long end;
+	private final byte delimiter;
+	private final byte quote;
+	private final Charset charset;
+
+	private MappedByteBuffer buffer;
+	private long windowStart;
+	private int windowSize = WINDOW_SIZE;
+	private int position;
+
+	private int fieldCount;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private boolean[] escaped = new boolean[16];
+	private byte[] scratch = new byte[256];
+	private ValueCache[] caches = new ValueCache[0];
+
+	/** A direct-mapped cache from the bytes of a short value to its String. */
+	private static final class ValueCache {
+		private final byte[][] keys = new byte[CACHE_SLOTS][];
+		private final String[] values = new String[CACHE_SLOTS];
+	}
+
+	/**
+	 * Construct a MappedCsvReader over a range of the file.
+	 * @param channel The FileChannel for the file (not closed by this reader).
+	 * @param start The offset of the start of the range.
+	 * @param end The offset one past the end of the range.
+	 * @param delimiter The field delimiter.
+	 * @param quote The quote character.
+	 * @param charset The Charset of the file.
+	 * @param skipBOM If true, skip a UTF-8 BOM at the start of the range.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	MappedCsvReader(final FileChannel channel, final long start, final long end, final char delimiter, final char quote,
+			final Charset charset, final boolean skipBOM) throws IOException {
+		this.channel = channel;
+		this.end = end;
+		this.delimiter = (byte)delimiter;
+		this.quote = (byte)quote;
+		this.charset = charset;
+
+		map(start);
+		if (skipBOM && buffer.limit() >= UTF8_BOM.length &&
+				buffer.get(0) == UTF8_BOM[0] && buffer.get(1) == UTF8_BOM[1] && buffer.get(2) == UTF8_BOM[2])
+			position = UTF8_BOM.length;
+	}
+
+	private void map(final long offset) throws IOException {
+		windowStart = offset;
+		position = 0;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, end - offset));
+	}
+
+	private boolean isLastWindow() {
+		return windowStart + buffer.limit() >= end;
+	}
+
+	/*
+	 * Remap so that the window starts at the current position, if the current position is already at the start of
+	 * the window then the record is larger than the window so grow it.
+	 */
+	private void remap() throws IOException {
+		if (position == 0)
+			windowSize = (int)Math.min(Integer.MAX_VALUE - 8, 2L * windowSize);
+		map(windowStart + position);
+	}
+
+	@Override
+	public void skipLines(final int lines) throws IOException {
+		for (int skipped = 0; skipped < lines; skipped++) {
+			while (true) {
+				final int limit = buffer.limit();
+				int i = position;
+				while (i < limit && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+					i++;
+				if (i == limit || (i == limit - 1 && buffer.get(i) == '\r')) {
+					if (isLastWindow()) {
+						position = limit;
+						return;
+					}
+					remap();
+					continue;
+				}
+				position = buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+				break;
+			}
+		}
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (true) {
+			if (position >= buffer.limit() && isLastWindow())
+				return false;
+			final int next = parse();
+			if (next != -1) {
+				position = next;
+				return true;
+			}
+			remap();
+		}
+	}
+
+	private void addField(final int start, final int end, final boolean hasEscapes) {
+		if (fieldCount == starts.length) {
+			starts = Arrays.copyOf(starts, fieldCount * 2);
+			ends = Arrays.copyOf(ends, fieldCount * 2);
+			escaped = Arrays.copyOf(escaped, fieldCount * 2);
+		}
+		starts[fieldCount] = start;
+		ends[fieldCount] = end;
+		escaped[fieldCount] = hasEscapes;
+		fieldCount++;
+	}
+
+	/*
+	 * Parse the record at the current position, returning the offset of the start of the next record or -1 if the
+	 * record is not complete within the current window.
+	 */
+	private int parse() {
+		final int limit = buffer.limit();
+		final boolean last = isLastWindow();
+		int i = position;
+		fieldCount = 0;
+
+		while (true) {
+			if (i < limit && buffer.get(i) == quote) {
+				// Quoted field - locate the closing quote, a doubled quote is an escaped quote
+				final int start = ++i;
+				boolean hasEscapes = false;
+				while (true) {
+					if (i == limit) {
+						if (!last)
+							return -1;
+						// Unterminated quote at end of input
+						addField(start, i, hasEscapes);
+						return i;
+					}
+					if (buffer.get(i) == quote) {
+						if (i + 1 == limit && !last)
+							return -1;
+						if (i + 1 < limit && buffer.get(i + 1) == quote) {
+							hasEscapes = true;
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				addField(start, i, hasEscapes);
+				i++;
+				// Ignore anything between the closing quote and the end of the field
+				while (i < limit && buffer.get(i) != delimiter && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+					i++;
+			}
+			else {
+				final int start = i;
+				while (i < limit && buffer.get(i) != delimiter && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+					i++;
+				addField(start, i, false);
+			}
+
+			if (i == limit) {
+				if (!last)
+					return -1;
+				return i;
+			}
+
+			final byte b = buffer.get(i);
+			if (b == delimiter) {
+				i++;
+				continue;
+			}
+			if (b == '\r') {
+				if (i + 1 == limit && !last)
+					return -1;
+				return i + 1 < limit && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+			}
+			return i + 1;
+		}
+	}
+
+	@Override
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	@Override
+	public String getField(final int index) {
+		final int start = starts[index];
+		int length = ends[index] - start;
+		if (length > scratch.length)
+			scratch = new byte[Math.max(length, 2 * scratch.length)];
+		buffer.get(start, scratch, 0, length);
+
+		if (escaped[index]) {
+			int out = 0;
+			for (int i = 0; i < length; i++) {
+				scratch[out++] = scratch[i];
+				if (scratch[i] == quote)
+					i++;
+			}
+			length = out;
+		}
+
+		if (length > CACHE_MAX_LENGTH)
+			return new String(scratch, 0, length, charset);
+
+		if (index >= caches.length)
+			caches = Arrays.copyOf(caches, Math.max(index + 1, fieldCount));
+		ValueCache cache = caches[index];
+		if (cache == null)
+			cache = caches[index] = new ValueCache();
+
+		int hash = length;
+		for (int i = 0; i < length; i++)
+			hash = 31 * hash + scratch[i];
+		final int slot = (hash ^ (hash >>> 16)) & (CACHE_SLOTS - 1);
+
+		final byte[] key = cache.keys[slot];
+		if (key != null && Arrays.equals(key, 0, key.length, scratch, 0, length))
+			return cache.values[slot];
+
+		final String ret = new String(scratch, 0, length, charset);
+		cache.keys[slot] = Arrays.copyOf(scratch, length);
+		cache.values[slot] = ret;
+		return ret;
+	}
+
+	@Override
+	public void close() {
+		// The channel is owned by the caller, the mapping is released when the buffer is collected
+		buffer = null;
+	}
+}
@@ -41,12 +41,18 @@ public class Processor {
 	private TextAnalyzer[] analyzers;
 	private RecordAnalyzer recordAnalyzer;
 	private final DriverOptions options;
+	private final String compositeName;
 	private final int streamCount;
 	private LogicalType logicalType;
-	private final PrintStream logger = System.err;
+	private final PrintStream output;
+	private final PrintStream logger;
 
-	Processor(final String compositeName, final String[] fieldNames, final DriverOptions options) throws IOException, FTAPluginException {
+	Processor(final String compositeName, final String[] fieldNames, final DriverOptions options, final PrintStream output, final PrintStream logger)
+			throws IOException, FTAPluginException {
 		this.options = options;
+		this.output = output;
+		this.logger = logger;
+		this.compositeName = compositeName;
 		this.streamCount = fieldNames.length;
 
 		if (options.col == -1) {
@@ -80,26 +86,26 @@ public class Processor {
 	}
 
 	private void validatePlugin(final PluginDefinition defn) {
-		System.out.printf("Plugin: %s%n", defn.semanticType);
+		output.printf("Plugin: %s%n", defn.semanticType);
 		if (defn.description != null && !defn.description.isEmpty())
-			System.out.printf("  Description: %s%n", defn.description);
-		System.out.printf("  Plugin type: %s%n", defn.pluginType);
-		System.out.printf("  Base type:   %s%n", defn.baseType);
-		System.out.printf("  Priority:   %d%n", defn.priority);
-		System.out.printf("  Threshold:   %d%%%n", defn.threshold);
+			output.printf("  Description: %s%n", defn.description);
+		output.printf("  Plugin type: %s%n", defn.pluginType);
+		output.printf("  Base type:   %s%n", defn.baseType);
+		output.printf("  Priority:   %d%n", defn.priority);
+		output.printf("  Threshold:   %d%%%n", defn.threshold);
 
 		for (final PluginLocaleEntry localeEntry : defn.validLocales) {
-			System.out.printf("  Locale: %s%n", localeEntry.localeTag);
+			output.printf("  Locale: %s%n", localeEntry.localeTag);
 
 			if (localeEntry.headerRegExps != null && localeEntry.headerRegExps.length > 0) {
-				System.out.println("    headerRegExps:");
+				output.println("    headerRegExps:");
 				for (final HeaderEntry entry : localeEntry.headerRegExps) {
 					try {
 						Pattern.compile(entry.regExp);
-						System.out.printf("      %-50s VALID  (confidence: %d%s)%n", "\"" + entry.regExp + "\"", entry.confidence,
+						output.printf("      %-50s VALID  (confidence: %d%s)%n", "\"" + entry.regExp + "\"", entry.confidence,
 								entry.mandatory ? ", mandatory" : "");
 					} catch (PatternSyntaxException e) {
-						System.out.printf("      %-50s INVALID — %s%n", "\"" + entry.regExp + "\"", e.getMessage());
+						output.printf("      %-50s INVALID — %s%n", "\"" + entry.regExp + "\"", e.getMessage());
 					}
 				}
 
@@ -107,34 +113,34 @@ public class Processor {
 					if (localeEntry.matchEntries != null) {
 						for (final PluginMatchEntry entry : localeEntry.matchEntries) {
 							final String regExp = entry.getRegExpReturned();
-							System.out.printf("%n    regExpReturned: \"%s\"%n", regExp);
+							output.printf("%n    regExpReturned: \"%s\"%n", regExp);
 
 							if (regExp == null) {
-								System.out.println("      ERROR: regExpReturned is null");
+								output.println("      ERROR: regExpReturned is null");
 								continue;
 							}
 
 							boolean javaValid = false;
 							try {
 								Pattern.compile(regExp);
-								System.out.println("      Java regex:       VALID");
+								output.println("      Java regex:       VALID");
 								javaValid = true;
 							} catch (PatternSyntaxException e) {
-								System.out.printf("      Java regex:       INVALID — %s%n", e.getMessage());
+								output.printf("      Java regex:       INVALID — %s%n", e.getMessage());
 							}
 							if (javaValid) {
 								final boolean xegerOk = !regExp.matches(".*[^\\\\]\\(\\?.*");
-								System.out.printf("      Xeger compatible: %s%n", xegerOk ? "YES" : "NO  (pattern contains '(?' — sample generation disabled)");
+								output.printf("      Xeger compatible: %s%n", xegerOk ? "YES" : "NO  (pattern contains '(?' — sample generation disabled)");
 
 								if (xegerOk) {
-									System.out.print("      Sample values:    ");
+									output.print("      Sample values:    ");
 									final List<String> sampleList = new ArrayList<>();
 									for (int i = 0; i < 5; i++) {
 										final String s = logicalType.nextRandom();
 										if (s != null)
 											sampleList.add("\"" + s + "\"");
 									}
-									System.out.println(sampleList.isEmpty() ? "(none generated)" : String.join(", ", sampleList));
+									output.println(sampleList.isEmpty() ? "(none generated)" : String.join(", ", sampleList));
 								}
 							}
 						}
@@ -151,15 +157,29 @@ public class Processor {
 		}
 
 		if (options.verbose != 0 && options.noAnalysis)
-			System.out.printf("\"%s\"%n", row[options.col]);
+			output.printf("\"%s\"%n", row[options.col]);
 		if (options.pluginName != null && options.validatePlugin && options.verbose != 0) {
 			if (row[options.col] != null && !row[options.col].trim().isEmpty())
-				System.out.printf("'%s': %b%n", row[options.col], logicalType.isValid(row[options.col], options.pluginMode, 0));
+				output.printf("'%s': %b%n", row[options.col], logicalType.isValid(row[options.col], options.pluginMode, 0));
 		}
 		else if (!options.noAnalysis)
 			analyzers[options.col].train(row[options.col]);
 	}
 
+	/**
+	 * Add a new field, only supported when all fields are being analyzed (i.e. no --col).
+	 * See {@link RecordAnalyzer#addStream(String)}.
+	 * @param fieldName The name of the new field.
+	 * @throws IOException If the options cannot be applied to the new field.
+	 * @throws FTAPluginException If the user-supplied Semantic Types cannot be registered.
+	 */
+	public void addStream(final String fieldName) throws IOException, FTAPluginException {
+		if (options.col != -1)
+			throw new IllegalArgumentException("Cannot add a field when analyzing a single column.");
+
+		options.apply(recordAnalyzer.addStream(fieldName));
+	}
+
 	public TextAnalysisResult[] getResult() throws FTAPluginException, FTAUnsupportedLocaleException {
 		if (options.col == -1)
 			return recordAnalyzer.getResult().getStreamResults();
@@ -171,6 +191,30 @@ public class Processor {
 		return results;
 	}
 
+	/**
+	 * The results to date, leaving the ongoing analysis undisturbed (each result is determined from a copy of the
+	 * analyzer, i.e. a merge with an empty analyzer).  Determining a result would force the type to be determined, so
+	 * there is no result (null) for any analyzer whose type has not yet been determined.
+	 * @return The results for the analyzers whose type has been determined.
+	 * @throws IOException If the options cannot be applied to the copy.
+	 * @throws FTAPluginException Thrown when a registered plugin has detected an issue
+	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
+	 * @throws FTAMergeException If the copy cannot be constructed.
+	 */
+	public TextAnalysisResult[] snapshot() throws IOException, FTAPluginException, FTAUnsupportedLocaleException, FTAMergeException {
+		final TextAnalyzer[] live = getAnalyzers();
+		final TextAnalysisResult[] ret = new TextAnalysisResult[live.length];
+
+		for (int i = 0; i < live.length; i++)
+			if (live[i] != null && live[i].isTypeDetermined()) {
+				final TextAnalyzer empty = new TextAnalyzer(live[i].getContext());
+				options.apply(empty);
+				ret[i] = TextAnalyzer.merge(live[i], empty).getResult();
+			}
+
+		return ret;
+	}
+
 	public TextAnalyzer getAnalyzer(final int stream) {
 		if (options.col == -1)
 			return recordAnalyzer.getAnalyzer(stream);
@@ -194,14 +238,14 @@ public class Processor {
 		Processor ret;
 
 		if (options.col == -1) {
-			context = first.recordAnalyzer.getAnalyzers()[0].getContext();
-			ret = new Processor(context.getCompositeName(), context.getCompositeStreamNames(), options);
+			// The streams of the RecordAnalyzers are aligned by the merge, so no need to construct analyzers that are discarded
+			ret = new Processor(first.compositeName, new String[0], options, first.output, first.logger);
 			ret.recordAnalyzer = RecordAnalyzer.merge(first.recordAnalyzer, second.recordAnalyzer);
 			return ret;
 		}
 
 		context = first.analyzers[options.col].getContext();
-		ret = new Processor(context.getCompositeName(), context.getCompositeStreamNames(), options);
+		ret = new Processor(context.getCompositeName(), context.getCompositeStreamNames(), options, first.output, first.logger);
 		final String[] fieldNames = context.getCompositeStreamNames();
 		for (int i = 0; i < fieldNames.length; i++) {
 			if (options.col == -1 || options.col == i)
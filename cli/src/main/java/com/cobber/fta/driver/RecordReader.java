@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A cursor over the records of a delimited input.  The reader is positioned on a record by {@link #next()} and the
+ * fields of the current record are only materialized (as Strings) when requested.
+ */
+interface RecordReader extends Closeable {
+	/**
+	 * Skip lines (not records) at the start of the input.
+	 * @param lines The number of lines to skip.
+	 * @throws IOException If the input cannot be read.
+	 */
+	void skipLines(int lines) throws IOException;
+
+	/**
+	 * Advance to the next record.
+	 * @return True if positioned on a record, false if the input is exhausted.
+	 * @throws IOException If the input cannot be read.
+	 */
+	boolean next() throws IOException;
+
+	/**
+	 * The number of fields in the current record.
+	 * @return The number of fields.
+	 */
+	int getFieldCount();
+
+	/**
+	 * A field of the current record.
+	 * @param index The index of the field.
+	 * @return The value of the field.
+	 */
+	String getField(int index);
+}
@@ -15,16 +15,19 @@
  */
 package com.cobber.fta.driver;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import com.cobber.fta.AnalysisConfig;
-import com.cobber.fta.AnalysisConfig.TrainingMode;
 import com.cobber.fta.AnalyzerContext;
 import com.cobber.fta.TextAnalysisResult;
 import com.cobber.fta.TextAnalyzer;
@@ -32,6 +35,7 @@ import com.cobber.fta.core.FTAPluginException;
 import com.cobber.fta.core.FTAUnsupportedLocaleException;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -50,14 +54,65 @@ public class Replay {
 		public AnalyzerContext analyzerContext;
 	}
 
-	private static class BulkEntry {
-		public String value;
-		public long count;
+	/**
+	 * A trace file parsed into memory so that it can be replayed (possibly repeatedly).
+	 */
+	static final class Recording {
+		private final String filename;
+		private AnalysisConfig analysisConfig;
+		private AnalyzerContext analyzerContext;
+		// The calls to train() and trainBulk() in the order they were recorded
+		private final List<Step> steps = new ArrayList<>();
+		private long sampleCount;
+		private JsonNode result;
+		private boolean dropped;
+
+		private Recording(final String filename) {
+			this.filename = filename;
+		}
+
+		String getFilename() {
+			return filename;
+		}
+
+		String getStreamName() {
+			return analyzerContext.getStreamName();
+		}
+
+		/**
+		 * The number of samples (including the counts from bulk samples) captured in the trace.
+		 * @return The number of samples that will be replayed.
+		 */
+		long getSampleCount() {
+			return sampleCount;
+		}
+
+		/**
+		 * The result recorded when the trace was captured (or null if getResult() was never called).
+		 * @return The JSON representation of the recorded result.
+		 */
+		JsonNode getResult() {
+			return result;
+		}
+
+		/**
+		 * A trace is complete if every sample seen by the original analysis was captured, in which case the replayed
+		 * result should be identical to the recorded result.  Note: by default only the first 1000 samples are traced.
+		 * @return True if the trace captures the complete input to the original analysis.
+		 */
+		boolean isComplete() {
+			return result != null && !dropped && result.path("sampleCount").asLong() == sampleCount;
+		}
 	}
 
-	private static class SamplesWrapper {
-		public BulkEntry[] samplesBulk;
-		public String[] samples;
+	private static final class Step {
+		private final String[] samples;
+		private final Map<String, Long> samplesBulk;
+
+		private Step(final String[] samples, final Map<String, Long> samplesBulk) {
+			this.samples = samples;
+			this.samplesBulk = samplesBulk;
+		}
 	}
 
 	/**
@@ -65,75 +120,17 @@ public class Replay {
 	 * The file format consists of multiple JSON fragments.
 	 * 1. AnalysisConfig (Always present)
 	 * 2. AnalyzerContext (Always present)
-	 * 3. The bulk Samples (Present assuming trainBulk was called)
-	 * 4. The Samples (Present assuming train and/or trainBulk was called)
+	 * 3. The Samples (Present assuming train and/or trainBulk was called)
+	 * 4. The bulk Samples (Present assuming trainBulk was called)
+	 * 5. The Result (Present assuming getResult was called)
 	 *
 	 * @param replayFile The name of the FTA trace file.
 	 * @param options The command line options (e.g. --verbose, --debug, ...)
 	 */
 	static boolean replay(final String replayFile, final DriverOptions options) {
-		final ObjectMapper mapper = new ObjectMapper();
-		try (InputStream in = new FileInputStream(replayFile); JsonParser parser = new JsonFactory().createParser(in)) {
-			// Read the AnalysisConfig from the trace file
-			final AnalysisConfigWrapper configWrapper = mapper.readValue(parser, AnalysisConfigWrapper.class);
-			final AnalysisConfig analysisConfig = configWrapper.analysisConfig;
-			// Read the AnalyzerContext from the trace file
-			final AnalyzerContextWrapper contextWrapper = mapper.readValue(parser, AnalyzerContextWrapper.class);
-			final AnalyzerContext analyzerContext = contextWrapper.analyzerContext;
-
-			// If train is never called then we may have no samples (if so call it a day)
-			SamplesWrapper samplesWrapper = null;
-			try {
-				samplesWrapper = mapper.readValue(parser, SamplesWrapper.class);
-			} catch (IOException e) {
-				System.err.printf("NO samples present in input file (%s).%n", replayFile);
-				return false;
-			}
-
-			final TrainingMode trainingMode = analysisConfig.getTrainingMode();
-
-			// Create a TextAnalyzer using the Context retrieved from the Trace file
-			final TextAnalyzer analyzer = new TextAnalyzer(analyzerContext);
-
-			// Apply the Config we retrieved from the Trace file
-			analyzer.configure(TextAnalyzer.Feature.COLLECT_STATISTICS, analysisConfig.isEnabled(TextAnalyzer.Feature.COLLECT_STATISTICS));
-			analyzer.configure(TextAnalyzer.Feature.DEFAULT_SEMANTIC_TYPES, analysisConfig.isEnabled(TextAnalyzer.Feature.DEFAULT_SEMANTIC_TYPES));
-			analyzer.setDetectWindow(analysisConfig.getDetectWindow());
-			analyzer.setMaxCardinality(analysisConfig.getMaxCardinality());
-			analyzer.setMaxInputLength(analysisConfig.getMaxInputLength());
-			analyzer.setMaxOutliers(analysisConfig.getMaxOutliers());
-			analyzer.setMaxShapes(analysisConfig.getMaxShapes());
-			analyzer.setTopBottomK(analysisConfig.getTopBottomK());
-			analyzer.setPluginThreshold(analysisConfig.getThreshold());
-			analyzer.setDetectWindow(analysisConfig.getDetectWindow());
-			if (analysisConfig.getLocaleTag() != null)
-				analyzer.setLocale(Locale.forLanguageTag(analysisConfig.getLocaleTag()));
-
-			analyzer.setDebug(options.debug);
-
-			// Even in Bulk Mode there are a set of samples used to initially train
-			process(analyzer, samplesWrapper.samples, options);
-
-			// If we trained in Bulk Mode then there should be an additional set of Bulk samples
-			if (trainingMode == TrainingMode.BULK) {
-				try {
-					samplesWrapper = mapper.readValue(parser, SamplesWrapper.class);
-				} catch (IOException e) {
-					System.err.printf("NO bulk samples present in input file (%s).%n", replayFile);
-					return false;
-				}
-				processBulk(analyzer, samplesWrapper.samplesBulk, options);
-			}
-
-			TextAnalysisResult result = null;
-			try {
-				result = analyzer.getResult();
-			} catch (FTAPluginException | FTAUnsupportedLocaleException e) {
-				e.printStackTrace();
-			}
-
-			if (result != null)
-				System.err.printf("Field '%s' - %s%n", analyzer.getStreamName(), result.asJSON(options.pretty, options.verbose));
+		final Recording recording;
+		try {
+			recording = load(replayFile);
 		} catch (FileNotFoundException e) {
 			System.err.printf("ERROR: File '%s' - Not found.%n", replayFile);
 			return false;
@@ -142,27 +139,134 @@ public class Replay {
 			return false;
 		}
 
-		return true;
-	}
+		// If train is never called then we may have no samples (if so call it a day)
+		if (recording.steps.isEmpty()) {
+			System.err.printf("NO samples present in input file (%s).%n", replayFile);
+			return false;
+		}
 
-	private static void processBulk(final TextAnalyzer analyzer, final BulkEntry[] samples, final DriverOptions options) {
-		final Map<String, Long> observed = new HashMap<>();
-		for (final BulkEntry sample : samples)
-			observed.put(sample.value, sample.count);
+		final TextAnalyzer analyzer = newAnalyzer(recording, options);
 
+		TextAnalysisResult result = null;
 		try {
-			analyzer.trainBulk(observed);
+			train(analyzer, recording);
+			result = analyzer.getResult();
 		} catch (FTAPluginException | FTAUnsupportedLocaleException e) {
 			e.printStackTrace();
 		}
+
+		if (result != null)
+			System.err.printf("Field '%s' - %s%n", analyzer.getStreamName(), result.asJSON(options.pretty, options.verbose));
+
+		return true;
 	}
 
-	private static void process(final TextAnalyzer analyzer, final String[] samples, final DriverOptions options) {
-		try {
-			for (final String sample : samples)
-				analyzer.train(sample);
-		} catch (FTAPluginException | FTAUnsupportedLocaleException e) {
-			e.printStackTrace();
+	/**
+	 * Parse a trace file into memory.
+	 * @param replayFile The name of the FTA trace file.
+	 * @return The Recording captured in the trace file.
+	 * @throws IOException If the file cannot be read or is not a valid trace.
+	 */
+	static Recording load(final String replayFile) throws IOException {
+		final ObjectMapper mapper = new ObjectMapper();
+		final Recording ret = new Recording(replayFile);
+
+		try (InputStream in = open(replayFile); JsonParser parser = new JsonFactory().createParser(in)) {
+			// Read the AnalysisConfig and the AnalyzerContext from the trace file
+			ret.analysisConfig = mapper.readValue(parser, AnalysisConfigWrapper.class).analysisConfig;
+			ret.analyzerContext = mapper.readValue(parser, AnalyzerContextWrapper.class).analyzerContext;
+
+			// The remaining fragments are the samples, the bulk samples, tags and the result (in the order they occurred)
+			JsonNode node;
+			while ((node = mapper.readTree(parser)) != null) {
+				if (node.has("samples")) {
+					final String[] samples = new String[node.get("samples").size()];
+					int i = 0;
+					for (final JsonNode sample : node.get("samples"))
+						samples[i++] = sample.isNull() ? null : sample.asText();
+					ret.steps.add(new Step(samples, null));
+					ret.sampleCount += samples.length;
+				}
+				else if (node.has("samplesBulk")) {
+					final Map<String, Long> observed = new HashMap<>();
+					for (final JsonNode entry : node.get("samplesBulk")) {
+						final JsonNode value = entry.get("value");
+						final long count = entry.get("count").asLong();
+						observed.put(value == null || value.isNull() ? null : value.asText(), count);
+						ret.sampleCount += count;
+					}
+					ret.steps.add(new Step(null, observed));
+				}
+				else if (node.has("droppedSamples"))
+					ret.dropped = true;
+				else if (!node.has("tag") && !node.has("internalErrors") && ret.result == null)
+					ret.result = node;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Create a TextAnalyzer configured as per the Recording.
+	 * @param recording The Recording captured from the trace file.
+	 * @param options The command line options (e.g. --debug)
+	 * @return A new TextAnalyzer.
+	 */
+	static TextAnalyzer newAnalyzer(final Recording recording, final DriverOptions options) {
+		final AnalysisConfig analysisConfig = recording.analysisConfig;
+
+		// Create a TextAnalyzer using the Context retrieved from the Trace file
+		final TextAnalyzer analyzer = new TextAnalyzer(recording.analyzerContext);
+
+		// Apply the Config we retrieved from the Trace file
+		analyzer.configure(TextAnalyzer.Feature.COLLECT_STATISTICS, analysisConfig.isEnabled(TextAnalyzer.Feature.COLLECT_STATISTICS));
+		analyzer.configure(TextAnalyzer.Feature.DEFAULT_SEMANTIC_TYPES, analysisConfig.isEnabled(TextAnalyzer.Feature.DEFAULT_SEMANTIC_TYPES));
+		analyzer.setDetectWindow(analysisConfig.getDetectWindow());
+		analyzer.setMaxCardinality(analysisConfig.getMaxCardinality());
+		analyzer.setMaxInputLength(analysisConfig.getMaxInputLength());
+		analyzer.setMaxOutliers(analysisConfig.getMaxOutliers());
+		analyzer.setMaxShapes(analysisConfig.getMaxShapes());
+		analyzer.setTopBottomK(analysisConfig.getTopBottomK());
+		analyzer.setPluginThreshold(analysisConfig.getThreshold());
+		if (analysisConfig.getLocaleTag() != null)
+			analyzer.setLocale(Locale.forLanguageTag(analysisConfig.getLocaleTag()));
+
+		analyzer.setDebug(options.debug);
+
+		return analyzer;
+	}
+
+	/**
+	 * Train the analyzer with the samples captured in the Recording (in the order they were originally presented).
+	 * @param analyzer The TextAnalyzer to train.
+	 * @param recording The Recording captured from the trace file.
+	 * @throws FTAPluginException Thrown when a registered plugin has detected an issue
+	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
+	 */
+	static void train(final TextAnalyzer analyzer, final Recording recording) throws FTAPluginException, FTAUnsupportedLocaleException {
+		for (final Step step : recording.steps) {
+			if (step.samples != null) {
+				for (final String sample : step.samples)
+					analyzer.train(sample);
+			}
+			else
+				analyzer.trainBulk(step.samplesBulk);
 		}
 	}
+
+	/**
+	 * Open the trace file - which may be gzip-compressed (e.g. traces recorded with 'compress=true').
+	 * @param replayFile The name of the FTA trace file.
+	 * @return An InputStream for the (uncompressed) trace.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	static InputStream open(final String replayFile) throws IOException {
+		final InputStream in = new BufferedInputStream(new FileInputStream(replayFile));
+		in.mark(2);
+		final boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+		in.reset();
+
+		return gzipped ? new GZIPInputStream(in) : in;
+	}
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.cobber.fta.TextAnalysisResult;
+import com.cobber.fta.TextAnalyzer;
+import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FTAUnsupportedLocaleException;
+import com.cobber.fta.driver.Replay.Recording;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Replay a directory of FTA trace files as a benchmark.
+ * Each trace is replayed through a fresh TextAnalyzer (--warmup times to warm the JIT, then --iterations times measured),
+ * traces are replayed in parallel using --threads threads.
+ * For each trace the throughput, getResult() latency, and allocation per sample (median across the iterations) are reported,
+ * along with any differences between the replayed result and the result recorded in the trace.
+ */
+public class ReplayBenchmark {
+	private static final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private final DriverOptions options;
+	private final PrintStream output;
+	private final PrintStream error;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/** The measurements for a single trace. */
+	private static final class Measurement {
+		private final Recording recording;
+		private final long[] trainNanos;
+		private final long[] resultNanos;
+		private final long[] allocated;
+		private List<String> differences;
+		private String error;
+
+		private Measurement(final Recording recording, final int iterations) {
+			this.recording = recording;
+			this.trainNanos = new long[iterations];
+			this.resultNanos = new long[iterations];
+			this.allocated = new long[iterations];
+		}
+	}
+
+	ReplayBenchmark(final DriverOptions options, final PrintStream output, final PrintStream error) {
+		this.options = options;
+		this.output = output;
+		this.error = error;
+	}
+
+	/**
+	 * Benchmark all the trace files (*.fta and *.fta.gz) in the supplied directory.
+	 * @param directory The directory containing the trace files.
+	 * @return True if every trace was replayed successfully and (where the trace was complete) reproduced the recorded result.
+	 */
+	boolean run(final String directory) {
+		final File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".fta") || name.endsWith(".fta.gz"));
+		if (files == null || files.length == 0) {
+			error.printf("ERROR: No trace files (*.fta, *.fta.gz) found in '%s'.%n", directory);
+			return false;
+		}
+		Arrays.sort(files);
+
+		final List<Recording> recordings = new ArrayList<>();
+		for (final File file : files) {
+			try {
+				final Recording recording = Replay.load(file.getPath());
+				if (recording.getSampleCount() == 0)
+					error.printf("WARNING: File '%s' - no samples, skipped.%n", file.getPath());
+				else
+					recordings.add(recording);
+			} catch (IOException e) {
+				error.printf("WARNING: File '%s' - cannot be parsed (%s), skipped.%n", file.getPath(), e.getMessage());
+			}
+		}
+		if (recordings.isEmpty())
+			return false;
+
+		if (threadMXBean.isThreadAllocatedMemorySupported())
+			threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.threads, recordings.size()));
+		try {
+			// Warm up across all the traces so the JIT sees the same mix of plugins as the measured runs
+			for (final Future<Measurement> future : submit(executor, recordings, options.warmup))
+				future.get();
+
+			final long start = System.nanoTime();
+			final List<Measurement> measurements = new ArrayList<>();
+			for (final Future<Measurement> future : submit(executor, recordings, options.iterations))
+				measurements.add(future.get());
+			final long elapsed = System.nanoTime() - start;
+
+			return report(measurements, elapsed);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			error.printf("ERROR: Replay failed - %s%n", e.getCause());
+			return false;
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private List<Future<Measurement>> submit(final ExecutorService executor, final List<Recording> recordings, final int iterations) {
+		final List<Future<Measurement>> ret = new ArrayList<>();
+		for (final Recording recording : recordings)
+			ret.add(executor.submit(() -> measure(recording, iterations)));
+		return ret;
+	}
+
+	/*
+	 * Replay the recording 'iterations' times on the current thread, each time through a new TextAnalyzer.
+	 */
+	private Measurement measure(final Recording recording, final int iterations) {
+		final Measurement ret = new Measurement(recording, iterations);
+		final boolean allocationSupported = threadMXBean.isThreadAllocatedMemoryEnabled();
+
+		TextAnalysisResult result = null;
+		for (int i = 0; i < iterations; i++) {
+			try {
+				// Construct the analyzer before starting the clock, only the training and the result are measured
+				final TextAnalyzer analyzer = Replay.newAnalyzer(recording, options);
+				final long allocatedStart = allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() : 0;
+				final long trainStart = System.nanoTime();
+				Replay.train(analyzer, recording);
+				final long resultStart = System.nanoTime();
+				result = analyzer.getResult();
+				final long end = System.nanoTime();
+				ret.trainNanos[i] = resultStart - trainStart;
+				ret.resultNanos[i] = end - resultStart;
+				ret.allocated[i] = allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() - allocatedStart : -1;
+			} catch (FTAPluginException | FTAUnsupportedLocaleException | RuntimeException e) {
+				ret.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+				return ret;
+			}
+		}
+
+		if (result != null && recording.getResult() != null) {
+			try {
+				ret.differences = differences(recording.getResult(), mapper.readTree(result.asJSON(true, 1)));
+			} catch (IOException e) {
+				ret.error = "Cannot parse replayed result: " + e.getMessage();
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * The names of the top-level attributes that differ between the recorded and the replayed result.
+	 */
+	private static List<String> differences(final JsonNode recorded, final JsonNode replayed) {
+		final Set<String> names = new TreeSet<>();
+		for (final Iterator<String> it = recorded.fieldNames(); it.hasNext(); )
+			names.add(it.next());
+		for (final Iterator<String> it = replayed.fieldNames(); it.hasNext(); )
+			names.add(it.next());
+
+		final List<String> ret = new ArrayList<>();
+		for (final String name : names)
+			if (!recorded.path(name).equals(replayed.path(name)))
+				ret.add(name);
+
+		return ret;
+	}
+
+	private boolean report(final List<Measurement> measurements, final long elapsed) {
+		boolean success = true;
+		long totalSamples = 0;
+
+		measurements.sort(Comparator.comparing(m -> -median(m.trainNanos)));
+
+		output.printf("%-40s %10s %12s %12s %12s  %s%n", "Trace (stream)", "Samples", "Samples/sec", "Result (ms)", "Bytes/Sample", "Result");
+		for (final Measurement m : measurements) {
+			final String name = new File(m.recording.getFilename()).getName();
+			final String label = String.format("%s (%s)", name.length() > 24 ? name.substring(0, 24) : name, m.recording.getStreamName());
+
+			if (m.error != null) {
+				output.printf("%-40s %10d %12s %12s %12s  ERROR - %s%n", label, m.recording.getSampleCount(), "-", "-", "-", m.error);
+				success = false;
+				continue;
+			}
+
+			final long samples = m.recording.getSampleCount();
+			totalSamples += samples * m.trainNanos.length;
+			final long allocated = median(m.allocated);
+
+			String status;
+			if (m.differences == null)
+				status = "no recorded result";
+			else if (m.differences.isEmpty())
+				status = "match";
+			else if (!m.recording.isComplete())
+				status = "partial trace, differs: " + m.differences;
+			else {
+				status = "DIFFERS: " + m.differences;
+				success = false;
+			}
+
+			output.printf("%-40s %10d %12d %12.3f %12s  %s%n", label, samples,
+					Math.round(samples / (median(m.trainNanos) / 1_000_000_000.0)),
+					median(m.resultNanos) / 1_000_000.0,
+					allocated < 0 ? "-" : String.valueOf(allocated / samples), status);
+		}
+
+		output.printf("%nTraces: %d, threads: %d, warmup: %d, iterations: %d, elapsed: %d ms, aggregate throughput: %d samples/sec%n",
+				measurements.size(), Math.min(options.threads, measurements.size()), options.warmup, options.iterations,
+				elapsed / 1_000_000, Math.round(totalSamples / (elapsed / 1_000_000_000.0)));
+
+		return success;
+	}
+
+	private static long median(final long[] values) {
+		final long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import com.cobber.fta.TextAnalysisResult;
+import com.cobber.fta.TextAnalyzer;
+import com.cobber.fta.core.FTAMergeException;
+import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FTAUnsupportedLocaleException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Merge a directory of serialized TextAnalyzers (see {@link TextAnalyzer#serialize()}), typically one per column per
+ * partition of a distributed job, and output the results as if the data had been analyzed in a single pass.
+ * The shards are grouped by composite and stream name, only the analyzer context of each shard is read to group it.
+ * Each group is then reduced on one of --threads threads, the shards are deserialized one at a time and merged pairwise
+ * as a balanced tree (so at most log2(#shards) merged analyzers are live per group), at most 4 x --threads groups are
+ * in flight at any time.
+ * The results for each composite are output as a JSON array ordered by stream index.
+ */
+public class ShardMerger {
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final DriverOptions options;
+	private final PrintStream output;
+	private final PrintStream error;
+
+	/** The shards for a single stream of a composite. */
+	private static final class Group {
+		private final String compositeName;
+		private final String streamName;
+		private int streamIndex;
+		private final List<File> shards = new ArrayList<>();
+
+		private Group(final String compositeName, final String streamName, final int streamIndex) {
+			this.compositeName = compositeName;
+			this.streamName = streamName;
+			this.streamIndex = streamIndex;
+		}
+	}
+
+	ShardMerger(final DriverOptions options, final PrintStream output, final PrintStream error) {
+		this.options = options;
+		this.output = output;
+		this.error = error;
+	}
+
+	/**
+	 * Merge all the serialized TextAnalyzers (any file not starting with '.', optionally gzipped) in the supplied directory.
+	 * @param directory The directory containing the shards.
+	 * @return True if every group was merged successfully.
+	 */
+	boolean run(final String directory) {
+		final File[] files = new File(directory).listFiles(file -> file.isFile() && !file.getName().startsWith("."));
+		if (files == null || files.length == 0) {
+			error.printf("ERROR: No serialized analyzers found in '%s'.%n", directory);
+			return false;
+		}
+		Arrays.sort(files);
+
+		// Composite name -> stream name -> Group
+		final Map<String, Map<String, Group>> composites = new TreeMap<>();
+		boolean success = true;
+		for (final File file : files) {
+			try {
+				final Group key = readKey(file);
+				final Group group = composites.computeIfAbsent(key.compositeName, k -> new TreeMap<>()).computeIfAbsent(key.streamName, k -> key);
+				group.streamIndex = Math.min(group.streamIndex, key.streamIndex);
+				group.shards.add(file);
+			} catch (IOException e) {
+				final String message = e instanceof JsonProcessingException ? ((JsonProcessingException)e).getOriginalMessage() : e.getMessage();
+				error.printf("ERROR: File '%s' - not a serialized analyzer (%s).%n", file.getPath(), message);
+				success = false;
+			}
+		}
+
+		int groups = 0;
+		for (final Map<String, Group> streams : composites.values())
+			groups += streams.size();
+		if (groups == 0)
+			return false;
+
+		final List<Group> ordered = new ArrayList<>(groups);
+		for (final Map<String, Group> streams : composites.values())
+			ordered.addAll(streams.values());
+		ordered.sort(Comparator.comparing((Group g) -> g.compositeName).thenComparingInt(g -> g.streamIndex).thenComparing(g -> g.streamName));
+
+		// Results are output in order, so bound the groups in flight to bound the completed results awaiting output
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.threads, groups));
+		final ArrayDeque<Future<TextAnalysisResult>> pending = new ArrayDeque<>();
+		final int maxPending = 4 * options.threads;
+		int submitted = 0;
+		try {
+			String composite = null;
+			boolean first = true;
+			for (final Group group : ordered) {
+				while (submitted < ordered.size() && pending.size() < maxPending) {
+					final Group next = ordered.get(submitted++);
+					pending.addLast(executor.submit(() -> reduce(next)));
+				}
+				final TextAnalysisResult result;
+				try {
+					result = pending.removeFirst().get();
+				} catch (ExecutionException e) {
+					error.printf("ERROR: Composite: %s, field: %s - merge failed: %s%n", group.compositeName, group.streamName, e.getCause().getMessage());
+					success = false;
+					continue;
+				}
+				if (!group.compositeName.equals(composite)) {
+					if (composite != null)
+						output.printf("]%n");
+					output.printf("[%n");
+					composite = group.compositeName;
+					first = true;
+				}
+				if (!first)
+					output.printf(",");
+				result.writeJSON(FileProcessor.asWriter(output), options.pretty, options.verbose);
+				output.printf("%n");
+				first = false;
+			}
+			if (composite != null)
+				output.printf("]%n");
+		} catch (IOException e) {
+			error.printf("ERROR: Failed to output results: %s%n", e.getMessage());
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		if (options.verbose != 0)
+			error.printf("Merged %d shard(s) into %d field(s) across %d composite(s).%n", files.length, groups, composites.size());
+
+		return success;
+	}
+
+	private static InputStream open(final File file) throws IOException {
+		final InputStream in = Files.newInputStream(file.toPath());
+		return file.getName().endsWith(".gz") ? new GZIPInputStream(in) : in;
+	}
+
+	/*
+	 * Read the composite name, stream name, and stream index from the analyzer context of a serialized analyzer - the
+	 * remainder of the shard (in particular the facts) is not read.
+	 */
+	private static Group readKey(final File file) throws IOException {
+		try (InputStream in = open(file); JsonParser parser = FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("expected a JSON object");
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.currentName();
+				parser.nextToken();
+				if (!"analyzerContext".equals(name)) {
+					parser.skipChildren();
+					continue;
+				}
+				String compositeName = "";
+				String streamName = null;
+				int streamIndex = Integer.MAX_VALUE;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					final String field = parser.currentName();
+					final JsonToken token = parser.nextToken();
+					if ("compositeName".equals(field) && token == JsonToken.VALUE_STRING)
+						compositeName = parser.getText();
+					else if ("streamName".equals(field) && token == JsonToken.VALUE_STRING)
+						streamName = parser.getText();
+					else if ("streamIndex".equals(field) && token == JsonToken.VALUE_NUMBER_INT)
+						streamIndex = parser.getIntValue();
+					else
+						parser.skipChildren();
+				}
+				if (streamName == null)
+					throw new IOException("no stream name");
+				return new Group(compositeName, streamName, streamIndex);
+			}
+		}
+
+		throw new IOException("no analyzerContext");
+	}
+
+	private static TextAnalyzer load(final File file) throws IOException, FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		try (InputStream in = open(file)) {
+			return TextAnalyzer.deserialize(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	/*
+	 * Merge the shards of a group as a balanced binary tree - levels[k] is the merge of 2^k consecutive shards, adding a
+	 * shard carries up through the levels like incrementing a binary counter.
+	 */
+	private TextAnalysisResult reduce(final Group group) throws IOException, FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		final TextAnalyzer[] levels = new TextAnalyzer[Long.SIZE];
+
+		for (final File shard : group.shards) {
+			TextAnalyzer current = load(shard);
+			int k = 0;
+			while (levels[k] != null) {
+				current = TextAnalyzer.merge(levels[k], current);
+				levels[k++] = null;
+			}
+			levels[k] = current;
+		}
+
+		// Higher levels hold earlier shards, so fold from the lowest level keeping the shards in order
+		TextAnalyzer ret = null;
+		for (final TextAnalyzer level : levels)
+			if (level != null)
+				ret = ret == null ? level : TextAnalyzer.merge(level, ret);
+
+		return ret.getResult();
+	}
+}
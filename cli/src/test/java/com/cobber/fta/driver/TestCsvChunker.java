@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+import com.cobber.fta.TestGroups;
+import com.cobber.fta.core.FTAException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TestCsvChunker {
+	private static final int RECORDS = 250_000;
+
+	@Test(groups = { TestGroups.ALL })
+	public void quoteParity() throws IOException {
+		// A long multi-line quoted field in the middle of the file, so that the middle region starts within quotes
+		final Path file = Files.createTempFile("quoteParity", ".csv");
+		try {
+			final String content = generate(false);
+			Files.writeString(file, content);
+			final byte[] bytes = Files.readAllBytes(file);
+			final ExecutorService executor = Executors.newFixedThreadPool(4);
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				final long start = CsvChunker.dataStart(channel, 0, (byte)'"');
+				assertEquals(start, "id,name,comment\n".length());
+
+				// Check the premise - the middle region starts within the quoted field
+				final long middle = start + (bytes.length - start) / 2;
+				assertTrue(middle > content.indexOf("\"line") && middle < content.indexOf("end\""));
+
+				final long[] boundaries = CsvChunker.split(channel, start, 4, (byte)'"', executor);
+				assertTrue(boundaries.length > 2);
+				assertEquals(boundaries[0], 0);
+				assertEquals(boundaries[boundaries.length - 1], bytes.length);
+				for (int i = 1; i < boundaries.length - 1; i++) {
+					assertTrue(boundaries[i] > boundaries[i - 1]);
+					// Every boundary follows a newline that is not within quotes
+					assertEquals(bytes[(int)boundaries[i] - 1], '\n');
+					int quotes = 0;
+					for (int b = 0; b < boundaries[i]; b++)
+						if (bytes[b] == '"')
+							quotes++;
+					assertEquals(quotes % 2, 0, "Boundary " + boundaries[i] + " is within quotes");
+				}
+			}
+			finally {
+				executor.shutdown();
+			}
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void small() throws IOException {
+		final Path file = Files.createTempFile("small", ".csv");
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (FileChannel channel = FileChannel.open(Files.writeString(file, "skipped \"\nid,\"na\nme\"\n1,a\n"), StandardOpenOption.READ)) {
+			// The quote in the skipped line is ignored, the quoted newline in the header is not a boundary
+			final long start = CsvChunker.dataStart(channel, 1, (byte)'"');
+			assertEquals(start, "skipped \"\nid,\"na\nme\"\n".length());
+			assertEquals(CsvChunker.split(channel, start, 4, (byte)'"', executor), new long[] { 0, channel.size() });
+		}
+		finally {
+			executor.shutdown();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void startsRecord() throws IOException, FTAException {
+		final Path file = Files.createTempFile("startsRecord", ".csv");
+		try {
+			// Well-formed, so the file is processed in ranges
+			Files.writeString(file, generate(false));
+			String errors = process(file, RECORDS);
+			assertFalse(errors.contains("--chunks ignored"), errors);
+
+			// A stray quote in an unquoted field inverts the quote state, so the multi-line quoted field yields a boundary
+			// mid-record, which is detected and the file processed sequentially
+			Files.writeString(file, generate(true));
+			errors = process(file, RECORDS);
+			assertTrue(errors.contains("--chunks ignored (unable to verify record boundaries)"), errors);
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/*
+	 * Process the file in chunks checking every record was analyzed, returns the error output.
+	 * Note: The low cardinality column is used as the merged sample count is only exact if the cardinality has not overflowed.
+	 */
+	private static String process(final Path file, final long records) throws IOException, FTAException {
+		final DriverOptions options = new DriverOptions();
+		options.addFromStringArray(new String[] { "--chunks", "4", "--threads", "4", "--col", "1" });
+		final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		final ByteArrayOutputStream errorBytes = new ByteArrayOutputStream();
+		try (PrintStream out = new PrintStream(outBytes, true, StandardCharsets.UTF_8);
+				PrintStream err = new PrintStream(errorBytes, true, StandardCharsets.UTF_8)) {
+			new FileProcessor(err, out, file.toString(), options).process();
+		}
+
+		final JsonNode results = new ObjectMapper().readTree(outBytes.toString(StandardCharsets.UTF_8));
+		assertEquals(results.get(0).get("sampleCount").asLong(), records);
+		return errorBytes.toString(StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Generate a CSV file with a multi-line quoted field in the middle, and optionally a stray quote near the start.
+	 */
+	private static String generate(final boolean strayQuote) {
+		final StringBuilder b = new StringBuilder("id,name,comment\n");
+		for (int i = 0; i < RECORDS; i++) {
+			b.append(i).append(",name").append(i % 100).append(',');
+			if (strayQuote && i == 10)
+				b.append("5\" pipe");
+			else if (i == RECORDS / 2)
+				b.append('"').append("line\n".repeat(40_000)).append("end\"");
+			else if (i % 1000 == 0)
+				b.append("\"quoted, with a comma\"");
+			else
+				b.append("plain");
+			b.append('\n');
+		}
+		return b.toString();
+	}
+}
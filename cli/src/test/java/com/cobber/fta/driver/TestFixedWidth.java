@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.cobber.fta.TestGroups;
+
+public class TestFixedWidth {
+	private static final Charset EBCDIC = Charset.forName("IBM037");
+
+	@Test(groups = { TestGroups.ALL })
+	public void layoutParse() throws IOException {
+		final FixedWidthLayout layout = FixedWidthLayout.parse("id:6,FILLER:2,name:20,zip:5");
+		assertEquals(layout.names, new String[] { "id", "name", "zip" });
+		assertEquals(layout.offsets, new int[] { 0, 8, 28 });
+		assertEquals(layout.lengths, new int[] { 6, 20, 5 });
+		assertEquals(layout.recordLength, 33);
+
+		// Explicit offsets are equivalent, and the record length is the end of the last field
+		final FixedWidthLayout explicit = FixedWidthLayout.parse("id:0:6, name:8:20, zip:28:5");
+		assertEquals(explicit.names, layout.names);
+		assertEquals(explicit.offsets, layout.offsets);
+		assertEquals(explicit.lengths, layout.lengths);
+		assertEquals(explicit.recordLength, 33);
+
+		// Unnamed fields are numbered, a trailing FILLER contributes to the record length
+		final FixedWidthLayout unnamed = FixedWidthLayout.parse("3,4,filler:5");
+		assertEquals(unnamed.names, new String[] { "Field1", "Field2" });
+		assertEquals(unnamed.offsets, new int[] { 0, 3 });
+		assertEquals(unnamed.recordLength, 12);
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void layoutFile() throws IOException {
+		final Path file = Files.createTempFile("layout", ".txt");
+		try {
+			Files.writeString(file, "# Customer record\nid:6\nFILLER:2\n\nname:20,zip:5\n");
+			final FixedWidthLayout layout = FixedWidthLayout.parse(file.toString());
+			assertEquals(layout.names, new String[] { "id", "name", "zip" });
+			assertEquals(layout.offsets, new int[] { 0, 8, 28 });
+			assertEquals(layout.recordLength, 33);
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void layoutInvalid() throws IOException {
+		for (final String spec : new String[] { "id:x", "a:0:1:2", "id:0", "id:-1", ":5", "FILLER:5", "# Nothing" }) {
+			try {
+				FixedWidthLayout.parse(spec);
+				fail("Expected IllegalArgumentException for '" + spec + "'");
+			}
+			catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void windowRemap() throws IOException {
+		final FixedWidthLayout layout = FixedWidthLayout.parse("a:4,b:6");
+		final StringBuilder unterminated = new StringBuilder();
+		final StringBuilder terminated = new StringBuilder();
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final String b = "v" + i % 7;
+			unterminated.append(String.format("%04d%-6s", i, b));
+			// Vary the length of the lines, including some longer than the window
+			terminated.append(String.format("%04d%s%s\n", i, b, i % 10 == 0 ? " ".repeat(50) : ""));
+			expected.add(String.format("%04d|%s", i, b));
+		}
+
+		final Path file = Files.createTempFile("windowRemap", ".txt");
+		try {
+			// The window is at least two records (20 bytes) so records regularly span windows
+			Files.writeString(file, unterminated);
+			assertEquals(read(file, layout, false, StandardCharsets.US_ASCII, 16), expected);
+
+			Files.writeString(file, terminated);
+			assertEquals(read(file, layout, true, StandardCharsets.US_ASCII, 16), expected);
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void shortLines() throws IOException {
+		final FixedWidthLayout layout = FixedWidthLayout.parse("id:4,name:6,zip:5");
+		final Path file = Files.createTempFile("shortLines", ".txt");
+		try {
+			// Trailing spaces removed, a CRLF, an empty line, a line shorter than the first field, and no final newline
+			Files.writeString(file, "0001Al    12345\n0002Bobby\r\n\n0003\n00\n0005  Ed  98765");
+			final Charset charset = StandardCharsets.US_ASCII;
+			assertTrue(isLineTerminated(file, layout, charset));
+			assertEquals(read(file, layout, true, charset, MappedCsvReader.WINDOW_SIZE),
+					List.of("0001|Al|12345", "0002|Bobby|", "0003||", "00||", "0005|Ed|98765"));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void trailingTerminator() throws IOException {
+		final FixedWidthLayout layout = FixedWidthLayout.parse("id:4,name:6");
+		final Path file = Files.createTempFile("trailingTerminator", ".txt");
+		try {
+			// Records are the length of the layout, but a newline has been appended to the file
+			Files.writeString(file, "0001Al    0002Bob   \r\n");
+			assertEquals(read(file, layout, false, StandardCharsets.US_ASCII, MappedCsvReader.WINDOW_SIZE), List.of("0001|Al", "0002|Bob"));
+
+			// A final partial record is still a record
+			Files.writeString(file, "0001Al    0002Bob   0003X");
+			assertEquals(read(file, layout, false, StandardCharsets.US_ASCII, MappedCsvReader.WINDOW_SIZE), List.of("0001|Al", "0002|Bob", "0003|X"));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void lineTerminated() throws IOException {
+		final FixedWidthLayout layout = FixedWidthLayout.parse("id:4,value:6");
+		final Path file = Files.createTempFile("lineTerminated", ".dat");
+		try {
+			// Full length lines, with and without a carriage return
+			Files.writeString(file, "0001abcdef\n0002abcdef\n");
+			assertTrue(isLineTerminated(file, layout, StandardCharsets.US_ASCII));
+			Files.writeString(file, "0001abcdef\r\n0002abcdef\r\n");
+			assertTrue(isLineTerminated(file, layout, StandardCharsets.US_ASCII));
+
+			// No newlines at all
+			Files.writeString(file, "0001abcdef0002abcdef");
+			assertFalse(isLineTerminated(file, layout, StandardCharsets.US_ASCII));
+
+			// Unterminated records with a newline byte in a (binary) field of the first and second record
+			Files.write(file, new byte[] { '0', '0', '0', '1', 'a', '\n', 'c', 'd', 'e', 'f', '\n', '0', '0', '2', 'a', 'b', 'c', 'd', 'e', 'f' });
+			assertFalse(isLineTerminated(file, layout, StandardCharsets.US_ASCII));
+
+			// EBCDIC uses a different newline
+			Files.write(file, "0001abcdef\n0002abcdef\n".getBytes(EBCDIC));
+			assertTrue(isLineTerminated(file, layout, EBCDIC));
+			assertEquals(read(file, layout, true, EBCDIC, MappedCsvReader.WINDOW_SIZE), List.of("0001|abcdef", "0002|abcdef"));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static boolean isLineTerminated(final Path file, final FixedWidthLayout layout, final Charset charset) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return FixedWidthReader.isLineTerminated(channel, layout, charset);
+		}
+	}
+
+	/*
+	 * Read every record, each is returned as the fields joined with '|'.
+	 */
+	private static List<String> read(final Path file, final FixedWidthLayout layout, final boolean lines, final Charset charset,
+			final int windowSize) throws IOException {
+		final List<String> ret = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+				FixedWidthReader reader = new FixedWidthReader(channel, 0, channel.size(), layout, lines, charset, windowSize)) {
+			while (reader.next()) {
+				final String[] fields = new String[reader.getFieldCount()];
+				for (int i = 0; i < fields.length; i++)
+					fields[i] = reader.getField(i);
+				ret.add(String.join("|", fields));
+			}
+		}
+		return ret;
+	}
+}
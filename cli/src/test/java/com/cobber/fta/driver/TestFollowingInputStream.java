@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.driver;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+import com.cobber.fta.TestGroups;
+
+public class TestFollowingInputStream {
+	private static final long POLL_MILLIS = 10;
+
+	@Test(groups = { TestGroups.ALL })
+	public void append() throws IOException {
+		final Path directory = Files.createTempDirectory("append");
+		final Path file = directory.resolve("data.csv");
+		final AtomicInteger ticks = new AtomicInteger();
+		try {
+			Files.writeString(file, "id\n1\n");
+			try (FollowingInputStream in = new FollowingInputStream(file, POLL_MILLIS, 0, 1, ticks::incrementAndGet)) {
+				assertEquals(read(in, 5), "id\n1\n");
+
+				// Only the appended data is returned
+				Files.writeString(file, "2\n3\n", StandardOpenOption.APPEND);
+				assertEquals(read(in, 4), "2\n3\n");
+
+				// Once stopped, end-of-file is returned when the available data has been consumed
+				Files.writeString(file, "4\n", StandardOpenOption.APPEND);
+				in.stop();
+				assertEquals(read(in, 2), "4\n");
+				assertEquals(in.read(), -1);
+			}
+			assertTrue(ticks.get() > 0);
+		}
+		finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void rotation() throws IOException {
+		final Path directory = Files.createTempDirectory("rotation");
+		final Path file = directory.resolve("data.csv");
+		try {
+			Files.writeString(file, "id\n1\n2\n");
+			try (FollowingInputStream in = new FollowingInputStream(file, POLL_MILLIS, 1000, 1, () -> { })) {
+				assertEquals(read(in, 7), "id\n1\n2\n");
+
+				// Replace the file, the header of the new file is skipped
+				final Path replacement = directory.resolve("data.new");
+				Files.writeString(replacement, "id\n3\n");
+				Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				assertEquals(read(in, 2), "3\n");
+
+				in.stop();
+				assertEquals(in.read(), -1);
+			}
+		}
+		finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void truncation() throws IOException {
+		final Path directory = Files.createTempDirectory("truncation");
+		final Path file = directory.resolve("data.csv");
+		try {
+			Files.writeString(file, "id\n1000\n2000\n");
+			try (FollowingInputStream in = new FollowingInputStream(file, POLL_MILLIS, 1000, 1, () -> { })) {
+				assertEquals(read(in, 13), "id\n1000\n2000\n");
+
+				// Truncate in place and rewrite (smaller than what has been read), the header is skipped
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					channel.truncate(0);
+				}
+				Files.writeString(file, "id\n3\n", StandardOpenOption.APPEND);
+				assertEquals(read(in, 2), "3\n");
+
+				in.stop();
+				assertEquals(in.read(), -1);
+			}
+		}
+		finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void pendingNewline() throws IOException {
+		final Path directory = Files.createTempDirectory("pendingNewline");
+		final Path file = directory.resolve("data.csv");
+		try {
+			// The last record of the old file is not terminated
+			Files.writeString(file, "id\n1\n2");
+			try (FollowingInputStream in = new FollowingInputStream(file, POLL_MILLIS, 1000, 1, () -> { })) {
+				assertEquals(read(in, 6), "id\n1\n2");
+
+				final Path replacement = directory.resolve("data.new");
+				Files.writeString(replacement, "id\n3\n");
+				Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+				// A newline is inserted so the records do not run together
+				assertEquals(read(in, 3), "\n3\n");
+
+				in.stop();
+				assertEquals(in.read(), -1);
+			}
+		}
+		finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	/*
+	 * Read exactly the specified number of bytes (waiting as necessary).
+	 */
+	private static String read(final InputStream in, final int length) throws IOException {
+		final byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			final int n = in.read(bytes, offset, length - offset);
+			if (n == -1)
+				break;
+			offset += n;
+		}
+		return new String(bytes, 0, offset, StandardCharsets.UTF_8);
+	}
+
+	private static void deleteDirectory(final Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (final Path file : files.toList())
+				Files.deleteIfExists(file);
+		}
+		Files.deleteIfExists(directory);
+	}
+}
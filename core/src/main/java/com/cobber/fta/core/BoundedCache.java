@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe cache with a bounded number of entries and hit/miss/eviction counters.
+ * Lookups are lock-free, once the cache is full an insert evicts entries that have not been used since the previous
+ * eviction pass (a 'second chance' approximation of LRU), so entries in active use survive.
+ * @param <K> The type of the key.
+ * @param <V> The type of the cached value.
+ */
+public class BoundedCache<K, V> {
+	/** A point-in-time snapshot of the statistics for a cache. */
+	public static final class Stats {
+		private final String name;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final int size;
+		private final int maxSize;
+
+		private Stats(final String name, final long hits, final long misses, final long evictions, final int size, final int maxSize) {
+			this.name = name;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.size = size;
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * The name of the cache.
+		 * @return The name of the cache.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * The number of lookups that found an entry.
+		 * @return The number of hits.
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * The number of lookups that did not find an entry.
+		 * @return The number of misses.
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * The number of entries removed to keep the cache within its bound.
+		 * @return The number of evictions.
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * The number of entries currently in the cache.
+		 * @return The number of entries.
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * The maximum number of entries retained by the cache.
+		 * @return The bound on the number of entries.
+		 */
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		/**
+		 * The fraction of lookups that found an entry.
+		 * @return The hit ratio (0.0 if there have been no lookups).
+		 */
+		public double getHitRatio() {
+			final long lookups = hits + misses;
+			return lookups == 0 ? 0.0 : (double)hits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: size=%d/%d, hits=%d, misses=%d, evictions=%d", name, size, maxSize, hits, misses, evictions);
+		}
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private volatile boolean referenced;
+
+		private Entry(final V value) {
+			this.value = value;
+		}
+	}
+
+	private final String name;
+	private final int maxSize;
+	private final Map<K, Entry<V>> cache = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Construct a BoundedCache.
+	 * @param name The name of the cache (used when reporting statistics).
+	 * @param maxSize The maximum number of entries to retain.
+	 */
+	public BoundedCache(final String name, final int maxSize) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("maxSize must be > 0");
+		this.name = name;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Retrieve the value associated with the key.
+	 * @param key The key to look up.
+	 * @return The cached value, or null if the key is not present.
+	 */
+	public V get(final K key) {
+		final Entry<V> entry = cache.get(key);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+
+		hits.increment();
+		if (!entry.referenced)
+			entry.referenced = true;
+		return entry.value;
+	}
+
+	/**
+	 * Associate the value with the key, evicting older entries if the cache is full.
+	 * @param key The key.
+	 * @param value The value to cache.
+	 */
+	public void put(final K key, final V value) {
+		if (cache.put(key, new Entry<>(value)) == null && cache.size() > maxSize)
+			evict();
+	}
+
+	/*
+	 * Reduce the cache to (at most) three quarters of its bound, removing entries that have not been used since the last
+	 * pass first.  A second pass (which only happens if everything was recently used) removes entries regardless.
+	 */
+	private synchronized void evict() {
+		final int target = maxSize - maxSize / 4;
+		for (int pass = 0; pass < 2 && cache.size() > target; pass++) {
+			final Iterator<Entry<V>> it = cache.values().iterator();
+			while (it.hasNext() && cache.size() > target) {
+				final Entry<V> entry = it.next();
+				if (entry.referenced && pass == 0)
+					entry.referenced = false;
+				else {
+					it.remove();
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries from the cache, the statistics are preserved.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * The number of entries currently in the cache.
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * The maximum number of entries retained by the cache.
+	 * @return The bound on the number of entries.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * A snapshot of the statistics for this cache.
+	 * @return The current statistics.
+	 */
+	public Stats getStats() {
+		return new Stats(name, hits.sum(), misses.sum(), evictions.sum(), cache.size(), maxSize);
+	}
+
+	/**
+	 * Reset the hit, miss and eviction counters.
+	 */
+	public void resetStats() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+}
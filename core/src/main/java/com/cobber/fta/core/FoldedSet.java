@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta.core;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Compact, immutable set of Strings that supports allocation-free, case-insensitive membership tests.
+ * The lookup is performed directly against a range of the supplied CharSequence - each character is cleansed
+ * (see {@link Utils#cleanse(String)}) and upper-cased on the fly, and hashed as it is folded, so no copy of the input is made.
+ * Members are stored exactly as supplied, so the semantics are identical to
+ * {@code members.contains(Utils.cleanse(input.trim()).toUpperCase(locale))}.
+ * Note: Characters where String.toUpperCase() does not agree with Character.toUpperCase() (e.g. 'ß' or U+1F80 which both
+ * expand to two characters), surrogates, and locales with special casing
+ * rules (Turkish, Azerbaijani and Lithuanian) fall back to the allocating path to preserve these semantics.
+ */
+public final class FoldedSet {
+	/*
+	 * Characters that cannot be folded in isolation, i.e. where upper-casing the String (Locale.ROOT) does not yield the
+	 * single character returned by Character.toUpperCase().
+	 */
+	private static final BitSet UNFOLDABLE = new BitSet(Character.MAX_VALUE + 1);
+
+	static {
+		for (char ch = 0x80; ch < Character.MIN_SURROGATE; ch++)
+			checkFoldable(ch);
+		for (char ch = (char) (Character.MAX_SURROGATE + 1); ch != 0; ch++)
+			checkFoldable(ch);
+	}
+
+	private static void checkFoldable(final char ch) {
+		final String upper = String.valueOf(ch).toUpperCase(Locale.ROOT);
+		if (upper.length() != 1 || upper.charAt(0) != Character.toUpperCase(ch))
+			UNFOLDABLE.set(ch);
+	}
+
+	private final String[] members;
+	private final int[] table;
+	private final int mask;
+	private final int minLength;
+	private final int maxLength;
+
+	/**
+	 * Construct a FoldedSet from the supplied members.
+	 * @param members The members of the Set, typically already upper case.
+	 */
+	public FoldedSet(final Collection<String> members) {
+		this.members = members.toArray(new String[0]);
+
+		// Keep the load factor at or below 0.5 to keep probe sequences short
+		int capacity = 2;
+		while (capacity < this.members.length * 2)
+			capacity <<= 1;
+		table = new int[capacity];
+		mask = capacity - 1;
+
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int i = 0; i < this.members.length; i++) {
+			final String member = this.members[i];
+			final int len = member.length();
+			if (len < min)
+				min = len;
+			if (len > max)
+				max = len;
+			int h = 0;
+			for (int j = 0; j < len; j++)
+				h = 31 * h + member.charAt(j);
+			int slot = mix(h) & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			// Slots hold index + 1 so that zero can be used to indicate empty
+			table[slot] = i + 1;
+		}
+		minLength = min;
+		maxLength = max;
+	}
+
+	/**
+	 * The number of members in the Set.
+	 * @return The number of members.
+	 */
+	public int size() {
+		return members.length;
+	}
+
+	/**
+	 * The length of the shortest member.
+	 * @return The length of the shortest member (Integer.MAX_VALUE if the Set is empty).
+	 */
+	public int getMinLength() {
+		return minLength;
+	}
+
+	/**
+	 * The length of the longest member.
+	 * @return The length of the longest member (Integer.MIN_VALUE if the Set is empty).
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Test for exact membership (no folding).
+	 * @param input The String to look for.
+	 * @return True if the input is a member of the Set.
+	 */
+	public boolean containsExact(final String input) {
+		final int len = input.length();
+		if (len < minLength || len > maxLength)
+			return false;
+
+		int h = 0;
+		for (int i = 0; i < len; i++)
+			h = 31 * h + input.charAt(i);
+
+		for (int slot = mix(h) & mask; table[slot] != 0; slot = (slot + 1) & mask)
+			if (members[table[slot] - 1].equals(input))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Test for membership after trimming, cleansing and upper-casing the input.
+	 * @param input The CharSequence to look for.
+	 * @param locale The locale used to upper-case the input.
+	 * @return True if the folded input is a member of the Set.
+	 */
+	public boolean contains(final CharSequence input, final Locale locale) {
+		return contains(input, 0, input.length(), locale);
+	}
+
+	/**
+	 * Test for membership of a range of the input after trimming, cleansing and upper-casing the range.
+	 * @param input The CharSequence containing the value to look for.
+	 * @param start The start index of the range (inclusive).
+	 * @param end The end index of the range (exclusive).
+	 * @param locale The locale used to upper-case the input.
+	 * @return True if the folded range is a member of the Set.
+	 */
+	public boolean contains(final CharSequence input, int start, int end, final Locale locale) {
+		// Mirror String.trim()
+		while (start < end && input.charAt(start) <= ' ')
+			start++;
+		while (end > start && input.charAt(end - 1) <= ' ')
+			end--;
+
+		final int len = end - start;
+		if (len < minLength || len > maxLength)
+			return false;
+
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			final int folded = fold(input.charAt(i), locale);
+			if (folded < 0)
+				return containsExact(Utils.cleanse(input.subSequence(start, end).toString()).toUpperCase(locale));
+			h = 31 * h + folded;
+		}
+
+		for (int slot = mix(h) & mask; table[slot] != 0; slot = (slot + 1) & mask)
+			if (matches(members[table[slot] - 1], input, start, end, locale))
+				return true;
+
+		return false;
+	}
+
+	private static boolean matches(final String member, final CharSequence input, final int start, final int end, final Locale locale) {
+		if (member.length() != end - start)
+			return false;
+		for (int i = start; i < end; i++)
+			if (member.charAt(i - start) != fold(input.charAt(i), locale))
+				return false;
+		return true;
+	}
+
+	/*
+	 * Cleanse and upper-case a single character, returns -1 if the character cannot be folded in isolation.
+	 */
+	private static int fold(final char ch, final Locale locale) {
+		if (ch < 0x80) {
+			if (ch >= 'a' && ch <= 'z') {
+				if (ch == 'i' && isSpecialCasing(locale))
+					return -1;
+				return ch - ('a' - 'A');
+			}
+			return ch == '`' ? '\'' : ch;
+		}
+
+		switch (ch) {
+		// (U+2018) LEFT SINGLE QUOTATION MARK, (U+2019) RIGHT SINGLE QUOTATION MARK
+		case '\u2018':
+		case '\u2019':
+			return '\'';
+		// (U+201C) LEFT DOUBLE QUOTATION MARK, (U+201D) RIGHT DOUBLE QUOTATION MARK
+		case '\u201C':
+		case '\u201D':
+			return '"';
+		// (U+2013) ENDASH, (U+2014) EMDASH
+		case '\u2013':
+		case '\u2014':
+			return '-';
+		default:
+			break;
+		}
+
+		if (Character.isSurrogate(ch) || UNFOLDABLE.get(ch) || isSpecialCasing(locale))
+			return -1;
+
+		return Character.toUpperCase(ch);
+	}
+
+	private static boolean isSpecialCasing(final Locale locale) {
+		final String language = locale.getLanguage();
+		return "tr".equals(language) || "az".equals(language) || "lt".equals(language);
+	}
+
+	private static int mix(final int h) {
+		return h ^ (h >>> 16);
+	}
+}
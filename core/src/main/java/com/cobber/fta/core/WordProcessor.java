@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
  * Split an input string into words.
  *  - Break chars are used to split words and are not returned.
  *  - AlphaNumeric transition (if true then this is treated as a word break)
+ * Once configured, a WordProcessor holds no per-scan state and so may be shared (and re-entered) safely.
  */
 public class WordProcessor {
 	private final StringBuilder defaultBreakChars = new StringBuilder(" \u00A0\n\t,/-_;!.|&");
@@ -31,9 +32,6 @@ public class WordProcessor {
 	private String breakCharsString;
 	private String additionalWordChars = null;
 	private boolean alphaNumberTransition = false;
-	private boolean lastAlpha = false;
-	private boolean lastNumeric = false;
-	private boolean lastSimpleWordChar = false;
 
 	public WordProcessor() {
 		breakChars = defaultBreakChars;
@@ -102,13 +100,6 @@ public class WordProcessor {
 		return Character.isAlphabetic(ch) || Character.isDigit(ch) || (additionalWordChars != null && additionalWordChars.indexOf(ch) != -1);
 	}
 
-	private void append(final StringBuilder b, final char ch) {
-		b.append(ch);
-		lastAlpha = Character.isAlphabetic(ch);
-		lastNumeric = Character.isDigit(ch);
-		lastSimpleWordChar = isSimpleWordChar(ch);
-	}
-
 	/**
 	 * Split the input String into 'words' based on the break characters.
 	 * @param input String to break into words.
@@ -116,9 +107,35 @@ public class WordProcessor {
 	 */
 	public List<WordOffset> asWordOffsets(final String input) {
 		final List<WordOffset> ret = new ArrayList<>();
+		visitWords(input, (word, start) -> ret.add(new WordOffset(word.toString(), start)));
+		return ret;
+	}
+
+	/**
+	 * Callback used by {@link WordProcessor#visitWords(CharSequence, WordVisitor)}.
+	 */
+	@FunctionalInterface
+	public interface WordVisitor {
+		/**
+		 * Invoked for each word located.
+		 * Note: the word is only valid for the duration of the call, it must be copied if it needs to be retained.
+		 * @param word The word located.
+		 * @param start The offset of the start of the word in the input.
+		 * @return True if the scan should continue, false to terminate the scan.
+		 */
+		boolean visit(CharSequence word, int start);
+	}
+
+	/**
+	 * Split the input into 'words' based on the break characters, invoking the visitor for each word.
+	 * Note: No per-word allocation is performed, a single buffer (local to this call) is reused for each word.
+	 * @param input Input to break into words.
+	 * @param visitor The visitor invoked for each word.
+	 */
+	public void visitWords(final CharSequence input, final WordVisitor visitor) {
 		boolean midWord = false;
 		int start = -1;
-		final StringBuilder b = new StringBuilder();
+		final StringBuilder b = new StringBuilder(input.length());
 		for (int i = 0; i < input.length(); i++) {
 			final char ch = input.charAt(i);
 			if (killChars.indexOf(ch) != -1)
@@ -127,41 +144,44 @@ public class WordProcessor {
 				if (breakCharsString.indexOf(ch) != -1)
 					continue;
 				midWord = true;
-				append(b, ch);
+				b.append(ch);
 				start = i;
 				continue;
 			}
 
+			// When mid-word the buffer is never empty, so the last character appended drives the transition tests
+			final char last = b.charAt(b.length() - 1);
+			final boolean lastNumeric = Character.isDigit(last);
+
 			// If we have <DIGIT>.<DIGIT> then it does not count as a break!
 			if (ch == '.' && lastNumeric && i + 1 < input.length() && Character.isDigit(input.charAt(i + 1))) {
-				append(b, ch);
+				b.append(ch);
 				continue;
 			}
 
 			// At this point we are in the middle of a word
 			final boolean isBreak = breakCharsString.indexOf(ch) != -1;
 			if (isBreak ||
-					(alphaNumberTransition && (lastAlpha && Character.isDigit(ch) || lastNumeric && Character.isAlphabetic(ch))) ||
-					lastSimpleWordChar ^ isSimpleWordChar(ch)) {
+					(alphaNumberTransition && (Character.isAlphabetic(last) && Character.isDigit(ch) || lastNumeric && Character.isAlphabetic(ch))) ||
+					isSimpleWordChar(last) ^ isSimpleWordChar(ch)) {
 				// End of word reached
-				ret.add(new WordOffset(b.toString(), start));
+				if (!visitor.visit(b, start))
+					return;
 				b.setLength(0);
 				midWord = !isBreak;
 				// If it was a valid word character as opposed to a break character that caused us to detect the end of the
 				// previous word then start a new word with this character.
 				if (midWord) {
-					append(b, ch);
+					b.append(ch);
 					start = i;
 				}
 				continue;
 			}
 
-			append(b, ch);
+			b.append(ch);
 		}
 
 		if (start != -1 && b.length() != 0)
-			ret.add(new WordOffset(b.toString(), start));
-
-		return ret;
+			visitor.visit(b, start);
 	}
 }
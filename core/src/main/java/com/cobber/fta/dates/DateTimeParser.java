@@ -32,7 +32,6 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -41,6 +40,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 
+import com.cobber.fta.core.BoundedCache;
 import com.cobber.fta.core.FTAMergeException;
 import com.cobber.fta.core.InternalErrorException;
 import com.cobber.fta.core.MinMax;
@@ -134,7 +134,13 @@ public class DateTimeParser {
 	private DateTimeParserState state = new DateTimeParserState();
 	private DateTimeParserConfig config = new DateTimeParserConfig();
 
-	private static final Map<String, DateTimeFormatter> formatterCache = new ConcurrentHashMap<>();
+	/** The default bound on the number of cached DateTimeFormatters (override with the system property 'fta.dateFormatterCacheSize'). */
+	public static final int FORMATTER_CACHE_SIZE_DEFAULT = 1024;
+
+	private record FormatterKey(String formatString, LocaleInfoConfig localeInfoConfig) { }
+
+	private static final BoundedCache<FormatterKey, DateTimeFormatter> formatterCache =
+			new BoundedCache<>("DateTimeFormatter", Integer.getInteger("fta.dateFormatterCacheSize", FORMATTER_CACHE_SIZE_DEFAULT));
 
 	private LocaleInfo localeInfo;
 
@@ -274,7 +280,7 @@ public class DateTimeParser {
 	 * @return The corresponding DateTimeFormatter (note - this will be a case-insensitive parser).
 	 */
 	public DateTimeFormatter ofPattern(final String formatString) {
-		final String cacheKey = formatString + "---" + config.getLocaleInfoConfig().getCacheKey();
+		final FormatterKey cacheKey = new FormatterKey(formatString, config.getLocaleInfoConfig());
 		DateTimeFormatter formatter = formatterCache.get(cacheKey);
 
 		if (formatter != null)
@@ -333,6 +339,22 @@ public class DateTimeParser {
 		return formatter;
 	}
 
+	/**
+	 * The statistics for the static caches used when parsing dates (the DateTimeFormatter and DateTimeParserResult caches).
+	 * @return A snapshot of the statistics for each cache.
+	 */
+	public static List<BoundedCache.Stats> getCacheStats() {
+		return Arrays.asList(formatterCache.getStats(), DateTimeParserResult.getCacheStats());
+	}
+
+	/**
+	 * Discard all entries from the static caches used when parsing dates, they will be repopulated on demand.
+	 */
+	public static void clearCaches() {
+		formatterCache.clear();
+		DateTimeParserResult.clearCache();
+	}
+
 	/**
 	 * train() is the core entry point used to supply input to the DateTimeParser.  The returned value from this method is the
 	 * DateTimeFormatter Pattern for this input.  For the consolidated result of all the training see {@link #getResult()}.
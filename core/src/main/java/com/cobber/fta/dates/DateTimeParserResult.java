@@ -26,9 +26,8 @@ import java.time.temporal.ChronoField;
 import java.time.temporal.Temporal;
 import java.util.Arrays;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import com.cobber.fta.core.BoundedCache;
 import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.InternalErrorException;
 import com.cobber.fta.core.MinMax;
@@ -69,7 +68,13 @@ public class DateTimeParserResult {
 	private final LocaleInfo localeInfo;
 	private final int hourLength;
 
-	private static Map<String, DateTimeParserResult> dtpCache = new ConcurrentHashMap<>();
+	/** The default bound on the number of cached DateTimeParserResults (override with the system property 'fta.dateResultCacheSize'). */
+	public static final int RESULT_CACHE_SIZE_DEFAULT = 4096;
+
+	private record ResultKey(DateResolutionMode resolutionMode, Locale locale, String formatString, boolean noAbbreviationPunctuation) { }
+
+	private static final BoundedCache<ResultKey, DateTimeParserResult> dtpCache =
+			new BoundedCache<>("DateTimeParserResult", Integer.getInteger("fta.dateResultCacheSize", RESULT_CACHE_SIZE_DEFAULT));
 
 	DateTimeParserResult(final String formatString, final DateResolutionMode resolutionMode, final DateTimeParserConfig config, final int timeElements,
 			final MinMax[] timeFieldLengths, final int[] timeFieldOffsets, final int[] timeFieldPad, final int hourLength, final int dateElements, final int[] dateFieldLengths,
@@ -123,6 +128,21 @@ public class DateTimeParserResult {
 
 	}
 
+	/**
+	 * The statistics for the cache of DateTimeParserResults.
+	 * @return A snapshot of the statistics for the cache.
+	 */
+	public static BoundedCache.Stats getCacheStats() {
+		return dtpCache.getStats();
+	}
+
+	/**
+	 * Discard all entries from the cache of DateTimeParserResults.
+	 */
+	public static void clearCache() {
+		dtpCache.clear();
+	}
+
 	DateTimeParserResult updateStart() {
 		MinMax[] timeFieldLengthsClone = null;
 		if (this.timeFieldLengths != null) {
@@ -285,7 +305,7 @@ public class DateTimeParserResult {
 	 * @return The corresponding DateTimeParserResult
 	 */
 	public static DateTimeParserResult asResult(final String formatString, final DateResolutionMode resolutionMode, final DateTimeParserConfig config) {
-		final String key = resolutionMode.name() + '#' + config.getLocale() + '#' + formatString + '#' + config.noAbbreviationPunctuation;
+		final ResultKey key = new ResultKey(resolutionMode, config.getLocale(), formatString, config.noAbbreviationPunctuation);
 		DateTimeParserResult ret = dtpCache.get(key);
 		if (ret != null)
 			return newInstance(ret);
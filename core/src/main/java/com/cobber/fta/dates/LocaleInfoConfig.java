@@ -45,4 +45,20 @@ public class LocaleInfoConfig {
 	public String getCacheKey() {
 		return String.valueOf(Objects.hash(locale, noAbbreviationPunctuation, allowEnglishAMPM));
 	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(locale, noAbbreviationPunctuation, allowEnglishAMPM);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		final LocaleInfoConfig other = (LocaleInfoConfig) obj;
+		return Objects.equals(locale, other.locale) && noAbbreviationPunctuation == other.noAbbreviationPunctuation &&
+				allowEnglishAMPM == other.allowEnglishAMPM;
+	}
 }
@@ -26,19 +26,29 @@ import static org.testng.Assert.fail;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.testng.annotations.Test;
 
+import com.cobber.fta.core.BoundedCache;
 import com.cobber.fta.core.FTAType;
+import com.cobber.fta.core.FoldedSet;
 import com.cobber.fta.core.RegExpGenerator;
 import com.cobber.fta.core.RegExpSplitter;
 import com.cobber.fta.core.Utils;
 import com.cobber.fta.core.WordOffset;
 import com.cobber.fta.core.WordProcessor;
+import com.cobber.fta.dates.DateTimeParser;
+import com.cobber.fta.dates.DateTimeParser.DateResolutionMode;
+import com.cobber.fta.dates.DateTimeParserConfig;
+import com.cobber.fta.dates.DateTimeParserResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class TestUtilsCore {
@@ -328,6 +338,65 @@ public class TestUtilsCore {
 		}
 	}
 
+	@Test(groups = { TestGroups.ALL })
+	public void wordsVisitor() {
+		final List<String> words = new ArrayList<>();
+		(new WordProcessor()).visitWords("   One, two, three,four!", (word, start) -> words.add(word.toString()) && words.size() < 3);
+
+		assertEquals(words.size(), 3);
+		assertEquals(words.get(2), "three");
+
+		// The same processor can be re-entered from within a visitor
+		final WordProcessor processor = new WordProcessor();
+		final List<String> nested = new ArrayList<>();
+		processor.visitWords("alpha beta", (word, start) -> {
+			final String outer = word.toString();
+			processor.visitWords("x1 y2", (inner, innerStart) -> nested.add(outer + ":" + inner));
+			return true;
+		});
+		assertEquals(nested, Arrays.asList("alpha:x1", "alpha:y2", "beta:x1", "beta:y2"));
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void foldedSet() {
+		final List<String> members = Arrays.asList("RED", "GREEN", "O'BRIEN", "STRAẞE", "STRASSE", "ÉCOLE");
+		final FoldedSet folded = new FoldedSet(members);
+
+		assertEquals(folded.size(), members.size());
+		assertEquals(folded.getMinLength(), 3);
+		assertEquals(folded.getMaxLength(), 7);
+
+		for (final String input : new String[] { "red", " Green\t", "o’brien", "O`BRIEN", "Straße", "école", "blue", "", "re", "REDS" })
+			assertEquals(folded.contains(input, Locale.US), members.contains(Utils.cleanse(input.trim()).toUpperCase(Locale.US)), input);
+
+		assertTrue(folded.contains("xxGREENxx", 2, 7, Locale.US));
+		assertTrue(folded.containsExact("RED"));
+		assertFalse(folded.containsExact("red"));
+
+		// Turkish upper-cases 'i' to a dotted capital I
+		final List<String> turkish = Arrays.asList("BİR", "BIR");
+		assertTrue(new FoldedSet(turkish).contains("bir", Locale.forLanguageTag("tr-TR")));
+		assertFalse(new FoldedSet(Arrays.asList("BIR")).contains("bir", Locale.forLanguageTag("tr-TR")));
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void foldedSetAllCharacters() {
+		// Populate with the character-by-character fold, which is wrong for characters that expand (e.g. U+1F80 -> U+1F08 U+0399)
+		final Set<String> members = new HashSet<>();
+		for (char ch = 0x80; ch != 0; ch++)
+			if (!Character.isSurrogate(ch))
+				members.add("A" + Character.toUpperCase(ch));
+		final FoldedSet folded = new FoldedSet(members);
+
+		for (char ch = 0x80; ch != 0; ch++) {
+			if (Character.isSurrogate(ch))
+				continue;
+			final String input = "a" + ch;
+			assertEquals(folded.contains(input, Locale.US), members.contains(Utils.cleanse(input.trim()).toUpperCase(Locale.US)), Integer.toHexString(ch));
+		}
+		assertFalse(folded.contains("aᾀ", Locale.US));
+	}
+
 	@Test(groups = { TestGroups.ALL })
 	public void exponentUS() {
 		// US Must be E not e and no +
@@ -766,4 +835,63 @@ public class TestUtilsCore {
 		assertEquals(keywordsUS.match("yodel", "YODEL"), 0);
 		assertEquals(keywordsUS.match("yodel", "YES"), 0);
 	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void boundedCache() {
+		final BoundedCache<Integer, String> cache = new BoundedCache<>("test", 100);
+
+		for (int i = 0; i < 100; i++)
+			cache.put(i, String.valueOf(i));
+		assertEquals(cache.size(), 100);
+
+		// Touch the first ten entries so they survive the eviction
+		for (int i = 0; i < 10; i++)
+			assertEquals(cache.get(i), String.valueOf(i));
+		assertNull(cache.get(1000));
+
+		cache.put(100, "100");
+		assertTrue(cache.size() <= cache.getMaxSize());
+		for (int i = 0; i < 10; i++)
+			assertEquals(cache.get(i), String.valueOf(i));
+
+		final BoundedCache.Stats stats = cache.getStats();
+		assertEquals(stats.getHits(), 20);
+		assertEquals(stats.getMisses(), 1);
+		assertEquals(stats.getEvictions(), 101 - stats.getSize());
+		assertEquals(stats.getMaxSize(), 100);
+
+		// Continuous inserts never exceed the bound
+		for (int i = 0; i < 10_000; i++)
+			cache.put(i, String.valueOf(i));
+		assertTrue(cache.size() <= cache.getMaxSize());
+
+		cache.clear();
+		assertEquals(cache.size(), 0);
+		cache.resetStats();
+		assertEquals(cache.getStats().getHits(), 0);
+	}
+
+	@Test(groups = { TestGroups.ALL })
+	public void dateCaches() {
+		DateTimeParser.clearCaches();
+		final long hitsBefore = DateTimeParser.getCacheStats().get(1).getHits();
+
+		final DateTimeParser dtp = new DateTimeParser().withLocale(Locale.US);
+		assertEquals(dtp.ofPattern("yyyy-MM-dd"), dtp.ofPattern("yyyy-MM-dd"));
+
+		final DateTimeParserConfig config = new DateTimeParserConfig(Locale.US);
+		DateTimeParserResult.asResult("yyyy-MM-dd", DateResolutionMode.None, config);
+		DateTimeParserResult.asResult("yyyy-MM-dd", DateResolutionMode.None, config);
+
+		final List<BoundedCache.Stats> stats = DateTimeParser.getCacheStats();
+		assertEquals(stats.size(), 2);
+		assertTrue(stats.get(0).getSize() >= 1);
+		assertTrue(stats.get(0).getHits() >= 1);
+		assertTrue(stats.get(1).getSize() >= 1);
+		assertTrue(stats.get(1).getHits() > hitsBefore);
+
+		DateTimeParser.clearCaches();
+		assertEquals(DateTimeParser.getCacheStats().get(0).getSize(), 0);
+		assertEquals(DateTimeParserResult.getCacheStats().getSize(), 0);
+	}
 }
@@ -56,6 +56,12 @@ public class AnalysisConfig {
 	/** The default value for the maximum length of input to process. */
 	public static final int MAX_INPUT_LENGTH_DEFAULT = 4096;
 
+	/** The default value for the number of members in a 'file' or 'resource' list plugin above which it is backed by a Bloom Filter. */
+	public static final long BLOOM_FILTER_THRESHOLD_DEFAULT = 100_000;
+
+	/** The default value for the false positive probability of the Bloom Filters backing large list plugins. */
+	public static final double BLOOM_FILTER_FPP_DEFAULT = 0.005;
+
 	/** The minimum value for the maximum length of input to process. */
 	public static final int MAX_INPUT_LENGTH_MINIMUM = 64;
 
@@ -90,6 +96,12 @@ public class AnalysisConfig {
 	/** The current Locale tag. */
 	private String localeTag;
 
+	/** The number of members in a list plugin above which it is backed by a Bloom Filter. */
+	private long bloomFilterThreshold = BLOOM_FILTER_THRESHOLD_DEFAULT;
+
+	/** The false positive probability of the Bloom Filters backing large list plugins. */
+	private double bloomFilterFpp = BLOOM_FILTER_FPP_DEFAULT;
+
 	private Locale cachedLocale;
 
 	/** The current tracing options. */
@@ -126,6 +138,9 @@ public class AnalysisConfig {
 	/** Should we should treat "NULL" (and similar) as Null values. */
 	private boolean nullTextAsNull = true;
 
+	/** Should we profile the cost of each Semantic Type plugin. */
+	private boolean pluginProfiling = false;
+
 	public enum TrainingMode {
 		/** Training is being done via train() - i.e. one sample at a time. */
 		SIMPLE,
@@ -156,6 +171,8 @@ public class AnalysisConfig {
 		this.detectWindow = other.detectWindow;
 		this.maxInputLength = other.maxInputLength;
 		this.localeTag = other.localeTag;
+		this.bloomFilterThreshold = other.bloomFilterThreshold;
+		this.bloomFilterFpp = other.bloomFilterFpp;
 		this.traceOptions = other.traceOptions;
 		this.collectStatistics = other.collectStatistics;
 		this.debug = other.debug;
@@ -166,6 +183,7 @@ public class AnalysisConfig {
 		this.noAbbreviationPunctuation = other.noAbbreviationPunctuation;
 		this.nullTextAsNull = other.nullTextAsNull;
 		this.distributions = other.distributions;
+		this.pluginProfiling = other.pluginProfiling;
 	}
 
 	/**
@@ -202,6 +220,9 @@ public class AnalysisConfig {
 		case NUMERIC_WIDENING:
 			numericWidening = state;
 			break;
+		case PLUGIN_PROFILING:
+			pluginProfiling = state;
+			break;
 		}
 	}
 
@@ -230,6 +251,8 @@ public class AnalysisConfig {
 			return nullTextAsNull;
 		case NUMERIC_WIDENING:
 			return numericWidening;
+		case PLUGIN_PROFILING:
+			return pluginProfiling;
 		}
 		return false;
 	}
@@ -284,6 +307,41 @@ public class AnalysisConfig {
 		return ret;
 	}
 
+	public long getBloomFilterThreshold() {
+		return bloomFilterThreshold;
+	}
+
+	/**
+	 * Set the number of members in a 'file' or 'resource' list plugin above which the plugin is backed by a Bloom Filter
+	 * rather than holding the members on the heap.  Default is {@link #BLOOM_FILTER_THRESHOLD_DEFAULT}.
+	 * <p>Note: This must be set before the plugins are registered.
+	 * @param bloomFilterThreshold The new threshold.
+	 * @return The previous value of this parameter.
+	 */
+	public long setBloomFilterThreshold(final long bloomFilterThreshold) {
+		final long ret = this.bloomFilterThreshold;
+		this.bloomFilterThreshold = bloomFilterThreshold;
+		return ret;
+	}
+
+	public double getBloomFilterFpp() {
+		return bloomFilterFpp;
+	}
+
+	/**
+	 * Set the false positive probability for the Bloom Filters backing large list plugins.
+	 * Default is {@link #BLOOM_FILTER_FPP_DEFAULT}.
+	 * @param bloomFilterFpp The new false positive probability (must be &gt; 0.0 and &lt; 1.0).
+	 * @return The previous value of this parameter.
+	 */
+	public double setBloomFilterFpp(final double bloomFilterFpp) {
+		if (bloomFilterFpp <= 0.0 || bloomFilterFpp >= 1.0)
+			throw new IllegalArgumentException("Invalid value for bloomFilterFpp " + bloomFilterFpp);
+		final double ret = this.bloomFilterFpp;
+		this.bloomFilterFpp = bloomFilterFpp;
+		return ret;
+	}
+
 	public int getMaxOutliers() {
 		return maxOutliers;
 	}
@@ -109,6 +109,84 @@ class AnalysisContext {
 	/** Count of internal errors swallowed during training; surfaced in the result. */
 	int internalErrors;
 
+	/** Receiver for counters and timings, {@link AnalyzerMetrics#NONE} unless the caller has registered one. */
+	AnalyzerMetrics metrics = AnalyzerMetrics.NONE;
+
+	/** Increment the supplied counter for this stream - a no-op (on the hot path) unless someone is listening. */
+	void increment(final AnalyzerMetrics.Counter counter, final long delta) {
+		if (metrics != AnalyzerMetrics.NONE)
+			metrics.increment(analyzerContext.getStreamName(), counter, delta);
+	}
+
+	/** Set once the cardinality set has overflowed, so that we only report the transition. */
+	boolean cardinalityOverflowReported;
+
+	/** Record a backout from the supplied type to the current type. */
+	void backout(final TypeInfo from) {
+		increment(AnalyzerMetrics.Counter.BACKOUTS, 1);
+		AnalyzerEvents.backout(analyzerContext.getStreamName(), facts.sampleCount, from, facts.getMatchTypeInfo());
+	}
+
+	/** Record a value that did not fit in the cardinality set. */
+	void cardinalityOverflow(final long count) {
+		increment(AnalyzerMetrics.Counter.CARDINALITY_OVERFLOW, count);
+		if (!cardinalityOverflowReported) {
+			cardinalityOverflowReported = true;
+			AnalyzerEvents.cardinalityOverflow(analyzerContext.getStreamName(), facts.sampleCount, analysisConfig.getMaxCardinality());
+		}
+	}
+
+	/** Per-plugin cost accumulator, null unless the Feature PLUGIN_PROFILING is enabled. */
+	PluginProfile pluginProfile;
+
+	/*
+	 * The analyzer invokes the plugins via the following methods, each completes any deferred initialization of the plugin
+	 * (see LogicalType.ensureInitialized()) so that the analyzer never sees a partially initialized plugin.
+	 */
+
+	/** Invoke isCandidate() on the supplied plugin, recording the cost if profiling. */
+	boolean isCandidate(final LogicalTypeInfinite logical, final String trimmed, final StringBuilder compressed, final int[] charCounts, final int[] lastIndex) {
+		logical.ensureInitialized();
+		if (pluginProfile == null)
+			return logical.isCandidate(trimmed, compressed, charCounts, lastIndex);
+
+		final long start = System.nanoTime();
+		final boolean ret = logical.isCandidate(trimmed, compressed, charCounts, lastIndex);
+		pluginProfile.record(logical.getSemanticType(), PluginProfile.Operation.IS_CANDIDATE, System.nanoTime() - start, !ret);
+		return ret;
+	}
+
+	/** Invoke isValid() on the supplied plugin, recording the cost if profiling. */
+	boolean isValid(final LogicalType logical, final String input, final boolean detectMode, final long count) {
+		logical.ensureInitialized();
+		if (pluginProfile == null)
+			return logical.isValid(input, detectMode, count);
+
+		final long start = System.nanoTime();
+		final boolean ret = logical.isValid(input, detectMode, count);
+		pluginProfile.record(logical.getSemanticType(), PluginProfile.Operation.IS_VALID, System.nanoTime() - start, !ret);
+		return ret;
+	}
+
+	/** Invoke analyzeSet() on the supplied plugin, recording the cost if profiling. */
+	PluginAnalysis analyzeSet(final LogicalType logical, final AnalyzerContext context, final long matchCount, final long realSamples, final String currentRegExp,
+			final Facts facts, final FiniteMap cardinality, final FiniteMap outliers, final TokenStreams tokenStreams, final AnalysisConfig analysisConfig) {
+		logical.ensureInitialized();
+		if (pluginProfile == null)
+			return logical.analyzeSet(context, matchCount, realSamples, currentRegExp, facts, cardinality, outliers, tokenStreams, analysisConfig);
+
+		final long start = System.nanoTime();
+		final PluginAnalysis ret = logical.analyzeSet(context, matchCount, realSamples, currentRegExp, facts, cardinality, outliers, tokenStreams, analysisConfig);
+		pluginProfile.record(logical.getSemanticType(), PluginProfile.Operation.ANALYZE_SET, System.nanoTime() - start, !ret.isValid());
+		return ret;
+	}
+
+	/** Invoke getConfidence() on the supplied plugin. */
+	double getConfidence(final LogicalType logical, final long matchCount, final long realSamples, final AnalyzerContext context) {
+		logical.ensureInitialized();
+		return logical.getConfidence(matchCount, realSamples, context);
+	}
+
 	/** Log a contextual debug message if debug level is &gt;= 2. */
 	void ctxdebug(final String area, final String format, final Object... arguments) {
 		if (analysisConfig.getDebug() >= 2) {
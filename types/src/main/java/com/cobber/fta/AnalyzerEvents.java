@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events emitted by the TextAnalyzer and RecordAnalyzer.
+ * All events are in the 'FTA' category and are named 'com.cobber.fta.&lt;Event&gt;' (e.g. com.cobber.fta.Backout).
+ * When no recording is active (or the event is disabled) the cost is a small, typically eliminated, allocation.
+ */
+final class AnalyzerEvents {
+	private AnalyzerEvents() {
+	}
+
+	/** Base class for all FTA events - every event carries the stream name and the number of samples seen. */
+	@Category("FTA")
+	@StackTrace(false)
+	abstract static class AnalyzerEvent extends Event {
+		@Label("Stream Name")
+		String streamName;
+
+		@Label("Sample Count")
+		long sampleCount;
+
+		/*
+		 * Populate the common fields and commit the event, avoiding any work if the event will not be recorded.
+		 */
+		void complete(final String streamName, final long sampleCount) {
+			end();
+			if (shouldCommit()) {
+				this.streamName = streamName;
+				this.sampleCount = sampleCount;
+				commit();
+			}
+		}
+	}
+
+	@Name("com.cobber.fta.Initialize")
+	@Label("Initialize")
+	@Description("TextAnalyzer initialization, including plugin registration")
+	static final class Initialize extends AnalyzerEvent {
+	}
+
+	@Name("com.cobber.fta.DetermineType")
+	@Label("Determine Type")
+	@Description("Determination of the type of the stream")
+	static final class DetermineType extends AnalyzerEvent {
+		@Label("Type")
+		String type;
+	}
+
+	@Name("com.cobber.fta.Backout")
+	@Label("Backout")
+	@Description("Backout from a previously determined type")
+	static final class Backout extends AnalyzerEvent {
+		@Label("From")
+		String from;
+
+		@Label("To")
+		String to;
+	}
+
+	@Name("com.cobber.fta.CardinalityOverflow")
+	@Label("Cardinality Overflow")
+	@Description("The cardinality set has reached maxCardinality, emitted once per stream")
+	static final class CardinalityOverflow extends AnalyzerEvent {
+		@Label("Max Cardinality")
+		int maxCardinality;
+	}
+
+	@Name("com.cobber.fta.ShapeOverflow")
+	@Label("Shape Overflow")
+	@Description("The shapes have collapsed to ANYSHAPE, emitted once per stream")
+	static final class ShapeOverflow extends AnalyzerEvent {
+		@Label("Max Shapes")
+		int maxShapes;
+	}
+
+	@Name("com.cobber.fta.ResultPhase")
+	@Label("Result Phase")
+	@Description("A phase of getResult()")
+	static final class ResultPhase extends AnalyzerEvent {
+		@Label("Phase")
+		String phase;
+	}
+
+	@Name("com.cobber.fta.RecordPass")
+	@Label("Record Pass")
+	@Description("A RecordAnalyzer re-analysis pass using the Semantic Types detected so far")
+	static final class RecordPass extends AnalyzerEvent {
+		@Label("Pass")
+		int pass;
+
+		@Label("Streams Re-analyzed")
+		int reanalyzed;
+
+		@Label("Semantic Types Detected")
+		int pickups;
+	}
+
+	@Name("com.cobber.fta.Serialize")
+	@Label("Serialize")
+	@Description("Serialization of a TextAnalyzer")
+	static final class Serialize extends AnalyzerEvent {
+	}
+
+	@Name("com.cobber.fta.Merge")
+	@Label("Merge")
+	@Description("Merge of two TextAnalyzers")
+	static final class Merge extends AnalyzerEvent {
+		@Label("Second Sample Count")
+		long secondSampleCount;
+	}
+
+	static ResultPhase beginPhase(final String phase) {
+		final ResultPhase ret = new ResultPhase();
+		ret.phase = phase;
+		ret.begin();
+		return ret;
+	}
+
+	static void backout(final String streamName, final long sampleCount, final TypeInfo from, final TypeInfo to) {
+		final Backout event = new Backout();
+		if (event.shouldCommit()) {
+			event.from = String.valueOf(from);
+			event.to = String.valueOf(to);
+			event.complete(streamName, sampleCount);
+		}
+	}
+
+	static void cardinalityOverflow(final String streamName, final long sampleCount, final int maxCardinality) {
+		final CardinalityOverflow event = new CardinalityOverflow();
+		if (event.shouldCommit()) {
+			event.maxCardinality = maxCardinality;
+			event.complete(streamName, sampleCount);
+		}
+	}
+
+	static void shapeOverflow(final String streamName, final long sampleCount, final int maxShapes) {
+		final ShapeOverflow event = new ShapeOverflow();
+		if (event.shouldCommit()) {
+			event.maxShapes = maxShapes;
+			event.complete(streamName, sampleCount);
+		}
+	}
+}
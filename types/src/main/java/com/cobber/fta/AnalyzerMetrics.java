@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+/**
+ * This interface is used to receive counters and timings from a TextAnalyzer (or RecordAnalyzer) so that they can be
+ * forwarded to an external monitoring system.
+ * Implementations are invoked synchronously on the training thread, so should be cheap and, if shared across
+ * analyzers running on different threads, thread-safe.
+ */
+public interface AnalyzerMetrics {
+	/** The events counted by the analyzer. */
+	enum Counter {
+		/** Samples supplied via train() or trainBulk(). */
+		SAMPLES_TRAINED,
+		/** Samples absorbed by the repetition cache rather than being tracked individually. */
+		CACHE_HITS,
+		/** Invocations of type determination. */
+		DETERMINE_TYPE,
+		/** Backouts from a previously determined type. */
+		BACKOUTS,
+		/** Valid samples that did not fit in the cardinality set as it has reached maxCardinality. */
+		CARDINALITY_OVERFLOW
+	}
+
+	/** The phases timed by the analyzer, all times are reported in nanoseconds. */
+	enum Timer {
+		/** Time spent in train() before the type has been determined. */
+		DETECT_WINDOW,
+		/** Time spent in train() (or trainBulk()) once the type has been determined. */
+		TRACKING,
+		/** Time spent in getResult() flushing the cache and determining the type (if not already determined). */
+		RESULT_DETERMINE,
+		/** Time spent in getResult() validating the Semantic Type and finalizing the base type. */
+		RESULT_FINALIZE,
+		/** Time spent in getResult() (or RecordAnalyzer.getResult()) re-analyzing the stream. */
+		RESULT_REANALYZE,
+		/** Total time spent in getResult(). */
+		RESULT
+	}
+
+	/** The default implementation - which discards everything. */
+	AnalyzerMetrics NONE = new AnalyzerMetrics() {
+		@Override
+		public void increment(final String streamName, final Counter counter, final long delta) {
+			// Intentionally empty
+		}
+
+		@Override
+		public void record(final String streamName, final Timer timer, final long nanos) {
+			// Intentionally empty
+		}
+	};
+
+	/**
+	 * Increment a counter.
+	 * @param streamName The name of the stream being analyzed.
+	 * @param counter The counter to increment.
+	 * @param delta The amount to increment the counter by.
+	 */
+	void increment(String streamName, Counter counter, long delta);
+
+	/**
+	 * Record the time spent in a phase.
+	 * @param streamName The name of the stream being analyzed.
+	 * @param timer The phase being timed.
+	 * @param nanos The elapsed time in nanoseconds.
+	 */
+	void record(String streamName, Timer timer, long nanos);
+}
@@ -27,6 +27,7 @@ import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.FTAUnsupportedLocaleException;
 import com.cobber.fta.core.InternalErrorException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -47,6 +48,9 @@ class AnalyzerSerializer {
 	 * @see TextAnalyzer#serialize()
 	 */
 	static String serialize(final TextAnalyzer ta) throws FTAPluginException, FTAUnsupportedLocaleException {
+		final AnalyzerEvents.Serialize event = new AnalyzerEvents.Serialize();
+		event.begin();
+
 		if (ta.getConfig().getTraceOptions() != null && ta.traceConfig == null)
 			ta.initializeTrace();
 
@@ -69,6 +73,9 @@ class AnalyzerSerializer {
 		} catch (IOException e) {
 			throw new InternalErrorException("Cannot output JSON for the Analysis", e);
 		}
+		finally {
+			event.complete(ta.getStreamName(), ta.facts.sampleCount);
+		}
 	}
 
 	/**
@@ -76,34 +83,50 @@ class AnalyzerSerializer {
 	 * @see TextAnalyzer#deserialize(String)
 	 */
 	static TextAnalyzer deserialize(final String serialized) throws FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
-		TextAnalyzer ret = null;
-
 		try {
-			final TextAnalyzerWrapper wrapper = serializationMapper.readValue(serialized, TextAnalyzerWrapper.class);
-			ret = new TextAnalyzer(wrapper.analyzerContext);
-			ret.setConfig(wrapper.analysisConfig);
-
-			ret.facts = wrapper.facts;
-			ret.facts.setConfig(wrapper.analysisConfig);
-			ret.getPlugins().registerPluginListWithPrecedence(wrapper.userDefinedPlugins, wrapper.analysisConfig);
-			ret.initializeTrace();
-			ret.initialize();
-			ret.facts.hydrate();
-
-			if (ret.traceConfig != null)
-				ret.traceConfig.tag("deserialize", ret.facts.sampleCount);
+			return hydrate(serializationMapper.readValue(serialized, TextAnalyzerWrapper.class));
+		} catch (JsonProcessingException e) {
+			throw new FTAMergeException("Issue deserializing supplied JSON.", e);
+		}
+	}
 
-			return ret;
+	/**
+	 * Create a new TextAnalyzer from a serialized representation that has already been parsed (e.g. a restored checkpoint).
+	 */
+	static TextAnalyzer deserialize(final JsonNode serialized) throws FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		try {
+			return hydrate(serializationMapper.treeToValue(serialized, TextAnalyzerWrapper.class));
 		} catch (JsonProcessingException e) {
 			throw new FTAMergeException("Issue deserializing supplied JSON.", e);
 		}
 	}
 
+	private static TextAnalyzer hydrate(final TextAnalyzerWrapper wrapper) throws FTAPluginException, FTAUnsupportedLocaleException {
+		final TextAnalyzer ret = new TextAnalyzer(wrapper.analyzerContext);
+		ret.setConfig(wrapper.analysisConfig);
+
+		ret.facts = wrapper.facts;
+		ret.facts.setConfig(wrapper.analysisConfig);
+		ret.getPlugins().registerPluginListWithPrecedence(wrapper.userDefinedPlugins, wrapper.analysisConfig);
+		ret.initializeTrace();
+		ret.initialize();
+		ret.facts.hydrate();
+		ret.restoreDegradations();
+
+		if (ret.traceConfig != null)
+			ret.traceConfig.tag("deserialize", ret.facts.sampleCount);
+
+		return ret;
+	}
+
 	/**
 	 * Create a new TextAnalyzer which is the result of merging two separate TextAnalyzers.
 	 * @see TextAnalyzer#merge(TextAnalyzer, TextAnalyzer)
 	 */
 	static TextAnalyzer merge(final TextAnalyzer first, final TextAnalyzer second) throws FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		final AnalyzerEvents.Merge event = new AnalyzerEvents.Merge();
+		event.begin();
+
 		first.emptyCache();
 		second.emptyCache();
 		final TextAnalyzer ret = new TextAnalyzer(first.getContext());
@@ -145,7 +168,7 @@ class AnalyzerSerializer {
 		merged.putAll(firstFacts.outliers);
 		merged.putAll(firstFacts.invalid);
 		// Preserve the top and bottom values - even if they were not captured in the cardinality set
-		if (firstFacts.cardinality.size() >= first.getMaxCardinality()) {
+		if (firstFacts.isCardinalityOverflowed(first.getMaxCardinality())) {
 			addToMap(merged, firstFacts.topK, first);
 			addToMap(merged, firstFacts.bottomK, first);
 		}
@@ -177,7 +200,7 @@ class AnalyzerSerializer {
 				merged.put(entry.getKey(), seen + entry.getValue());
 		}
 		// Preserve the top and bottom values - even if they were not captured in the cardinality set
-		if (secondFacts.cardinality.size() >= second.getMaxCardinality()) {
+		if (secondFacts.isCardinalityOverflowed(second.getMaxCardinality())) {
 			addToMap(merged, secondFacts.topK, second);
 			addToMap(merged, secondFacts.bottomK, second);
 		}
@@ -227,6 +250,11 @@ class AnalyzerSerializer {
 		for (int i = 0; i < ret.facts.lengths.length; i++)
 			ret.facts.lengths[i] += secondFacts.lengths[i];
 
+		// If either side was degraded (to honor a MemoryBudget) then so is the merge
+		ret.facts.degradations.addAll(firstFacts.degradations);
+		ret.facts.degradations.addAll(secondFacts.degradations);
+		ret.restoreDegradations();
+
 		// So if both sets are unique in their own right and the sets are non-overlapping then the merged set is unique
 		if (firstFacts.getMatchTypeInfo() != null && nonOverlappingRegions(firstFacts, secondFacts, ret.getConfig())) {
 			if (firstFacts.uniqueness != null && firstFacts.uniqueness == 1.0 && secondFacts.uniqueness != null && secondFacts.uniqueness == 1.0)
@@ -242,8 +270,8 @@ class AnalyzerSerializer {
 		// If so the samples we have seen do not reflect the entirety of the input so we need to
 		// calculate a set of attributes.
 		if (ret.facts.cardinality.size() == ret.getConfig().getMaxCardinality() ||
-				firstFacts.cardinality.size() == first.getConfig().getMaxCardinality() ||
-				secondFacts.cardinality.size() == second.getConfig().getMaxCardinality()) {
+				firstFacts.isCardinalityOverflowed(first.getConfig().getMaxCardinality()) ||
+				secondFacts.isCardinalityOverflowed(second.getConfig().getMaxCardinality())) {
 			cardinalityBlown = true;
 
 			ret.facts.minRawNonBlankLength = Math.min(first.facts.minRawNonBlankLength, second.facts.minRawNonBlankLength);
@@ -299,6 +327,10 @@ class AnalyzerSerializer {
 				}
 		}
 
+		if (event.shouldCommit())
+			event.secondSampleCount = second.facts.sampleCount;
+		event.complete(ret.getStreamName(), first.facts.sampleCount);
+
 		return ret;
 	}
 
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.cobber.fta.core.FTAMergeException;
+import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FTAUnsupportedLocaleException;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Incremental checkpoints of a TextAnalyzer (see {@link TextAnalyzer#setCheckpoint(Checkpoint)}) to a local directory.
+ * The first checkpoint is a base snapshot (identical in content to {@link TextAnalyzer#serialize()}), each subsequent
+ * checkpoint is a delta containing the Facts (excluding the cardinality, outlier and invalid sets) plus only those entries in the
+ * cardinality, outlier and invalid sets that have changed since the previous checkpoint.  The cost of a checkpoint is therefore
+ * bounded by the size of these sets (see {@link TextAnalyzer#setMaxCardinality(int)}) and not by the number of samples.
+ * Once the number of deltas reaches the maximum (or the deltas are larger than the base) a new base is written and the
+ * previous base and deltas are removed.
+ * <p>
+ * Every file is written to a temporary file and then renamed, so a crash mid-checkpoint loses at most that checkpoint.
+ * A Checkpoint is associated with a single analyzer and should only be used on the thread training that analyzer.
+ * Note: As with serialize(), the shapes and the repetition cache are not captured.
+ * </p>
+ */
+public class Checkpoint {
+	/** The default maximum number of deltas before a new base is written. */
+	public static final int MAX_DELTAS_DEFAULT = 16;
+
+	private static final String BASE_FORMAT = "base-%06d.json";
+	private static final String DELTA_FORMAT = "delta-%06d-%06d.json";
+	private static final Pattern BASE_PATTERN = Pattern.compile("base-(\\d+)\\.json");
+	private static final Pattern DELTA_PATTERN = Pattern.compile("delta-(\\d+)-(\\d+)\\.json");
+	private static final String[] MAPS = { "cardinality", "outliers", "invalid" };
+
+	/** Serialize the Facts without the (potentially large) cardinality, outlier and invalid sets. */
+	@JsonIgnoreProperties({ "cardinality", "outliers", "invalid" })
+	private abstract static class CoreFacts {
+	}
+
+	private static final ObjectMapper CORE_MAPPER = AnalyzerSerializer.serializationMapper.copy().addMixIn(Facts.class, CoreFacts.class);
+
+	private final Path directory;
+	private int maxDeltas = MAX_DELTAS_DEFAULT;
+
+	// The current generation (-1 if no base has been written) and the number of deltas written against it
+	private int generation = -1;
+	private int sequence;
+	private long baseBytes;
+	private long deltaBytes;
+	private long lastBytes;
+
+	// The objects captured by the last checkpoint - if any are replaced then the corresponding state is written in full
+	private Facts facts;
+	private FiniteMap cardinality;
+	private FiniteMap outliers;
+	private FiniteMap invalid;
+
+	/**
+	 * Construct a Checkpoint that will write to the supplied directory (which will be created if necessary).
+	 * Any existing checkpoint in the directory is replaced on the first call to {@link TextAnalyzer#checkpoint()}.
+	 * @param directory The directory for the checkpoint files.
+	 */
+	public Checkpoint(final Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * The directory the checkpoint files are written to.
+	 * @return The directory for the checkpoint files.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Set the maximum number of deltas written before a new base is written.
+	 * A larger number reduces the average cost of a checkpoint at the expense of a slower restore.
+	 * @param maxDeltas The maximum number of deltas.
+	 */
+	public void setMaxDeltas(final int maxDeltas) {
+		if (maxDeltas < 0)
+			throw new IllegalArgumentException("maxDeltas must be >= 0");
+		this.maxDeltas = maxDeltas;
+	}
+
+	/**
+	 * Get the maximum number of deltas written before a new base is written.
+	 * @return The maximum number of deltas.
+	 */
+	public int getMaxDeltas() {
+		return maxDeltas;
+	}
+
+	/**
+	 * The size (in bytes) of the most recent checkpoint.
+	 * @return The size of the last file written.
+	 */
+	public long getLastBytes() {
+		return lastBytes;
+	}
+
+	/*
+	 * A Checkpoint (with the same settings) for the stream with the supplied index - used by the RecordAnalyzer.
+	 */
+	Checkpoint forStream(final int streamIndex) {
+		final Checkpoint ret = new Checkpoint(getStreamDirectory(directory, streamIndex));
+		ret.maxDeltas = maxDeltas;
+		return ret;
+	}
+
+	static Path getStreamDirectory(final Path directory, final int streamIndex) {
+		return directory.resolve("stream-" + streamIndex);
+	}
+
+	/*
+	 * Write a checkpoint for the supplied analyzer - returns false if nothing was written because the type has not yet been determined.
+	 */
+	boolean write(final TextAnalyzer analyzer) throws IOException {
+		if (analyzer.facts.getMatchTypeInfo() == null)
+			return false;
+
+		analyzer.emptyCache();
+		final Facts current = analyzer.facts.calculateFacts();
+
+		if (generation == -1) {
+			Files.createDirectories(directory);
+			generation = latestGeneration(directory) + 1;
+			writeBase(analyzer, current);
+		}
+		else if (current != facts || sequence >= maxDeltas || deltaBytes > baseBytes) {
+			generation++;
+			writeBase(analyzer, current);
+		}
+		else
+			writeDelta(current);
+
+		return true;
+	}
+
+	private void writeBase(final TextAnalyzer analyzer, final Facts current) throws IOException {
+		final TextAnalyzerWrapper wrapper = new TextAnalyzerWrapper(analyzer.getConfig(), analyzer.getContext(),
+				analyzer.getPlugins().getUserDefinedPlugins(), current);
+
+		track(current);
+		try {
+			baseBytes = lastBytes = atomicWrite(directory.resolve(String.format(BASE_FORMAT, generation)),
+					out -> AnalyzerSerializer.serializationMapper.writeValue(out, wrapper));
+		}
+		catch (IOException e) {
+			// Force a new base next time
+			facts = null;
+			throw e;
+		}
+
+		// The base captures everything, so track changes from here
+		current.cardinality.resetChanges();
+		current.outliers.resetChanges();
+		current.invalid.resetChanges();
+		sequence = 0;
+		deltaBytes = 0;
+
+		// Remove the previous generation(s) now that the new base is in place
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (final Path file : files) {
+				final int fileGeneration = getGeneration(file.getFileName().toString());
+				if (fileGeneration != -1 && fileGeneration < generation)
+					Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private void writeDelta(final Facts current) throws IOException {
+		track(current);
+		final int next = sequence + 1;
+
+		try {
+			lastBytes = atomicWrite(directory.resolve(String.format(DELTA_FORMAT, generation, next)), out -> {
+				try (JsonGenerator generator = CORE_MAPPER.getFactory().createGenerator(out)) {
+					generator.writeStartObject();
+					generator.writeFieldName("facts");
+					CORE_MAPPER.writeValue(generator, current);
+					writeChanges(generator, MAPS[0], current.cardinality);
+					writeChanges(generator, MAPS[1], current.outliers);
+					writeChanges(generator, MAPS[2], current.invalid);
+					generator.writeEndObject();
+				}
+			});
+		}
+		catch (IOException e) {
+			// Force a new base next time, since we may have discarded changes
+			facts = null;
+			throw e;
+		}
+
+		sequence = next;
+		deltaBytes += lastBytes;
+	}
+
+	private void writeChanges(final JsonGenerator generator, final String name, final FiniteMap map) throws IOException {
+		generator.writeObjectFieldStart(name);
+		generator.writeBooleanField("rewrite", map.isRewriteRequired());
+		generator.writeObjectFieldStart("entries");
+		for (final Map.Entry<String, Long> entry : map.getChanges().entrySet())
+			generator.writeNumberField(entry.getKey(), entry.getValue());
+		generator.writeEndObject();
+		generator.writeEndObject();
+		map.resetChanges();
+	}
+
+	/*
+	 * Track changes to the current Facts - any replaced sets will be written in full.
+	 */
+	private void track(final Facts current) {
+		facts = current;
+		if (current.cardinality != cardinality) {
+			cardinality = current.cardinality;
+			cardinality.trackChanges();
+		}
+		if (current.outliers != outliers) {
+			outliers = current.outliers;
+			outliers.trackChanges();
+		}
+		if (current.invalid != invalid) {
+			invalid = current.invalid;
+			invalid.trackChanges();
+		}
+	}
+
+	/**
+	 * Restore a TextAnalyzer from the latest checkpoint in the supplied directory.
+	 * @see TextAnalyzer#restore(Path)
+	 */
+	static TextAnalyzer restore(final Path directory) throws IOException, FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		final int latest = latestGeneration(directory);
+		if (latest == -1)
+			throw new FTAMergeException("No checkpoint found in '" + directory + "'.");
+
+		final ObjectMapper mapper = AnalyzerSerializer.serializationMapper;
+		final ObjectNode root = (ObjectNode) mapper.readTree(directory.resolve(String.format(BASE_FORMAT, latest)).toFile());
+
+		// Apply the deltas in sequence, each replaces the core Facts and updates the sets
+		final Map<Integer, Path> deltas = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (final Path file : files) {
+				final Matcher matcher = DELTA_PATTERN.matcher(file.getFileName().toString());
+				if (matcher.matches() && Integer.parseInt(matcher.group(1)) == latest)
+					deltas.put(Integer.parseInt(matcher.group(2)), file);
+			}
+		}
+
+		int expected = 1;
+		for (final Map.Entry<Integer, Path> entry : deltas.entrySet()) {
+			// Deltas are incremental - so stop at the first gap
+			if (entry.getKey() != expected++)
+				break;
+			final JsonNode delta = mapper.readTree(entry.getValue().toFile());
+			final ObjectNode previous = (ObjectNode) root.get("facts");
+			final ObjectNode updated = (ObjectNode) delta.get("facts");
+			for (final String name : MAPS) {
+				final JsonNode changes = delta.get(name);
+				if (changes.get("rewrite").asBoolean() || !previous.has(name))
+					updated.set(name, changes.get("entries"));
+				else
+					updated.set(name, ((ObjectNode) previous.get(name)).setAll((ObjectNode) changes.get("entries")));
+			}
+			root.set("facts", updated);
+		}
+
+		return AnalyzerSerializer.deserialize(root);
+	}
+
+	/*
+	 * Does the supplied directory contain a checkpoint?
+	 */
+	static boolean exists(final Path directory) throws IOException {
+		return latestGeneration(directory) != -1;
+	}
+
+	private static int latestGeneration(final Path directory) throws IOException {
+		int ret = -1;
+		if (!Files.isDirectory(directory))
+			return ret;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (final Path file : files) {
+				final Matcher matcher = BASE_PATTERN.matcher(file.getFileName().toString());
+				if (matcher.matches())
+					ret = Math.max(ret, Integer.parseInt(matcher.group(1)));
+			}
+		}
+
+		return ret;
+	}
+
+	private static int getGeneration(final String filename) {
+		Matcher matcher = BASE_PATTERN.matcher(filename);
+		if (matcher.matches())
+			return Integer.parseInt(matcher.group(1));
+		matcher = DELTA_PATTERN.matcher(filename);
+		if (matcher.matches())
+			return Integer.parseInt(matcher.group(1));
+		return -1;
+	}
+
+	@FunctionalInterface
+	interface Output {
+		void write(OutputStream out) throws IOException;
+	}
+
+	/*
+	 * Write to a temporary file and then rename it to the target, returns the number of bytes written.
+	 */
+	static long atomicWrite(final Path target, final Output output) throws IOException {
+		final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporary)) {
+			output.write(out);
+		}
+		catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+
+		try {
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		return Files.size(target);
+	}
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.LoggerFactory;
+
+import com.cobber.fta.core.RegExpGenerator;
+import com.cobber.fta.core.Utils;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hashing;
+
+/**
+ * A Bloom Filter built from the content of a 'file' or 'resource' list, used in place of holding the members on the heap.
+ * The filter (together with a small sample of the members and a Regular Expression describing them) is built once,
+ * cached on disk in the directory named by the system property 'fta.bloomFilterCache' (default: user.home/.fta/cache), and
+ * shared by all users of the same content within the JVM.  The on-disk cache is keyed on the content, its length and
+ * last modified time, and the false positive probability so a change to any of these will cause the filter to be rebuilt.
+ * As the cache determines which values are detected, the cache directory is created accessible only by the owner, and
+ * a cache directory or file that is owned by another user (or writable by group/others) is ignored.
+ */
+final class ContentBloomFilter {
+	/** The number of members retained to support nextRandom(). */
+	static final int SAMPLE_SIZE = 200;
+
+	private static final int MAGIC = 0x46544142;
+	private static final int VERSION = 3;
+	private static final String COMMENT_LEADER = "#";
+
+	private static final ConcurrentHashMap<String, ContentBloomFilter> CACHE = new ConcurrentHashMap<>();
+
+	private final Content content;
+	private final String key;
+	private final double fpp;
+	private final Locale locale;
+	private volatile long size = -1;
+	private volatile BloomFilter<CharSequence> filter;
+	private List<String> samples;
+	private String regExp;
+
+	private ContentBloomFilter(final Content content, final String key, final double fpp, final Locale locale) {
+		this.content = content;
+		this.key = key;
+		this.fpp = fpp;
+		this.locale = locale;
+	}
+
+	/**
+	 * Get the Bloom Filter for the supplied content if the content has more than 'threshold' members.
+	 * @param content The content - only 'file' and 'resource' content is considered.
+	 * @param threshold The number of members above which a Bloom Filter should be used.
+	 * @param fpp The desired false positive probability.
+	 * @param locale The Locale used to normalize the members (see {@link LogicalTypeBloomFilterExternal#isValid(String, boolean, long)}).
+	 * @return The Bloom Filter backing this content, or null if the content should be held on the heap.
+	 */
+	static ContentBloomFilter get(final Content content, final long threshold, final double fpp, final Locale locale) {
+		if (content == null || !("file".equals(content.type) || "resource".equals(content.type)))
+			return null;
+
+		// Every member occupies at least one byte (its line terminator), so only lists larger than this need to be counted
+		final long[] stamp = getStamp(content);
+		if (stamp[0] >= 0 && stamp[0] <= threshold)
+			return null;
+
+		final String key = content.getCacheKey() + "---" + stamp[0] + "-" + stamp[1] + "---" + fpp + "---" + locale.toLanguageTag();
+		final ContentBloomFilter ret = CACHE.computeIfAbsent(key, k -> new ContentBloomFilter(content, k, fpp, locale));
+
+		return ret.getSize() > threshold ? ret.build() : null;
+	}
+
+	/**
+	 * The number of members in the content.
+	 * @return The number of members.
+	 */
+	long getSize() {
+		if (size == -1)
+			synchronized (this) {
+				if (size == -1 && !readCache())
+					size = count();
+			}
+		return size;
+	}
+
+	BloomFilter<CharSequence> getFilter() {
+		return filter;
+	}
+
+	List<String> getSamples() {
+		return samples;
+	}
+
+	String getRegExp() {
+		return regExp;
+	}
+
+	private synchronized ContentBloomFilter build() {
+		if (filter != null)
+			return this;
+
+		final BloomFilter<CharSequence> newFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), Math.max(size, 1), fpp);
+		final List<String> newSamples = new ArrayList<>(SAMPLE_SIZE);
+		final RegExpGenerator gen = new RegExpGenerator();
+		final long samplingFrequency = (size + SAMPLE_SIZE - 1) / SAMPLE_SIZE;
+		long recordCount = 0;
+
+		try (BufferedReader reader = open()) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(COMMENT_LEADER))
+					continue;
+				// Members are normalized exactly as the input is on lookup
+				final String trimmed = line.trim();
+				newFilter.put(Utils.cleanse(trimmed).toUpperCase(locale));
+				gen.train(trimmed);
+				if (++recordCount % samplingFrequency == 0 && newSamples.size() < SAMPLE_SIZE)
+					newSamples.add(trimmed);
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Internal error: Issues with 'file/resource' content: " + content, e);
+		}
+
+		samples = newSamples;
+		regExp = gen.getResult();
+		filter = newFilter;
+
+		writeCache();
+
+		return this;
+	}
+
+	private long count() {
+		long ret = 0;
+		try (BufferedReader reader = open()) {
+			String line;
+			while ((line = reader.readLine()) != null)
+				if (!line.startsWith(COMMENT_LEADER))
+					ret++;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Internal error: Issues with 'file/resource' content: " + content, e);
+		}
+
+		return ret;
+	}
+
+	private BufferedReader open() throws IOException {
+		InputStream stream;
+		if ("file".equals(content.type))
+			stream = new FileInputStream(content.reference);
+		else {
+			stream = ContentBloomFilter.class.getResourceAsStream(content.reference);
+			if (stream == null)
+				throw new IllegalArgumentException("Internal error: Issues with 'resource' content: " + content);
+		}
+
+		return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * The stamp captures the length (in bytes, -1 if unknown) and last modified time of the content, so that we never
+	 * use a stale cache entry.
+	 */
+	private static long[] getStamp(final Content content) {
+		if ("file".equals(content.type)) {
+			final File file = new File(content.reference);
+			return new long[] { file.length(), file.lastModified() };
+		}
+
+		final URL url = ContentBloomFilter.class.getResource(content.reference);
+		if (url == null)
+			throw new IllegalArgumentException("Internal error: Issues with 'resource' content: " + content);
+		try {
+			final URLConnection connection = url.openConnection();
+			final long[] stamp = { connection.getContentLengthLong(), connection.getLastModified() };
+			connection.getInputStream().close();
+			return stamp;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Internal error: Issues with 'resource' content: " + content, e);
+		}
+	}
+
+	private Path getCachePath() {
+		final String directory = System.getProperty("fta.bloomFilterCache", Paths.get(System.getProperty("user.home"), ".fta", "cache").toString());
+		return Paths.get(directory, Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString() + ".bf");
+	}
+
+	/*
+	 * Is the supplied file (or directory) owned by the current user and not writable by anyone else?
+	 */
+	static boolean isTrusted(final Path path) {
+		try {
+			final UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+			if (!user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS)))
+				return false;
+			if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+				final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+				return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+			}
+			return true;
+		} catch (IOException | UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+
+	private boolean readCache() {
+		final Path path = getCachePath();
+		if (!Files.isReadable(path))
+			return false;
+
+		if (!isTrusted(path.getParent()) || !isTrusted(path)) {
+			LoggerFactory.getLogger("com.cobber.fta").warn("Ignoring Bloom Filter cache '{}': not owned exclusively by the current user", path);
+			return false;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return false;
+			final long cachedSize = in.readLong();
+			final String cachedRegExp = PluginCatalog.readString(in);
+			final int sampleCount = in.readInt();
+			final List<String> cachedSamples = new ArrayList<>(sampleCount);
+			for (int i = 0; i < sampleCount; i++)
+				cachedSamples.add(PluginCatalog.readString(in));
+			final BloomFilter<CharSequence> cachedFilter = BloomFilter.readFrom(in, Funnels.stringFunnel(StandardCharsets.UTF_8));
+
+			samples = cachedSamples;
+			regExp = cachedRegExp;
+			filter = cachedFilter;
+			size = cachedSize;
+		} catch (IOException | RuntimeException e) {
+			LoggerFactory.getLogger("com.cobber.fta").debug("Ignoring Bloom Filter cache '{}': {}", path, e.getMessage());
+			return false;
+		}
+
+		return true;
+	}
+
+	private void writeCache() {
+		final Path path = getCachePath();
+		try {
+			final Path directory = path.getParent();
+			if (Files.notExists(directory)) {
+				if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+					Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+				else
+					Files.createDirectories(directory);
+			}
+			if (!isTrusted(directory)) {
+				LoggerFactory.getLogger("com.cobber.fta").warn("Not writing Bloom Filter cache '{}': directory not owned exclusively by the current user", path);
+				return;
+			}
+			final Path tmp = Files.createTempFile(path.getParent(), "fta", ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeLong(size);
+					PluginCatalog.writeString(out, regExp);
+					out.writeInt(samples.size());
+					for (final String sample : samples)
+						PluginCatalog.writeString(out, sample);
+					filter.writeTo(out);
+				}
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			// The cache is only an optimization - so just rebuild next time
+			LoggerFactory.getLogger("com.cobber.fta").debug("Failed to write Bloom Filter cache '{}': {}", path, e.getMessage());
+		}
+	}
+}
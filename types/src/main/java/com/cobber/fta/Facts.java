@@ -28,6 +28,7 @@ import java.time.chrono.ChronoLocalDateTime;
 import java.time.chrono.ChronoZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -38,6 +39,7 @@ import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 
 import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.Utils;
@@ -140,6 +142,9 @@ public class Facts {
 	public FiniteMap outliers = new FiniteMap();
 	public FiniteMap invalid = new FiniteMap();
 
+	/** The degradations applied to the analysis in order to honor a MemoryBudget. */
+	public EnumSet<MemoryBudget.Degradation> degradations = EnumSet.noneOf(MemoryBudget.Degradation.class);
+
 	public double currentM2 = 0.0;
 
 	/** The total number of samples seen. */
@@ -442,7 +447,8 @@ public class Facts {
 	public NavigableMap<String, Long> getCardinalitySorted() {
 		if (!cardinality.isSorted())
 			cardinality.sortByKey(CommonComparator.getTypedMap(matchTypeInfo.getBaseType(), getStringConverter()));
-		return (NavigableMap<String, Long>) cardinality.getImpl();
+		// Return a copy so that the caller is free to modify it without impacting the analysis
+		return new TreeMap<>((NavigableMap<String, Long>) cardinality.getImpl());
 	}
 
 	@JsonIgnore
@@ -470,6 +476,68 @@ public class Facts {
 		return cardinalityOverflow;
 	}
 
+	/**
+	 * Has the cardinality set overflowed - either because it reached the maximum cardinality or because it was reduced to honor a MemoryBudget.
+	 * @param maxCardinality The maximum cardinality.
+	 * @return True if the cardinality set does not reflect all the valid input.
+	 */
+	protected boolean isCardinalityOverflowed(final int maxCardinality) {
+		return cardinality.size() >= maxCardinality || degradations.contains(MemoryBudget.Degradation.CARDINALITY_SKETCHED);
+	}
+
+	/**
+	 * Is the outlier set full - either because it reached the maximum number of outliers or because it was reduced to
+	 * honor a MemoryBudget and has reached its reduced capacity.
+	 * @param maxOutliers The maximum number of outliers.
+	 * @return True if no further outliers will be tracked.
+	 */
+	protected boolean isOutliersFull(final int maxOutliers) {
+		return outliers.size() >= maxOutliers ||
+				(degradations.contains(MemoryBudget.Degradation.OUTLIER_DETAIL_DROPPED) && outliers.size() >= outliers.getMaxCapacity());
+	}
+
+	/**
+	 * The average length of the trimmed input observed, based on the lengths tracked.
+	 * @param defaultLength The length to use if no lengths have been tracked.
+	 * @return The average trimmed length.
+	 */
+	protected long getAverageLength(final long defaultLength) {
+		long total = 0;
+		long count = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			total += i * lengths[i];
+			count += lengths[i];
+		}
+
+		return count == 0 ? defaultLength : total / count;
+	}
+
+	/*
+	 * Estimate the heap retained by the Facts - this is derived from the size of the various structures, not by walking them.
+	 */
+	protected long estimateRetainedBytes(final long averageLength) {
+		long ret = RetainedSize.align(RetainedSize.ARRAY_HEADER + lengths.length * Long.BYTES);
+
+		ret += RetainedSize.stringCountMap(cardinality.size(), averageLength);
+		ret += RetainedSize.stringCountMap(outliers.size(), averageLength);
+		ret += RetainedSize.stringCountMap(invalid.size(), averageLength);
+
+		if (tbLong != null) {
+			ret += tbLong.retained() * (RetainedSize.TREE_ENTRY + RetainedSize.BOXED);
+			ret += tbDouble.retained() * (RetainedSize.TREE_ENTRY + RetainedSize.BOXED);
+			ret += tbString.retained() * (RetainedSize.TREE_ENTRY + RetainedSize.string(averageLength));
+			ret += (tbLocalDate.retained() + tbLocalTime.retained() + tbLocalDateTime.retained() +
+					tbOffsetDateTime.retained() + tbZonedDateTime.retained()) * (RetainedSize.TREE_ENTRY + RetainedSize.TEMPORAL);
+		}
+
+		if (sketch != null)
+			ret += sketch.estimateRetainedBytes(averageLength);
+		if (cardinalityOverflow != null)
+			ret += cardinalityOverflow.estimateRetainedBytes();
+
+		return ret;
+	}
+
 	// Track basic facts for the field - called for any Valid input
 	public void trackTrimmedLengthAndWhiteSpace(final String input, final String trimmed, final long count) {
 		final int trimmedLength = trimmed.length();
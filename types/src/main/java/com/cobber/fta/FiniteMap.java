@@ -15,10 +15,17 @@
  */
 package com.cobber.fta;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
@@ -35,6 +42,10 @@ public class FiniteMap implements Map<String, Long> {
 	private Map<String, Long> impl;
 	private boolean sorted = false;
 	private boolean overflowed = false;
+	// The keys put since the changes were last reset (null unless changes are being tracked, see trackChanges())
+	private Set<String> changed;
+	// Set if the Map may have been modified in a way not captured by the changed keys (e.g. a removal)
+	private boolean rewrite;
 
 	FiniteMap() {
 		impl = new HashMap<>();
@@ -73,12 +84,19 @@ public class FiniteMap implements Map<String, Long> {
 		for (final Map.Entry<String, Long> entry : impl.entrySet())
 			newMap.merge(entry.getKey(), entry.getValue(), Long::sum);
 
+		// The content is only changed if the comparator has merged some keys
+		if (newMap.size() != impl.size())
+			touched();
 		impl = newMap;
 		sorted = true;
 	}
 
+	/**
+	 * A read-only view of the underlying Map (a NavigableMap once sorted, see {@link #sortByKey(NavigableMap)}).
+	 * @return A read-only view of the underlying Map.
+	 */
 	public Map<String, Long> getImpl() {
-		return impl;
+		return sorted ? Collections.unmodifiableNavigableMap((NavigableMap<String, Long>) impl) : Collections.unmodifiableMap(impl);
 	}
 
 	public boolean isSorted() {
@@ -89,6 +107,70 @@ public class FiniteMap implements Map<String, Long> {
 		return overflowed;
 	}
 
+	/**
+	 * Reduce the capacity of this FiniteMap, retaining the most frequent entries.
+	 * @param newCapacity The new maximum capacity.
+	 * @return The entries evicted in order to honor the new capacity.
+	 */
+	public Map<String, Long> shrink(final int newCapacity) {
+		final Map<String, Long> evicted = new HashMap<>();
+		maxCapacity = newCapacity;
+		if (impl.size() <= newCapacity)
+			return evicted;
+
+		overflowed = true;
+		touched();
+		final List<Map.Entry<String, Long>> entries = new ArrayList<>(impl.entrySet());
+		entries.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+		for (int i = newCapacity; i < entries.size(); i++)
+			evicted.put(entries.get(i).getKey(), entries.get(i).getValue());
+		impl.keySet().removeAll(evicted.keySet());
+
+		return evicted;
+	}
+
+	/*
+	 * Start tracking changes to this Map (used to support incremental checkpoints), the first set of changes is the entire Map.
+	 */
+	void trackChanges() {
+		if (changed == null)
+			changed = new HashSet<>();
+		rewrite = true;
+	}
+
+	/*
+	 * Is the entire Map required to describe the changes since they were last reset?
+	 */
+	boolean isRewriteRequired() {
+		return rewrite;
+	}
+
+	/*
+	 * The entries changed since the changes were last reset - the entire Map if isRewriteRequired().
+	 */
+	Map<String, Long> getChanges() {
+		if (rewrite)
+			return impl;
+
+		final Map<String, Long> ret = new HashMap<>();
+		for (final String key : changed)
+			ret.put(key, impl.get(key));
+		return ret;
+	}
+
+	void resetChanges() {
+		changed.clear();
+		rewrite = false;
+	}
+
+	// Record that the Map may have been modified in a fashion not captured by the changed keys (e.g. a removal)
+	private void touched() {
+		if (changed != null && !rewrite) {
+			rewrite = true;
+			changed.clear();
+		}
+	}
+
 	/**
 	 * Similar to {@link java.util.Map#merge} but if this FiniteMap is full and this is a new key then just return false.
      * @param key key with which the resulting value is to be associated
@@ -144,37 +226,156 @@ public class FiniteMap implements Map<String, Long> {
 
 	@Override
 	public Long put(final String key, final Long value) {
+		if (changed != null && !rewrite)
+			changed.add(key);
 		return impl.put(key, value);
 	}
 
 	@Override
 	public Long remove(final Object key) {
+		touched();
 		return impl.remove(key);
 	}
 
 	@Override
 	public void putAll(final Map<? extends String, ? extends Long> m) {
+		touched();
 		impl.putAll(m);
 	}
 
 	@Override
 	public void clear() {
+		touched();
 		impl.clear();
 	}
 
+	/*
+	 * Note: If changes are being tracked then the views returned by keySet(), values() and entrySet() only record a change if
+	 * they are used to modify the Map, so reading the Map (e.g. when calculating a result) does not force a rewrite.
+	 */
+
 	@Override
 	public Set<String> keySet() {
-		return impl.keySet();
+		return changed == null ? impl.keySet() : new TrackedSet<>(impl.keySet());
 	}
 
 	@Override
 	public Collection<Long> values() {
-		return impl.values();
+		if (changed == null)
+			return impl.values();
+
+		final Collection<Long> view = impl.values();
+		return new AbstractCollection<>() {
+			@Override
+			public Iterator<Long> iterator() {
+				return new TrackedIterator<>(view.iterator());
+			}
+
+			@Override
+			public int size() {
+				return view.size();
+			}
+		};
 	}
 
 	@Override
 	public Set<Entry<String, Long>> entrySet() {
-		return impl.entrySet();
+		return changed == null ? impl.entrySet() : new TrackedSet<>(impl.entrySet());
+	}
+
+	// An Iterator that records any removal
+	private class TrackedIterator<E> implements Iterator<E> {
+		private final Iterator<E> iterator;
+
+		TrackedIterator(final Iterator<E> iterator) {
+			this.iterator = iterator;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			final E next = iterator.next();
+			return next instanceof Entry ? (E) new TrackedEntry((Entry<String, Long>) next) : next;
+		}
+
+		@Override
+		public void remove() {
+			touched();
+			iterator.remove();
+		}
+	}
+
+	// A Set view (of either the keys or the entries) that records any modification
+	private class TrackedSet<E> extends AbstractSet<E> {
+		private final Set<E> view;
+
+		TrackedSet(final Set<E> view) {
+			this.view = view;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new TrackedIterator<>(view.iterator());
+		}
+
+		@Override
+		public int size() {
+			return view.size();
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return view.contains(o);
+		}
+
+		@Override
+		public boolean remove(final Object o) {
+			if (!view.remove(o))
+				return false;
+			touched();
+			return true;
+		}
+	}
+
+	// An Entry that records any update to its value
+	private class TrackedEntry implements Entry<String, Long> {
+		private final Entry<String, Long> entry;
+
+		TrackedEntry(final Entry<String, Long> entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public String getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public Long getValue() {
+			return entry.getValue();
+		}
+
+		@Override
+		public Long setValue(final Long value) {
+			if (changed != null && !rewrite)
+				changed.add(entry.getKey());
+			return entry.setValue(value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return entry.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			return entry.hashCode();
+		}
 	}
 
 	@Override
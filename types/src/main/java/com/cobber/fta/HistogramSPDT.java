@@ -135,6 +135,14 @@ public class HistogramSPDT {
 		return bins;
 	}
 
+	/**
+	 * Estimate the heap retained by this Histogram.
+	 * @return An estimate (in bytes) of the heap retained.
+	 */
+	long estimateRetainedBytes() {
+		return bins.size() * (RetainedSize.align(RetainedSize.HEADER + Double.BYTES + Long.BYTES) + RetainedSize.REFERENCE);
+	}
+
 	/**
 	 * Retrieve the minimum value.
 	 * @return The minimum value ever seen by this Histogram
@@ -39,7 +39,8 @@ public abstract class LogicalType implements Comparable<LogicalType>, LTRandom {
 	protected LocaleInfo localeInfo;
 	protected int threshold;
 	protected PluginLocaleEntry pluginLocaleEntry;
-
+	private boolean deferred;
+	private boolean thresholdSet;
 
 	@Override
 	public int compareTo(final LogicalType other) {
@@ -62,6 +63,15 @@ public abstract class LogicalType implements Comparable<LogicalType>, LTRandom {
 	 * @throws FTAPluginException Thrown when the plugin is incorrectly configured.
 	 */
 	public boolean initialize(final AnalysisConfig analysisConfig) throws FTAPluginException {
+		bind(analysisConfig);
+
+		return true;
+	}
+
+	/*
+	 * The inexpensive part of initialization - sufficient to support registration, header confidence and ordering.
+	 */
+	private void bind(final AnalysisConfig analysisConfig) throws FTAPluginException {
 		if (getBaseType() == null)
 			throw new FTAPluginException("baseType cannot be null");
 
@@ -73,8 +83,48 @@ public abstract class LogicalType implements Comparable<LogicalType>, LTRandom {
 
 		if (pluginLocaleEntry == null)
 			throw new FTAPluginException("Plugin: " + defn.semanticType + " has no support for " + locale.toLanguageTag());
+	}
 
-		return true;
+	/**
+	 * Register this plugin deferring the (potentially expensive) work of {@link #initialize(AnalysisConfig)} until the plugin
+	 * first becomes a candidate - see {@link #ensureInitialized()}.
+	 * Only the Locale-related state is established, which is sufficient for {@link #getSemanticType()}, {@link #getHeaderConfidence(AnalyzerContext)},
+	 * {@link #getBaseType()} and {@link #getPriority()}.
+	 * @param analysisConfig The Analysis configuration used for this analysis
+	 * @throws FTAPluginException Thrown when the plugin is incorrectly configured.
+	 */
+	public void initializeDeferred(final AnalysisConfig analysisConfig) throws FTAPluginException {
+		bind(analysisConfig);
+		deferred = true;
+	}
+
+	/**
+	 * Has the initialization of this plugin been deferred (and not yet completed).
+	 * @return True if {@link #initialize(AnalysisConfig)} has yet to be invoked on this deferred plugin.
+	 */
+	public boolean isInitializationDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Complete the initialization of this plugin if it was deferred, a no-op otherwise.
+	 * The analyzer invokes this automatically (via {@link #getThreshold()} and the wrappers in AnalysisContext) before using the plugin.
+	 * Note: only the built-in plugins are deferred, so a failure at this point is an internal error.
+	 */
+	public void ensureInitialized() {
+		if (!deferred)
+			return;
+
+		deferred = false;
+		final int currentThreshold = threshold;
+		try {
+			initialize(analysisConfig);
+		} catch (FTAPluginException e) {
+			throw new IllegalArgumentException("Internal error: Plugin: " + defn.semanticType + " failed to initialize: " + e.getMessage(), e);
+		}
+		// An explicitly set threshold (see setThreshold) takes precedence over one established by the plugin
+		if (thresholdSet)
+			threshold = currentThreshold;
 	}
 
 	/**
@@ -166,6 +216,7 @@ public abstract class LogicalType implements Comparable<LogicalType>, LTRandom {
 	 * @return The threshold percentage.
 	 */
 	public int getThreshold() {
+		ensureInitialized();
 		return threshold;
 	}
 
@@ -176,6 +227,8 @@ public abstract class LogicalType implements Comparable<LogicalType>, LTRandom {
 	 */
 	public void setThreshold(final int threshold) {
 		this.threshold = threshold;
+		if (deferred)
+			thresholdSet = true;
 	}
 
 	/**
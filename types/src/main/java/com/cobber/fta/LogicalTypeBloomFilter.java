@@ -53,13 +53,22 @@ public abstract class LogicalTypeBloomFilter extends LogicalTypeInfinite {
 	public boolean initialize(final AnalysisConfig analysisConfig) throws FTAPluginException {
 		super.initialize(analysisConfig);
 
+		reference = loadFilter();
+
+		return true;
+	}
+
+	/**
+	 * Load the Bloom Filter, by default this is the prebuilt filter found in the resource '&lt;content reference&gt;.bf'.
+	 * @return The Bloom Filter used to determine membership.
+	 * @throws FTAPluginException If the Bloom Filter cannot be loaded.
+	 */
+	protected BloomFilter<CharSequence> loadFilter() throws FTAPluginException {
 		try (InputStream filterStream = LogicalTypeBloomFilter.class.getResourceAsStream(defn.content.reference + ".bf")) {
-			reference = BloomFilter.readFrom(filterStream, Funnels.stringFunnel(StandardCharsets.UTF_8));
+			return BloomFilter.readFrom(filterStream, Funnels.stringFunnel(StandardCharsets.UTF_8));
 		} catch (IOException e) {
 			throw new FTAPluginException("Failed to load BloomFilter", e);
 		}
-
-		return true;
 	}
 
 	@Override
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.util.List;
+
+import com.cobber.fta.core.Utils;
+import com.google.common.hash.BloomFilter;
+
+/**
+ * A 'list' plugin whose content is too large to be held on the heap, membership is instead determined using a Bloom Filter
+ * built automatically from the content. See {@link AnalysisConfig#setBloomFilterThreshold(long)}.
+ */
+public class LogicalTypeBloomFilterExternal extends LogicalTypeBloomFilter {
+	private final ContentBloomFilter contentFilter;
+
+	LogicalTypeBloomFilterExternal(final PluginDefinition plugin, final ContentBloomFilter contentFilter) {
+		super(plugin);
+		this.contentFilter = contentFilter;
+	}
+
+	@Override
+	protected BloomFilter<CharSequence> loadFilter() {
+		return contentFilter.getFilter();
+	}
+
+	/**
+	 * Note: The input String will be trimmed, cleansed and converted to upper case - mirroring the treatment of
+	 * the input by the list when held on the heap (see {@link LogicalTypeFinite#isValid(String, boolean, long)}).
+	 * As a Bloom Filter is probabilistic a small proportion (the false positive probability) of non-members will be accepted.
+	 */
+	@Override
+	public boolean isValid(final String input, final boolean detectMode, final long count) {
+		return contentFilter.getFilter().mightContain(Utils.cleanse(input.trim()).toUpperCase(locale));
+	}
+
+	@Override
+	public String nextRandom() {
+		final List<String> samples = contentFilter.getSamples();
+		return samples.get(getRandom().nextInt(samples.size()));
+	}
+
+	@Override
+	public String getRegExp() {
+		final String regExp = pluginLocaleEntry.getRegExpReturned(-1);
+		return regExp != null ? regExp : contentFilter.getRegExp();
+	}
+
+	/**
+	 * The number of members in the underlying list.
+	 * @return The number of members.
+	 */
+	public long getSize() {
+		return contentFilter.getSize();
+	}
+}
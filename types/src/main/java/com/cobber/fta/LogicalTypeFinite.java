@@ -15,10 +15,10 @@
  */
 package com.cobber.fta;
 
-import java.util.List;
 import java.util.Set;
 
 import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FoldedSet;
 import com.cobber.fta.core.Utils;
 import com.cobber.fta.core.WordProcessor;
 
@@ -31,6 +31,8 @@ public abstract class LogicalTypeFinite extends LogicalTypeCode {
 	protected int maxLength = Integer.MIN_VALUE;
 
 	private final WordProcessor wordProcessor = new WordProcessor();
+	private FoldedSet foldedMembers;
+	private WordMode wordMode;
 
 	/**
 	 * The set of valid members for this Semantic Type.
@@ -42,52 +44,99 @@ public abstract class LogicalTypeFinite extends LogicalTypeCode {
 		super(plugin);
 	}
 
+	/**
+	 * The set of valid members for this Semantic Type organized for allocation-free case-insensitive lookup.
+	 * Subclasses whose members are shared (e.g. backed by a SingletonSet) should override this to return the shared instance.
+	 * @return The valid members for this Semantic Type as a FoldedSet.
+	 */
+	protected FoldedSet getFoldedMembers() {
+		if (foldedMembers == null)
+			foldedMembers = new FoldedSet(getMembers());
+		return foldedMembers;
+	}
+
 	/*
 	 * Note: The input String will be both trimmed and converted to upper Case
 	 * @see com.cobber.fta.LogicalType#isValid(java.lang.String)
 	 */
 	@Override
 	public boolean isValid(final String input, final boolean detectMode, final long count) {
-		final String trimmedUpper = Utils.cleanse(input.trim()).toUpperCase(locale);
+		final FoldedSet members = getFoldedMembers();
+		if (members.contains(input, locale))
+			return true;
+
+		if (wordMode == null)
+			wordMode = WordMode.of(defn.getOptions() == null ? null : (String) defn.getOptions().get("words"));
 
-		if (trimmedUpper.length() < minLength)
+		if (wordMode == WordMode.NONE)
 			return false;
 
-		if (trimmedUpper.length() <= maxLength && getMembers().contains(trimmedUpper))
-			return true;
+		// The input length (post-trim) is only a proxy for the cleansed/upper-cased length, as for the members test
+		if (input.trim().length() < minLength)
+			return false;
 
-		if (defn.getOptions() != null) {
-			final String value = (String) defn.getOptions().get("words");
-			if (value != null) {
-				final boolean any = "any".equalsIgnoreCase(value);
-				final boolean all = "all".equalsIgnoreCase(value);
-				final boolean first = "first".equalsIgnoreCase(value);
-
-				final List<String> words = wordProcessor.asWords(trimmedUpper);
-				boolean found = false;
-				for (final String word : words) {
-					found = getMembers().contains(Utils.cleanse(word).toUpperCase(locale));
-					if (first || (any && found) || (all && !found))
-						return found;
-				}
-				return all && found;
-			}
+		// The match state is per call so that a shared plugin remains re-entrant
+		final WordMatcher matcher = new WordMatcher(wordMode, members);
+		wordProcessor.visitWords(Utils.cleanse(input), matcher);
+		return matcher.matched();
+	}
+
+	private enum WordMode {
+		NONE, ANY, ALL, FIRST;
+
+		static WordMode of(final String value) {
+			if ("any".equalsIgnoreCase(value))
+				return ANY;
+			if ("all".equalsIgnoreCase(value))
+				return ALL;
+			if ("first".equalsIgnoreCase(value))
+				return FIRST;
+			return NONE;
+		}
+	}
+
+	/*
+	 * Match the individual words of the input against the members.
+	 */
+	private final class WordMatcher implements WordProcessor.WordVisitor {
+		private final WordMode mode;
+		private final FoldedSet members;
+		private boolean found;
+		private boolean decided;
+
+		WordMatcher(final WordMode mode, final FoldedSet members) {
+			this.mode = mode;
+			this.members = members;
 		}
 
-		return false;
+		boolean matched() {
+			return decided ? found : mode == WordMode.ALL && found;
+		}
+
+		@Override
+		public boolean visit(final CharSequence word, final int start) {
+			found = members.contains(word, locale);
+			if (mode == WordMode.FIRST || (mode == WordMode.ANY && found) || (mode == WordMode.ALL && !found)) {
+				decided = true;
+				return false;
+			}
+			return true;
+		}
 	}
 
 	@Override
 	public boolean initialize(final AnalysisConfig analysisConfig) throws FTAPluginException {
 		super.initialize(analysisConfig);
 
-		for (final String member : getMembers()) {
-			final int len = member.length();
-			if (len < minLength)
-				minLength = len;
-			if (len > maxLength)
-				maxLength = len;
-		}
+		// The lengths may have already been established (e.g. from the precompiled plugin catalog)
+		if (minLength == Integer.MAX_VALUE)
+			for (final String member : getMembers()) {
+				final int len = member.length();
+				if (len < minLength)
+					minLength = len;
+				if (len > maxLength)
+					maxLength = len;
+			}
 
 		return true;
 	}
@@ -20,8 +20,8 @@ import java.util.Locale;
 import java.util.Set;
 
 import com.cobber.fta.core.FTAPluginException;
+import com.cobber.fta.core.FoldedSet;
 import com.cobber.fta.core.RegExpGenerator;
-import com.cobber.fta.core.Utils;
 import com.cobber.fta.token.TokenStreams;
 
 /**
@@ -33,6 +33,8 @@ public abstract class LogicalTypeFiniteSimple extends LogicalTypeFinite {
 	protected String backout;
 	protected Reader reader;
 	protected SingletonSet memberSet;
+	private PluginCatalog.ListInfo listInfo;
+	private boolean listInfoResolved;
 
 	private static final CacheLRU<String, String> CACHE = new CacheLRU<>(30);
 
@@ -45,6 +47,7 @@ public abstract class LogicalTypeFiniteSimple extends LogicalTypeFinite {
 
 	public void setContent(final Content content) {
 		this.memberSet = new SingletonSet(content);
+		this.listInfoResolved = false;
 	}
 
 	@Override
@@ -52,8 +55,33 @@ public abstract class LogicalTypeFiniteSimple extends LogicalTypeFinite {
 		return memberSet.getMembers();
 	}
 
+	/*
+	 * The facts precomputed for the content (if it is in the plugin catalog).
+	 */
+	private PluginCatalog.ListInfo getListInfo() {
+		if (!listInfoResolved) {
+			listInfo = PluginCatalog.getListInfo(memberSet.getKey());
+			listInfoResolved = true;
+		}
+		return listInfo;
+	}
+
+	/*
+	 * Use the size from the plugin catalog if possible, so that the cardinality checks do not force the members to be loaded.
+	 */
+	@Override
+	public int getSize() {
+		final PluginCatalog.ListInfo info = getListInfo();
+		return info != null ? info.size : super.getSize();
+	}
+
+	@Override
+	protected FoldedSet getFoldedMembers() {
+		return memberSet.getFoldedMembers();
+	}
+
 	public boolean isMember(final String input) {
-		return getMembers().contains(Utils.cleanse(input.trim()).toUpperCase(locale));
+		return getFoldedMembers().contains(input, locale);
 	}
 
 	@Override
@@ -70,6 +98,13 @@ public abstract class LogicalTypeFiniteSimple extends LogicalTypeFinite {
 		if (this.backout == null)
 			throw new FTAPluginException("Internal error: Finite Simple types require backout.");
 
+		// The built-in lists have their lengths and Regular Expression precomputed at build time
+		final PluginCatalog.ListInfo listInfo = getListInfo();
+		if (listInfo != null) {
+			minLength = listInfo.minLength;
+			maxLength = listInfo.maxLength;
+		}
+
 		super.initialize(analysisConfig);
 
 		if (defn.getOptions() != null && defn.getOptions().get("words") != null) {
@@ -81,6 +116,11 @@ public abstract class LogicalTypeFiniteSimple extends LogicalTypeFinite {
 
 		// If the Regular Expression has not been set then generate one based on the content
 		if (regExp == null) {
+			if (listInfo != null) {
+				regExp = listInfo.regExp;
+				return true;
+			}
+
 			final String cacheKey = semanticType + "___" + analysisConfig.getLocaleTag();
 			regExp = CACHE.get(cacheKey);
 			if (regExp != null)
@@ -27,7 +27,9 @@ public class LogicalTypeFiniteSimpleExternal extends LogicalTypeFiniteSimple {
 	public boolean initialize(final AnalysisConfig analysisConfig) throws FTAPluginException {
 		// Worth a quick check to see if a user is trying to register a file with lower case characters.  Unfortunately, this is restricted to English as some languages e.g. German
 		// have lower case characters 'ß' which effectively masquerades as upper case.  Although an upper case version was added in 2008.
-		if ("en".equals(analysisConfig.getLocale().getLanguage()) && !getMembers().isEmpty())
+		// Note: the lists in the precompiled plugin catalog were checked when the catalog was built.
+		final PluginCatalog.ListInfo listInfo = PluginCatalog.getListInfo(memberSet.getKey());
+		if ("en".equals(analysisConfig.getLocale().getLanguage()) && (listInfo == null || !listInfo.upperCase) && !getMembers().isEmpty())
 			for (final String member : getMembers())
 				if (member.chars().anyMatch(Character::isLowerCase))
 					throw new FTAPluginException("Logical Type: " + defn.semanticType + " (" + defn.content + ") contains lower case characters: '" + member + "'");
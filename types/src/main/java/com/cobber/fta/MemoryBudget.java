@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A memory budget shared by a set of TextAnalyzers (typically all the analyzers in a single JVM).
+ * Each analyzer registered with the budget periodically reports an estimate of its retained heap
+ * (see {@link TextAnalyzer#estimateRetainedBytes()}).  If the total exceeds the budget then the largest consumers are
+ * asked to degrade their analysis, one step at a time, in the order defined by {@link Degradation}.
+ * Degradations are applied by each analyzer on its own thread (at its next check) and are recorded in the result
+ * (see {@link TextAnalysisResult#getDegradations()}), the profile is less detailed but the job will complete.
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class MemoryBudget {
+	/** The degradations in the order in which they will be applied to an analyzer. */
+	public enum Degradation {
+		/** The cardinality set is reduced to the most frequent values, the remainder are tracked by the sketch (if appropriate). */
+		CARDINALITY_SKETCHED,
+		/** The detail on the shape of outliers is discarded and no longer tracked. */
+		OUTLIER_DETAIL_DROPPED,
+		/** The shapes (TokenStreams) are collapsed to ANYSHAPE. */
+		SHAPES_COLLAPSED,
+		/** The raw values retained from the detect window are discarded. */
+		TRAINING_SET_DROPPED
+	}
+
+	/** The default number of samples between checks of the budget by each analyzer. */
+	public static final int CHECK_INTERVAL_DEFAULT = 1000;
+
+	/** The fraction of the maximum cardinality retained when the cardinality set is reduced. */
+	static final int CARDINALITY_DIVISOR = 10;
+
+	/** A registered analyzer together with its most recent estimate and its requested/applied degradations. */
+	static final class Consumer {
+		private final WeakReference<TextAnalyzer> analyzer;
+		private long bytes;
+		private int requested;
+		private int applied;
+
+		private Consumer(final TextAnalyzer analyzer) {
+			this.analyzer = new WeakReference<>(analyzer);
+		}
+	}
+
+	private final long maxBytes;
+	private volatile int checkInterval = CHECK_INTERVAL_DEFAULT;
+	private final List<Consumer> consumers = new ArrayList<>();
+	private long usedBytes;
+
+	/**
+	 * Construct a MemoryBudget.
+	 * @param maxBytes The maximum heap (in bytes) to be retained by all the analyzers registered with this budget.
+	 */
+	public MemoryBudget(final long maxBytes) {
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("maxBytes must be > 0");
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * The maximum heap (in bytes) to be retained by all the registered analyzers.
+	 * @return The budget in bytes.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * The sum of the most recent estimates reported by the registered analyzers.
+	 * @return The heap (in bytes) currently believed to be in use.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * The number of analyzers currently registered with this budget.
+	 * @return The number of registered analyzers.
+	 */
+	public synchronized int getRegistered() {
+		return consumers.size();
+	}
+
+	/**
+	 * Set the number of samples between checks of the budget by each analyzer.
+	 * A smaller interval reacts more quickly at the cost of estimating more frequently.
+	 * @param checkInterval The number of samples between checks.
+	 */
+	public void setCheckInterval(final int checkInterval) {
+		if (checkInterval <= 0)
+			throw new IllegalArgumentException("checkInterval must be > 0");
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Get the number of samples between checks of the budget by each analyzer.
+	 * @return The number of samples between checks.
+	 */
+	public int getCheckInterval() {
+		return checkInterval;
+	}
+
+	synchronized Consumer register(final TextAnalyzer analyzer) {
+		final Consumer ret = new Consumer(analyzer);
+		consumers.add(ret);
+		return ret;
+	}
+
+	synchronized void release(final Consumer consumer) {
+		if (consumers.remove(consumer))
+			usedBytes -= consumer.bytes;
+	}
+
+	/*
+	 * Record the current estimate for the consumer (and the number of degradations it has applied), if this leaves us
+	 * over budget then request a further degradation from the largest consumer that is not already degrading.
+	 * Returns the number of degradations the consumer should have applied.
+	 */
+	synchronized int update(final Consumer consumer, final long bytes, final int applied) {
+		usedBytes += bytes - consumer.bytes;
+		consumer.bytes = bytes;
+		consumer.applied = applied;
+
+		if (usedBytes > maxBytes) {
+			Consumer largest = null;
+			final Iterator<Consumer> it = consumers.iterator();
+			while (it.hasNext()) {
+				final Consumer current = it.next();
+				// Analyzers that have been garbage collected no longer count against the budget
+				if (current.analyzer.get() == null) {
+					usedBytes -= current.bytes;
+					it.remove();
+					continue;
+				}
+				if (current.requested == current.applied && current.requested < Degradation.values().length &&
+						(largest == null || current.bytes > largest.bytes))
+					largest = current;
+			}
+			if (largest != null)
+				largest.requested++;
+		}
+
+		return consumer.requested;
+	}
+}
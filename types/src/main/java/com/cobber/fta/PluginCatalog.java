@@ -0,0 +1,550 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import com.cobber.fta.core.FTAType;
+import com.cobber.fta.core.HeaderEntry;
+import com.cobber.fta.core.RegExpGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The precompiled catalog of the built-in plugins.
+ * The catalog is generated at build time (see the 'pluginCatalog' task) from plugins.json and contains the parsed
+ * Plugin Definitions as well as the generated Regular Expression, the min/max lengths, the case, and the number of the members for each of
+ * the resource-based list plugins (and the built-in java plugins that are simple lists, e.g. the names).  This allows the built-in plugins to be loaded without parsing JSON or training a RegExpGenerator.
+ * If the catalog is missing or was generated from a different plugins.json (as determined by the checksum of plugins.json),
+ * we silently fall back to plugins.json.  The facts for each list are only used if the length of the list resource is unchanged.
+ * Note: The Plugin Definitions are serialized field by field, every public field of PluginDefinition (and the classes it
+ * references) must be written by writePlugin() and read by readPlugins().
+ */
+public final class PluginCatalog {
+	/** The resource containing the JSON definitions of the built-in plugins. */
+	public static final String PLUGINS_RESOURCE = "/reference/plugins.json";
+	/** The resource containing the precompiled catalog. */
+	public static final String CATALOG_RESOURCE = "/reference/plugins.catalog";
+
+	private static final int MAGIC = 0x46544143;
+	private static final int VERSION = 3;
+
+	private static boolean loaded;
+	private static byte[] pluginSection;
+	private static Map<String, ListInfo> lists = new HashMap<>();
+
+	/**
+	 * The precomputed facts for a resource-based list plugin.
+	 */
+	static final class ListInfo {
+		final String resource;
+		final long length;
+		final String regExp;
+		final int minLength;
+		final int maxLength;
+		final boolean upperCase;
+		final int size;
+		private volatile Boolean current;
+
+		ListInfo(final String resource, final long length, final String regExp, final int minLength, final int maxLength, final boolean upperCase, final int size) {
+			this.resource = resource;
+			this.length = length;
+			this.regExp = regExp;
+			this.minLength = minLength;
+			this.maxLength = maxLength;
+			this.upperCase = upperCase;
+			this.size = size;
+		}
+
+		/*
+		 * Is the list resource unchanged since the catalog was generated?  Checked on first use so that the resources
+		 * of lists that are never used are not touched.
+		 */
+		private boolean isCurrent() {
+			if (current == null)
+				current = length != -1 && resourceLength(resource) == length;
+			return current;
+		}
+	}
+
+	private PluginCatalog() {
+	}
+
+	/**
+	 * Read the Plugin Definitions for the built-in plugins.  Each call returns a new set of Plugin Definitions.
+	 * @param mapper The ObjectMapper used if we need to fall back to parsing plugins.json.
+	 * @return The List of built-in Plugin Definitions.
+	 * @throws IOException If the definitions cannot be read.
+	 */
+	static List<PluginDefinition> readBuiltinPlugins(final ObjectMapper mapper) throws IOException {
+		load();
+
+		if (pluginSection != null)
+			return readPlugins(new DataInputStream(new ByteArrayInputStream(pluginSection)));
+
+		return mapper.readValue(readResource(PLUGINS_RESOURCE), new TypeReference<List<PluginDefinition>>(){});
+	}
+
+	/**
+	 * Get the precomputed facts for the list plugin backed by the supplied content.
+	 * @param cacheKey The cache key of the Content (see {@link Content#getCacheKey()}).
+	 * @return The precomputed facts or null if the content is not in the catalog.
+	 */
+	static ListInfo getListInfo(final String cacheKey) {
+		load();
+		final ListInfo ret = lists.get(cacheKey);
+		return ret != null && ret.isCurrent() ? ret : null;
+	}
+
+	private static synchronized void load() {
+		if (loaded)
+			return;
+		loaded = true;
+
+		try (InputStream stream = PluginCatalog.class.getResourceAsStream(CATALOG_RESOURCE)) {
+			if (stream == null)
+				return;
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream.readAllBytes()));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return;
+			if (in.readLong() != checksum(readResource(PLUGINS_RESOURCE)))
+				return;
+
+			final byte[] plugins = new byte[in.readInt()];
+			in.readFully(plugins);
+
+			final int listCount = in.readInt();
+			final Map<String, ListInfo> listInfo = new HashMap<>(listCount * 2);
+			for (int i = 0; i < listCount; i++)
+				listInfo.put(readString(in), new ListInfo(readString(in), in.readLong(), readString(in), in.readInt(), in.readInt(), in.readBoolean(), in.readInt()));
+
+			pluginSection = plugins;
+			lists = listInfo;
+		} catch (IOException e) {
+			// Corrupt catalog - just fall back to plugins.json
+			pluginSection = null;
+		}
+	}
+
+	/**
+	 * Generate the catalog from plugins.json (and the associated reference lists) found on the classpath.
+	 * @param args The single argument is the path of the catalog to be created.
+	 * @throws IOException If the catalog cannot be generated.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: PluginCatalog <catalog file>");
+			System.exit(1);
+		}
+
+		final Path output = Paths.get(args[0]);
+		final Path parent = output.getParent();
+		if (parent != null)
+			Files.createDirectories(parent);
+
+		try (OutputStream stream = Files.newOutputStream(output)) {
+			write(stream);
+		}
+	}
+
+	static void write(final OutputStream stream) throws IOException {
+		final byte[] json = readResource(PLUGINS_RESOURCE);
+		final List<PluginDefinition> plugins = new ObjectMapper().readValue(json, new TypeReference<List<PluginDefinition>>(){});
+
+		final ByteArrayOutputStream pluginBytes = new ByteArrayOutputStream();
+		final DataOutputStream pluginOut = new DataOutputStream(pluginBytes);
+		writePlugins(pluginOut, plugins);
+		pluginOut.flush();
+
+		final Map<String, ListInfo> listInfo = new LinkedHashMap<>();
+		for (final PluginDefinition plugin : plugins) {
+			final SingletonSet memberSet = listMembers(plugin);
+			if (memberSet == null || listInfo.containsKey(memberSet.getKey()))
+				continue;
+
+			final String key = memberSet.getKey();
+			final Set<String> members = memberSet.getMembers();
+			// The catalog is shared by all locales (and generated on an arbitrary build machine)
+			final RegExpGenerator gen = new RegExpGenerator(15, Locale.ROOT);
+			int minLength = Integer.MAX_VALUE;
+			int maxLength = Integer.MIN_VALUE;
+			boolean upperCase = true;
+			for (final String member : members) {
+				if (upperCase && member.chars().anyMatch(Character::isLowerCase))
+					upperCase = false;
+				gen.train(member);
+				minLength = Math.min(minLength, member.length());
+				maxLength = Math.max(maxLength, member.length());
+			}
+			final String resource = memberSet.getContent().reference;
+			listInfo.put(key, new ListInfo(resource, resourceLength(resource), gen.getResult(), minLength, maxLength, upperCase, members.size()));
+		}
+
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(checksum(json));
+		out.writeInt(pluginBytes.size());
+		pluginBytes.writeTo(out);
+		out.writeInt(listInfo.size());
+		for (final Map.Entry<String, ListInfo> entry : listInfo.entrySet()) {
+			writeString(out, entry.getKey());
+			writeString(out, entry.getValue().resource);
+			out.writeLong(entry.getValue().length);
+			writeString(out, entry.getValue().regExp);
+			out.writeInt(entry.getValue().minLength);
+			out.writeInt(entry.getValue().maxLength);
+			out.writeBoolean(entry.getValue().upperCase);
+			out.writeInt(entry.getValue().size);
+		}
+		out.flush();
+	}
+
+	/*
+	 * The resource-based Set backing a list plugin, or a java plugin that is a simple list (e.g. the names), null otherwise.
+	 */
+	private static SingletonSet listMembers(final PluginDefinition plugin) {
+		if ("list".equals(plugin.pluginType))
+			return plugin.content != null && "resource".equals(plugin.content.type) ? new SingletonSet(plugin.content) : null;
+		if (!"java".equals(plugin.pluginType))
+			return null;
+
+		try {
+			final Object logical = Class.forName(plugin.clazz).getConstructor(PluginDefinition.class).newInstance(plugin);
+			if (logical instanceof LogicalTypeFiniteSimple) {
+				final SingletonSet memberSet = ((LogicalTypeFiniteSimple)logical).memberSet;
+				if (memberSet != null && "resource".equals(memberSet.getContent().type))
+					return memberSet;
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Not precomputed - the plugin will compute the facts itself when it is initialized
+		}
+
+		return null;
+	}
+
+	private static byte[] readResource(final String name) throws IOException {
+		try (InputStream stream = PluginCatalog.class.getResourceAsStream(name)) {
+			if (stream == null)
+				throw new IOException("Resource not found: " + name);
+			return stream.readAllBytes();
+		}
+	}
+
+	/*
+	 * The length of a resource, determined without reading it, -1 if it cannot be determined.
+	 */
+	private static long resourceLength(final String name) {
+		final URL url = PluginCatalog.class.getResource(name);
+		if (url == null)
+			return -1;
+
+		try {
+			if ("file".equals(url.getProtocol()))
+				return Files.size(Paths.get(url.toURI()));
+			final URLConnection connection = url.openConnection();
+			if (connection instanceof JarURLConnection)
+				return ((JarURLConnection)connection).getJarEntry().getSize();
+		} catch (IOException | URISyntaxException e) {
+			// Treat as unknown
+		}
+
+		return -1;
+	}
+
+	private static long checksum(final byte[] bytes) {
+		final CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	static void writePlugins(final DataOutputStream out, final List<PluginDefinition> plugins) throws IOException {
+		out.writeInt(plugins.size());
+		for (final PluginDefinition plugin : plugins)
+			writePlugin(out, plugin);
+	}
+
+	private static void writePlugin(final DataOutputStream out, final PluginDefinition plugin) throws IOException {
+		writeString(out, plugin.semanticType);
+		writeString(out, plugin.description);
+		writeString(out, plugin.pluginType);
+		writeOptions(out, plugin.pluginOptions);
+		writeString(out, plugin.signature);
+
+		out.writeInt(plugin.validLocales == null ? -1 : plugin.validLocales.length);
+		if (plugin.validLocales != null)
+			for (final PluginLocaleEntry locale : plugin.validLocales) {
+				writeString(out, locale.localeTag);
+				out.writeInt(locale.headerRegExps == null ? -1 : locale.headerRegExps.length);
+				if (locale.headerRegExps != null)
+					for (final HeaderEntry header : locale.headerRegExps) {
+						writeString(out, header.regExp);
+						out.writeInt(header.confidence);
+						out.writeBoolean(header.mandatory);
+						out.writeBoolean(header.compositeKey);
+					}
+				writeMatchEntries(out, locale.matchEntries);
+			}
+
+		out.writeInt(plugin.documentation == null ? -1 : plugin.documentation.length);
+		if (plugin.documentation != null)
+			for (final PluginDocumentationEntry documentation : plugin.documentation) {
+				writeString(out, documentation.source);
+				writeString(out, documentation.reference);
+				writeMatchEntries(out, documentation.matchEntries);
+			}
+
+		out.writeBoolean(plugin.localeSensitive);
+		out.writeInt(plugin.priority);
+		writeString(out, plugin.clazz);
+		writeStrings(out, plugin.invalidList == null ? null : plugin.invalidList.toArray(new String[0]));
+		writeStrings(out, plugin.ignoreList == null ? null : plugin.ignoreList.toArray(new String[0]));
+
+		out.writeBoolean(plugin.content != null);
+		if (plugin.content != null) {
+			writeString(out, plugin.content.type);
+			writeStrings(out, plugin.content.members);
+			writeString(out, plugin.content.reference);
+		}
+
+		writeString(out, plugin.backout);
+		out.writeInt(plugin.threshold);
+		writeString(out, plugin.baseType == null ? null : plugin.baseType.name());
+		writeString(out, plugin.minimum);
+		writeString(out, plugin.maximum);
+		out.writeInt(plugin.minSamples);
+		out.writeBoolean(plugin.minMaxPresent);
+	}
+
+	static List<PluginDefinition> readPlugins(final DataInputStream in) throws IOException {
+		final int count = in.readInt();
+		final List<PluginDefinition> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			final PluginDefinition plugin = new PluginDefinition();
+			plugin.semanticType = readString(in);
+			plugin.description = readString(in);
+			plugin.pluginType = readString(in);
+			plugin.pluginOptions = readOptions(in);
+			plugin.signature = readString(in);
+
+			final int locales = in.readInt();
+			if (locales != -1) {
+				plugin.validLocales = new PluginLocaleEntry[locales];
+				for (int l = 0; l < locales; l++) {
+					final PluginLocaleEntry locale = new PluginLocaleEntry();
+					locale.localeTag = readString(in);
+					final int headers = in.readInt();
+					if (headers != -1) {
+						locale.headerRegExps = new HeaderEntry[headers];
+						for (int h = 0; h < headers; h++) {
+							final HeaderEntry header = new HeaderEntry();
+							header.regExp = readString(in);
+							header.confidence = in.readInt();
+							header.mandatory = in.readBoolean();
+							header.compositeKey = in.readBoolean();
+							locale.headerRegExps[h] = header;
+						}
+					}
+					locale.matchEntries = readMatchEntries(in);
+					plugin.validLocales[l] = locale;
+				}
+			}
+
+			final int documentation = in.readInt();
+			if (documentation != -1) {
+				plugin.documentation = new PluginDocumentationEntry[documentation];
+				for (int d = 0; d < documentation; d++) {
+					final PluginDocumentationEntry entry = new PluginDocumentationEntry();
+					entry.source = readString(in);
+					entry.reference = readString(in);
+					entry.matchEntries = readMatchEntries(in);
+					plugin.documentation[d] = entry;
+				}
+			}
+
+			plugin.localeSensitive = in.readBoolean();
+			plugin.priority = in.readInt();
+			plugin.clazz = readString(in);
+			final String[] invalidList = readStrings(in);
+			plugin.invalidList = invalidList == null ? null : new HashSet<>(Arrays.asList(invalidList));
+			final String[] ignoreList = readStrings(in);
+			plugin.ignoreList = ignoreList == null ? null : new HashSet<>(Arrays.asList(ignoreList));
+
+			if (in.readBoolean()) {
+				plugin.content = new Content();
+				plugin.content.type = readString(in);
+				plugin.content.members = readStrings(in);
+				plugin.content.reference = readString(in);
+			}
+
+			plugin.backout = readString(in);
+			plugin.threshold = in.readInt();
+			final String baseType = readString(in);
+			plugin.baseType = baseType == null ? null : FTAType.valueOf(baseType);
+			plugin.minimum = readString(in);
+			plugin.maximum = readString(in);
+			plugin.minSamples = in.readInt();
+			plugin.minMaxPresent = in.readBoolean();
+
+			ret.add(plugin);
+		}
+
+		return ret;
+	}
+
+	private static void writeMatchEntries(final DataOutputStream out, final PluginMatchEntry[] entries) throws IOException {
+		out.writeInt(entries == null ? -1 : entries.length);
+		if (entries != null)
+			for (final PluginMatchEntry entry : entries) {
+				writeStrings(out, entry.regExpsToMatch);
+				writeString(out, entry.regExpReturned);
+				out.writeBoolean(entry.regExpComplete);
+			}
+	}
+
+	private static PluginMatchEntry[] readMatchEntries(final DataInputStream in) throws IOException {
+		final int count = in.readInt();
+		if (count == -1)
+			return null;
+
+		final PluginMatchEntry[] ret = new PluginMatchEntry[count];
+		for (int i = 0; i < count; i++) {
+			ret[i] = new PluginMatchEntry();
+			ret[i].regExpsToMatch = readStrings(in);
+			ret[i].regExpReturned = readString(in);
+			ret[i].regExpComplete = in.readBoolean();
+		}
+
+		return ret;
+	}
+
+	private static void writeOptions(final DataOutputStream out, final Map<String, Object> options) throws IOException {
+		out.writeInt(options == null ? -1 : options.size());
+		if (options == null)
+			return;
+
+		for (final Map.Entry<String, Object> option : options.entrySet()) {
+			writeString(out, option.getKey());
+			final Object value = option.getValue();
+			if (value instanceof String) {
+				out.writeByte('S');
+				writeString(out, (String)value);
+			}
+			else if (value instanceof Integer) {
+				out.writeByte('I');
+				out.writeInt((Integer)value);
+			}
+			else if (value instanceof Boolean) {
+				out.writeByte('B');
+				out.writeBoolean((Boolean)value);
+			}
+			else
+				throw new IllegalArgumentException("Internal error: Unsupported plugin option: " + option.getKey());
+		}
+	}
+
+	private static Map<String, Object> readOptions(final DataInputStream in) throws IOException {
+		final int count = in.readInt();
+		if (count == -1)
+			return null;
+
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			final String key = readString(in);
+			final byte tag = in.readByte();
+			switch (tag) {
+			case 'S':
+				ret.put(key, readString(in));
+				break;
+			case 'I':
+				ret.put(key, in.readInt());
+				break;
+			case 'B':
+				ret.put(key, in.readBoolean());
+				break;
+			default:
+				throw new IOException("Unexpected plugin option type: " + tag);
+			}
+		}
+
+		return ret;
+	}
+
+	private static void writeStrings(final DataOutputStream out, final String[] strings) throws IOException {
+		out.writeInt(strings == null ? -1 : strings.length);
+		if (strings != null)
+			for (final String s : strings)
+				writeString(out, s);
+	}
+
+	private static String[] readStrings(final DataInputStream in) throws IOException {
+		final int count = in.readInt();
+		if (count == -1)
+			return null;
+
+		final String[] ret = new String[count];
+		for (int i = 0; i < count; i++)
+			ret[i] = readString(in);
+
+		return ret;
+	}
+
+	// Note: DataOutputStream.writeUTF() is limited to 64K which is not sufficient for some of the generated Regular Expressions
+	static void writeString(final DataOutputStream out, final String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length == -1)
+			return null;
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -15,9 +15,6 @@
  */
 package com.cobber.fta;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -30,7 +27,6 @@ import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.HeaderEntry;
 import com.cobber.fta.core.InternalErrorException;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -203,8 +199,8 @@ public class PluginDefinition {
 	public static PluginDefinition findByName(final String semanticTypeName) {
 		synchronized (PluginDefinition.class) {
 			if (builtinPlugins == null)
-				try (BufferedReader JSON = new BufferedReader(new InputStreamReader(PluginDefinition.class.getResourceAsStream("/reference/plugins.json"), StandardCharsets.UTF_8))) {
-					builtinPlugins = new ObjectMapper().readValue(JSON, new TypeReference<List<PluginDefinition>>(){});
+				try {
+					builtinPlugins = PluginCatalog.readBuiltinPlugins(new ObjectMapper());
 				} catch (Exception e) {
 					throw new InternalErrorException("Issues with reference plugins file", e);
 				}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cost of each of the Semantic Type plugins invoked during the analysis of a single stream.
+ * Populated only if the Feature PLUGIN_PROFILING is enabled.
+ */
+public class PluginProfile {
+	/** The plugin entry points that are profiled. */
+	public enum Operation {
+		/** LogicalTypeInfinite.isCandidate() - invoked during the detect window. */
+		IS_CANDIDATE,
+		/** LogicalType.isValid() - invoked during detection and on every sample once a Semantic Type has been determined. */
+		IS_VALID,
+		/** LogicalType.analyzeSet() - invoked to confirm a Semantic Type. */
+		ANALYZE_SET
+	}
+
+	/** The accumulated cost of a single Operation on a single plugin. */
+	public static class Cost {
+		private long calls;
+		private long nanos;
+		private long rejects;
+
+		/**
+		 * The number of invocations.
+		 * @return The number of invocations.
+		 */
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * The total elapsed time across all invocations.
+		 * @return The elapsed time in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * The number of invocations that returned a negative result (i.e. not a candidate, not valid, or analyzeSet failed).
+		 * @return The number of rejects.
+		 */
+		public long getRejects() {
+			return rejects;
+		}
+
+		/**
+		 * The proportion of invocations that returned a negative result.
+		 * @return The reject ratio (0.0 - 1.0), 0.0 if there have been no invocations.
+		 */
+		public double getRejectRatio() {
+			return calls == 0 ? 0.0 : (double)rejects / calls;
+		}
+
+		private void merge(final Cost other) {
+			calls += other.calls;
+			nanos += other.nanos;
+			rejects += other.rejects;
+		}
+	}
+
+	private final Map<String, Cost[]> costs = new HashMap<>();
+
+	void record(final String semanticType, final Operation operation, final long nanos, final boolean rejected) {
+		final Cost cost = getCosts(semanticType)[operation.ordinal()];
+		cost.calls++;
+		cost.nanos += nanos;
+		if (rejected)
+			cost.rejects++;
+	}
+
+	private Cost[] getCosts(final String semanticType) {
+		return costs.computeIfAbsent(semanticType, k -> {
+			final Cost[] ret = new Cost[Operation.values().length];
+			for (int i = 0; i < ret.length; i++)
+				ret[i] = new Cost();
+			return ret;
+		});
+	}
+
+	/**
+	 * Merge the supplied profile into this one.
+	 * @param other The profile to be merged.
+	 */
+	public void merge(final PluginProfile other) {
+		for (final Map.Entry<String, Cost[]> entry : other.costs.entrySet()) {
+			final Cost[] mine = getCosts(entry.getKey());
+			for (int i = 0; i < mine.length; i++)
+				mine[i].merge(entry.getValue()[i]);
+		}
+	}
+
+	/**
+	 * The Semantic Types that have been invoked, ordered by decreasing total cost.
+	 * @return The list of Semantic Types invoked.
+	 */
+	public List<String> getSemanticTypes() {
+		final List<String> ret = new ArrayList<>(costs.keySet());
+		ret.sort(Comparator.comparingLong(this::getTotalNanos).reversed().thenComparing(Comparator.naturalOrder()));
+		return ret;
+	}
+
+	/**
+	 * The cost of the supplied Operation for the supplied Semantic Type.
+	 * @param semanticType The Semantic Type of interest.
+	 * @param operation The Operation of interest.
+	 * @return The accumulated cost, or null if the plugin has not been invoked.
+	 */
+	public Cost getCost(final String semanticType, final Operation operation) {
+		final Cost[] ret = costs.get(semanticType);
+		return ret == null ? null : ret[operation.ordinal()];
+	}
+
+	/**
+	 * The total elapsed time across all Operations for the supplied Semantic Type.
+	 * @param semanticType The Semantic Type of interest.
+	 * @return The elapsed time in nanoseconds.
+	 */
+	public long getTotalNanos(final String semanticType) {
+		final Cost[] entry = costs.get(semanticType);
+		if (entry == null)
+			return 0;
+
+		long ret = 0;
+		for (final Cost cost : entry)
+			ret += cost.nanos;
+		return ret;
+	}
+
+	/**
+	 * Is the profile empty (i.e. no plugins invoked)?
+	 * @return True if no plugins have been invoked.
+	 */
+	public boolean isEmpty() {
+		return costs.isEmpty();
+	}
+}
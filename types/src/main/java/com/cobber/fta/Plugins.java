@@ -26,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.LoggerFactory;
+
 import com.cobber.fta.core.FTAPluginException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -134,11 +136,11 @@ public class Plugins {
 
 			if (plugin.isLocaleSupported(analysisConfig.getLocale()))
 				if ("java".equals(plugin.pluginType))
-					registerLogicalTypeClass(plugin, analysisConfig);
+					registerLogicalTypeClass(plugin, analysisConfig, internal);
 				else if ("list".equals(plugin.pluginType))
-					registerLogicalTypeFiniteSet(plugin, analysisConfig);
+					registerLogicalTypeFiniteSet(plugin, analysisConfig, internal);
 				else if ("regex".equals(plugin.pluginType))
-					registerLogicalTypeRegExp(plugin, analysisConfig);
+					registerLogicalTypeRegExp(plugin, analysisConfig, internal);
 				else
 					throw new FTAPluginException("Semantic type: '" + plugin.semanticType + "' unknown type.");
 
@@ -147,8 +149,16 @@ public class Plugins {
 		}
 	}
 
-	private void registerLogicalType(final LogicalType logical, final AnalysisConfig analysisConfig) throws FTAPluginException {
-		logical.initialize(analysisConfig);
+	/*
+	 * The built-in plugins are known to be well-formed so we defer their (potentially expensive) initialization until they
+	 * become a candidate.  User-defined plugins are initialized immediately so that any errors are reported on registration.
+	 * Plugins whose Semantic Type name is templated (e.g. MONTH.FULL_<LOCALE>) need to be initialized to know their name.
+	 */
+	private void registerLogicalType(final LogicalType logical, final AnalysisConfig analysisConfig, final boolean internal) throws FTAPluginException {
+		if (internal && logical.getPluginDefinition().semanticType.indexOf('<') == -1)
+			logical.initializeDeferred(analysisConfig);
+		else
+			logical.initialize(analysisConfig);
 
 		if (registered.containsKey(logical.getSemanticType()))
 			throw new FTAPluginException("Semantic type: " + logical.getSemanticType() + " already registered.");
@@ -172,7 +182,7 @@ public class Plugins {
 	 * @throws InstantiationException
 	 * @throws FTAPluginException
 	 */
-	private void registerLogicalTypeClass(final PluginDefinition plugin, final AnalysisConfig analysisConfig) throws FTAPluginException {
+	private void registerLogicalTypeClass(final PluginDefinition plugin, final AnalysisConfig analysisConfig, final boolean internal) throws FTAPluginException {
 		final Class<?> newLogicalType;
 		final Constructor<?> ctor;
 		final Object logical;
@@ -187,7 +197,7 @@ public class Plugins {
 			throw new FTAPluginException("Semantic type: " + plugin.clazz + " failure to instantiate/contstruct.", e);
 		}
 
-		registerLogicalType((LogicalType)logical, analysisConfig);
+		registerLogicalType((LogicalType)logical, analysisConfig, internal);
 	}
 
 	/**
@@ -197,19 +207,32 @@ public class Plugins {
 	 * @param locale The current Locale
 	 * @throws FTAPluginException
 	 */
-	private void registerLogicalTypeRegExp(final PluginDefinition plugin, final AnalysisConfig analysisConfig) throws FTAPluginException {
-		registerLogicalType(new LogicalTypeRegExp(plugin), analysisConfig);
+	private void registerLogicalTypeRegExp(final PluginDefinition plugin, final AnalysisConfig analysisConfig, final boolean internal) throws FTAPluginException {
+		registerLogicalType(new LogicalTypeRegExp(plugin), analysisConfig, internal);
 	}
 
 	/**
-	 * Register a new Semantic Type processor of type LogicalTypeFiniteSimpleExternal. See {@link LogicalTypeFiniteSimpleExternal}
+	 * Register a new Semantic Type processor of type LogicalTypeFiniteSimpleExternal (or LogicalTypeBloomFilterExternal if the list is large).
+	 * See {@link LogicalTypeFiniteSimpleExternal} and {@link LogicalTypeBloomFilterExternal}
 	 *
 	 * @param plugin The Plugin Definition for a simple file-based Semantic Type
 	 * @param locale The current Locale
 	 * @throws FTAPluginException
 	 */
-	private void registerLogicalTypeFiniteSet(final PluginDefinition plugin, final AnalysisConfig analysisConfig) throws FTAPluginException {
-		registerLogicalType(new LogicalTypeFiniteSimpleExternal(plugin), analysisConfig);
+	private void registerLogicalTypeFiniteSet(final PluginDefinition plugin, final AnalysisConfig analysisConfig, final boolean internal) throws FTAPluginException {
+		// Large user-supplied lists are backed by a Bloom Filter rather than holding all the members on the heap
+		if (!internal && (plugin.getOptions() == null || plugin.getOptions().get("words") == null)) {
+			final ContentBloomFilter filter = ContentBloomFilter.get(plugin.content, analysisConfig.getBloomFilterThreshold(), analysisConfig.getBloomFilterFpp(),
+					analysisConfig.getLocale());
+			if (filter != null) {
+				LoggerFactory.getLogger("com.cobber.fta").info("Semantic Type '{}' ({} members) is backed by a Bloom Filter, false positive probability: {}",
+						plugin.semanticType, filter.getSize(), analysisConfig.getBloomFilterFpp());
+				registerLogicalType(new LogicalTypeBloomFilterExternal(plugin, filter), analysisConfig, internal);
+				return;
+			}
+		}
+
+		registerLogicalType(new LogicalTypeFiniteSimpleExternal(plugin), analysisConfig, internal);
 	}
 
 	/**
@@ -217,16 +240,31 @@ public class Plugins {
 	 * @return A Collection of the currently registered Semantic Types.
 	 */
 	public Collection<LogicalType> getRegisteredSemanticTypes() {
+		for (final LogicalType logical : registered.values())
+			logical.ensureInitialized();
 		return new HashSet<>(registered.values());
 	}
 
+	/**
+	 * Return the set of registered Semantic Types without forcing any deferred initialization.
+	 * Note: Callers must only use the registration attributes of the plugin (see {@link LogicalType#initializeDeferred(AnalysisConfig)})
+	 * other than via the AnalysisContext wrappers, which complete the initialization (see {@link LogicalType#ensureInitialized()}).
+	 * @return A Collection of the currently registered Semantic Types.
+	 */
+	Collection<LogicalType> getRegisteredSemanticTypesDeferred() {
+		return registered.values();
+	}
+
 	/**
 	 * Return the plugin associated with this named Semantic Type.
 	 * @param semanticTypeName Name of this Semantic Type.
 	 * @return A Collection of the currently registered Semantic Types.
 	 */
 	public LogicalType getRegistered(final String semanticTypeName) {
-		return registered.get(semanticTypeName);
+		final LogicalType logical = registered.get(semanticTypeName);
+		if (logical != null)
+			logical.ensureInitialized();
+		return logical;
 	}
 
 	protected List<PluginDefinition> getUserDefinedPlugins() {
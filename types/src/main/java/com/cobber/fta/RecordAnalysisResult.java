@@ -15,7 +15,19 @@
  */
 package com.cobber.fta;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * RecordAnalysisResult is the result of a {@link RecordAnalyzer} analysis - i.e. the result for each stream in the record.
+ */
 public class RecordAnalysisResult {
+	private static final JsonFactory FACTORY = new JsonFactory();
+
 	private final TextAnalysisResult[] streamResults;
 
 	RecordAnalysisResult(final TextAnalysisResult[] streamResults) {
@@ -25,4 +37,52 @@ public class RecordAnalysisResult {
 	public TextAnalysisResult[] getStreamResults() {
 		return streamResults;
 	}
+
+	/**
+	 * A JSON representation of the Analysis - an array with one element per stream.
+	 * @param pretty If set, add minimal whitespace formatting.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.
+	 * @return A JSON representation of the analysis.
+	 * @see TextAnalysisResult#asJSON(boolean, int)
+	 */
+	public String asJSON(final boolean pretty, final int verbose) {
+		final StringWriter out = new StringWriter();
+		try (JsonGenerator generator = TextAnalysisResult.createGenerator(FACTORY.createGenerator(out), pretty)) {
+			writeJSON(generator, verbose);
+		} catch (IOException e) {
+			return "{ \"Error\": \"" + e.getMessage() + "\" }";
+		}
+
+		return out.toString();
+	}
+
+	/**
+	 * Stream the JSON representation of the Analysis to the supplied OutputStream, one stream at a time,
+	 * so that the output for wide records is never held in memory in its entirety.  The OutputStream is flushed but not closed.
+	 * @param out The OutputStream to write the UTF-8 encoded JSON to.
+	 * @param pretty If set, add minimal whitespace formatting.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.
+	 * @throws IOException If the JSON cannot be written to the OutputStream.
+	 */
+	public void writeJSON(final OutputStream out, final boolean pretty, final int verbose) throws IOException {
+		try (JsonGenerator generator = TextAnalysisResult.createGenerator(FACTORY.createGenerator(out), pretty)) {
+			writeJSON(generator, verbose);
+		}
+	}
+
+	/**
+	 * Stream the JSON representation of the Analysis (an array with one element per stream) to the supplied JsonGenerator.
+	 * The generator is flushed after each stream.
+	 * @param generator The JsonGenerator to write to.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.
+	 * @throws IOException If the JSON cannot be written.
+	 */
+	public void writeJSON(final JsonGenerator generator, final int verbose) throws IOException {
+		generator.writeStartArray();
+		for (final TextAnalysisResult streamResult : streamResults) {
+			streamResult.writeJSON(generator, verbose);
+			generator.flush();
+		}
+		generator.writeEndArray();
+	}
 }
@@ -15,7 +15,14 @@
  */
 package com.cobber.fta;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import com.cobber.fta.core.FTAMergeException;
 import com.cobber.fta.core.FTAPluginException;
@@ -23,9 +30,19 @@ import com.cobber.fta.core.FTAUnsupportedLocaleException;
 import com.cobber.fta.core.InternalErrorException;
 
 public class RecordAnalyzer {
-	private final TextAnalyzer[] analyzers;
-	private final int streamCount;
+	private TextAnalyzer[] analyzers;
+	private int streamCount;
 	private final TextAnalyzer template;
+	private AnalyzerMetrics metrics = AnalyzerMetrics.NONE;
+	private MemoryBudget memoryBudget;
+	private Checkpoint checkpoint;
+	private boolean templateChanged;
+	/** The number of records trained. */
+	private long records;
+	/** The number of streams that have seen every record, streams added via addStream() are back-filled on demand. */
+	private int currentStreams;
+
+	private static final String RECORD_CHECKPOINT = "record.json";
 
 	/**
 	 * Construct a Record Analyzer using the supplied template.
@@ -35,20 +52,186 @@ public class RecordAnalyzer {
 	public RecordAnalyzer(final TextAnalyzer template) {
 		this.template = template;
 		streamCount = template.getContext().getCompositeStreamNames().length;
+		currentStreams = streamCount;
 		analyzers = new TextAnalyzer[streamCount];
 
+		for (int i = 0; i < streamCount; i++)
+			analyzers[i] = newStreamAnalyzer(i);
+	}
 
-		for (int i = 0; i < streamCount; i++) {
-			final AnalyzerContext templateContext = getStreamContext(template.getContext(), i);
-			analyzers[i] = new TextAnalyzer(templateContext);
-			analyzers[i].setConfig(new AnalysisConfig(template.getConfig()));
-			try {
-				analyzers[i].getPlugins().registerPluginListWithPrecedence(template.getPlugins().getUserDefinedPlugins(), template.getConfig());
-			} catch (Exception e) {
-				// As we previously successfully registered the plugin on the template, there is no reason to ever get here
-				throw new InternalErrorException("Issue registering templated plugin", e);
+	private TextAnalyzer newStreamAnalyzer(final int streamIndex) {
+		final TextAnalyzer ret = new TextAnalyzer(getStreamContext(template.getContext(), streamIndex));
+		ret.setConfig(new AnalysisConfig(template.getConfig()));
+		try {
+			ret.getPlugins().registerPluginListWithPrecedence(template.getPlugins().getUserDefinedPlugins(), template.getConfig());
+		} catch (Exception e) {
+			// As we previously successfully registered the plugin on the template, there is no reason to ever get here
+			throw new InternalErrorException("Issue registering templated plugin", e);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Add a new stream to the record, used when the set of fields is not known in advance (e.g. JSON input where
+	 * a field may first appear in any record).  The new stream is treated as null for all the records trained
+	 * prior to its addition, and the stream names seen by all the existing streams are updated.
+	 * The returned TextAnalyzer may be configured prior to the next call to {@link #train(String[])}.
+	 *
+	 * @param streamName The name of the new stream.
+	 * @return The TextAnalyzer used to process the new stream, which has an index equal to the previous number of streams.
+	 */
+	public TextAnalyzer addStream(final String streamName) {
+		final AnalyzerContext templateContext = template.getContext();
+		final String[] streamNames = Arrays.copyOf(templateContext.getCompositeStreamNames(), streamCount + 1);
+		streamNames[streamCount] = streamName;
+		template.setContext(withStreamNames(templateContext, streamNames));
+
+		for (final TextAnalyzer analyzer : analyzers)
+			analyzer.setContext(withStreamNames(analyzer.getContext(), streamNames));
+
+		final TextAnalyzer ret = newStreamAnalyzer(streamCount);
+		ret.setMetrics(metrics);
+		if (memoryBudget != null)
+			ret.setMemoryBudget(memoryBudget);
+		if (checkpoint != null)
+			ret.setCheckpoint(checkpoint.forStream(streamCount));
+
+		analyzers = Arrays.copyOf(analyzers, streamCount + 1);
+		analyzers[streamCount++] = ret;
+		templateChanged = true;
+
+		return ret;
+	}
+
+	private static AnalyzerContext withStreamNames(final AnalyzerContext context, final String[] streamNames) {
+		final AnalyzerContext ret = new AnalyzerContext(context.getStreamName(), context.getDateResolutionMode(), context.getCompositeName(), streamNames);
+		if (context.getSemanticTypes() != null)
+			ret.withSemanticTypes(Arrays.copyOf(context.getSemanticTypes(), Math.max(streamNames.length, context.getSemanticTypes().length)));
+
+		return ret;
+	}
+
+	/*
+	 * Train any streams added since the last record with nulls for all the records seen to date.
+	 */
+	private void backfill() throws FTAPluginException, FTAUnsupportedLocaleException {
+		for (int i = currentStreams; i < streamCount; i++)
+			analyzers[i].trainNulls(records);
+		currentStreams = streamCount;
+	}
+
+	/**
+	 * Register a receiver for the counters and timings generated by each of the TextAnalyzers associated with this record.
+	 *
+	 * @param metrics The receiver for the metrics, null reverts to the default (no metrics).
+	 */
+	public void setMetrics(final AnalyzerMetrics metrics) {
+		this.metrics = metrics == null ? AnalyzerMetrics.NONE : metrics;
+		for (final TextAnalyzer analyzer : analyzers)
+			analyzer.setMetrics(this.metrics);
+	}
+
+	/**
+	 * Get the receiver for the counters and timings generated by this RecordAnalyzer.
+	 *
+	 * @return The metrics receiver, {@link AnalyzerMetrics#NONE} if none has been registered.
+	 */
+	public AnalyzerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Register each of the TextAnalyzers associated with this record with a MemoryBudget.
+	 * See {@link TextAnalyzer#setMemoryBudget(MemoryBudget)}.
+	 *
+	 * @param memoryBudget The budget to register with, null to release the analyzers from their current budget.
+	 */
+	public void setMemoryBudget(final MemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		for (final TextAnalyzer analyzer : analyzers)
+			analyzer.setMemoryBudget(memoryBudget);
+	}
+
+	/**
+	 * Set the Checkpoint used to persist the state of this RecordAnalyzer, each stream is checkpointed to its own
+	 * sub-directory.  See {@link TextAnalyzer#setCheckpoint(Checkpoint)}.
+	 *
+	 * @param checkpoint The Checkpoint to write to, null to disable checkpoints.
+	 */
+	public void setCheckpoint(final Checkpoint checkpoint) {
+		this.checkpoint = checkpoint;
+		for (int i = 0; i < streamCount; i++)
+			analyzers[i].setCheckpoint(checkpoint == null ? null : checkpoint.forStream(i));
+	}
+
+	/**
+	 * Write an incremental checkpoint of each of the TextAnalyzers associated with this record.
+	 * See {@link TextAnalyzer#checkpoint()}.
+	 *
+	 * @return True if a checkpoint was written for every stream.
+	 * @throws IOException If the checkpoint cannot be written.
+	 * @throws IllegalStateException If no Checkpoint has been set (see {@link #setCheckpoint(Checkpoint)}).
+	 */
+	public boolean checkpoint() throws IOException {
+		if (checkpoint == null)
+			throw new IllegalStateException("No Checkpoint set, use setCheckpoint()");
+
+		try {
+			backfill();
+		} catch (FTAPluginException | FTAUnsupportedLocaleException e) {
+			throw new IOException("Failed to train new stream", e);
+		}
+
+		final Path recordFile = checkpoint.getDirectory().resolve(RECORD_CHECKPOINT);
+		if (templateChanged || !Files.exists(recordFile)) {
+			Files.createDirectories(checkpoint.getDirectory());
+			final TextAnalyzerWrapper wrapper = new TextAnalyzerWrapper(template.getConfig(), template.getContext(),
+					template.getPlugins().getUserDefinedPlugins(), null);
+			Checkpoint.atomicWrite(recordFile, out -> AnalyzerSerializer.serializationMapper.writeValue(out, wrapper));
+			templateChanged = false;
+		}
+
+		boolean ret = true;
+		for (final TextAnalyzer analyzer : analyzers)
+			if (!analyzer.checkpoint())
+				ret = false;
+
+		return ret;
+	}
+
+	/**
+	 * Create a new RecordAnalyzer from the latest checkpoint in the supplied directory.
+	 * Any stream that had not been checkpointed (e.g. the type had not been determined) is restored as a new TextAnalyzer.
+	 * See {@link TextAnalyzer#restore(Path)}.
+	 *
+	 * @param directory The directory containing the checkpoint.
+	 * @return A new RecordAnalyzer restored from the checkpoint.
+	 * @throws IOException If the checkpoint cannot be read.
+	 * @throws FTAMergeException If there is no checkpoint or the checkpoint is invalid.
+	 * @throws FTAPluginException Thrown when a registered plugin has detected an issue
+	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
+	 */
+	public static RecordAnalyzer restore(final Path directory) throws IOException, FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		final Path recordFile = directory.resolve(RECORD_CHECKPOINT);
+		if (!Files.exists(recordFile))
+			throw new FTAMergeException("No checkpoint found in '" + directory + "'.");
+
+		final TextAnalyzerWrapper wrapper = AnalyzerSerializer.serializationMapper.readValue(recordFile.toFile(), TextAnalyzerWrapper.class);
+		final TextAnalyzer template = new TextAnalyzer(wrapper.analyzerContext);
+		template.setConfig(wrapper.analysisConfig);
+		template.getPlugins().registerPluginListWithPrecedence(wrapper.userDefinedPlugins, wrapper.analysisConfig);
+
+		final RecordAnalyzer ret = new RecordAnalyzer(template);
+		for (int i = 0; i < ret.streamCount; i++) {
+			final Path streamDirectory = Checkpoint.getStreamDirectory(directory, i);
+			if (Checkpoint.exists(streamDirectory)) {
+				ret.analyzers[i] = TextAnalyzer.restore(streamDirectory);
+				ret.records = Math.max(ret.records, ret.analyzers[i].getFacts().getSampleCount());
 			}
 		}
+
+		return ret;
 	}
 
 	private String getFieldName(final AnalyzerContext templateContext, final int streamIndex) {
@@ -73,12 +256,15 @@ public class RecordAnalyzer {
 	public boolean train(final String[] rawInput) throws FTAPluginException, FTAUnsupportedLocaleException {
 		if (rawInput.length != streamCount)
 			throw new IllegalArgumentException("Size of training input must match number of stream names");
+		if (currentStreams != streamCount)
+			backfill();
 		boolean allTrained = true;
 		for (int i = 0; i < rawInput.length; i++) {
 			final boolean trained = analyzers[i].train(rawInput[i]);
 			if (!trained)
 				allTrained = false;
 		}
+		records++;
 
 		return allTrained;
 	}
@@ -92,6 +278,7 @@ public class RecordAnalyzer {
 	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
 	 */
 	public RecordAnalysisResult getResult() throws FTAPluginException, FTAUnsupportedLocaleException {
+		backfill();
 		final TextAnalysisResult[] results = new TextAnalysisResult[streamCount];
 
 		// Build an array of the Semantic Types detected as a result of the analysis so far
@@ -107,18 +294,28 @@ public class RecordAnalyzer {
 		int pass = 2;
 		do {
 			analyzers[0].debug("**** PASS {} ****", pass);
-			pass++;
+			final AnalyzerEvents.RecordPass event = new AnalyzerEvents.RecordPass();
+			event.begin();
+			int reanalyzed = 0;
 			pickups = 0;
 			for (int i = 0; i < streamCount; i++) {
 				if (!results[i].isSemanticType()) {
 					// Update the Context with all the Semantic Type information we have calculated
 					analyzers[i].setContext(analyzers[i].getContext().withSemanticTypes(semanticTypes));
 					results[i] = reAnalyze(analyzers[i], results[i]);
+					reanalyzed++;
 					semanticTypes[i] = results[i].getSemanticType();
 					if (results[i].isSemanticType())
 						pickups++;
 				}
 			}
+			if (event.shouldCommit()) {
+				event.pass = pass;
+				event.reanalyzed = reanalyzed;
+				event.pickups = pickups;
+			}
+			event.complete(template.getContext().getCompositeName(), analyzers[0].getFacts().getSampleCount());
+			pass++;
 		} while (pickups != 0);
 
 		// Now do Entity detection based on the Semantic Type analysis
@@ -186,15 +383,94 @@ public class RecordAnalyzer {
 		return newResult;
 	}
 
+	/**
+	 * Merge two RecordAnalyzers.  Streams are matched by position if the stream names are identical (or either set of
+	 * names is not unique), otherwise streams are matched by name - the result has the streams of the first followed by
+	 * those only present in the second, and a stream present in only one is treated as null for the records of the other.
+	 * No streams are added to the supplied RecordAnalyzers, but as with {@link TextAnalyzer#merge(TextAnalyzer, TextAnalyzer)}
+	 * their analyzers are brought up to date (e.g. any pending back-fill of nulls is performed) so they should be treated
+	 * as consumed by the merge.
+	 *
+	 * @param first The first RecordAnalyzer.
+	 * @param second The second RecordAnalyzer.
+	 * @return A new RecordAnalyzer which is the merge of the two supplied.
+	 * @throws FTAMergeException If the analyzers cannot be merged.
+	 * @throws FTAPluginException Thrown when a registered plugin has detected an issue
+	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
+	 */
 	public static RecordAnalyzer merge(final RecordAnalyzer first, final RecordAnalyzer second) throws FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
-		final RecordAnalyzer ret = new RecordAnalyzer(first.template);
-		for (int i = 0; i < first.streamCount; i++) {
-			ret.analyzers[i] = TextAnalyzer.merge(first.analyzers[i], second.analyzers[i]);
+		first.backfill();
+		second.backfill();
+
+		final String[] firstNames = first.template.getContext().getCompositeStreamNames();
+		final String[] secondNames = second.template.getContext().getCompositeStreamNames();
+
+		if (Arrays.equals(firstNames, secondNames) || !isUnique(firstNames) || !isUnique(secondNames)) {
+			if (first.streamCount != second.streamCount)
+				throw new FTAMergeException("Cannot merge RecordAnalyzers with a different number of streams.");
+
+			final RecordAnalyzer ret = new RecordAnalyzer(first.template);
+			for (int i = 0; i < first.streamCount; i++)
+				ret.analyzers[i] = TextAnalyzer.merge(first.analyzers[i], second.analyzers[i]);
+			ret.records = first.records + second.records;
+			ret.setMetrics(first.metrics);
+
+			return ret;
+		}
+
+		// Streams are matched by name, the result has its own template as it has a different set of streams
+		final Map<String, Integer> secondIndex = new HashMap<>();
+		for (int i = 0; i < secondNames.length; i++)
+			secondIndex.put(secondNames[i], i);
+
+		final Set<String> firstSet = new HashSet<>(Arrays.asList(firstNames));
+
+		final RecordAnalyzer ret = new RecordAnalyzer(copyTemplate(first.template));
+		for (final String name : secondNames)
+			if (!firstSet.contains(name))
+				ret.addStream(name);
+		ret.currentStreams = ret.streamCount;
+
+		final String[] names = ret.template.getContext().getCompositeStreamNames();
+		for (int i = 0; i < names.length; i++) {
+			final Integer j = secondIndex.get(names[i]);
+			final TextAnalyzer firstAnalyzer = i < first.streamCount ? first.analyzers[i] : ret.nulls(i, first.records);
+			final TextAnalyzer secondAnalyzer = j != null ? second.analyzers[j] : ret.nulls(i, second.records);
+			ret.analyzers[i] = TextAnalyzer.merge(firstAnalyzer, secondAnalyzer);
+			ret.analyzers[i].setContext(withStreamNames(ret.analyzers[i].getContext(), names));
 		}
+		ret.records = first.records + second.records;
+		ret.setMetrics(first.metrics);
 
 		return ret;
 	}
 
+	private static TextAnalyzer copyTemplate(final TextAnalyzer template) {
+		final TextAnalyzer ret = new TextAnalyzer(template.getContext());
+		ret.setConfig(new AnalysisConfig(template.getConfig()));
+		try {
+			ret.getPlugins().registerPluginListWithPrecedence(template.getPlugins().getUserDefinedPlugins(), template.getConfig());
+		} catch (Exception e) {
+			// As we previously successfully registered the plugin on the template, there is no reason to ever get here
+			throw new InternalErrorException("Issue registering templated plugin", e);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * An analyzer for the stream that has seen 'count' nulls, used for a stream missing from one side of a merge.
+	 */
+	private TextAnalyzer nulls(final int streamIndex, final long count) throws FTAPluginException, FTAUnsupportedLocaleException {
+		final TextAnalyzer ret = newStreamAnalyzer(streamIndex);
+		ret.trainNulls(count);
+		return ret;
+	}
+
+	private static boolean isUnique(final String[] names) {
+		return new HashSet<>(Arrays.asList(names)).size() == names.length;
+	}
+
 	/**
 	 * Get the TextAnalyzer associated with a particular stream.
 	 *
@@ -213,4 +489,18 @@ public class RecordAnalyzer {
 	public TextAnalyzer[] getAnalyzers() {
 		return analyzers;
 	}
+
+	/**
+	 * Estimate the heap retained by this RecordAnalyzer - the sum of the estimates for each of the TextAnalyzers.
+	 * See {@link TextAnalyzer#estimateRetainedBytes()}.
+	 *
+	 * @return An estimate (in bytes) of the heap retained by this analyzer.
+	 */
+	public long estimateRetainedBytes() {
+		long ret = 0;
+		for (final TextAnalyzer analyzer : analyzers)
+			ret += analyzer.estimateRetainedBytes();
+
+		return ret;
+	}
 }
@@ -123,14 +123,14 @@ class ResultFinalizer {
 		final long badCharacters = current.isAlphabetic() ? analysis.digits : analysis.alphas;
 		// If we are currently Alphabetic and the only errors are digits then convert to AlphaNumeric
 		if (badCharacters != 0 && analysis.spaces == 0 && analysis.other == 0 && current.isAlphabetic()) {
-			if (ac.facts.outliers.size() == ac.analysisConfig.getMaxOutliers() || analysis.digits > .01 * realSamples) {
+			if (ac.facts.isOutliersFull(ac.analysisConfig.getMaxOutliers()) || analysis.digits > .01 * realSamples) {
 				backoutToPatternID(realSamples, KnownTypes.ID.ID_ALPHANUMERIC_VARIABLE);
 				return true;
 			}
 		}
 		// If we are currently Numeric and the only errors are alpha then convert to AlphaNumeric
 		else if (badCharacters != 0 && analysis.spaces == 0 && analysis.other == 0 && FTAType.LONG.equals(current.getBaseType())) {
-			if (ac.facts.outliers.size() == ac.analysisConfig.getMaxOutliers() || analysis.alphas > .01 * realSamples) {
+			if (ac.facts.isOutliersFull(ac.analysisConfig.getMaxOutliers()) || analysis.alphas > .01 * realSamples) {
 				backoutToPattern(realSamples, KnownTypes.PATTERN_ALPHANUMERIC_VARIABLE);
 				return true;
 			}
@@ -147,7 +147,7 @@ class ResultFinalizer {
 			backoutToPatternID(realSamples, id);
 			return true;
 		}
-		else if ((realSamples > ac.reflectionSamples && ac.facts.outliers.size() == ac.analysisConfig.getMaxOutliers())
+		else if ((realSamples > ac.reflectionSamples && ac.facts.isOutliersFull(ac.analysisConfig.getMaxOutliers()))
 					|| (badCharacters + analysis.nonAlphaNumeric) > .01 * realSamples) {
 				backoutToPattern(realSamples, KnownTypes.PATTERN_ANY_VARIABLE);
 				return true;
@@ -171,6 +171,7 @@ class ResultFinalizer {
 	}
 
 	private void backoutToString(final long realSamples) {
+		final TypeInfo from = ac.facts.getMatchTypeInfo();
 		ac.facts.matchCount = realSamples;
 
 		// All outliers are now part of the cardinality set and there are now no outliers
@@ -194,10 +195,12 @@ class ResultFinalizer {
 
 		ac.facts.outliers.clear();
 		ac.outliersSmashed.clear();
+		ac.backout(from);
 		ac.ctxdebug("Type determination", "backing out string, matchTypeInfo - {}", ac.facts.getMatchTypeInfo());
 	}
 
 	private void backoutToTypeInfo(final long realSamples, final TypeInfo newTypeInfo) {
+		final TypeInfo from = ac.facts.getMatchTypeInfo();
 		ac.facts.matchCount = realSamples;
 		ac.facts.setMatchTypeInfo(newTypeInfo);
 
@@ -219,6 +222,7 @@ class ResultFinalizer {
 
 		ac.facts.outliers.clear();
 		ac.outliersSmashed.clear();
+		ac.backout(from);
 		ac.ctxdebug("Type determination", "backing out, matchTypeInfo - {}", ac.facts.getMatchTypeInfo());
 	}
 
@@ -228,6 +232,7 @@ class ResultFinalizer {
 	 * @param realSamples The number of real samples we have seen.
 	 */
 	private void backoutLogicalDoubleType(final LogicalType logical, final long realSamples) {
+		final TypeInfo from = ac.facts.getMatchTypeInfo();
 		long otherDoubles = 0;
 
 		final Map<String, Long> doubleOutliers = new HashMap<>();
@@ -252,6 +257,7 @@ class ResultFinalizer {
 		for (final Map.Entry<String, Long> entry : doubleOutliers.entrySet())
 			typeTracker.addValid(entry.getKey(), entry.getValue());
 
+		ac.backout(from);
 		ac.ctxdebug("Type determination", "backing out double, matchTypeInfo - {}", ac.facts.getMatchTypeInfo());
 	}
 
@@ -261,6 +267,7 @@ class ResultFinalizer {
 	 * @param realSamples The number of real samples we have seen.
 	 */
 	private void backoutLogicalLongType(final LogicalType logical, final long realSamples) {
+		final TypeInfo from = ac.facts.getMatchTypeInfo();
 		long otherLongs = 0;
 		long otherDoubles = 0;
 
@@ -301,10 +308,12 @@ class ResultFinalizer {
 
 		if ((double) ac.facts.matchCount / realSamples > ac.analysisConfig.getThreshold()/100.0) {
 			ac.facts.setMatchTypeInfo(ac.knownTypes.getByID(KnownTypes.ID.ID_LONG));
+			ac.backout(from);
 			ac.ctxdebug("Type determination", "backing out long, matchTypeInfo - {}", ac.facts.getMatchTypeInfo());
 		}
 		else if ((double)(ac.facts.matchCount + otherDoubles) / realSamples > ac.analysisConfig.getThreshold()/100.0) {
 			ac.facts.setMatchTypeInfo(ac.knownTypes.getByID(KnownTypes.ID.ID_DOUBLE));
+			ac.backout(from);
 			ac.facts.outliers.entrySet().removeAll(doubleOutliers.entrySet());
 			for (final Map.Entry<String, Long> entry : doubleOutliers.entrySet())
 				typeTracker.addValid(entry.getKey(), entry.getValue());
@@ -348,7 +357,7 @@ class ResultFinalizer {
 
 		for (final Map.Entry<String, Long> entry : outliers.entrySet()) {
 			final String upper = entry.getKey().toUpperCase(java.util.Locale.ENGLISH);
-			if (logical.isValid(upper, true, entry.getValue())) {
+			if (ac.isValid(logical, upper, true, entry.getValue())) {
 				validCount += entry.getValue();
 				addMatches.merge(upper, entry.getValue(), Long::sum);
 			}
@@ -375,7 +384,7 @@ class ResultFinalizer {
 				minusMatches.put(entry.getKey(), entry.getValue());
 				newOutliers.put(entry.getKey(), entry.getValue());
 			}
-			else if (logical.isValid(entry.getKey(), true, entry.getValue()))
+			else if (ac.isValid(logical, entry.getKey(), true, entry.getValue()))
 				validCount += entry.getValue();
 			else {
 				missEntries++;
@@ -393,17 +402,17 @@ class ResultFinalizer {
 			newCardinality.remove(elt);
 
 		final long outlierCount = newOutliers.values().stream().mapToLong(l-> l).sum();
-		if (logical.analyzeSet(ac.analyzerContext, validCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newOutliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
+		if (ac.analyzeSet(logical, ac.analyzerContext, validCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newOutliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
 			validCount += outlierCount - newOutliers.values().stream().mapToLong(l-> l).sum();
-			return new FiniteMatchResult(logical, logical.getConfidence(validCount, realSamples, ac.analyzerContext), validCount, newOutliers, newCardinality);
+			return new FiniteMatchResult(logical, ac.getConfidence(logical, validCount, realSamples, ac.analyzerContext), validCount, newOutliers, newCardinality);
 		}
 
 		// If the number of misses is less than 10% then remove the worst offender since it will often be something
 		// silly like All, Other, N/A, ...
 		if (missEntries != 0 && (double)missEntries/cardinalityUpper.size() < .1 && logical.getHeaderConfidence(ac.analyzerContext) >= 90) {
 			realSamples -= missEntry.getValue();
-			if (logical.analyzeSet(ac.analyzerContext, validCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newOutliers, ac.tokenStreams, ac.analysisConfig).isValid())
-				return new FiniteMatchResult(logical, logical.getConfidence(validCount, realSamples, ac.analyzerContext), validCount, newOutliers, newCardinality);
+			if (ac.analyzeSet(logical, ac.analyzerContext, validCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newOutliers, ac.tokenStreams, ac.analysisConfig).isValid())
+				return new FiniteMatchResult(logical, ac.getConfidence(logical, validCount, realSamples, ac.analyzerContext), validCount, newOutliers, newCardinality);
 		}
 
 		return new FiniteMatchResult();
@@ -571,7 +580,7 @@ class ResultFinalizer {
 				final FiniteMap newCardinality = new FiniteMap(ac.facts.cardinality);
 				final FiniteMap newInvalids = new FiniteMap(ac.facts.outliers);
 				for (final Map.Entry<String, Long> current : ac.facts.cardinality.entrySet()) {
-					if (logical.isValid(current.getKey().trim()))
+					if (ac.isValid(logical, current.getKey().trim(), false, 0))
 						newCardinality.put(current.getKey(), current.getValue());
 					else {
 						newMatchCount -= current.getValue();
@@ -581,9 +590,9 @@ class ResultFinalizer {
 
 				double newScore = 0.0;
 				// Based on the new Cardinality/Outliers do we think this is a match?
-				if (logical.analyzeSet(ac.analyzerContext, newMatchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newInvalids, ac.tokenStreams, ac.analysisConfig).isValid()) {
+				if (ac.analyzeSet(logical, ac.analyzerContext, newMatchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newInvalids, ac.tokenStreams, ac.analysisConfig).isValid()) {
 						// Skip if the new score is worse than the current
-						if ((newScore = logical.getConfidence(newMatchCount, realSamples, ac.analyzerContext)) < bestScore)
+						if ((newScore = ac.getConfidence(logical, newMatchCount, realSamples, ac.analyzerContext)) < bestScore)
 							continue;
 						if (newScore == bestScore) {
 							// Skip if the scores are the same but we like the header less
@@ -658,9 +667,9 @@ class ResultFinalizer {
 
 					double newScore = 0.0;
 					// Based on the new Cardinality/Outliers do we think this is a match?
-					if (logical.analyzeSet(ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newInvalids, ac.tokenStreams, ac.analysisConfig).isValid()) {
+					if (ac.analyzeSet(logical, ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), newCardinality, newInvalids, ac.tokenStreams, ac.analysisConfig).isValid()) {
 							// Skip if the new score is worse than the current
-							if ((newScore = logical.getConfidence(newMatchCount, realSamples, ac.analyzerContext)) < bestScore)
+							if ((newScore = ac.getConfidence(logical, newMatchCount, realSamples, ac.analyzerContext)) < bestScore)
 								continue;
 							if (newScore == bestScore) {
 								// Skip if the scores are the same but we like the header less
@@ -789,15 +798,15 @@ class ResultFinalizer {
 		// We may have a Semantic Type already identified but see if there is a better Finite Semantic type
 		final LogicalTypeFinite logicalFinite = matchFiniteTypes(FTAType.LONG, ac.facts.cardinality);
 		if (logicalFinite != null)
-			ac.facts.confidence = logicalFinite.getConfidence(ac.facts.matchCount, realSamples, ac.analyzerContext);
+			ac.facts.confidence = ac.getConfidence(logicalFinite, ac.facts.matchCount, realSamples, ac.analyzerContext);
 
 		if (!ac.facts.getMatchTypeInfo().isSemanticType())
 			for (final LogicalTypeRegExp logical : ac.regExpTypes) {
-				if (logical.acceptsBaseType(FTAType.LONG) &&
-						logical.isMatch(ac.facts.getMatchTypeInfo().getRegExp()) &&
-						logical.analyzeSet(ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), ac.facts.cardinality, ac.facts.outliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
+				if (!logical.acceptsBaseType(FTAType.LONG) || !logical.isMatch(ac.facts.getMatchTypeInfo().getRegExp()))
+					continue;
+				if (ac.analyzeSet(logical, ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), ac.facts.cardinality, ac.facts.outliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
 					ac.facts.setMatchTypeInfo(new TypeInfo(logical.getRegExp(), logical.getBaseType(), logical.getSemanticType(), ac.facts.getMatchTypeInfo()));
-					ac.facts.confidence = logical.getConfidence(ac.facts.matchCount, realSamples, ac.analyzerContext);
+					ac.facts.confidence = ac.getConfidence(logical, ac.facts.matchCount, realSamples, ac.analyzerContext);
 					ac.ctxdebug("Type determination", "was LONG, matchTypeInfo - {}", ac.facts.getMatchTypeInfo());
 					break;
 				}
@@ -863,11 +872,11 @@ class ResultFinalizer {
 		}
 
 		for (final LogicalTypeRegExp logical : ac.regExpTypes) {
-			if (logical.acceptsBaseType(FTAType.DOUBLE) &&
-					logical.isMatch(ac.facts.getMatchTypeInfo().getRegExp()) &&
-					logical.analyzeSet(ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), ac.facts.cardinality, ac.facts.outliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
+			if (!logical.acceptsBaseType(FTAType.DOUBLE) || !logical.isMatch(ac.facts.getMatchTypeInfo().getRegExp()))
+				continue;
+			if (ac.analyzeSet(logical, ac.analyzerContext, ac.facts.matchCount, realSamples, ac.facts.getMatchTypeInfo().getRegExp(), ac.facts.calculateFacts(), ac.facts.cardinality, ac.facts.outliers, ac.tokenStreams, ac.analysisConfig).isValid()) {
 				ac.facts.setMatchTypeInfo(new TypeInfo(logical.getRegExp(), logical.getBaseType(), logical.getSemanticType(), ac.facts.getMatchTypeInfo()));
-				ac.facts.confidence = logical.getConfidence(ac.facts.matchCount, realSamples, ac.analyzerContext);
+				ac.facts.confidence = ac.getConfidence(logical, ac.facts.matchCount, realSamples, ac.analyzerContext);
 				break;
 			}
 		}
@@ -900,7 +909,7 @@ class ResultFinalizer {
 		// We may have a Semantic Type already identified but see if there is a better Finite Semantic type
 		final LogicalTypeFinite logical = matchFiniteTypes(FTAType.STRING, cardinalityUpper);
 		if (logical != null)
-			ac.facts.confidence = logical.getConfidence(ac.facts.matchCount, realSamples, ac.analyzerContext);
+			ac.facts.confidence = ac.getConfidence(logical, ac.facts.matchCount, realSamples, ac.analyzerContext);
 
 		// Fixup any likely enums
 		if (!ac.facts.getMatchTypeInfo().isSemanticType() && cardinalityUpper.size() < MAX_ENUM_SIZE && !ac.facts.outliers.isEmpty() && ac.facts.outliers.size() < 10) {
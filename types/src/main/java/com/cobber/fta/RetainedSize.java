@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+/**
+ * Shallow size constants (assuming a 64-bit JVM with compressed oops) used to estimate the heap retained by an analyzer.
+ * The estimates are intended to be cheap (i.e. derived from the size of each structure, not by walking it) rather than exact.
+ */
+final class RetainedSize {
+	/** Object header. */
+	static final long HEADER = 12;
+	/** Object reference. */
+	static final long REFERENCE = 4;
+	/** Array header (including the length). */
+	static final long ARRAY_HEADER = 16;
+	/** A boxed Long/Double. */
+	static final long BOXED = 16;
+	/** A HashMap.Node plus its slot in the table (assuming a load factor of 0.75). */
+	static final long HASH_ENTRY = 32 + 6;
+	/** A TreeMap.Entry. */
+	static final long TREE_ENTRY = 40;
+	/** A date/time object (e.g. LocalDate, LocalDateTime, ...). */
+	static final long TEMPORAL = 40;
+	/** A Token within a TokenStream. */
+	static final long TOKEN = 24 + REFERENCE;
+	/** The fixed portion of a TokenStream. */
+	static final long TOKEN_STREAM = 64;
+	/** The fixed portion of a Plugin instance. */
+	static final long PLUGIN = 128;
+
+	private RetainedSize() {
+	}
+
+	/**
+	 * The size of an object after rounding up to the 8 byte alignment.
+	 * @param size The unaligned size.
+	 * @return The aligned size.
+	 */
+	static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * The size of a String of the specified length (assuming compact strings and Latin-1 content).
+	 * @param length The length of the String.
+	 * @return The estimated retained size of the String.
+	 */
+	static long string(final long length) {
+		return align(HEADER + 12) + align(ARRAY_HEADER + length);
+	}
+
+	/**
+	 * The size of a Map (e.g. FiniteMap) from String to Long.
+	 * @param entries The number of entries in the Map.
+	 * @param averageKeyLength The average length of the keys.
+	 * @return The estimated retained size of the Map.
+	 */
+	static long stringCountMap(final long entries, final long averageKeyLength) {
+		return align(HEADER + 40) + entries * (HASH_ENTRY + string(averageKeyLength) + BOXED);
+	}
+}
@@ -15,9 +15,6 @@
  */
 package com.cobber.fta;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -27,7 +24,6 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -76,9 +72,9 @@ public class SemanticType {
 				return allSemanticTypes;
 
 			// Populate the full set of Semantic Types
-			try (BufferedReader reader = new BufferedReader(new InputStreamReader(TextAnalyzer.class.getResourceAsStream("/reference/plugins.json"), StandardCharsets.UTF_8))) {
+			try {
 				final Map<String, PluginDefinition> semanticTypes = new TreeMap<>();
-				final List<PluginDefinition> plugins = MAPPER.readValue(reader, new TypeReference<List<PluginDefinition>>(){});
+				final List<PluginDefinition> plugins = PluginCatalog.readBuiltinPlugins(MAPPER);
 				// Sort the registered plugins by the Semantic Type name
 				for (final PluginDefinition pluginDefn : plugins)
 					semanticTypes.put(pluginDefn.semanticType, pluginDefn);
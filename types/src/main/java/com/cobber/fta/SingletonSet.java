@@ -25,21 +25,31 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.cobber.fta.core.FoldedSet;
 import com.cobber.fta.core.RandomSet;
 
 /**
  * Class used to cache large sets across multiple threads.
+ * Reads of a loaded Set are lock-free, each Set is loaded exactly once, and loading one Set does not block access to any other.
  */
 public class SingletonSet {
 	private final Content content;
 	private final String key;
 	private final String commentLeader;
+	private Entry entry;
 
-	private static final Map<String, RandomSet<String>> MEMBER_CACHE = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Entry> MEMBER_CACHE = new ConcurrentHashMap<>();
+
+	/*
+	 * The per-key holder, created cheaply under the map's bin lock, the expensive load is then performed holding only the Entry's lock.
+	 */
+	private static final class Entry {
+		private volatile RandomSet<String> members;
+		private volatile FoldedSet folded;
+	}
 
 	/**
 	 * Create a SingletonSet using "#" as the comment character.
@@ -60,58 +70,137 @@ public class SingletonSet {
 		this.commentLeader = commentLeader;
 	}
 
+	/**
+	 * The key used to identify the content backing this Set.
+	 * @return The cache key for the content (see {@link Content#getCacheKey()}).
+	 */
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * The content backing this Set.
+	 * @return The Content object.
+	 */
+	Content getContent() {
+		return content;
+	}
+
+	/*
+	 * Has the Set for the supplied key been loaded (by any SingletonSet)?  Used to test that loading is deferred.
+	 */
+	static boolean isLoaded(final String key) {
+		final Entry current = MEMBER_CACHE.get(key);
+		return current != null && current.members != null;
+	}
+
+	/*
+	 * Discard the cached Set for the supplied key, SingletonSets created subsequently will reload it.  Used to test that loading is deferred.
+	 */
+	static void evict(final String key) {
+		MEMBER_CACHE.remove(key);
+	}
+
+	private Entry getEntry() {
+		// Benign race - all threads will resolve to the same shared Entry
+		Entry ret = entry;
+		if (ret == null) {
+			ret = MEMBER_CACHE.get(key);
+			if (ret == null)
+				ret = MEMBER_CACHE.computeIfAbsent(key, k -> new Entry());
+			entry = ret;
+		}
+		return ret;
+	}
+
 	/**
 	 * Accessor for the members of the Set.
 	 * @return The members of this Set.
 	 */
 	public Set<String> getMembers() {
-		synchronized(MEMBER_CACHE) {
-			final Set<String> result = MEMBER_CACHE.get(key);
-			if (result != null)
-				return result;
-
-			final RandomSet<String> members = new RandomSet<>();
-			if ("inline".equals(content.type)) {
-				members.addAll(Arrays.asList(content.members));
-			}
-			else {
-				Reader reader;
-				if ("file".equals(content.type))
-					try {
-						reader = new InputStreamReader(new FileInputStream(content.reference), StandardCharsets.UTF_8);
-					} catch (FileNotFoundException e) {
-						throw new IllegalArgumentException("Internal error: Issues with 'file' content: " + content, e);
-					}
-				else if ("resource".equals(content.type)) {
-					final InputStream stream = LogicalTypeFiniteSimpleExternal.class.getResourceAsStream(content.reference);
-					if (stream == null)
-						throw new IllegalArgumentException("Internal error: Issues with 'resource' content: " + content);
-					reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
-				}
-				else
-					throw new IllegalArgumentException("Internal error: contentType must be 'inline', 'file' or 'resource'");
-
-				try (BufferedReader bufferedReader = new BufferedReader(reader)){
-					String line;
-
-					while ((line = bufferedReader.readLine()) != null) {
-						if (commentLeader != null && line.startsWith(commentLeader))
-							continue;
-						members.add(line);
-					}
-				} catch (IOException e) {
-					throw new IllegalArgumentException("Internal error: Issues with 'file/resource' content: " + content, e);
-				}
+		return getRandomSet();
+	}
+
+	private RandomSet<String> getRandomSet() {
+		final Entry current = getEntry();
+		RandomSet<String> result = current.members;
+		if (result != null)
+			return result;
+
+		synchronized (current) {
+			result = current.members;
+			if (result == null) {
+				result = load();
+				current.members = result;
 			}
+		}
 
-			MEMBER_CACHE.put(key, members);
+		return result;
+	}
 
+	private RandomSet<String> load() {
+		final RandomSet<String> members = new RandomSet<>();
+		if ("inline".equals(content.type)) {
+			members.addAll(Arrays.asList(content.members));
 			return members;
 		}
+
+		Reader reader;
+		if ("file".equals(content.type))
+			try {
+				reader = new InputStreamReader(new FileInputStream(content.reference), StandardCharsets.UTF_8);
+			} catch (FileNotFoundException e) {
+				throw new IllegalArgumentException("Internal error: Issues with 'file' content: " + content, e);
+			}
+		else if ("resource".equals(content.type)) {
+			final InputStream stream = LogicalTypeFiniteSimpleExternal.class.getResourceAsStream(content.reference);
+			if (stream == null)
+				throw new IllegalArgumentException("Internal error: Issues with 'resource' content: " + content);
+			reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+		}
+		else
+			throw new IllegalArgumentException("Internal error: contentType must be 'inline', 'file' or 'resource'");
+
+		try (BufferedReader bufferedReader = new BufferedReader(reader)){
+			String line;
+
+			while ((line = bufferedReader.readLine()) != null) {
+				if (commentLeader != null && line.startsWith(commentLeader))
+					continue;
+				members.add(line);
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Internal error: Issues with 'file/resource' content: " + content, e);
+		}
+
+		return members;
+	}
+
+	/**
+	 * Accessor for the members of the Set, organized for allocation-free case-insensitive lookup.
+	 * Note: The FoldedSet is shared across all users of the same content.
+	 * @return The members of this Set as a FoldedSet.
+	 */
+	public FoldedSet getFoldedMembers() {
+		final Entry current = getEntry();
+		FoldedSet result = current.folded;
+		if (result != null)
+			return result;
+
+		final RandomSet<String> members = getRandomSet();
+		synchronized (current) {
+			result = current.folded;
+			if (result == null) {
+				result = new FoldedSet(members);
+				current.folded = result;
+			}
+		}
+
+		return result;
 	}
 
 	public String getRandom(final SecureRandom random) {
-		final int size = getMembers().size();
-		return MEMBER_CACHE.get(key).get(random.nextInt(size));
+		final RandomSet<String> members = getRandomSet();
+		return members.get(random.nextInt(members.size()));
 	}
 }
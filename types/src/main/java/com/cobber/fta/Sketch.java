@@ -116,4 +116,21 @@ public class Sketch {
 	protected DDSketch getDdSketch() {
 		return ddSketch;
 	}
+
+	/**
+	 * Estimate the heap retained by this Sketch.
+	 * @param averageKeyLength The average length of the keys in the typed map.
+	 * @return An estimate (in bytes) of the heap retained.
+	 */
+	long estimateRetainedBytes(final long averageKeyLength) {
+		long ret = typedMap.size() * (RetainedSize.TREE_ENTRY + RetainedSize.string(averageKeyLength) + RetainedSize.BOXED);
+
+		// The dense stores used by the DDSketch hold a double for every index between the minimum and the maximum
+		if (!ddSketch.getPositiveValueStore().isEmpty())
+			ret += (ddSketch.getPositiveValueStore().getMaxIndex() - ddSketch.getPositiveValueStore().getMinIndex() + 1) * Double.BYTES;
+		if (!ddSketch.getNegativeValueStore().isEmpty())
+			ret += (ddSketch.getNegativeValueStore().getMaxIndex() - ddSketch.getNegativeValueStore().getMinIndex() + 1) * Double.BYTES;
+
+		return ret;
+	}
 }
@@ -15,6 +15,10 @@
  */
 package com.cobber.fta;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -22,6 +26,7 @@ import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -33,9 +38,8 @@ import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.Utils;
 import com.cobber.fta.dates.DateTimeParser.DateResolutionMode;
 import com.cobber.fta.token.TokenStreams;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -62,6 +66,7 @@ public class TextAnalysisResult {
 	private final DateResolutionMode resolutionMode;
 	private final AnalysisConfig analysisConfig;
 	private final TokenStreams shape;
+	private PluginProfile pluginProfile;
 
 	/**
 	 * @param name The name of the data stream being analyzed.
@@ -90,6 +95,29 @@ public class TextAnalysisResult {
 		return name;
 	}
 
+	/**
+	 * Get the cost of each of the Semantic Type plugins invoked during the analysis of this stream.
+	 * Note: Only available if the Feature PLUGIN_PROFILING is enabled.
+	 *
+	 * @return The PluginProfile for this stream, or null if plugin profiling is not enabled.
+	 */
+	public PluginProfile getPluginProfile() {
+		return pluginProfile;
+	}
+
+	void setPluginProfile(final PluginProfile pluginProfile) {
+		this.pluginProfile = pluginProfile;
+	}
+
+	/**
+	 * Get the degradations applied to the analysis of this stream in order to honor a {@link MemoryBudget}.
+	 *
+	 * @return The set of degradations applied, empty if the analysis was not degraded.
+	 */
+	public Set<MemoryBudget.Degradation> getDegradations() {
+		return Collections.unmodifiableSet(facts.degradations);
+	}
+
 	/**
 	 * Get the configuration associated with this TextAnalysisResult.
 	 *
@@ -520,7 +548,7 @@ public class TextAnalysisResult {
 
 	/**
 	 * Get the cardinality details for the current data stream.  This is a Map of Strings and the count
-	 * of occurrences.
+	 * of occurrences, it is a copy so modifying it does not impact the analysis.
 	 * @return A Map of values and their occurrence frequency of the data stream to date.
 	 */
 	public NavigableMap<String, Long> getCardinalityDetails() {
@@ -744,27 +772,47 @@ public class TextAnalysisResult {
 		return Base64.getEncoder().encodeToString(md.digest(signature));
 	}
 
-	private void outputArray(final ArrayNode detail, final Collection<String> collection) {
+	private void outputArray(final JsonGenerator generator, final String fieldName, final Collection<String> collection) throws IOException {
+		generator.writeArrayFieldStart(fieldName);
 		for (final String s : collection)
-			detail.add(s);
+			generator.writeString(s);
+		generator.writeEndArray();
 	}
 
-	private void outputArray(final ArrayNode detail, final String[] array) {
+	private void outputArray(final JsonGenerator generator, final String fieldName, final String[] array) throws IOException {
+		generator.writeArrayFieldStart(fieldName);
 		for (final String s : array)
-			detail.add(s);
+			generator.writeString(s);
+		generator.writeEndArray();
 	}
 
-	private void outputDetails(final ObjectMapper mapper, final ArrayNode detail, final Map<String, Long> details, final int verbose) {
+	private void outputDetails(final JsonGenerator generator, final String fieldName, final Map<String, Long> details, final int verbose) throws IOException {
+		generator.writeArrayFieldStart(fieldName);
 		int records = 0;
 		for (final Map.Entry<String,Long> entry : entriesSortedByValues(details)) {
 			records++;
 			if (verbose == 1 && records > 100)
 				break;
-			final ObjectNode elt = mapper.createObjectNode();
-			elt.put("key", entry.getKey());
-			elt.put("count", entry.getValue());
-			detail.add(elt);
+			generator.writeStartObject();
+			generator.writeStringField("key", entry.getKey());
+			generator.writeNumberField("count", entry.getValue());
+			generator.writeEndObject();
 		}
+		generator.writeEndArray();
+	}
+
+	private static void writeNumberField(final JsonGenerator generator, final String fieldName, final Double value) throws IOException {
+		if (value == null)
+			generator.writeNullField(fieldName);
+		else
+			generator.writeNumberField(fieldName, value);
+	}
+
+	private static void writeNumberField(final JsonGenerator generator, final String fieldName, final Long value) throws IOException {
+		if (value == null)
+			generator.writeNullField(fieldName);
+		else
+			generator.writeNumberField(fieldName, value);
 	}
 
 	private String jsonError(final String message) {
@@ -860,22 +908,80 @@ public class TextAnalysisResult {
 		return internalAsJSON(pretty, verbose, SignatureTarget.CONSUMER);
 	}
 
+	/**
+	 * Stream the JSON representation of the Analysis (as returned by {@link #asJSON(boolean, int)}) to the supplied
+	 * OutputStream, without constructing an intermediate tree or String.  The OutputStream is flushed but not closed.
+	 * @param out The OutputStream to write the UTF-8 encoded JSON to.
+	 * @param pretty If set, add minimal whitespace formatting.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.  A value of 1
+	 * will output the first 100 elements, a value &gt; 1 will output the full set.
+	 * @throws IOException If the JSON cannot be written to the OutputStream.
+	 */
+	public void writeJSON(final OutputStream out, final boolean pretty, final int verbose) throws IOException {
+		try (JsonGenerator generator = createGenerator(MAPPER.getFactory().createGenerator(out), pretty)) {
+			writeJSON(generator, verbose);
+		}
+	}
+
+	/**
+	 * Stream the JSON representation of the Analysis (as returned by {@link #asJSON(boolean, int)}) to the supplied
+	 * Writer, the encoding (if any) is determined by the Writer.  The Writer is flushed but not closed.
+	 * @param out The Writer to write the JSON to.
+	 * @param pretty If set, add minimal whitespace formatting.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.  A value of 1
+	 * will output the first 100 elements, a value &gt; 1 will output the full set.
+	 * @throws IOException If the JSON cannot be written to the Writer.
+	 */
+	public void writeJSON(final Writer out, final boolean pretty, final int verbose) throws IOException {
+		try (JsonGenerator generator = createGenerator(MAPPER.getFactory().createGenerator(out), pretty)) {
+			writeJSON(generator, verbose);
+		}
+	}
+
+	/**
+	 * Stream the JSON representation of the Analysis (as returned by {@link #asJSON(boolean, int)}) as a single
+	 * object to the supplied JsonGenerator - for example as an element of an enclosing array.
+	 * Formatting (e.g. pretty printing) is controlled by the JsonGenerator.
+	 * @param generator The JsonGenerator to write to.
+	 * @param verbose If &gt; 0 provides additional details on the core, Outlier, and Shapes sets.  A value of 1
+	 * will output the first 100 elements, a value &gt; 1 will output the full set.
+	 * @throws IOException If the JSON cannot be written.
+	 */
+	public void writeJSON(final JsonGenerator generator, final int verbose) throws IOException {
+		writeJSON(generator, verbose, SignatureTarget.CONSUMER);
+	}
+
+	static JsonGenerator createGenerator(final JsonGenerator generator, final boolean pretty) {
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		if (pretty)
+			generator.useDefaultPrettyPrinter();
+		return generator;
+	}
+
 	private String internalAsJSON(final boolean pretty, final int verbose, final SignatureTarget target) {
-		final ObjectWriter writer = pretty ? MAPPER.writerWithDefaultPrettyPrinter() : MAPPER.writer();
+		final StringWriter out = new StringWriter();
+		try (JsonGenerator generator = createGenerator(MAPPER.getFactory().createGenerator(out), pretty)) {
+			writeJSON(generator, verbose, target);
+		} catch (IOException e) {
+			return jsonError(e.getMessage());
+		}
+
+		return out.toString();
+	}
 
-		final ObjectNode analysis = MAPPER.createObjectNode();
+	private void writeJSON(final JsonGenerator generator, final int verbose, final SignatureTarget target) throws IOException {
+		generator.writeStartObject();
 		if (target != SignatureTarget.STRUCTURE_SIGNATURE && target != SignatureTarget.DATA_SIGNATURE)
-			analysis.put("fieldName", name);
-		analysis.put("totalCount", facts.external.totalCount);
-		analysis.put("sampleCount", facts.sampleCount);
-		analysis.put("matchCount", facts.matchCount);
-		analysis.put("nullCount", facts.nullCount);
-		analysis.put("blankCount", facts.blankCount);
-		analysis.put("distinctCount", facts.distinctCount);
+			generator.writeStringField("fieldName", name);
+		generator.writeNumberField("totalCount", facts.external.totalCount);
+		generator.writeNumberField("sampleCount", facts.sampleCount);
+		generator.writeNumberField("matchCount", facts.matchCount);
+		generator.writeNumberField("nullCount", facts.nullCount);
+		generator.writeNumberField("blankCount", facts.blankCount);
+		writeNumberField(generator, "distinctCount", facts.distinctCount);
 		if (target != SignatureTarget.DATA_SIGNATURE) {
-			analysis.put("regExp", getRegExp());
+			generator.writeStringField("regExp", getRegExp());
 			/*
-						final ArrayNode regExpStream = analysis.putArray("regExpStream");
 						final Set<String> streamRegExps = new HashSet<>();
 						streamRegExps.add(shape.getRegExp(false));
 						// Only bother to return a fitted result of we have a reasonable number of samples
@@ -883,75 +989,67 @@ public class TextAnalysisResult {
 							streamRegExps.add(shape.getRegExp(true));
 						streamRegExps.remove(getRegExp());
 						if (!streamRegExps.isEmpty())
-							outputArray(regExpStream, streamRegExps);
+							outputArray(generator, "regExpStream", streamRegExps);
 			*/
 
-			analysis.put("confidence", facts.confidence);
-			analysis.put("type", facts.getMatchTypeInfo().getBaseType().toString());
+			generator.writeNumberField("confidence", facts.confidence);
+			generator.writeStringField("type", facts.getMatchTypeInfo().getBaseType().toString());
 
-			analysis.put("isSemanticType", isSemanticType());
+			generator.writeBooleanField("isSemanticType", isSemanticType());
 			if (facts.getMatchTypeInfo().typeModifier != null)
-				analysis.put("typeModifier", facts.getMatchTypeInfo().typeModifier);
+				generator.writeStringField("typeModifier", facts.getMatchTypeInfo().typeModifier);
 			if (isSemanticType())
-				analysis.put("semanticType", facts.getMatchTypeInfo().getSemanticType());
+				generator.writeStringField("semanticType", facts.getMatchTypeInfo().getSemanticType());
 			if (analysisConfig.isEnabled(TextAnalyzer.Feature.FORMAT_DETECTION))
-				analysis.put("contentFormat", facts.streamFormat);
+				generator.writeStringField("contentFormat", facts.streamFormat);
 		}
 
 		if (FTAType.DOUBLE == facts.getMatchTypeInfo().getBaseType())
-			analysis.put("decimalSeparator", String.valueOf(facts.decimalSeparator));
+			generator.writeStringField("decimalSeparator", String.valueOf(facts.decimalSeparator));
 
 		if (statisticsEnabled()) {
 			if (facts.getMinValue() != null)
-				analysis.put("min", facts.getMinValue());
+				generator.writeStringField("min", facts.getMinValue());
 			if (facts.getMaxValue() != null)
-				analysis.put("max", facts.getMaxValue());
+				generator.writeStringField("max", facts.getMaxValue());
 		}
 
-		analysis.put("minLength", facts.minRawLength);
-		analysis.put("maxLength", facts.maxRawLength);
+		generator.writeNumberField("minLength", facts.minRawLength);
+		generator.writeNumberField("maxLength", facts.maxRawLength);
 
 		if (statisticsEnabled()) {
 			if (facts.getMatchTypeInfo().isNumeric())
-				analysis.put("mean", facts.mean);
+				writeNumberField(generator, "mean", facts.mean);
 			if (facts.getMatchTypeInfo().isNumeric())
-				analysis.put("standardDeviation", getStandardDeviation());
-			if (facts.topK != null) {
-				final ArrayNode detail = analysis.putArray("topK");
-				outputArray(detail, facts.topK);
-			}
-			if (facts.bottomK != null) {
-				final ArrayNode detail = analysis.putArray("bottomK");
-				outputArray(detail, facts.bottomK);
-			}
+				writeNumberField(generator, "standardDeviation", getStandardDeviation());
+			if (facts.topK != null)
+				outputArray(generator, "topK", facts.topK);
+			if (facts.bottomK != null)
+				outputArray(generator, "bottomK", facts.bottomK);
 		}
 
 		if (facts.getMatchTypeInfo().isNumeric())
-			analysis.put("leadingZeroCount", getLeadingZeroCount());
+			generator.writeNumberField("leadingZeroCount", getLeadingZeroCount());
 
-		analysis.put("cardinality", facts.cardinality.hasOverflowed() ? -1 : facts.cardinality.size());
+		generator.writeNumberField("cardinality", facts.cardinality.hasOverflowed() ? -1 : facts.cardinality.size());
 
 		if (!facts.cardinality.isEmpty() && verbose > 0) {
-			final ArrayNode detail = analysis.putArray("cardinalityDetail");
-			outputDetails(MAPPER, detail, facts.cardinality, verbose);
+			outputDetails(generator, "cardinalityDetail", facts.cardinality, verbose);
 		}
 
-		analysis.put("outlierCardinality", facts.outliers.hasOverflowed() ? -1 : facts.outliers.size());
+		generator.writeNumberField("outlierCardinality", facts.outliers.hasOverflowed() ? -1 : facts.outliers.size());
 		if (!facts.outliers.isEmpty() && verbose > 0) {
-			final ArrayNode detail = analysis.putArray("outlierDetail");
-			outputDetails(MAPPER, detail, facts.outliers, verbose);
+			outputDetails(generator, "outlierDetail", facts.outliers, verbose);
 		}
 
-		analysis.put("invalidCardinality", facts.invalid.hasOverflowed() ? -1 : facts.invalid.size());
+		generator.writeNumberField("invalidCardinality", facts.invalid.hasOverflowed() ? -1 : facts.invalid.size());
 		if (!facts.invalid.isEmpty() && verbose > 0) {
-			final ArrayNode detail = analysis.putArray("invalidDetail");
-			outputDetails(MAPPER, detail, facts.invalid, verbose);
+			outputDetails(generator, "invalidDetail", facts.invalid, verbose);
 		}
 
-		analysis.put("shapesCardinality", (!shape.getShapes().isEmpty() && shape.getShapes().size() < analysisConfig.getMaxShapes()) ? shape.getShapes().size() : -1);
+		generator.writeNumberField("shapesCardinality", (!shape.getShapes().isEmpty() && shape.getShapes().size() < analysisConfig.getMaxShapes()) ? shape.getShapes().size() : -1);
 		if (!shape.getShapes().isEmpty() && verbose > 0) {
-			final ArrayNode detail = analysis.putArray("shapesDetail");
-			outputDetails(MAPPER, detail, shape.getShapes(), verbose);
+			outputDetails(generator, "shapesDetail", shape.getShapes(), verbose);
 		}
 
 		if (verbose > 0) {
@@ -962,13 +1060,14 @@ public class TextAnalysisResult {
 					break;
 				}
 			if (maxNonZero != -1) {
-				final ArrayNode detail = analysis.putArray("lengthFrequency");
+				generator.writeArrayFieldStart("lengthFrequency");
 				for (int i = 0; i <= maxNonZero; i++) {
-					final ObjectNode elt = MAPPER.createObjectNode();
-					elt.put("key", i == facts.lengths.length - 1 ? -1 : i);
-					elt.put("count", facts.lengths[i]);
-					detail.add(elt);
+					generator.writeStartObject();
+					generator.writeNumberField("key", i == facts.lengths.length - 1 ? -1 : i);
+					generator.writeNumberField("count", facts.lengths[i]);
+					generator.writeEndObject();
 				}
+				generator.writeEndArray();
 			}
 		}
 
@@ -976,7 +1075,6 @@ public class TextAnalysisResult {
 		if (analysisConfig.isEnabled(TextAnalyzer.Feature.DISTRIBUTIONS) && facts.matchCount != 0 &&
 				!FTAType.STRING.equals(facts.getMatchTypeInfo().getBaseType()) && !FTAType.BOOLEAN.equals(facts.getMatchTypeInfo().getBaseType())) {
 			// We have support for arbitrary quantiles - but output percentiles in the JSON
-			final ArrayNode detailQ = analysis.putArray("percentiles");
 			// 101 because we want 0.0 and 1.0 plus everything in between
 			final double[] percentiles = new double[101];
 			double value = 0.0;
@@ -986,67 +1084,71 @@ public class TextAnalysisResult {
 			}
 			// Make sure the last one is precisely 1.0
 			percentiles[100] = 1.0;
-			outputArray(detailQ, getValuesAtQuantiles(percentiles));
+			outputArray(generator, "percentiles", getValuesAtQuantiles(percentiles));
 
 			final Histogram.Entry[] histogram = getHistogram(10);
 			if (histogram != null) {
-				final ArrayNode detailH = analysis.putArray("histogram");
+				generator.writeArrayFieldStart("histogram");
 				for (final Histogram.Entry e : histogram)
-					detailH.add(e.getCount());
+					generator.writeNumber(e.getCount());
+				generator.writeEndArray();
 			}
 		}
 
-		analysis.put("leadingWhiteSpace", getLeadingWhiteSpace());
-		analysis.put("trailingWhiteSpace", getTrailingWhiteSpace());
-		analysis.put("multiline", getMultiline());
+		generator.writeBooleanField("leadingWhiteSpace", getLeadingWhiteSpace());
+		generator.writeBooleanField("trailingWhiteSpace", getTrailingWhiteSpace());
+		generator.writeBooleanField("multiline", getMultiline());
 
 		// If an external source has set totalCount then output all the total* attributes (which
 		// will presumably also have been set by the external source).
 		if (facts.external.totalCount != -1) {
 			if (facts.external.totalNullCount != -1)
-				analysis.put("totalNullCount", facts.external.totalNullCount);
+				generator.writeNumberField("totalNullCount", facts.external.totalNullCount);
 			if (facts.external.totalBlankCount != -1)
-				analysis.put("totalBlankCount", facts.external.totalBlankCount);
+				generator.writeNumberField("totalBlankCount", facts.external.totalBlankCount);
 			if (facts.external.totalInvalidCount != -1)
-				analysis.put("totalInvalidCount", facts.external.totalInvalidCount);
+				generator.writeNumberField("totalInvalidCount", facts.external.totalInvalidCount);
 			if (facts.external.totalMatchCount != -1)
-				analysis.put("totalMatchCount", facts.external.totalMatchCount);
+				generator.writeNumberField("totalMatchCount", facts.external.totalMatchCount);
 			if (facts.external.totalMean != null)
-				analysis.put("toalMean", facts.external.totalMean);
+				writeNumberField(generator, "toalMean", facts.external.totalMean);
 			if (facts.external.totalStandardDeviation != null)
-				analysis.put("totalStandardDeviation", facts.external.totalStandardDeviation);
+				writeNumberField(generator, "totalStandardDeviation", facts.external.totalStandardDeviation);
 			if (facts.external.totalMinValue != null)
-				analysis.put("totalMin", facts.external.totalMinValue);
+				generator.writeStringField("totalMin", facts.external.totalMinValue);
 			if (facts.external.totalMaxValue != null)
-				analysis.put("totalMax", facts.external.totalMaxValue);
+				generator.writeStringField("totalMax", facts.external.totalMaxValue);
 			if (facts.external.totalMinLength != -1)
-				analysis.put("totalMinLength", facts.external.totalMinLength);
+				generator.writeNumberField("totalMinLength", facts.external.totalMinLength);
 			if (facts.external.totalMaxLength != -1)
-				analysis.put("totalMaxLength", facts.external.totalMaxLength);
+				generator.writeNumberField("totalMaxLength", facts.external.totalMaxLength);
 		}
 
 		if (facts.getMatchTypeInfo().isDateType())
-			analysis.put("dateResolutionMode", getDateResolutionMode().toString());
+			generator.writeStringField("dateResolutionMode", getDateResolutionMode().toString());
 
 		if (target != SignatureTarget.DATA_SIGNATURE) {
-			analysis.put("keyConfidence", facts.keyConfidence);
-			analysis.put("uniqueness", facts.uniqueness);
-			analysis.put("detectionLocale", facts.getLocale().toLanguageTag());
-			analysis.put("ftaVersion", Utils.getVersion());
+			writeNumberField(generator, "keyConfidence", facts.keyConfidence);
+			writeNumberField(generator, "uniqueness", facts.uniqueness);
+			generator.writeStringField("detectionLocale", facts.getLocale().toLanguageTag());
+			generator.writeStringField("ftaVersion", Utils.getVersion());
+
+			if (target == SignatureTarget.CONSUMER && !facts.degradations.isEmpty()) {
+				generator.writeArrayFieldStart("degradations");
+				for (final MemoryBudget.Degradation degradation : facts.degradations)
+					generator.writeString(degradation.toString());
+				generator.writeEndArray();
+			}
 
 			String signature = getStructureSignature();
 			if (signature != null)
-				analysis.put("structureSignature", signature);
+				generator.writeStringField("structureSignature", signature);
 
 			signature = getDataSignature();
 			if (signature != null)
-				analysis.put("dataSignature", signature);
+				generator.writeStringField("dataSignature", signature);
 		}
 
-		try {
-			return writer.writeValueAsString(analysis);
-		} catch (JsonProcessingException e) {
-			return jsonError(e.getMessage());
-		}
+		generator.writeEndObject();
 	}
 }
@@ -18,9 +18,8 @@ package com.cobber.fta;
 import static com.cobber.fta.dates.DateTimeParserResult.FRACTION_INDEX;
 import static com.cobber.fta.dates.DateTimeParserResult.HOUR_INDEX;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.Collator;
 import java.text.DateFormat;
 import java.text.NumberFormat;
@@ -30,6 +29,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -59,7 +59,6 @@ import com.cobber.fta.dates.LocaleInfo;
 import com.cobber.fta.token.TokenStream;
 import com.cobber.fta.token.TokenStreams;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -142,6 +141,14 @@ public class TextAnalyzer {
 
 	private boolean nullTextAsNull;
 
+	/** Receiver for counters and timings - metricsEnabled is cached so that we only read the clock if someone is listening. */
+	private AnalyzerMetrics metrics = AnalyzerMetrics.NONE;
+	private boolean metricsEnabled;
+	private MemoryBudget memoryBudget;
+	private MemoryBudget.Consumer budgetConsumer;
+	private Checkpoint checkpoint;
+	private int degradationsApplied;
+
 	/** Shared state passed to pipeline helper classes after initialize(). */
 	AnalysisContext ac;
 
@@ -180,7 +187,12 @@ public class TextAnalyzer {
 		/** Indicate whether we should treat "NULL" (and similar) as Null values. Feature is enabled by default. */
 		NULL_TEXT_AS_NULL,
 		/** Feature that if enabled returns a double if we see a set of integers followed by some doubles call it a double. Feature is enabled by default. */
-		NUMERIC_WIDENING
+		NUMERIC_WIDENING,
+		/**
+		 * Feature that indicates whether to record the cost (calls, elapsed time, rejects) of each Semantic Type plugin, the profile is
+		 * available via {@link TextAnalysisResult#getPluginProfile()}. Feature is disabled by default.
+		 */
+		PLUGIN_PROFILING
 	}
 
 	/**
@@ -293,6 +305,16 @@ public class TextAnalyzer {
 		return context;
 	}
 
+	/**
+	 * Has the type been determined?  The type is determined once the detect window has been processed (or a result is
+	 * requested, which forces the determination).
+	 *
+	 * @return True if the type has been determined.
+	 */
+	public boolean isTypeDetermined() {
+		return facts.getMatchTypeInfo() != null && facts.getMatchTypeInfo().getBaseType() != null;
+	}
+
 	/**
 	 * Set the context supplied to the TextAnalyzer.
 	 *
@@ -325,6 +347,103 @@ public class TextAnalyzer {
 		setDebug(analysisConfig.getDebug());
 	}
 
+	/**
+	 * Register a receiver for the counters and timings generated by this TextAnalyzer (for example, to forward to a monitoring system).
+	 * By default all metrics are discarded at no cost.
+	 * Note: The metrics receiver is not serialized, nor is it inherited by the analyzers used internally to re-analyze the stream.
+	 *
+	 * @param metrics The receiver for the metrics, null reverts to the default (no metrics).
+	 */
+	public void setMetrics(final AnalyzerMetrics metrics) {
+		this.metrics = metrics == null ? AnalyzerMetrics.NONE : metrics;
+		metricsEnabled = this.metrics != AnalyzerMetrics.NONE;
+		if (ac != null)
+			ac.metrics = this.metrics;
+	}
+
+	/**
+	 * Get the receiver for the counters and timings generated by this TextAnalyzer.
+	 *
+	 * @return The metrics receiver, {@link AnalyzerMetrics#NONE} if none has been registered.
+	 */
+	public AnalyzerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Register this TextAnalyzer with a MemoryBudget (typically shared by all the analyzers in the JVM).
+	 * If the budget is exceeded this analyzer may be asked to degrade its analysis (see {@link MemoryBudget.Degradation}),
+	 * any degradations applied are recorded in the result (see {@link TextAnalysisResult#getDegradations()}).
+	 * Note: The MemoryBudget is not serialized.
+	 *
+	 * @param memoryBudget The budget to register with, null to release this analyzer from its current budget.
+	 */
+	public void setMemoryBudget(final MemoryBudget memoryBudget) {
+		if (this.memoryBudget != null)
+			this.memoryBudget.release(budgetConsumer);
+		this.memoryBudget = memoryBudget;
+		budgetConsumer = memoryBudget == null ? null : memoryBudget.register(this);
+	}
+
+	/**
+	 * Get the MemoryBudget this TextAnalyzer is registered with.
+	 *
+	 * @return The MemoryBudget, or null if none has been registered.
+	 */
+	public MemoryBudget getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the Checkpoint used to persist the state of this TextAnalyzer (see {@link #checkpoint()} and {@link #restore(Path)}).
+	 * Typically used for long-running streams so that a restart does not lose the analysis accumulated to date.
+	 *
+	 * @param checkpoint The Checkpoint to write to, null to disable checkpoints.
+	 */
+	public void setCheckpoint(final Checkpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Get the Checkpoint used to persist the state of this TextAnalyzer.
+	 *
+	 * @return The Checkpoint, or null if none has been set.
+	 */
+	public Checkpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Write an incremental checkpoint of this TextAnalyzer, the cost of a checkpoint is proportional to the changes
+	 * since the last checkpoint and is not dependent on the number of samples (see {@link Checkpoint}).
+	 * Note: No checkpoint is written until the type has been determined (i.e. the detect window has been processed).
+	 *
+	 * @return True if a checkpoint was written.
+	 * @throws IOException If the checkpoint cannot be written.
+	 * @throws IllegalStateException If no Checkpoint has been set (see {@link #setCheckpoint(Checkpoint)}).
+	 */
+	public boolean checkpoint() throws IOException {
+		if (checkpoint == null)
+			throw new IllegalStateException("No Checkpoint set, use setCheckpoint()");
+		return checkpoint.write(this);
+	}
+
+	/**
+	 * Create a new TextAnalyzer from the latest checkpoint in the supplied directory - the new TextAnalyzer can be trained
+	 * further exactly as if it had been deserialized (see {@link #deserialize(String)}).
+	 * Note: The Checkpoint is not restored, use {@link #setCheckpoint(Checkpoint)} to continue checkpointing.
+	 *
+	 * @param directory The directory containing the checkpoint.
+	 * @return A new TextAnalyzer restored from the checkpoint.
+	 * @throws IOException If the checkpoint cannot be read.
+	 * @throws FTAMergeException If there is no checkpoint or the checkpoint is invalid.
+	 * @throws FTAPluginException Thrown when a registered plugin has detected an issue
+	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
+	 */
+	public static TextAnalyzer restore(final Path directory) throws IOException, FTAMergeException, FTAPluginException, FTAUnsupportedLocaleException {
+		return Checkpoint.restore(directory);
+	}
+
 	/**
 	 * Internal Only.  Enable internal debugging.
 	 *
@@ -344,6 +463,10 @@ public class TextAnalyzer {
 	 * <li>stream=&lt;name of stream&gt; (defaults to all)
 	 * <li>directory=&lt;directory for trace file&gt; (defaults to java.io.tmpdir)
 	 * <li>samples=&lt;# samples to trace&gt; (defaults to 1000)
+	 * <li>compress=true/false - gzip the trace file (defaults to false)
+	 * <li>async=true/false - write the trace on a background thread (defaults to false)
+	 * <li>policy=block/drop/sample - the action taken on samples if the background writer is congested (defaults to block)
+	 * <li>fraction=&lt;0.0-1.0&gt; - the fraction of streams to trace (defaults to 1.0)
 	 * </ul>
 	 *
 	 * @param traceOptions The trace options.
@@ -887,8 +1010,8 @@ public class TextAnalyzer {
 	public void registerDefaultPlugins(final AnalysisConfig analysisConfig) {
 		synchronized (pluginDefinitionsLock) {
 			if (pluginDefinitions == null)
-				try (BufferedReader reader = new BufferedReader(new InputStreamReader(TextAnalyzer.class.getResourceAsStream("/reference/plugins.json"), StandardCharsets.UTF_8))) {
-					pluginDefinitions = mapper.readValue(reader, new TypeReference<List<PluginDefinition>>(){});
+				try {
+					pluginDefinitions = PluginCatalog.readBuiltinPlugins(mapper);
 				} catch (Exception e) {
 					throw new IllegalArgumentException("Internal error: Issues with plugins file: " + e.getMessage(), e);
 				}
@@ -925,6 +1048,8 @@ public class TextAnalyzer {
 
 	void initialize() throws FTAPluginException, FTAUnsupportedLocaleException {
 		memoryDebug("initialize.entry");
+		final AnalyzerEvents.Initialize event = new AnalyzerEvents.Initialize();
+		event.begin();
 
 		facts.initialize(getTopBottomK());
 
@@ -945,7 +1070,8 @@ public class TextAnalyzer {
 		if (analysisConfig.isEnabled(TextAnalyzer.Feature.DEFAULT_SEMANTIC_TYPES))
 			registerDefaultPlugins(analysisConfig);
 
-		for (final LogicalType logical : plugins.getRegisteredSemanticTypes()) {
+		// Note: the built-in plugins are not fully initialized until they become a candidate (see AnalysisContext)
+		for (final LogicalType logical : plugins.getRegisteredSemanticTypesDeferred()) {
 
 			if ((logical instanceof LogicalTypeFinite) && ((LogicalTypeFinite)logical).getSize() + 10 > getMaxCardinality())
 				throw new FTAPluginException("Internal error: Max Cardinality: " + getMaxCardinality() + " is insufficient to support plugin: " + logical.getSemanticType());
@@ -1044,12 +1170,16 @@ public class TextAnalyzer {
 		ac.candidateCountsRE = candidateCountsRE;
 		ac.nullTextAsNull = nullTextAsNull;
 		ac.internalErrors = internalErrors;
+		ac.metrics = metrics;
+		if (analysisConfig.isEnabled(Feature.PLUGIN_PROFILING))
+			ac.pluginProfile = new PluginProfile();
 
 		typeTracker = new TypeTracker(ac);
 		typeDeterminer = new TypeDeterminer(ac, typeTracker);
 		resultFinalizer = new ResultFinalizer(ac, typeTracker);
 
 		initialized = true;
+		event.complete(context.getStreamName(), facts.sampleCount);
 		memoryDebug("initialize.exit");
 	}
 
@@ -1141,6 +1271,8 @@ public class TextAnalyzer {
 		}
 
 		final Map<String, Long> bulkObservations = new HashMap<>();
+		final long bulkStart = metricsEnabled ? System.nanoTime() : 0;
+		long bulkSamples = 0;
 
 		// Now send in the balance of the interesting samples in bulk
 		for (final Observation fact : facts) {
@@ -1148,6 +1280,7 @@ public class TextAnalyzer {
 			if (remaining != 0) {
 				bulkObservations.put(fact.observed, remaining);
 				trainBulkCore(fact.observed, remaining);
+				bulkSamples += remaining;
 			}
 		}
 
@@ -1158,8 +1291,79 @@ public class TextAnalyzer {
 		}
 
 		// Now send in the uninteresting elements
-		for (final Entry<String, Long> entry : uninteresting.entrySet())
+		for (final Entry<String, Long> entry : uninteresting.entrySet()) {
 			trainBulkCore(entry.getKey(), entry.getValue());
+			bulkSamples += entry.getValue();
+		}
+
+		if (metricsEnabled) {
+			metrics.increment(context.getStreamName(), AnalyzerMetrics.Counter.SAMPLES_TRAINED, bulkSamples);
+			recordTimer(AnalyzerMetrics.Timer.TRACKING, bulkStart);
+		}
+
+		if (memoryBudget != null)
+			checkMemoryBudget();
+	}
+
+	/*
+	 * Report our estimated retained size to the MemoryBudget and apply any degradations it has requested.
+	 */
+	private void checkMemoryBudget() {
+		final int requested = memoryBudget.update(budgetConsumer, estimateRetainedBytes(), degradationsApplied);
+
+		// Degradations are only applied once the type has been determined
+		if (requested == degradationsApplied || facts.getMatchTypeInfo() == null || facts.getMatchTypeInfo().getBaseType() == null)
+			return;
+
+		while (degradationsApplied < requested)
+			degrade(MemoryBudget.Degradation.values()[degradationsApplied++]);
+
+		memoryBudget.update(budgetConsumer, estimateRetainedBytes(), degradationsApplied);
+	}
+
+	private void degrade(final MemoryBudget.Degradation degradation) {
+		switch (degradation) {
+		case CARDINALITY_SKETCHED:
+			// Like overflowing the cardinality set, this blows the cache - so look for RegExp matches first
+			checkRegExpTypesOnce();
+			// Retain the most frequent values, the balance are tracked exactly as if we had overflowed the cardinality set
+			final int newCapacity = Math.max(analysisConfig.getMaxCardinality() / MemoryBudget.CARDINALITY_DIVISOR, 1);
+			for (final Map.Entry<String, Long> entry : facts.cardinality.shrink(newCapacity).entrySet())
+				typeTracker.addOverflow(entry.getKey(), entry.getValue());
+			break;
+		case OUTLIER_DETAIL_DROPPED:
+			outliersSmashed.clear();
+			outliersSmashed.setMaxCapacity(0);
+			// Retain the most frequent outliers
+			facts.outliers.shrink(Math.max(analysisConfig.getMaxOutliers() / MemoryBudget.CARDINALITY_DIVISOR, 1));
+			break;
+		case SHAPES_COLLAPSED:
+			checkRegExpTypesOnce();
+			tokenStreams.collapse();
+			break;
+		case TRAINING_SET_DROPPED:
+			raw = new ArrayList<>();
+			ac.raw = raw;
+			break;
+		}
+
+		facts.degradations.add(degradation);
+		debug("Degradation ({}) applied: {}, estimated retained bytes: {}", context.getStreamName(), degradation, estimateRetainedBytes());
+	}
+
+	/*
+	 * Re-apply the degradations recorded in the Facts (e.g. of a deserialized or merged analyzer), the reduced capacities
+	 * are not serialized so would otherwise revert to those of the configuration.
+	 */
+	void restoreDegradations() {
+		if (facts.degradations.isEmpty() || facts.getMatchTypeInfo() == null || facts.getMatchTypeInfo().getBaseType() == null)
+			return;
+
+		// The RegExp check was performed (if required) by the original analyzer
+		cacheCheck = true;
+		for (final MemoryBudget.Degradation degradation : EnumSet.copyOf(facts.degradations))
+			degrade(degradation);
+		degradationsApplied = Math.max(degradationsApplied, facts.degradations.size());
 	}
 
 	private void trainBulkCore(final String rawInput, final long count) {
@@ -1210,7 +1414,7 @@ public class TextAnalyzer {
 		// Process the valid entries first
 		for (final Map.Entry<String, Long> entry : cache.entrySet()) {
 			final String key = entry.getKey();
-			if (key != null && ((logical != null && logical.isValid(key)) || (regExp != null && key.matches(regExp))))
+			if (key != null && ((logical != null && ac.isValid(logical, key, false, 0)) || (regExp != null && key.matches(regExp))))
 				trainBulkCore(entry.getKey(), entry.getValue());
 			else
 				invalid.put(key, entry.getValue());
@@ -1233,6 +1437,42 @@ public class TextAnalyzer {
 	 * @throws FTAUnsupportedLocaleException Thrown when a requested locale is not supported
 	 */
 	public boolean train(final String rawInput) throws FTAPluginException, FTAUnsupportedLocaleException {
+		if (!metricsEnabled)
+			return trainInternal(rawInput);
+
+		final boolean detecting = facts.getMatchTypeInfo() == null || facts.getMatchTypeInfo().getBaseType() == null;
+		final long start = System.nanoTime();
+		try {
+			return trainInternal(rawInput);
+		}
+		finally {
+			recordTimer(detecting ? AnalyzerMetrics.Timer.DETECT_WINDOW : AnalyzerMetrics.Timer.TRACKING, start);
+			metrics.increment(context.getStreamName(), AnalyzerMetrics.Counter.SAMPLES_TRAINED, 1);
+		}
+	}
+
+	/*
+	 * Train 'count' nulls, equivalent to (but much cheaper than) invoking train(null) 'count' times.  Used to back-fill a
+	 * stream added to a RecordAnalyzer after records have been trained (so the analyzer has seen nothing but nulls).
+	 */
+	void trainNulls(final long count) throws FTAPluginException, FTAUnsupportedLocaleException {
+		if (count == 0)
+			return;
+
+		// The first is trained normally so that the analyzer is initialized, a null does nothing else that depends on the count
+		train(null);
+
+		final long remaining = count - 1;
+		if (traceConfig != null)
+			for (long i = 0; i < remaining; i++)
+				traceConfig.recordSample(null, facts.sampleCount + i);
+		facts.sampleCount += remaining;
+		facts.nullCount += remaining;
+		if (metricsEnabled)
+			metrics.increment(context.getStreamName(), AnalyzerMetrics.Counter.SAMPLES_TRAINED, remaining);
+	}
+
+	private boolean trainInternal(final String rawInput) throws FTAPluginException, FTAUnsupportedLocaleException {
 		// Initialize if we have not already done so
 		if (!initialized) {
 			analysisConfig.setTrainingMode(AnalysisConfig.TrainingMode.SIMPLE);
@@ -1245,8 +1485,11 @@ public class TextAnalyzer {
 		// If we have a large number of repetitive samples, then cache them to speed up the analysis
 		if (facts.sampleCount > 100 && facts.getMatchTypeInfo() != null && facts.cardinality.size() < 2 * CACHE_SIZE) {
 			final boolean added = cache.mergeIfSpace(rawInput, 1L, Long::sum);
-			if (added)
+			if (added) {
+				if (metricsEnabled)
+					metrics.increment(context.getStreamName(), AnalyzerMetrics.Counter.CACHE_HITS, 1);
 				return facts.getMatchTypeInfo().getBaseType() != null;
+			}
 			else {
 				emptyCache();
 			}
@@ -1257,6 +1500,9 @@ public class TextAnalyzer {
 
 		facts.sampleCount++;
 
+		if (memoryBudget != null && facts.sampleCount % memoryBudget.getCheckInterval() == 0)
+			checkMemoryBudget();
+
 		final FTAType matchType = facts.getMatchTypeInfo() != null ? facts.getMatchTypeInfo().getBaseType() : null;
 
 		if (isNullEquivalent(rawInput)) {
@@ -1367,8 +1613,15 @@ public class TextAnalyzer {
 		// In that case sampleCount is 0 so there is nothing to determine; leave matchTypeInfo null.
 		if (typeDeterminer == null)
 			return;
+		if (metricsEnabled)
+			metrics.increment(context.getStreamName(), AnalyzerMetrics.Counter.DETERMINE_TYPE, 1);
+		final AnalyzerEvents.DetermineType event = new AnalyzerEvents.DetermineType();
+		event.begin();
 		if (typeDeterminer.determineType())
 			raw.forEach((value) -> trackResult(value, value.trim(), false, 1));
+		if (event.shouldCommit())
+			event.type = String.valueOf(facts.getMatchTypeInfo());
+		event.complete(context.getStreamName(), facts.sampleCount);
 	}
 
 	private void addValid(final String input, final long count) {
@@ -1533,22 +1786,27 @@ public class TextAnalyzer {
 			addOutlier(input, count);
 
 			if (facts.getMatchTypeInfo().isSemanticType()) {
-				if (facts.outliers.size() == analysisConfig.getMaxOutliers() && !facts.getMatchTypeInfo().isForce()) {
+				if (facts.isOutliersFull(analysisConfig.getMaxOutliers()) && !facts.getMatchTypeInfo().isForce()) {
 					// Do we need to back out from any of our Infinite type determinations
 					final LogicalType logical = plugins.getRegistered(facts.getMatchTypeInfo().getSemanticType());
-					final PluginAnalysis pluginAnalysis = logical.analyzeSet(context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig);
+					final PluginAnalysis pluginAnalysis = ac.analyzeSet(logical, context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig);
 					if (!pluginAnalysis.isValid())
 						backout(logical, realSamples, pluginAnalysis);
 				}
 			}
-			else if (facts.outliers.size() == analysisConfig.getMaxOutliers() || (realSamples > reflectionSamples * 3 && (double)facts.matchCount / realSamples < .5)) {
+			else if (facts.isOutliersFull(analysisConfig.getMaxOutliers()) || (realSamples > reflectionSamples * 3 && (double)facts.matchCount / realSamples < .5)) {
 				// Need to evaluate if we got this wrong
 				conditionalBackoutToPattern(realSamples, facts.getMatchTypeInfo());
 			}
 		}
 
 		// So before we blow the cache (either Shapes or Cardinality) we should look for RegExp matches ONCE!
-		if (!cacheCheck && (tokenStreams.isFull() || facts.cardinality.size() + 1 == analysisConfig.getMaxCardinality())) {
+		if (tokenStreams.isFull() || facts.cardinality.size() + 1 == analysisConfig.getMaxCardinality())
+			checkRegExpTypesOnce();
+	}
+
+	private void checkRegExpTypesOnce() {
+		if (!cacheCheck) {
 			checkRegExpTypes(facts.getMatchTypeInfo().getBaseType());
 			cacheCheck = true;
 		}
@@ -1584,11 +1842,33 @@ public class TextAnalyzer {
 	}
 
 	protected TextAnalysisResult reAnalyze(final Map<String, Long> details) throws FTAPluginException, FTAUnsupportedLocaleException {
+		final long start = metricsEnabled ? System.nanoTime() : 0;
+		final AnalyzerEvents.ResultPhase phase = AnalyzerEvents.beginPhase("reanalyze");
 		final TextAnalyzer analysisBulk = duplicate();
 		analysisBulk.getContext().setNested();
 
 		analysisBulk.trainBulk(details);
-		return analysisBulk.getResult();
+		final TextAnalysisResult ret = analysisBulk.getResult();
+		recordTimer(AnalyzerMetrics.Timer.RESULT_REANALYZE, start);
+		phase.complete(context.getStreamName(), facts.sampleCount);
+
+		// The cost of the re-analysis is attributed to this stream
+		if (ac.pluginProfile != null)
+			ac.pluginProfile.merge(analysisBulk.ac.pluginProfile);
+
+		return ret;
+	}
+
+	/*
+	 * Record the time elapsed since 'start' against the supplied timer, returns the current time to support timing consecutive phases.
+	 */
+	private long recordTimer(final AnalyzerMetrics.Timer timer, final long start) {
+		if (!metricsEnabled)
+			return 0;
+
+		final long now = System.nanoTime();
+		metrics.record(context.getStreamName(), timer, now - start);
+		return now;
 	}
 
 	/**
@@ -1607,12 +1887,19 @@ public class TextAnalyzer {
 			initialize();
 		}
 
+		final long resultStart = metricsEnabled ? System.nanoTime() : 0;
+		AnalyzerEvents.ResultPhase phase = AnalyzerEvents.beginPhase("determine");
+
 		emptyCache();
 
 		// If we have not already determined the type, now we need to
 		if (facts.getMatchTypeInfo() == null)
 			determineType();
 
+		final long finalizeStart = recordTimer(AnalyzerMetrics.Timer.RESULT_DETERMINE, resultStart);
+		phase.complete(context.getStreamName(), facts.sampleCount);
+		phase = AnalyzerEvents.beginPhase("validate");
+
 		// Compute our confidence
 		final long realSamples = facts.sampleCount - (facts.nullCount + facts.blankCount);
 
@@ -1639,7 +1926,7 @@ public class TextAnalyzer {
 		if (facts.getMatchTypeInfo().isSemanticType() && !facts.getMatchTypeInfo().isForce()) {
 			final LogicalType logical = plugins.getRegistered(facts.getMatchTypeInfo().getSemanticType());
 
-			final PluginAnalysis pluginAnalysis = logical.analyzeSet(context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig);
+			final PluginAnalysis pluginAnalysis = ac.analyzeSet(logical, context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig);
 			if (!pluginAnalysis.isValid()) {
 				if (logical.acceptsBaseType(FTAType.STRING) || logical.acceptsBaseType(FTAType.LONG) || logical.acceptsBaseType(FTAType.DOUBLE)) {
 					backout(logical, realSamples, pluginAnalysis);
@@ -1651,10 +1938,13 @@ public class TextAnalyzer {
 				// Update our Regular Expression - since it may have changed based on all the data observed
 				facts.getMatchTypeInfo().setRegExp(logical.getRegExp());
 				facts.matchCount += outlierCount - facts.outliers.values().stream().mapToLong(l-> l).sum();
-				facts.confidence = logical.getConfidence(facts.matchCount, realSamples, context);
+				facts.confidence = ac.getConfidence(logical, facts.matchCount, realSamples, context);
 			}
 		}
 
+		phase.complete(context.getStreamName(), facts.sampleCount);
+		phase = AnalyzerEvents.beginPhase("finalize");
+
 		final FiniteMap cardinalityUpper = new FiniteMap(facts.cardinality);
 		final FTAType currentType = facts.getMatchTypeInfo().getBaseType();
 
@@ -1675,7 +1965,7 @@ public class TextAnalyzer {
 				// Sweep the outliers - flipping them to invalid if they do not pass the relaxed isValid definition
 				for (final Map.Entry<String, Long> entry : facts.outliers.entrySet()) {
 					// Split the outliers to either invalid entries or valid entries
-					if (logical.isValid(entry.getKey(), false, entry.getValue())) {
+					if (ac.isValid(logical, entry.getKey(), false, entry.getValue())) {
 						addValid(entry.getKey(), entry.getValue());
 						facts.matchCount += entry.getValue();
 						recalcConfidence = true;
@@ -1685,7 +1975,7 @@ public class TextAnalyzer {
 				}
 
 				if (recalcConfidence)
-					facts.confidence = logical.getConfidence(facts.matchCount, realSamples, context);
+					facts.confidence = ac.getConfidence(logical, facts.matchCount, realSamples, context);
 				facts.outliers.clear();
 			}
 			else {
@@ -1770,11 +2060,11 @@ public class TextAnalyzer {
 
 						// Now we have mapped to an enum we need to check again if this should be matched to a Semantic type
 						for (final LogicalTypeRegExp logical : regExpTypes) {
-							if (logical.acceptsBaseType(FTAType.STRING) &&
-									logical.isMatch(facts.getMatchTypeInfo().getRegExp()) &&
-									logical.analyzeSet(context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()) {
+							if (!logical.acceptsBaseType(FTAType.STRING) || !logical.isMatch(facts.getMatchTypeInfo().getRegExp()))
+								continue;
+							if (ac.analyzeSet(logical, context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()) {
 								facts.setMatchTypeInfo(new TypeInfo(logical.getRegExp(), logical.getBaseType(), logical.getSemanticType(), facts.getMatchTypeInfo()));
-								facts.confidence = logical.getConfidence(facts.matchCount, realSamples, context);
+								facts.confidence = ac.getConfidence(logical, facts.matchCount, realSamples, context);
 								break;
 							}
 						}
@@ -1786,12 +2076,12 @@ public class TextAnalyzer {
 					final TokenStream best = tokenStreams.getBest();
 					final String regExp = best.getRegExp(false);
 					for (final LogicalTypeRegExp logical : regExpTypes) {
-						if (logical.acceptsBaseType(FTAType.STRING) &&
-								logical.isMatch(regExp) &&
-								logical.analyzeSet(context, best.getOccurrences(), realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()) {
+						if (!logical.acceptsBaseType(FTAType.STRING) || !logical.isMatch(regExp))
+							continue;
+						if (ac.analyzeSet(logical, context, best.getOccurrences(), realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()) {
 							facts.setMatchTypeInfo(new TypeInfo(regExp, logical.getBaseType(), logical.getSemanticType(), facts.getMatchTypeInfo()));
 							facts.matchCount = best.getOccurrences();
-							facts.confidence = logical.getConfidence(facts.matchCount, realSamples, context);
+							facts.confidence = ac.getConfidence(logical, facts.matchCount, realSamples, context);
 							updated = true;
 							break;
 						}
@@ -1823,7 +2113,7 @@ public class TextAnalyzer {
 			// Attempt to identify keys?
 			facts.keyConfidence = 0.0;
 			if (facts.sampleCount > MIN_SAMPLES_FOR_KEY && analysisConfig.getMaxCardinality() >= MIN_SAMPLES_FOR_KEY / 2 &&
-					(facts.cardinality.size() == analysisConfig.getMaxCardinality() || facts.cardinality.size() == facts.sampleCount) &&
+					(facts.isCardinalityOverflowed(analysisConfig.getMaxCardinality()) || facts.cardinality.size() == facts.sampleCount) &&
 					facts.blankCount == 0 && facts.nullCount == 0 &&
 					((facts.getMatchTypeInfo().isSemanticType() && "GUID".equals(facts.getMatchTypeInfo().getSemanticType())) ||
 					(facts.getMatchTypeInfo().typeModifier == null &&
@@ -1831,7 +2121,7 @@ public class TextAnalyzer {
 							|| FTAType.LONG.equals(facts.getMatchTypeInfo().getBaseType()))))) {
 				facts.keyConfidence = 0.9;
 
-				if (facts.cardinality.size() == analysisConfig.getMaxCardinality())
+				if (facts.isCardinalityOverflowed(analysisConfig.getMaxCardinality()))
 					// Might be a key but only iff every element in the cardinality
 					// set only has a count of 1
 					for (final Map.Entry<String, Long> entry : facts.cardinality.entrySet()) {
@@ -1848,7 +2138,7 @@ public class TextAnalyzer {
 			if (facts.cardinality.isEmpty())
 				facts.uniqueness = 0.0;
 			// Can only generate uniqueness if we have not overflowed Max Cardinality
-			else if (facts.cardinality.size() < analysisConfig.getMaxCardinality()) {
+			else if (!facts.isCardinalityOverflowed(analysisConfig.getMaxCardinality())) {
 				int uniques = 0;
 				for (final Map.Entry<String, Long> entry : facts.cardinality.entrySet()) {
 					if (entry.getValue() == 1)
@@ -1866,7 +2156,7 @@ public class TextAnalyzer {
 
 		// Only attempt to set distinct count if we have not already been told the answer
 		if (facts.distinctCount == null) {
-			if (facts.cardinality.size() < analysisConfig.getMaxCardinality())
+			if (!facts.isCardinalityOverflowed(analysisConfig.getMaxCardinality()))
 				facts.distinctCount = (long)facts.cardinality.size();
 			else if (FTAType.LONG.equals(facts.getMatchTypeInfo().getBaseType()) && (facts.monotonicIncreasing || facts.monotonicDecreasing))
 				facts.distinctCount = facts.matchCount;
@@ -1877,17 +2167,20 @@ public class TextAnalyzer {
 		if (isEnabled(Feature.FORMAT_DETECTION))
 			facts.streamFormat = Utils.determineStreamFormat(mapper, facts.cardinality);
 
+		recordTimer(AnalyzerMetrics.Timer.RESULT_FINALIZE, finalizeStart);
+		phase.complete(context.getStreamName(), facts.sampleCount);
+
 		TextAnalysisResult result = null;
 		// If we have not detected a Semantic Type but the header looks really good, then try excluding the
 		// most popular non-valid entry in the hope that it is something like 'NA', 'XX', etc.
 		if (FTAType.STRING.equals(facts.getMatchTypeInfo().getBaseType()) && !facts.getMatchTypeInfo().isSemanticType() && !getContext().isNested() && pluginThreshold != 100 && facts.cardinality.size() >= 4) {
-			for (final LogicalType logical : plugins.getRegisteredSemanticTypes()) {
+			for (final LogicalType logical : plugins.getRegisteredSemanticTypesDeferred()) {
 				final Map<String, Long> details = facts.synthesizeBulk();
 				long worst = (facts.sampleCount - (facts.nullCount + facts.blankCount)) / 20;
 				Map.Entry<String, Long> worstEntry = null;
 				if (logical.getHeaderConfidence(context) >= 90) {
 					for (final Map.Entry<String, Long> entry : details.entrySet()) {
-						if (isInteresting(entry.getKey()) && !logical.isValid(entry.getKey()) && entry.getValue() > worst) {
+						if (isInteresting(entry.getKey()) && !ac.isValid(logical, entry.getKey(), false, 0) && entry.getValue() > worst) {
 							worstEntry = entry;
 							worst = entry.getValue();
 						}
@@ -1922,7 +2215,7 @@ public class TextAnalyzer {
 				analysisConfig.isEnabled(TextAnalyzer.Feature.DISTRIBUTIONS) &&
 				FTAType.LONG.equals(facts.getMatchTypeInfo().getBaseType()) &&
 				!facts.getMatchTypeInfo().isSemanticType() &&
-				facts.cardinality.size() != analysisConfig.getMaxCardinality() &&
+				!facts.isCardinalityOverflowed(analysisConfig.getMaxCardinality()) &&
 				!getContext().isNested() && pluginThreshold != 100 && facts.matchCount >= 20) {
 			final Map<String, Long> details = facts.synthesizeBulk();
 			final Map<String, Long> outliers = new HashMap<>();
@@ -2014,12 +2307,12 @@ public class TextAnalyzer {
 			if (!facts.getMatchTypeInfo().isSemanticType() && !getContext().isNested() &&
 					((facts.external.keyConfidence != null && facts.external.keyConfidence == 1.0) ||
 					(facts.uniqueness == 1.0 && facts.matchCount >= 20 &&
-						identifier.analyzeSet(context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()))) {
+						ac.analyzeSet(identifier, context, facts.matchCount, realSamples, facts.getMatchTypeInfo().getRegExp(), facts.calculateFacts(), facts.cardinality, facts.outliers, tokenStreams, analysisConfig).isValid()))) {
 				facts.getMatchTypeInfo().setRegExp(facts.getRegExp());
 				facts.getMatchTypeInfo().setSemanticType(identifier.getSemanticType());
 				// If the keyConfidence was not set externally and we have concluded we have an IDENTIFIER set the keyConfidence to reflect this
 				if (facts.external.keyConfidence == null) {
-					facts.confidence = facts.external.totalCount == facts.sampleCount ? 1.0 : identifier.getConfidence(facts.matchCount, realSamples, context);
+					facts.confidence = facts.external.totalCount == facts.sampleCount ? 1.0 : ac.getConfidence(identifier, facts.matchCount, realSamples, context);
 					facts.keyConfidence = facts.confidence;
 				}
 				else
@@ -2052,6 +2345,11 @@ public class TextAnalyzer {
 			traceConfig.tag("getResult", getFacts().getSampleCount());
 		}
 
+		if (ac.pluginProfile != null)
+			result.setPluginProfile(ac.pluginProfile);
+
+		recordTimer(AnalyzerMetrics.Timer.RESULT, resultStart);
+
 		return result;
 	}
 
@@ -2102,6 +2400,53 @@ public class TextAnalyzer {
 		return raw;
 	}
 
+	/**
+	 * Estimate the heap retained by this TextAnalyzer.
+	 * The estimate covers the cardinality, outlier and invalid sets, the shapes (TokenStreams), the training set,
+	 * the quantile sketch, the overflow histogram, the top/bottom K values and the plugin state.
+	 * Note: The estimate is derived from the size of each structure (and the average length of the input) rather than
+	 * by walking the structures, so it is cheap enough to be called frequently but is only approximate.
+	 *
+	 * @return An estimate (in bytes) of the heap retained by this analyzer.
+	 */
+	public long estimateRetainedBytes() {
+		// Nothing is retained until the analyzer has been initialized
+		if (raw == null)
+			return 0;
+
+		final long averageLength = facts.getAverageLength(averageRawLength(8));
+
+		long ret = facts.estimateRetainedBytes(averageLength);
+
+		ret += RetainedSize.stringCountMap(outliersSmashed.size(), averageLength);
+		ret += RetainedSize.stringCountMap(cache.size(), averageLength);
+
+		ret += RetainedSize.ARRAY_HEADER + raw.size() * (RetainedSize.REFERENCE + RetainedSize.string(averageLength));
+
+		// Each shape retains its key and Tokens (plus the compressed equivalents)
+		ret += tokenStreams.size() * (RetainedSize.HASH_ENTRY + RetainedSize.TOKEN_STREAM +
+				2 * (RetainedSize.string(averageLength) + RetainedSize.ARRAY_HEADER + averageLength * RetainedSize.TOKEN));
+
+		final int plugins = infiniteTypes.size() + finiteTypes.size() + regExpTypes.size();
+		ret += plugins * (RetainedSize.PLUGIN + RetainedSize.REFERENCE + Integer.BYTES);
+
+		return ret;
+	}
+
+	/*
+	 * The average length of the training set - used when no lengths have yet been tracked.
+	 */
+	private long averageRawLength(final long defaultLength) {
+		if (raw == null || raw.isEmpty())
+			return defaultLength;
+
+		long total = 0;
+		for (final String s : raw)
+			total += s == null ? 0 : s.length();
+
+		return total / raw.size();
+	}
+
 	/**
 	 * Serialize a TextAnalyzer - commonly used in concert with {@link #deserialize(String)} and {@link #merge(TextAnalyzer, TextAnalyzer)}
 	 * to merge TextAnalyzers run on separate shards into a single TextAnalyzer and hence a single TextAnalysisResult.
@@ -140,4 +140,14 @@ public class TopBottomK<T extends Comparable<? super T>, C> {
 	public SortedSet<String> bottomKasString() {
 		return new PreSortedSet(bottomK());
 	}
+
+	/**
+	 * The number of items currently retained.
+	 * @return The number of items retained.
+	 */
+	int retained() {
+		if (split)
+			return top.size() + bottom.size();
+		return starter == null ? 0 : starter.size();
+	}
 }
@@ -19,15 +19,19 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import com.cobber.fta.core.TraceException;
 import com.fasterxml.jackson.core.io.JsonStringEncoder;
@@ -37,19 +41,65 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Class used to manage tracing for FTA.
+ * By default the trace is written synchronously on the training thread, if 'async=true' is specified then records are
+ * handed to a background writer (shared by all Traces) through a bounded queue, and the back-pressure 'policy' determines
+ * what happens to samples if the writer cannot keep up.  Structural records (configuration, bulk samples, tags and results)
+ * are never dropped so the trace is always readable by Replay.
  */
 public class Trace {
+	/** The action taken when recording a sample and the background writer is congested. */
+	public enum Policy {
+		/** Wait for the writer to catch up. */
+		BLOCK,
+		/** Drop samples if the queue is full. */
+		DROP,
+		/** Retain one in every ten samples once the queue is more than three quarters full, drop samples if the queue is full. */
+		SAMPLE
+	}
+
+	/** The kinds of record written to the trace. */
+	enum Kind {
+		SAMPLE,
+		BULK,
+		PERSIST,
+		TEXT,
+		RESULT
+	}
+
+	/** A single unit of work for the writer. */
+	static final class Record {
+		final Trace trace;
+		final Kind kind;
+		final Object payload;
+
+		Record(final Trace trace, final Kind kind, final Object payload) {
+			this.trace = trace;
+			this.kind = kind;
+			this.payload = payload;
+		}
+	}
+
+	/** The frequency with which samples are retained when congested and the Policy is SAMPLE. */
+	private static final int CONGESTED_SAMPLE_RATE = 10;
+
 	private Writer traceWriter;
 	private File traceFile;
 	private long traceSampleCount = 1000;
 	private long batchCount;
 	private boolean enabled = true;
+	private boolean compress;
+	private Policy policy = Policy.BLOCK;
+	private TraceWriter asyncWriter;
+	private long congestedSamples;
+	private long droppedSamples;
 	private	final JsonStringEncoder jsonStringEncoder = JsonStringEncoder.getInstance();
 
 	public Trace(final String trace, final AnalyzerContext context, final AnalysisConfig analysisConfig) {
 		final String[] traceSettings = trace.split(",");
 		String traceDirectory = null;
 		String streamName = null;
+		boolean async = false;
+		double fraction = 1.0;
 
 		for (final String traceSetting : traceSettings) {
 			final String[] traceComponents = traceSetting.split("=");
@@ -71,13 +121,38 @@ public class Trace {
 			case "samples":
 				traceSampleCount = Long.parseLong(traceComponents[1]);
 				break;
+			case "compress":
+				compress = "true".equalsIgnoreCase(traceComponents[1]);
+				break;
+			case "async":
+				async = "true".equalsIgnoreCase(traceComponents[1]);
+				break;
+			case "policy":
+				try {
+					policy = Policy.valueOf(traceComponents[1].toUpperCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					throw new TraceException("Unrecognized trace policy: '" + traceComponents[1] + "' - expected block, drop, or sample");
+				}
+				break;
+			case "fraction":
+				fraction = Double.parseDouble(traceComponents[1]);
+				if (fraction < 0.0 || fraction > 1.0)
+					throw new TraceException("Trace fraction must be between 0.0 and 1.0");
+				break;
 			default:
 				throw new TraceException("Unrecognized trace option: '" + traceComponents[0] +
-						"' - expected enabled, stream, directory, or samples");
+						"' - expected enabled, stream, directory, samples, compress, async, policy, or fraction");
 			}
 		}
 
-		if (!enabled || (streamName != null && !streamName.equals(context.getStreamName())))
+		if (streamName != null && !streamName.equals(context.getStreamName()))
+			enabled = false;
+
+		// Trace a consistent subset of the streams (the same stream will always be selected)
+		if (fraction < 1.0 && Math.floorMod(String.valueOf(context.getStreamName()).hashCode(), 10000) >= fraction * 10000)
+			enabled = false;
+
+		if (!enabled)
 			return;
 
 		if (traceDirectory == null)
@@ -91,27 +166,27 @@ public class Trace {
 			filename += context.getStreamName().trim();
 			if (filename.length() > 1000)
 				filename = filename.substring(0, 1000);
-			filename += ".fta";
+			filename += compress ? ".fta.gz" : ".fta";
 			// There are a lot of characters that Windows does not like in filenames ...
 			filename = filename.replaceAll("[<>:\"/\\\\|\\?\\*]", "_");
 			traceFile = new File(traceDirectory, filename);
-			traceWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFile), StandardCharsets.UTF_8));
+			final OutputStream out = new FileOutputStream(traceFile);
+			traceWriter = new BufferedWriter(new OutputStreamWriter(compress ? new GzipMembersOutputStream(out) : out, StandardCharsets.UTF_8));
 		} catch (FileNotFoundException e) {
 			throw new TraceException("Cannot create file to write", e);
 		}
 
+		if (async)
+			asyncWriter = TraceWriter.getInstance();
+
 		final ObjectMapper mapper = new ObjectMapper();
 		try {
 			final ObjectNode analysisNode = mapper.createObjectNode();
 			analysisNode.set("analysisConfig", mapper.convertValue(analysisConfig, JsonNode.class));
-			final String analysisNodeAsText = mapper.writeValueAsString(analysisNode);
-			traceWriter.write(analysisNodeAsText);
-
 			final ObjectNode contextNode = mapper.createObjectNode();
 			contextNode.set("analyzerContext", mapper.convertValue(context, JsonNode.class));
-			final String contextNodeAsText = mapper.writeValueAsString(contextNode);
-			traceWriter.write(contextNodeAsText);
-			traceWriter.flush();
+			emit(Kind.TEXT, mapper.writeValueAsString(analysisNode) + mapper.writeValueAsString(contextNode));
+			emit(Kind.PERSIST, null);
 		} catch (IOException e) {
 			throw new TraceException("Cannot output JSON for the Analysis", e);
 		}
@@ -123,23 +198,29 @@ public class Trace {
 	 * @param sampleCount The number of samples we have seen so far
 	 */
 	public void recordSample(final String input, final long sampleCount) {
-		if (enabled && sampleCount < traceSampleCount) {
-			try {
-				if (batchCount == 0)
-					traceWriter.write("\n{\n\"samples\": [\n");
-				else
-					traceWriter.write(",\n");
-				batchCount++;
-				if (input == null)
-					traceWriter.write("null");
-				else {
-					traceWriter.write('"');
-					traceWriter.write(jsonStringEncoder.quoteAsString(input));
-					traceWriter.write('"');
-				}
-			} catch (IOException e) {
-				throw new TraceException("Cannot write sample to trace file", e);
+		if (!enabled || sampleCount >= traceSampleCount)
+			return;
+
+		if (asyncWriter == null) {
+			apply(new Record(this, Kind.SAMPLE, input));
+			return;
+		}
+
+		final Record record = new Record(this, Kind.SAMPLE, input);
+		switch (policy) {
+		case BLOCK:
+			asyncWriter.put(record);
+			break;
+		case SAMPLE:
+			if (asyncWriter.isCongested() && congestedSamples++ % CONGESTED_SAMPLE_RATE != 0) {
+				droppedSamples++;
+				break;
 			}
+			// fall through
+		case DROP:
+			if (!asyncWriter.offer(record))
+				droppedSamples++;
+			break;
 		}
 	}
 
@@ -148,91 +229,198 @@ public class Trace {
 	 * @param input The bulk samples
 	 */
 	public void recordBulk(final Map<String, Long> input) {
-		if (!enabled)
-			return;
+		if (enabled)
+			emit(Kind.BULK, input);
+	}
 
+	public void persistSamples() {
+		if (enabled)
+			emit(Kind.PERSIST, null);
+	}
+
+	public void tag(final String tag, final long sampleCount) {
+		if (enabled)
+			emit(Kind.TEXT, String.format("{\"tag\": { \"name\": \"%s\", \"sampleCount\": %d, \"time\": %d } }%n", tag, sampleCount, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Record the result of the analysis.
+	 * @param result The TextAnalysisResult that captures the analysis.
+	 * @param internalErrors The number of internal errors detected.
+	 */
+	public void recordResult(final TextAnalysisResult result, final int internalErrors) {
+		// If tracing is enabled - output our conclusions
+		if (enabled) {
+			final StringBuilder output = new StringBuilder(result.asJSON(true, 1));
+
+			// Report if there were any internal errors
+			if (internalErrors != 0)
+				output.append("\n{ \"internalErrors\": ").append(internalErrors).append(" }");
+
+			// Report if samples were dropped due to back-pressure
+			if (droppedSamples != 0)
+				output.append("\n{ \"droppedSamples\": ").append(droppedSamples).append(" }");
+
+			emit(Kind.RESULT, output.toString());
+		}
+	}
+
+	/**
+	 * Return the full path to the trace file.
+	 * @return The Path to the trace file.
+	 */
+	public String getFilename() {
+		return traceFile != null ? traceFile.getPath() : null;
+	}
+
+	/**
+	 * The number of samples not traced due to back-pressure from the background writer.
+	 * @return The number of samples dropped.
+	 */
+	public long getDroppedSamples() {
+		return droppedSamples;
+	}
+
+	/**
+	 * Wait until all records queued for the background writer (by any Trace) have been written.
+	 */
+	public static void drain() {
+		TraceWriter.getInstance().drain();
+	}
+
+	private void emit(final Kind kind, final Object payload) {
+		final Record record = new Record(this, kind, payload);
+		if (asyncWriter != null)
+			asyncWriter.put(record);
+		else {
+			apply(record);
+			if (kind != Kind.BULK)
+				flush();
+		}
+	}
+
+	/*
+	 * Write the record to the trace file - invoked on the training thread if synchronous, otherwise on the writer thread.
+	 */
+	@SuppressWarnings("unchecked")
+	void apply(final Record record) {
 		try {
-			traceWriter.write("\n{\n\"samplesBulk\": [\n");
-			boolean first = true;
-			for (final Map.Entry<String, Long> entry : input.entrySet())  {
-				if (first)
-					first = false;
+			switch (record.kind) {
+			case SAMPLE:
+				if (batchCount == 0)
+					traceWriter.write("\n{\n\"samples\": [\n");
 				else
 					traceWriter.write(",\n");
-
-				traceWriter.write("{ \"value\": ");
-				if (entry.getKey() == null)
+				batchCount++;
+				if (record.payload == null)
 					traceWriter.write("null");
 				else {
-					traceWriter.write("\"");
-					traceWriter.write(jsonStringEncoder.quoteAsString(entry.getKey()));
-					traceWriter.write("\"");
+					traceWriter.write('"');
+					traceWriter.write(jsonStringEncoder.quoteAsString((String)record.payload));
+					traceWriter.write('"');
 				}
-				traceWriter.write(", \"count\": " + entry.getValue() + " }");
+				break;
+			case BULK:
+				writeBulk((Map<String, Long>)record.payload);
+				break;
+			case PERSIST:
+				closeSamples();
+				break;
+			case TEXT:
+				traceWriter.write((String)record.payload);
+				break;
+			case RESULT:
+				closeSamples();
+				traceWriter.write((String)record.payload);
+				break;
 			}
-			traceWriter.write("\n]\n}\n");
 		} catch (IOException e) {
-			throw new TraceException("Cannot write bulk samples to trace file", e);
+			throw new TraceException("Cannot write to trace file", e);
 		}
 	}
 
-	public void persistSamples() {
-		// Close out the Samples seen to date
+	void flush() {
 		try {
-			if (batchCount != 0) {
-				traceWriter.write(" ]\n}\n");
-				batchCount = 0;
-			}
 			traceWriter.flush();
 		} catch (IOException e) {
 			throw new TraceException("Cannot write analysis result to trace file", e);
 		}
 	}
 
-	public void tag(final String tag, final long sampleCount) {
-		try {
-			final String output = String.format("{\"tag\": { \"name\": \"%s\", \"sampleCount\": %d, \"time\": %d } }%n", tag, sampleCount, System.currentTimeMillis());
-			traceWriter.write(output);
-			traceWriter.flush();
-		} catch (IOException e) {
-			throw new TraceException("Cannot write analysis result to trace file", e);
+	// Close out the Samples seen to date
+	private void closeSamples() throws IOException {
+		if (batchCount != 0) {
+			traceWriter.write(" ]\n}\n");
+			batchCount = 0;
 		}
 	}
 
-	/**
-	 * Record the result of the analysis.
-	 * @param result The TextAnalysisResult that captures the analysis.
-	 * @param internalErrors The number of internal errors detected.
+	private void writeBulk(final Map<String, Long> input) throws IOException {
+		traceWriter.write("\n{\n\"samplesBulk\": [\n");
+		boolean first = true;
+		for (final Map.Entry<String, Long> entry : input.entrySet())  {
+			if (first)
+				first = false;
+			else
+				traceWriter.write(",\n");
+
+			traceWriter.write("{ \"value\": ");
+			if (entry.getKey() == null)
+				traceWriter.write("null");
+			else {
+				traceWriter.write("\"");
+				traceWriter.write(jsonStringEncoder.quoteAsString(entry.getKey()));
+				traceWriter.write("\"");
+			}
+			traceWriter.write(", \"count\": " + entry.getValue() + " }");
+		}
+		traceWriter.write("\n]\n}\n");
+	}
+
+	/*
+	 * Each flush completes a gzip member (concatenated members are a valid gzip stream), so the trace is always readable
+	 * even if the analysis is never completed.
 	 */
-	public void recordResult(final TextAnalysisResult result, final int internalErrors) {
-		// If tracing is enabled - output our conclusions
-		if (enabled) {
-			try {
-				// Close out the Samples seen to date
-				if (batchCount != 0) {
-					traceWriter.write(" ]\n}\n");
-					batchCount = 0;
-				}
+	private static final class GzipMembersOutputStream extends FilterOutputStream {
+		private GZIPOutputStream member;
+
+		GzipMembersOutputStream(final OutputStream out) {
+			super(out);
+		}
 
-				// Output the results of our analysis
-				traceWriter.write(result.asJSON(true, 1));
+		@Override
+		public void write(final int b) throws IOException {
+			getMember().write(b);
+		}
 
-				// Report if there were any internal errors
-				if (internalErrors != 0)
-					traceWriter.write("\n{ \"internalErrors\": " + internalErrors + " }");
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			getMember().write(b, off, len);
+		}
 
-				traceWriter.flush();
-			} catch (IOException e) {
-				throw new TraceException("Cannot write analysis result to trace file", e);
+		@Override
+		public void flush() throws IOException {
+			if (member != null) {
+				member.finish();
+				member = null;
 			}
+			out.flush();
 		}
-	}
 
-	/**
-	 * Return the full path to the trace file.
-	 * @return The Path to the trace file.
-	 */
-	public String getFilename() {
-		return traceFile != null ? traceFile.getPath() : null;
+		private GZIPOutputStream getMember() throws IOException {
+			if (member == null)
+				member = new GZIPOutputStream(new FilterOutputStream(out) {
+					@Override
+					public void write(final byte[] b, final int off, final int len) throws IOException {
+						out.write(b, off, len);
+					}
+
+					@Override
+					public void close() {
+						// The underlying stream outlives the member
+					}
+				}, 8192);
+			return member;
+		}
 	}
 }
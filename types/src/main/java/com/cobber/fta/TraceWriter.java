@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-2026 Tim Segall
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cobber.fta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * The background writer shared by all asynchronous Traces in the JVM.
+ * Records are handed over through a single bounded queue (sized by the system property 'fta.traceQueueSize', default 65536)
+ * and written in batches, each Trace touched by a batch is flushed once at the end of the batch.
+ * A single consumer ensures that the records for any given Trace are written in the order they were recorded.
+ */
+final class TraceWriter implements Runnable {
+	/** The maximum number of records written before the touched Traces are flushed. */
+	static final int BATCH_SIZE = 4096;
+
+	private static final int QUEUE_SIZE_DEFAULT = 65536;
+
+	/** The maximum time the shutdown hook waits for queued records to be written (so a wedged writer cannot hang exit). */
+	private static final long SHUTDOWN_DRAIN_MILLIS = 5000;
+
+	private static TraceWriter instance;
+
+	private final BlockingQueue<Trace.Record> queue;
+	private final int capacity;
+	private long enqueued;
+	private long written;
+
+	private TraceWriter(final int capacity) {
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	static synchronized TraceWriter getInstance() {
+		if (instance == null) {
+			instance = new TraceWriter(Integer.getInteger("fta.traceQueueSize", QUEUE_SIZE_DEFAULT));
+			final Thread thread = new Thread(instance, "fta-trace-writer");
+			thread.setDaemon(true);
+			thread.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> instance.drain(SHUTDOWN_DRAIN_MILLIS), "fta-trace-drain"));
+		}
+		return instance;
+	}
+
+	/*
+	 * Queue a record, blocking if the queue is full.
+	 */
+	void put(final Trace.Record record) {
+		synchronized (this) {
+			enqueued++;
+		}
+		try {
+			queue.put(record);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			completed(1);
+		}
+	}
+
+	/*
+	 * Queue a record if there is space, returns false if the record was dropped.
+	 */
+	boolean offer(final Trace.Record record) {
+		synchronized (this) {
+			enqueued++;
+		}
+		if (queue.offer(record))
+			return true;
+
+		completed(1);
+		return false;
+	}
+
+	/*
+	 * Is the queue under pressure (i.e. more than three quarters full)?
+	 */
+	boolean isCongested() {
+		return queue.remainingCapacity() < capacity / 4;
+	}
+
+	/*
+	 * Wait until every record queued prior to this call has been written and flushed.
+	 */
+	void drain() {
+		drain(0);
+	}
+
+	/*
+	 * Wait (for at most timeoutMillis, 0 implies no limit) until every record queued prior to this call has been written
+	 * and flushed, returns false if the timeout expired first.
+	 */
+	synchronized boolean drain(final long timeoutMillis) {
+		final long target = enqueued;
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (written < target) {
+			final long remaining = timeoutMillis == 0 ? 100 : Math.min(100, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+			if (remaining <= 0)
+				return false;
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized void completed(final long count) {
+		written += count;
+		notifyAll();
+	}
+
+	@Override
+	public void run() {
+		final List<Trace.Record> batch = new ArrayList<>(BATCH_SIZE);
+		final Set<Trace> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		while (true) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+
+				for (final Trace.Record record : batch) {
+					write(record.trace::apply, record);
+					touched.add(record.trace);
+				}
+				for (final Trace trace : touched)
+					write(Trace::flush, trace);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			finally {
+				completed(batch.size());
+				batch.clear();
+				touched.clear();
+			}
+		}
+	}
+
+	private static <T> void write(final Consumer<T> action, final T target) {
+		try {
+			action.accept(target);
+		} catch (RuntimeException e) {
+			// Nobody to report this to other than the log - the trace in question will be incomplete
+			LoggerFactory.getLogger("com.cobber.fta").error("Trace writer: {}", e.getMessage());
+		}
+	}
+}
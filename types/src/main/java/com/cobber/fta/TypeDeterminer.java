@@ -183,8 +183,10 @@ class TypeDeterminer {
 		int c = 0;
 		for (final LogicalTypeInfinite logical : ac.infiniteTypes) {
 			try {
-				if ((ac.facts.getMatchTypeInfo() == null || logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) && logical.isCandidate(trimmed, compressedl0, nr.charCounts, nr.lastIndex))
-					ac.candidateCounts[c]++;
+				if (ac.facts.getMatchTypeInfo() == null || logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) {
+					if (ac.isCandidate(logical, trimmed, compressedl0, nr.charCounts, nr.lastIndex))
+						ac.candidateCounts[c]++;
+				}
 			}
 			catch (Exception e) {
 				LoggerFactory.getLogger("com.cobber.fta").error("Plugin: {}, issue: {}.", logical.getSemanticType(), e.getMessage());
@@ -196,8 +198,10 @@ class TypeDeterminer {
 		c = 0;
 		for (final LogicalTypeRegExp logical : ac.regExpTypes) {
 			try {
-				if ((ac.facts.getMatchTypeInfo() == null || logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) && logical.isValid(trimmed))
-					ac.candidateCountsRE[c]++;
+				if (ac.facts.getMatchTypeInfo() == null || logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) {
+					if (ac.isValid(logical, trimmed, false, 0))
+						ac.candidateCountsRE[c]++;
+				}
 			}
 			catch (Exception e) {
 				LoggerFactory.getLogger("com.cobber.fta").error("Plugin: {}, issue: {}.", logical.getSemanticType(), e.getMessage());
@@ -436,7 +440,9 @@ class TypeDeterminer {
 					//    "regExpsToMatch": [ "\\d{2}-\\d{7}" ],
 					// as well as
 					//    "regExpReturned": "(0[1-6]|1[0-6]|2[0-7]|3[0-9]|4[0-8]|5[0-9]|6[0-8]|7[1-7]|8[0-8]|9[01234589])-\\d{7}",
-					if (logical.isMatch(level0pattern) && ac.tokenStreams.matches(logical.getRegExp(), logical.getThreshold()) != 0) {
+					if (!logical.isMatch(level0pattern))
+						continue;
+					if (ac.tokenStreams.matches(logical.getRegExp(), logical.getThreshold()) != 0) {
 						level0typeInfo = new TypeInfo(logical.getRegExp(), logical.getBaseType(), logical.getSemanticType(), ac.facts.getMatchTypeInfo());
 						break;
 					}
@@ -512,7 +518,11 @@ class TypeDeterminer {
 			int i = 0;
 			double bestConfidence = 0.0;
 			for (final LogicalTypeInfinite logical : ac.infiniteTypes) {
-				if (logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType()) && logical.getConfidence(ac.candidateCounts[i], ac.raw.size(), ac.analyzerContext) >= logical.getThreshold()/100.0) {
+				if (!logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) {
+					i++;
+					continue;
+				}
+				if (ac.getConfidence(logical, ac.candidateCounts[i], ac.raw.size(), ac.analyzerContext) >= logical.getThreshold()/100.0) {
 					int count = 0;
 					TypeInfo candidate;
 					if (logical.getBaseType().isDateOrTimeType())
@@ -549,7 +559,7 @@ class TypeDeterminer {
 					}
 
 					// If a reasonable number look genuine then we are convinced
-					final double currentConfidence = logical.getConfidence(count, ac.raw.size(), ac.analyzerContext);
+					final double currentConfidence = ac.getConfidence(logical, count, ac.raw.size(), ac.analyzerContext);
 					if (currentConfidence > bestConfidence && currentConfidence >= logical.getThreshold()/100.0) {
 						ac.facts.setMatchTypeInfo(candidate);
 						bestConfidence = currentConfidence;
@@ -562,8 +572,11 @@ class TypeDeterminer {
 			// Try a regExp match nice and early - we can always back out
 			i = 0;
 			for (final LogicalTypeRegExp logical : ac.regExpTypes) {
-				if (logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType()) &&
-					logical.getConfidence(ac.candidateCountsRE[i], ac.raw.size(), ac.analyzerContext) >= logical.getThreshold()/100.0) {
+				if (!logical.acceptsBaseType(ac.facts.getMatchTypeInfo().getBaseType())) {
+					i++;
+					continue;
+				}
+				if (ac.getConfidence(logical, ac.candidateCountsRE[i], ac.raw.size(), ac.analyzerContext) >= logical.getThreshold()/100.0) {
 					ac.facts.setMatchTypeInfo(new TypeInfo(logical.getRegExp(), logical.getBaseType(), logical.getSemanticType(), ac.facts.getMatchTypeInfo()));
 					ac.ctxdebug("Type determination", "was '{}', matchTypeInfo - {}", ac.facts.getMatchTypeInfo().getBaseType(), ac.facts.getMatchTypeInfo());
 					break;
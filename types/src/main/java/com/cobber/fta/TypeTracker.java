@@ -61,7 +61,10 @@ class TypeTracker {
 			if (length > ac.facts.maxRawNonBlankLength)
 				ac.facts.maxRawNonBlankLength = length;
 
+			final boolean anyShape = ac.tokenStreams.isAnyShape();
 			ac.tokenStreams.track(trimmed, count);
+			if (!anyShape && ac.tokenStreams.isAnyShape())
+				AnalyzerEvents.shapeOverflow(ac.analyzerContext.getStreamName(), ac.facts.sampleCount, ac.analysisConfig.getMaxShapes());
 		}
 	}
 
@@ -118,7 +121,7 @@ class TypeTracker {
 		if (typeInfo.isSemanticType()) {
 			// If it is a registered Infinite Semantic Type then validate it
 			final LogicalType logical = ac.plugins.getRegistered(typeInfo.getSemanticType());
-			if (logical.acceptsBaseType(FTAType.LONG) && !logical.isValid(trimmed, false, count))
+			if (logical.acceptsBaseType(FTAType.LONG) && !ac.isValid(logical, trimmed, false, count))
 				return false;
 		}
 
@@ -191,7 +194,7 @@ class TypeTracker {
 		if (typeInfo.isSemanticType()) {
 			// If it is a registered Infinite Semantic Type then validate it
 			final LogicalType logical = ac.plugins.getRegistered(typeInfo.getSemanticType());
-			if (logical.acceptsBaseType(FTAType.STRING) && !logical.isValid(rawInput, false, count))
+			if (logical.acceptsBaseType(FTAType.STRING) && !ac.isValid(logical, rawInput, false, count))
 				return false;
 		}
 		else {
@@ -315,7 +318,7 @@ class TypeTracker {
 		if (typeInfo.isSemanticType()) {
 			// If it is a registered Infinite Semantic Type then validate it
 			final LogicalType logical = ac.plugins.getRegistered(typeInfo.getSemanticType());
-			if (logical.acceptsBaseType(FTAType.DOUBLE) && !logical.isValid(input, false, count))
+			if (logical.acceptsBaseType(FTAType.DOUBLE) && !ac.isValid(logical, input, false, count))
 				return false;
 		}
 
@@ -413,7 +416,7 @@ class TypeTracker {
 		if (typeInfo.isSemanticType()) {
 			// If it is a registered Infinite Semantic Type then validate it
 			final LogicalType logical = ac.plugins.getRegistered(typeInfo.getSemanticType());
-			if (logical.acceptsBaseType(result.getType()) && !logical.isValid(input, false, count))
+			if (logical.acceptsBaseType(result.getType()) && !ac.isValid(logical, input, false, count))
 				return false;
 		}
 
@@ -422,8 +425,15 @@ class TypeTracker {
 
 	void addValid(final String input, final long count) {
 		final boolean added = ac.facts.cardinality.mergeIfSpace(input, count, Long::sum);
-		// If Cardinality blown track remaining set in a Sketch
-		if (!added && ac.analysisConfig.isEnabled(Feature.DISTRIBUTIONS) && !ac.facts.getMatchTypeInfo().getBaseType().equals(FTAType.STRING)) {
+		if (!added) {
+			ac.cardinalityOverflow(count);
+			addOverflow(input, count);
+		}
+	}
+
+	// Cardinality blown - so track the remaining set in a Sketch
+	void addOverflow(final String input, final long count) {
+		if (ac.analysisConfig.isEnabled(Feature.DISTRIBUTIONS) && !ac.facts.getMatchTypeInfo().getBaseType().equals(FTAType.STRING)) {
 			ac.facts.getSketch().accept(input, count);
 			if (ac.facts.getCardinalityOverflow() == null)
 				ac.facts.createHistogramOverflow(new StringConverter(ac.facts.getMatchTypeInfo().getBaseType(), new TypeFormatter(ac.facts.getMatchTypeInfo(), ac.analysisConfig)));
@@ -83,6 +83,15 @@ public class TokenStreams {
 		return anyShape;
 	}
 
+	/**
+	 * Discard all the shapes tracked, subsequent input will be recorded as ANYSHAPE.
+	 */
+	public void collapse() {
+		tokenStreams.clear();
+		tokenStreams.put(TokenStream.ANYSHAPE.getKey(), TokenStream.ANYSHAPE);
+		anyShape = true;
+	}
+
 	public boolean isFull() {
 		return tokenStreams.size() + 1 == maxStreams;
 	}
@@ -23,18 +23,33 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,9 +60,14 @@ import com.cobber.fta.core.FTAException;
 import com.cobber.fta.core.FTAPluginException;
 import com.cobber.fta.core.FTAType;
 import com.cobber.fta.core.InternalErrorException;
+import com.cobber.fta.core.TraceException;
 import com.cobber.fta.core.Utils;
+import com.cobber.fta.dates.DateTimeParser.DateResolutionMode;
 import com.cobber.fta.plugins.address.USZip5;
 import com.cobber.fta.plugins.address.USZipPlus4;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class RandomTests {
 	private static final SecureRandom RANDOM = new SecureRandom();
@@ -1645,6 +1665,136 @@ public class RandomTests {
 		assertEquals(analysis.getMaxCardinality(), AnalysisConfig.MAX_CARDINALITY_DEFAULT);
 	}
 
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void metrics() throws IOException, FTAException {
+		final Map<AnalyzerMetrics.Counter, Long> counters = new HashMap<>();
+		final Map<AnalyzerMetrics.Timer, Long> timers = new HashMap<>();
+		final AnalyzerMetrics metrics = new AnalyzerMetrics() {
+			@Override
+			public void increment(final String streamName, final Counter counter, final long delta) {
+				assertEquals(streamName, "metrics");
+				counters.merge(counter, delta, Long::sum);
+			}
+
+			@Override
+			public void record(final String streamName, final Timer timer, final long nanos) {
+				assertEquals(streamName, "metrics");
+				assertTrue(nanos >= 0);
+				timers.merge(timer, nanos, Long::sum);
+			}
+		};
+
+		final TextAnalyzer analysis = new TextAnalyzer("metrics");
+		assertEquals(analysis.getMetrics(), AnalyzerMetrics.NONE);
+		analysis.setMetrics(metrics);
+		final int samples = AnalysisConfig.MAX_CARDINALITY_DEFAULT + 500;
+
+		for (int i = 0; i < samples; i++)
+			analysis.train(String.valueOf(100_000 + i * 3));
+
+		final TextAnalysisResult result = analysis.getResult();
+		assertEquals(result.getType(), FTAType.LONG);
+
+		assertEquals(counters.get(AnalyzerMetrics.Counter.SAMPLES_TRAINED).longValue(), samples);
+		assertEquals(counters.get(AnalyzerMetrics.Counter.CARDINALITY_OVERFLOW).longValue(), 500);
+		assertEquals(counters.get(AnalyzerMetrics.Counter.DETERMINE_TYPE).longValue(), 1);
+		assertNull(counters.get(AnalyzerMetrics.Counter.CACHE_HITS));
+		for (final AnalyzerMetrics.Timer timer : new AnalyzerMetrics.Timer[] {
+				AnalyzerMetrics.Timer.DETECT_WINDOW, AnalyzerMetrics.Timer.TRACKING,
+				AnalyzerMetrics.Timer.RESULT_DETERMINE, AnalyzerMetrics.Timer.RESULT_FINALIZE, AnalyzerMetrics.Timer.RESULT })
+			assertNotNull(timers.get(timer), timer.toString());
+
+		// Highly repetitive input should be absorbed by the cache
+		counters.clear();
+		final TextAnalyzer repetitive = new TextAnalyzer("metrics");
+		repetitive.setMetrics(metrics);
+		for (int i = 0; i < 1000; i++)
+			repetitive.train(i % 2 == 0 ? "Y" : "N");
+		assertEquals(repetitive.getResult().getType(), FTAType.BOOLEAN);
+		assertEquals(counters.get(AnalyzerMetrics.Counter.SAMPLES_TRAINED).longValue(), 1000);
+		assertTrue(counters.get(AnalyzerMetrics.Counter.CACHE_HITS) > 0);
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void pluginProfiling() throws IOException, FTAException {
+		final String[] inputs = { "alice@example.com", "bob@example.org", "carol@example.net", "dave@example.com", "eve@example.org" };
+
+		final TextAnalyzer unprofiled = new TextAnalyzer("email");
+		for (int i = 0; i < 100; i++)
+			unprofiled.train(inputs[i % inputs.length]);
+		assertNull(unprofiled.getResult().getPluginProfile());
+
+		final TextAnalyzer analysis = new TextAnalyzer("email");
+		analysis.configure(TextAnalyzer.Feature.PLUGIN_PROFILING, true);
+		for (int i = 0; i < 100; i++)
+			analysis.train(inputs[i % inputs.length]);
+
+		final TextAnalysisResult result = analysis.getResult();
+		assertEquals(result.getSemanticType(), "EMAIL");
+
+		final PluginProfile profile = result.getPluginProfile();
+		assertNotNull(profile);
+		assertFalse(profile.isEmpty());
+
+		final PluginProfile.Cost candidate = profile.getCost("EMAIL", PluginProfile.Operation.IS_CANDIDATE);
+		assertTrue(candidate.getCalls() > 0);
+		assertEquals(candidate.getRejects(), 0);
+		assertTrue(profile.getCost("EMAIL", PluginProfile.Operation.IS_VALID).getCalls() > 0);
+		assertTrue(profile.getCost("EMAIL", PluginProfile.Operation.ANALYZE_SET).getCalls() > 0);
+
+		// Semantic Types are ordered most expensive first
+		long previous = Long.MAX_VALUE;
+		for (final String semanticType : profile.getSemanticTypes()) {
+			assertTrue(profile.getTotalNanos(semanticType) <= previous);
+			previous = profile.getTotalNanos(semanticType);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void flightRecorderEvents() throws IOException, FTAException {
+		final String[] eventNames = { "Initialize", "DetermineType", "Backout", "CardinalityOverflow", "ShapeOverflow", "ResultPhase", "Serialize", "Merge" };
+		final Path recordingFile = Files.createTempFile("fta", ".jfr");
+		final Map<String, Integer> seen = new HashMap<>();
+
+		try (Recording recording = new Recording()) {
+			for (final String eventName : eventNames)
+				recording.enable("com.cobber.fta." + eventName);
+			recording.start();
+
+			final TextAnalyzer first = new TextAnalyzer("jfr");
+			final TextAnalyzer second = new TextAnalyzer("jfr");
+			// Looks like a LONG for the detect window, and then turns into a random String
+			for (int i = 0; i < AnalysisConfig.MAX_CARDINALITY_DEFAULT + 100; i++) {
+				first.train(String.valueOf(i));
+				second.train(i < 100 ? String.valueOf(i) : Utils.repeat('x', i % 50) + "." + Utils.repeat('y', i % 17));
+			}
+			final TextAnalyzer merged = TextAnalyzer.merge(first, second);
+			merged.getResult();
+			merged.serialize();
+
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+
+		try {
+			for (final RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+				assertEquals(event.getString("streamName"), "jfr");
+				assertTrue(event.getLong("sampleCount") >= 0);
+				seen.merge(event.getEventType().getName(), 1, Integer::sum);
+				if ("com.cobber.fta.Backout".equals(event.getEventType().getName()))
+					assertNotEquals(event.getString("from"), event.getString("to"));
+			}
+		}
+		finally {
+			Files.deleteIfExists(recordingFile);
+		}
+
+		for (final String eventName : eventNames)
+			assertNotNull(seen.get("com.cobber.fta." + eventName), eventName);
+		// Only the transition is reported
+		assertTrue(seen.get("com.cobber.fta.CardinalityOverflow") <= 3);
+	}
+
 	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
 	public void setMaxCardinalityNegative() throws IOException, FTAException {
 		final TextAnalyzer analysis = new TextAnalyzer("setMaxCardinalityNegative");
@@ -3732,4 +3882,376 @@ public class RandomTests {
 			assertEquals(result.getMaxValue(), max);
 		}
 	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void estimateRetainedBytes() throws IOException, FTAException {
+		final TextAnalyzer analysis = new TextAnalyzer("estimateRetainedBytes");
+		assertEquals(analysis.estimateRetainedBytes(), 0);
+
+		analysis.train("ABCDEFGH");
+		final long initial = analysis.estimateRetainedBytes();
+		assertTrue(initial > 0);
+
+		// Retained size should grow with the cardinality ...
+		long previous = initial;
+		for (int i = 0; i < AnalysisConfig.MAX_CARDINALITY_DEFAULT; i++) {
+			analysis.train(String.format("%08d-%c", i, 'A' + i % 26));
+			if (i % 1000 == 999) {
+				final long current = analysis.estimateRetainedBytes();
+				assertTrue(current > previous, "i: " + i);
+				previous = current;
+			}
+		}
+		// 12,000 distinct ~10 character Strings plus their counts are at least 0.5M and (allowing for other state) at most 10M
+		assertTrue(previous > 500_000, String.valueOf(previous));
+		assertTrue(previous < 10_000_000, String.valueOf(previous));
+
+		// ... but not beyond the maximum cardinality
+		for (int i = 0; i < 10_000; i++)
+			analysis.train(String.format("%08d-%c", 1_000_000 + i, 'A' + i % 26));
+		assertTrue(analysis.estimateRetainedBytes() < previous * 11 / 10, String.valueOf(analysis.estimateRetainedBytes()));
+
+		analysis.getResult();
+		assertTrue(analysis.estimateRetainedBytes() > 0);
+
+		// The RecordAnalyzer estimate is the sum of the estimates for the individual streams
+		final AnalyzerContext context = new AnalyzerContext(null, DateResolutionMode.Auto, "estimateRetainedBytes", new String[] { "first", "second" });
+		final RecordAnalyzer recordAnalyzer = new RecordAnalyzer(new TextAnalyzer(context));
+		for (int i = 0; i < 1000; i++)
+			recordAnalyzer.train(new String[] { String.valueOf(i), "value" + i });
+		assertEquals(recordAnalyzer.estimateRetainedBytes(),
+				recordAnalyzer.getAnalyzer(0).estimateRetainedBytes() + recordAnalyzer.getAnalyzer(1).estimateRetainedBytes());
+		assertTrue(recordAnalyzer.getAnalyzer(1).estimateRetainedBytes() > recordAnalyzer.getAnalyzer(0).estimateRetainedBytes());
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void memoryBudget() throws IOException, FTAException {
+		final MemoryBudget budget = new MemoryBudget(2_000_000);
+		budget.setCheckInterval(500);
+		final TextAnalyzer[] analyzers = new TextAnalyzer[5];
+		for (int i = 0; i < analyzers.length; i++) {
+			analyzers[i] = new TextAnalyzer("memoryBudget" + i);
+			analyzers[i].setMemoryBudget(budget);
+		}
+		assertEquals(budget.getRegistered(), analyzers.length);
+
+		// Two high cardinality streams (which together exceed the budget) plus a set of low cardinality streams
+		final int samples = 20_000;
+		for (int row = 0; row < samples; row++) {
+			analyzers[0].train(String.valueOf(1_000_000 + row * 7));
+			analyzers[1].train(String.format("%08d-%c-XYZ", row, 'A' + row % 26));
+			for (int i = 2; i < analyzers.length; i++)
+				analyzers[i].train(String.valueOf(row % 10));
+		}
+		assertTrue(budget.getUsedBytes() <= budget.getMaxBytes(), String.valueOf(budget.getUsedBytes()));
+
+		// Only the largest consumer should have been degraded
+		final TextAnalysisResult result0 = analyzers[0].getResult();
+		final TextAnalysisResult result1 = analyzers[1].getResult();
+		assertTrue(result0.getDegradations().isEmpty() != result1.getDegradations().isEmpty());
+		final TextAnalysisResult degraded = result0.getDegradations().isEmpty() ? result1 : result0;
+		assertEquals(degraded.getDegradations(), EnumSet.of(MemoryBudget.Degradation.CARDINALITY_SKETCHED));
+		assertEquals(degraded.getCardinality(), AnalysisConfig.MAX_CARDINALITY_DEFAULT / 10);
+		assertEquals(degraded.getMatchCount(), samples);
+		assertNull(degraded.checkCounts(false));
+		assertTrue(degraded.asJSON(false, 1).contains("\"degradations\":[\"CARDINALITY_SKETCHED\"]"));
+		for (int i = 2; i < analyzers.length; i++)
+			assertTrue(analyzers[i].getResult().getDegradations().isEmpty());
+
+		// The Long stream is still accurate (via the sketch)
+		assertEquals(result0.getType(), FTAType.LONG);
+		assertEquals(result0.getMinValue(), "1000000");
+		assertEquals(result0.getMaxValue(), String.valueOf(1_000_000 + (samples - 1) * 7));
+		final long median = Long.parseLong(result0.getValueAtQuantile(0.5));
+		final long expected = 1_000_000 + samples / 2 * 7;
+		assertTrue(Math.abs(median - expected) < expected * AnalysisConfig.QUANTILE_RELATIVE_ACCURACY_DEFAULT * 2, String.valueOf(median));
+
+		// Degradations survive serialization
+		final TextAnalyzer hydrated = TextAnalyzer.deserialize(analyzers[0].serialize());
+		assertEquals(hydrated.getResult().getDegradations(), result0.getDegradations());
+
+		// The reduced capacity survives both serialization and merging
+		final TextAnalyzer degradedAnalyzer = result0.getDegradations().isEmpty() ? analyzers[1] : analyzers[0];
+		final TextAnalyzer copy = TextAnalyzer.deserialize(degradedAnalyzer.serialize());
+		for (int row = samples; row < 2 * samples; row++)
+			copy.train(String.valueOf(1_000_000 + row * 7));
+		assertEquals(copy.getResult().getCardinality(), AnalysisConfig.MAX_CARDINALITY_DEFAULT / 10);
+		final TextAnalyzer other = new TextAnalyzer(degradedAnalyzer.getContext());
+		for (int row = 0; row < samples; row++)
+			other.train(String.valueOf(5_000_000 + row * 7));
+		final TextAnalysisResult merged = TextAnalyzer.merge(degradedAnalyzer, other).getResult();
+		assertEquals(merged.getDegradations(), degraded.getDegradations());
+		assertEquals(merged.getCardinality(), AnalysisConfig.MAX_CARDINALITY_DEFAULT / 10);
+
+		for (final TextAnalyzer analyzer : analyzers)
+			analyzer.setMemoryBudget(null);
+		assertEquals(budget.getRegistered(), 0);
+		assertEquals(budget.getUsedBytes(), 0);
+
+		// An impossibly small budget - all degradations should be applied, but the results should still be sane
+		final MemoryBudget tiny = new MemoryBudget(1);
+		tiny.setCheckInterval(100);
+		final TextAnalyzer starved = new TextAnalyzer("memoryBudget");
+		starved.setMemoryBudget(tiny);
+		for (int row = 0; row < samples; row++)
+			starved.train(String.format("%c%c-%05d", 'A' + row % 26, 'A' + row % 7, row));
+		final TextAnalysisResult result = starved.getResult();
+		assertEquals(result.getDegradations(), EnumSet.allOf(MemoryBudget.Degradation.class));
+		assertEquals(result.getType(), FTAType.STRING);
+		assertEquals(result.getMatchCount(), samples);
+		assertEquals(result.getRegExp(), ".{8}");
+		assertTrue(starved.getTrainingSet().isEmpty());
+		assertTrue(result.getOutlierCount() <= AnalysisConfig.MAX_OUTLIERS_DEFAULT / 10, String.valueOf(result.getOutlierCount()));
+		assertNull(result.checkCounts(false));
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void asyncCompressedTrace() throws IOException, FTAException {
+		final TextAnalyzer analysis = new TextAnalyzer("asyncCompressedTrace");
+		analysis.setTrace("enabled=true,async=true,compress=true,policy=block,samples=500");
+		final int samples = 2000;
+		for (int i = 0; i < samples; i++)
+			analysis.train(String.valueOf(i * 3));
+		final TextAnalysisResult result = analysis.getResult();
+		assertEquals(result.getType(), FTAType.LONG);
+
+		Trace.drain();
+		final String traceFile = analysis.getTraceFilePath();
+		assertTrue(traceFile.endsWith("asyncCompressedTrace.fta.gz"), traceFile);
+
+		// The trace should be a sequence of JSON fragments - config, context, samples, result, tag
+		final ObjectMapper mapper = new ObjectMapper();
+		final List<JsonNode> fragments = new ArrayList<>();
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(Path.of(traceFile)));
+				MappingIterator<JsonNode> it = mapper.readerFor(JsonNode.class).readValues(in)) {
+			while (it.hasNext())
+				fragments.add(it.next());
+		}
+		assertTrue(fragments.get(0).has("analysisConfig"));
+		assertTrue(fragments.get(1).has("analyzerContext"));
+		assertEquals(fragments.get(2).get("samples").size(), 500);
+		assertEquals(fragments.get(2).get("samples").get(499).asText(), "1497");
+		assertEquals(fragments.get(3).get("sampleCount").asLong(), samples);
+		assertEquals(fragments.get(4).get("tag").get("name").asText(), "getResult");
+		Files.delete(Path.of(traceFile));
+
+		// A fraction of zero means no streams are traced
+		final TextAnalyzer untraced = new TextAnalyzer("asyncCompressedTrace");
+		untraced.setTrace("enabled=true,async=true,fraction=0.0");
+		untraced.train("hello");
+		assertNull(untraced.getTraceFilePath());
+
+		try {
+			final TextAnalyzer bad = new TextAnalyzer("asyncCompressedTrace");
+			bad.setTrace("enabled=true,policy=never");
+			bad.train("hello");
+			fail("Exception should have been thrown");
+		}
+		catch (TraceException e) {
+			assertTrue(e.getMessage().contains("Unrecognized trace policy"), e.getMessage());
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void streamingJSON() throws IOException, FTAException {
+		final AnalyzerContext context = new AnalyzerContext(null, DateResolutionMode.Auto, "streamingJSON", new String[] { "id", "amount", "date", "name" });
+		final TextAnalyzer template = new TextAnalyzer(context);
+		template.setLocale(Locale.forLanguageTag("en-US"));
+		final RecordAnalyzer recordAnalyzer = new RecordAnalyzer(template);
+		for (int i = 0; i < 2000; i++)
+			recordAnalyzer.train(new String[] { String.valueOf(i), String.format("%d.%02d", i * 7, i % 100),
+					String.format("2024-%02d-%02d", i % 12 + 1, i % 28 + 1), i % 50 == 0 ? null : "name\"" + i % 300 + "\u00e9" });
+		final RecordAnalysisResult result = recordAnalyzer.getResult();
+		final TextAnalysisResult[] streamResults = result.getStreamResults();
+
+		// The output must be identical to that captured from the tree-based renderer (which streaming replaced),
+		// the version of FTA is replaced by '*' in the captured output
+		final String[] golden = new ObjectMapper().readValue(RandomTests.class.getResourceAsStream("/streamingJSON.json"), String[].class);
+		int index = 0;
+		for (final TextAnalysisResult streamResult : streamResults)
+			for (final int verbose : new int[] { 0, 1 })
+				for (final boolean pretty : new boolean[] { true, false }) {
+					final ByteArrayOutputStream out = new ByteArrayOutputStream();
+					streamResult.writeJSON(out, pretty, verbose);
+					assertEquals(out.toString(StandardCharsets.UTF_8).replaceAll("(\"ftaVersion\" ?: ?\")[^\"]*\"", "$1*\""), golden[index++]);
+				}
+		assertEquals(index, golden.length);
+
+		// The streamed output must be identical to the String rendering, with and without pretty printing
+		for (final TextAnalysisResult streamResult : streamResults)
+			for (final int verbose : new int[] { 0, 1, 2 }) {
+				for (final boolean pretty : new boolean[] { true, false }) {
+					final ByteArrayOutputStream out = new ByteArrayOutputStream();
+					streamResult.writeJSON(out, pretty, verbose);
+					assertEquals(out.toString(StandardCharsets.UTF_8), streamResult.asJSON(pretty, verbose));
+				}
+			}
+
+		// The record rendering is an array with one element per stream
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		result.writeJSON(out, true, 1);
+		assertEquals(out.toString(StandardCharsets.UTF_8), result.asJSON(true, 1));
+		final JsonNode array = new ObjectMapper().readTree(out.toByteArray());
+		assertEquals(array.size(), streamResults.length);
+		for (int i = 0; i < streamResults.length; i++)
+			assertEquals(array.get(i), new ObjectMapper().readTree(streamResults[i].asJSON(false, 1)));
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void checkpointRestore() throws IOException, FTAException {
+		final Path directory = Files.createTempDirectory("checkpointRestore");
+		final Path recordDirectory = Files.createTempDirectory("checkpointRestoreRecord");
+		try {
+			// A checkpoint requires a Checkpoint to be set
+			try {
+				new TextAnalyzer("checkpointRestore").checkpoint();
+				fail("Expected IllegalStateException");
+			}
+			catch (IllegalStateException e) {
+				// Expected
+			}
+
+			final TextAnalyzer analysis = new TextAnalyzer("checkpointRestore");
+			final Checkpoint checkpoint = new Checkpoint(directory);
+			checkpoint.setMaxDeltas(4);
+			analysis.setCheckpoint(checkpoint);
+
+			// Nothing is written until the type has been determined
+			analysis.train("100000");
+			assertFalse(analysis.checkpoint());
+
+			// A high cardinality start, followed by a long tail of repeats of a small set of values - where the deltas should be small
+			long largest = 0;
+			int smallDeltas = 0;
+			for (int batch = 0; batch < 20; batch++) {
+				for (int i = 0; i < 1000; i++)
+					analysis.train(String.valueOf(batch < 5 ? 100_000 + batch * 1000 + i : 100_000 + i % 50));
+				assertTrue(analysis.checkpoint());
+				largest = Math.max(largest, checkpoint.getLastBytes());
+				if (batch >= 5 && checkpoint.getLastBytes() * 4 < largest)
+					smallDeltas++;
+			}
+			assertTrue(smallDeltas >= 10, String.valueOf(smallDeltas));
+
+			// Only the latest generation is retained
+			try (Stream<Path> files = Files.list(directory)) {
+				assertEquals(files.filter(f -> f.getFileName().toString().startsWith("base-")).count(), 1);
+			}
+
+			// The restored analyzer is equivalent to a serialized/deserialized copy - both before and after further training
+			final TextAnalyzer restored = TextAnalyzer.restore(directory);
+			final TextAnalyzer copy = TextAnalyzer.deserialize(analysis.serialize());
+			assertEquals(restored.getFacts().getSampleCount(), 20_001);
+			assertEquals(restored.getResult().asJSON(false, 1), copy.getResult().asJSON(false, 1));
+			for (int i = 0; i < 1000; i++) {
+				restored.train(String.valueOf(200_000 + i));
+				copy.train(String.valueOf(200_000 + i));
+			}
+			assertEquals(restored.getResult().asJSON(false, 1), copy.getResult().asJSON(false, 1));
+
+			// RecordAnalyzer - each stream is checkpointed independently
+			final AnalyzerContext context = new AnalyzerContext(null, DateResolutionMode.Auto, "checkpointRestore", new String[] { "id", "name" });
+			final RecordAnalyzer recordAnalyzer = new RecordAnalyzer(new TextAnalyzer(context));
+			recordAnalyzer.setCheckpoint(new Checkpoint(recordDirectory));
+			for (int i = 0; i < 2000; i++) {
+				recordAnalyzer.train(new String[] { String.valueOf(i), "name" + i % 20 });
+				if (i % 500 == 499)
+					assertTrue(recordAnalyzer.checkpoint());
+			}
+			final RecordAnalyzer restoredRecord = RecordAnalyzer.restore(recordDirectory);
+			final TextAnalysisResult[] results = restoredRecord.getResult().getStreamResults();
+			assertEquals(results.length, 2);
+			assertEquals(results[0].getType(), FTAType.LONG);
+			assertEquals(results[0].getSampleCount(), 2000);
+			assertEquals(results[0].getCardinality(), 2000);
+			assertEquals(results[1].getType(), FTAType.STRING);
+			assertEquals(results[1].getCardinality(), 20);
+		}
+		finally {
+			deleteDirectory(directory);
+			deleteDirectory(recordDirectory);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void checkpointWithResults() throws IOException, FTAException {
+		final Path directory = Files.createTempDirectory("checkpointWithResults");
+		try {
+			final TextAnalyzer analysis = new TextAnalyzer("checkpointWithResults");
+			final Checkpoint checkpoint = new Checkpoint(directory);
+			analysis.setCheckpoint(checkpoint);
+
+			for (int i = 0; i < 1000; i++)
+				analysis.train(String.valueOf(100_000 + i));
+			assertTrue(analysis.checkpoint());
+
+			// Retrieving the result (which reads the cardinality, outliers, ...) between checkpoints should not force a rewrite
+			for (int batch = 1; batch <= 4; batch++) {
+				for (int i = 0; i < 100; i++)
+					analysis.train(String.valueOf(100_000 + batch * 1000 + i));
+				final TextAnalysisResult result = analysis.getResult();
+				assertEquals(result.getCardinalityDetails().size(), 1000 + batch * 100);
+				assertTrue(analysis.checkpoint());
+
+				final JsonNode delta = new ObjectMapper().readTree(directory.resolve(String.format("delta-%06d-%06d.json", 0, batch)).toFile());
+				assertFalse(delta.get("cardinality").get("rewrite").asBoolean());
+				assertEquals(delta.get("cardinality").get("entries").size(), 100);
+			}
+
+			// As with serialize(), the shapes are not captured
+			final TextAnalyzer restored = TextAnalyzer.restore(directory);
+			final TextAnalyzer copy = TextAnalyzer.deserialize(analysis.serialize());
+			assertEquals(restored.getResult().asJSON(false, 1), copy.getResult().asJSON(false, 1));
+		}
+		finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	private static void deleteDirectory(final Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : paths.sorted(Comparator.reverseOrder()).toList())
+				Files.deleteIfExists(path);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.RANDOM })
+	public void recordAddStream() throws IOException, FTAException {
+		final AnalyzerContext context = new AnalyzerContext(null, DateResolutionMode.Auto, "recordAddStream", new String[] { "id" });
+		final RecordAnalyzer first = new RecordAnalyzer(new TextAnalyzer(context));
+		for (int i = 0; i < 100; i++)
+			first.train(new String[] { String.valueOf(i) });
+
+		// The new stream is null for all the records prior to its addition
+		final TextAnalyzer added = first.addStream("count");
+		assertEquals(added.getContext().getStreamName(), "count");
+		assertEquals(first.getAnalyzer(0).getContext().getCompositeStreamNames(), new String[] { "id", "count" });
+		for (int i = 100; i < 200; i++)
+			first.train(new String[] { String.valueOf(i), String.valueOf(i % 7) });
+
+		TextAnalysisResult[] results = first.getResult().getStreamResults();
+		assertEquals(results.length, 2);
+		assertEquals(results[1].getSampleCount(), 200);
+		assertEquals(results[1].getNullCount(), 100);
+		assertEquals(results[1].getType(), FTAType.LONG);
+
+		// Streams with different names are matched by name when merged
+		final AnalyzerContext secondContext = new AnalyzerContext(null, DateResolutionMode.Auto, "recordAddStream", new String[] { "city", "id" });
+		final RecordAnalyzer second = new RecordAnalyzer(new TextAnalyzer(secondContext));
+		for (int i = 200; i < 250; i++)
+			second.train(new String[] { "city" + i % 5, String.valueOf(i) });
+
+		final RecordAnalyzer merged = RecordAnalyzer.merge(first, second);
+		assertEquals(merged.getAnalyzer(0).getContext().getCompositeStreamNames(), new String[] { "id", "count", "city" });
+		// No streams are added to the inputs
+		assertEquals(first.getAnalyzers().length, 2);
+		assertEquals(second.getAnalyzers().length, 2);
+		results = merged.getResult().getStreamResults();
+		assertEquals(results.length, 3);
+		assertEquals(results[0].getSampleCount(), 250);
+		assertEquals(results[0].getCardinality(), 250);
+		assertEquals(results[1].getNullCount(), 150);
+		assertEquals(results[2].getNullCount(), 200);
+		assertEquals(results[2].getCardinality(), 5);
+	}
 }
@@ -17,14 +17,22 @@ package com.cobber.fta;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -160,4 +168,49 @@ public class TestPerformance {
 			}
 		}
 	}
+
+	@Test(groups = { TestGroups.PERFORMANCE })
+	public void singletonSetContention() throws InterruptedException, ExecutionException {
+		final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		final int iterations = 1_000_000;
+		final String[] resources = { "/reference/en_street_markers.csv", "/reference/en_title_hotwords.csv", "/reference/en_industry_hotwords.csv" };
+		final String[] probes = { "STREET", "Avenue", "manager", "xyzzy", "software" };
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<Long>> futures = new ArrayList<>();
+
+		final long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			futures.add(executor.submit(() -> {
+				long hits = 0;
+				// Each thread resolves its own SingletonSet instances, as each analyzer would
+				final SingletonSet[] sets = new SingletonSet[resources.length];
+				for (int i = 0; i < resources.length; i++)
+					sets[i] = new SingletonSet(new Content("resource", resources[(i + id) % resources.length]));
+				for (int i = 0; i < iterations; i++) {
+					final SingletonSet set = sets[i % sets.length];
+					final String probe = probes[i % probes.length];
+					if (set.getMembers().contains(probe))
+						hits++;
+					if (set.getFoldedMembers().contains(probe, Locale.ROOT))
+						hits++;
+				}
+				return hits;
+			}));
+		}
+
+		final long hitsFirst = futures.get(0).get();
+		for (final Future<Long> future : futures)
+			assertTrue(future.get() > 0);
+		executor.shutdown();
+		final long elapsed = System.nanoTime() - start;
+
+		// Every thread must see the same shared Sets
+		assertEquals(new SingletonSet(new Content("resource", resources[0])).getMembers(), new SingletonSet(new Content("resource", resources[0])).getMembers());
+		assertSame(new SingletonSet(new Content("resource", resources[0])).getFoldedMembers(), new SingletonSet(new Content("resource", resources[0])).getFoldedMembers());
+
+		logger.info("SingletonSet contention: threads {}, lookups {}, hits (thread 0) {}, {}ms, ~{} lookups per second.",
+				threads, 2L * threads * iterations, hitsFirst, elapsed / 1_000_000,
+				Math.round(2.0 * threads * iterations / (elapsed / 1_000_000_000.0)));
+	}
 }
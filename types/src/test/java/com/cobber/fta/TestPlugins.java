@@ -17,15 +17,30 @@ package com.cobber.fta;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.security.SecureRandom;
 import java.text.DateFormatSymbols;
 import java.time.LocalDate;
@@ -41,6 +56,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.testng.annotations.Test;
 
@@ -60,6 +76,9 @@ import com.cobber.fta.plugins.IPV4Address;
 import com.cobber.fta.plugins.URLLT;
 import com.cobber.fta.plugins.address.USZip5;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import de.siegmar.fastcsv.reader.CloseableIterator;
 import de.siegmar.fastcsv.reader.CsvReader;
 import de.siegmar.fastcsv.reader.NamedCsvRecord;
@@ -5342,4 +5361,284 @@ public class TestPlugins {
 		Sample.setInvalid(samples, inputs.length - 1);
 		TestUtils.simpleCore(samples, "NAICS", Locale.US, "INDUSTRY_CODE.NAICS", FTAType.LONG, 0.9878048780487805);
 	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void deferredInitialization() throws FTAException {
+		final TextAnalyzer analysis = new TextAnalyzer("deferredInitialization");
+		analysis.setLocale(Locale.US);
+
+		for (int i = 0; i < 100; i++)
+			analysis.train(String.valueOf(1000 + i * 7));
+
+		final TextAnalysisResult result = analysis.getResult();
+		assertEquals(result.getType(), FTAType.LONG);
+
+		// A String-based list plugin should never have been a candidate for a column of LONGs
+		LogicalType state = null;
+		for (final LogicalType logical : analysis.getPlugins().getRegisteredSemanticTypesDeferred())
+			if ("STATE_PROVINCE.STATE_US".equals(logical.getSemanticType()))
+				state = logical;
+		assertTrue(state.isInitializationDeferred());
+
+		// Asking for the plugin by name should complete the initialization
+		assertEquals(analysis.getPlugins().getRegistered("STATE_PROVINCE.STATE_US"), state);
+		assertFalse(state.isInitializationDeferred());
+		assertTrue(state.isValid("CA"));
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void deferredLoading() throws FTAException {
+		final String key = new Content("resource", "/reference/ca_provinces.csv").getCacheKey();
+		SingletonSet.evict(key);
+
+		// Registering the plugins (including the cardinality checks) and analyzing a column of LONGs should not load the list
+		final TextAnalyzer longs = new TextAnalyzer("deferredLoading");
+		longs.setLocale(Locale.US);
+		for (int i = 0; i < 100; i++)
+			longs.train(String.valueOf(1000 + i * 7));
+		assertEquals(longs.getResult().getType(), FTAType.LONG);
+		assertFalse(SingletonSet.isLoaded(key));
+
+		// The list is only loaded once the plugin becomes a candidate
+		final TextAnalyzer provinces = new TextAnalyzer("Province");
+		provinces.setLocale(Locale.CANADA);
+		final String[] inputs = { "AB", "BC", "MB", "NB", "NL", "NS", "NT", "NU", "ON", "PE", "QC", "SK", "YT" };
+		for (int i = 0; i < 100; i++)
+			provinces.train(inputs[i % inputs.length]);
+		assertFalse(SingletonSet.isLoaded(key));
+		assertEquals(provinces.getResult().getSemanticType(), "STATE_PROVINCE.PROVINCE_CA");
+		assertTrue(SingletonSet.isLoaded(key));
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void singletonSetShared() {
+		final String resource = "/reference/en_street_markers.csv";
+		final SingletonSet first = new SingletonSet(new Content("resource", resource));
+		final SingletonSet second = new SingletonSet(new Content("resource", resource));
+
+		// Every SingletonSet for the same Content must resolve to the same interned Sets
+		assertSame(first.getMembers(), second.getMembers());
+		assertSame(first.getFoldedMembers(), second.getFoldedMembers());
+		assertTrue(first.getMembers().contains("STREET"));
+		assertTrue(second.getFoldedMembers().contains("Street", Locale.ROOT));
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void pluginCatalog() throws IOException, FTAException {
+		final ObjectMapper mapper = new ObjectMapper();
+		final List<PluginDefinition> fromJSON = mapper.readValue(PluginCatalog.class.getResourceAsStream(PluginCatalog.PLUGINS_RESOURCE),
+				new TypeReference<List<PluginDefinition>>(){});
+		final List<PluginDefinition> fromCatalog = PluginCatalog.readBuiltinPlugins(mapper);
+
+		// The catalog must reproduce plugins.json exactly
+		assertEquals(mapper.readTree(mapper.writeValueAsString(fromCatalog)), mapper.readTree(mapper.writeValueAsString(fromJSON)));
+
+		// The list plugins should have their lengths and Regular Expression precomputed
+		final PluginCatalog.ListInfo listInfo = PluginCatalog.getListInfo(new Content("resource", "/reference/us_states.csv").getCacheKey());
+		assertNotNull(listInfo);
+		assertEquals(listInfo.minLength, 2);
+		assertEquals(listInfo.maxLength, 2);
+		assertTrue(listInfo.upperCase);
+		// The catalog records the length of the list so that a changed list is detected
+		assertEquals(listInfo.resource, "/reference/us_states.csv");
+		assertEquals(listInfo.length, PluginCatalog.class.getResourceAsStream(listInfo.resource).readAllBytes().length);
+
+		final TextAnalyzer analysis = new TextAnalyzer("pluginCatalog");
+		analysis.setLocale(Locale.US);
+		analysis.registerDefaultPlugins(analysis.getConfig());
+		final LogicalTypeFinite logical = (LogicalTypeFinite)analysis.getPlugins().getRegistered("STATE_PROVINCE.STATE_US");
+		assertEquals(logical.getRegExp(), listInfo.regExp);
+		assertEquals(logical.getMinLength(), 2);
+		assertEquals(logical.getMaxLength(), 2);
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void pluginCatalogRoundTrip() throws IOException, ReflectiveOperationException {
+		final List<PluginDefinition> plugins = new ArrayList<>(new ObjectMapper().readValue(PluginCatalog.class.getResourceAsStream(PluginCatalog.PLUGINS_RESOURCE),
+				new TypeReference<List<PluginDefinition>>(){}));
+		// Every field populated with a non-default value, so that a field added to the definition but not to the catalog is detected
+		plugins.add((PluginDefinition)populate(PluginDefinition.class));
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		PluginCatalog.writePlugins(out, plugins);
+		out.flush();
+		final List<PluginDefinition> read = PluginCatalog.readPlugins(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(read.size(), plugins.size());
+		for (int i = 0; i < plugins.size(); i++)
+			assertFieldsEqual(read.get(i), plugins.get(i), plugins.get(i).semanticType);
+	}
+
+	/*
+	 * Construct an instance of the class with every public field set to a non-default value.
+	 */
+	private static Object populate(final Class<?> clazz) throws ReflectiveOperationException {
+		final Constructor<?> constructor = clazz.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		final Object ret = constructor.newInstance();
+		for (final Field field : clazz.getFields()) {
+			if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+				continue;
+			final Class<?> type = field.getType();
+			final String name = field.getName();
+			if (type == String.class)
+				field.set(ret, name + "-value");
+			else if (type == int.class)
+				field.setInt(ret, field.getInt(ret) + name.length());
+			else if (type == boolean.class)
+				field.setBoolean(ret, !field.getBoolean(ret));
+			else if (type == FTAType.class)
+				field.set(ret, FTAType.LOCALDATE);
+			else if (type == String[].class)
+				field.set(ret, new String[] { name + "-first", name + "-second" });
+			else if (type == Set.class)
+				field.set(ret, new HashSet<>(List.of(name + "-first", name + "-second")));
+			else if (type == Map.class)
+				field.set(ret, new HashMap<>(Map.of("string", name, "integer", 42, "boolean", true)));
+			else if (type.isArray()) {
+				final Object array = Array.newInstance(type.getComponentType(), 2);
+				for (int i = 0; i < 2; i++)
+					Array.set(array, i, populate(type.getComponentType()));
+				field.set(ret, array);
+			}
+			else if (type.getName().startsWith("com.cobber.fta."))
+				field.set(ret, populate(type));
+			else
+				fail("Unsupported field type '" + type.getName() + "' for " + clazz.getSimpleName() + "." + name + " - update PluginCatalog and this test");
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Compare every public field (recursively) of the two objects.
+	 */
+	private static void assertFieldsEqual(final Object actual, final Object expected, final String path) throws IllegalAccessException {
+		if (expected == null || actual == null) {
+			assertEquals(actual, expected, path);
+			return;
+		}
+
+		final Class<?> clazz = expected.getClass();
+		if (clazz.isArray()) {
+			assertEquals(Array.getLength(actual), Array.getLength(expected), path);
+			for (int i = 0; i < Array.getLength(expected); i++)
+				assertFieldsEqual(Array.get(actual, i), Array.get(expected, i), path + "[" + i + "]");
+		}
+		else if (!clazz.getName().startsWith("com.cobber.fta.") || clazz.isEnum())
+			assertEquals(actual, expected, path);
+		else
+			for (final Field field : clazz.getFields())
+				if (!Modifier.isStatic(field.getModifiers()))
+					assertFieldsEqual(field.get(actual), field.get(expected), path + "." + field.getName());
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void bloomFilterList() throws IOException, FTAException {
+		final Path directory = Files.createTempDirectory("fta");
+		final Path accounts = directory.resolve("accounts.csv");
+		final List<String> members = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+			members.add(String.format("AC%06d", i * 7));
+		Files.write(accounts, members, StandardCharsets.UTF_8);
+
+		final PluginDefinition pluginDefinition = new PluginDefinition("ACCOUNT", "Account codes",
+				null, new Content("file", accounts.toString()), "\\p{Alnum}*",
+				new PluginLocaleEntry[] { new PluginLocaleEntry("en", null, 90, null) }, true,  98, FTAType.STRING);
+
+		final String previous = System.setProperty("fta.bloomFilterCache", directory.toString());
+		try {
+			final TextAnalyzer analysis = new TextAnalyzer("Account");
+			analysis.setLocale(Locale.forLanguageTag("en-US"));
+			analysis.getConfig().setBloomFilterThreshold(1000);
+			analysis.getPlugins().registerPluginList(List.of(pluginDefinition), analysis.getConfig(), false);
+
+			final LogicalTypeBloomFilterExternal logical = (LogicalTypeBloomFilterExternal)analysis.getPlugins().getRegistered("ACCOUNT");
+			assertEquals(logical.getSize(), members.size());
+			assertTrue(members.contains(logical.nextRandom()));
+			assertTrue(logical.isValid("AC000014"));
+			assertFalse(logical.isValid("AC000015"));
+			// The input is normalized exactly as for the list held on the heap
+			assertTrue(logical.isValid(" ac000014 "));
+
+			// The filter should have been cached on disk
+			try (Stream<Path> files = Files.list(directory)) {
+				assertEquals(files.filter(f -> f.toString().endsWith(".bf")).count(), 1);
+			}
+
+			// A cache directory that others can write to is not trusted
+			assertTrue(ContentBloomFilter.isTrusted(directory));
+			if (Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)) {
+				final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+				Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+				assertFalse(ContentBloomFilter.isTrusted(directory));
+				Files.setPosixFilePermissions(directory, permissions);
+			}
+
+			for (int i = 0; i < 200; i++)
+				analysis.train(members.get(RANDOM.nextInt(members.size())));
+
+			final TextAnalysisResult result = analysis.getResult();
+			assertEquals(result.getType(), FTAType.STRING);
+			assertEquals(result.getSemanticType(), "ACCOUNT");
+
+			// Below the threshold the list is held on the heap as normal
+			final TextAnalyzer small = new TextAnalyzer("Account");
+			small.setLocale(Locale.forLanguageTag("en-US"));
+			small.getPlugins().registerPluginList(List.of(pluginDefinition), small.getConfig(), false);
+			assertTrue(small.getPlugins().getRegistered("ACCOUNT") instanceof LogicalTypeFiniteSimpleExternal);
+			assertTrue(small.getPlugins().getRegistered("ACCOUNT").isValid(" ac000014 "));
+		}
+		finally {
+			if (previous == null)
+				System.clearProperty("fta.bloomFilterCache");
+			else
+				System.setProperty("fta.bloomFilterCache", previous);
+		}
+	}
+
+	@Test(groups = { TestGroups.ALL, TestGroups.PLUGINS })
+	public void bloomFilterListLowerCase() throws IOException, FTAException {
+		final Path directory = Files.createTempDirectory("fta");
+		final Path accounts = directory.resolve("accounts.csv");
+		final List<String> members = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+			members.add(String.format(i % 10 == 0 ? " ac%06d " : "ac%06d", i * 7));
+		Files.write(accounts, members, StandardCharsets.UTF_8);
+
+		final PluginDefinition pluginDefinition = new PluginDefinition("ACCOUNT", "Account codes",
+				null, new Content("file", accounts.toString()), "\\p{Alnum}*",
+				new PluginLocaleEntry[] { new PluginLocaleEntry("en", null, 90, null) }, true,  98, FTAType.STRING);
+
+		final String previous = System.setProperty("fta.bloomFilterCache", directory.toString());
+		try {
+			final TextAnalyzer analysis = new TextAnalyzer("Account");
+			analysis.setLocale(Locale.forLanguageTag("en-US"));
+			analysis.getConfig().setBloomFilterThreshold(1000);
+			analysis.getPlugins().registerPluginList(List.of(pluginDefinition), analysis.getConfig(), false);
+
+			// The members are normalized (trimmed and upper cased) as they are added to the filter
+			final LogicalTypeBloomFilterExternal logical = (LogicalTypeBloomFilterExternal)analysis.getPlugins().getRegistered("ACCOUNT");
+			assertTrue(logical.isValid("AC000014"));
+			assertTrue(logical.isValid("ac000014"));
+			assertTrue(logical.isValid("AC000000"));
+			assertTrue(logical.isValid("Ac000070"));
+			assertFalse(logical.isValid("AC000015"));
+			assertTrue(logical.isValid(logical.nextRandom()));
+
+			for (int i = 0; i < 200; i++)
+				analysis.train(members.get(RANDOM.nextInt(members.size())).trim());
+
+			final TextAnalysisResult result = analysis.getResult();
+			assertEquals(result.getType(), FTAType.STRING);
+			assertEquals(result.getSemanticType(), "ACCOUNT");
+		}
+		finally {
+			if (previous == null)
+				System.clearProperty("fta.bloomFilterCache");
+			else
+				System.setProperty("fta.bloomFilterCache", previous);
+		}
+	}
 }